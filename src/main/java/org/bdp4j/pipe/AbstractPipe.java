@@ -29,9 +29,11 @@ import org.bdp4j.types.Instance;
 import org.bdp4j.types.PipeType;
 import org.bdp4j.util.BooleanBean;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import org.bdp4j.util.Configurator;
+import org.bdp4j.util.EBoolean;
 import org.bdp4j.util.PipeUtils;
 
 /* Copyright (C) 2002 Univ. of Massachusetts Amherst, Computer Science Dept.
@@ -150,6 +152,7 @@ public abstract class AbstractPipe implements Pipe {
             return carriers;
         }
 
+        boolean releaseInvalid = isReleaseInvalidMode();
         try {
             //Pipe all instances except the last one
             isLast = false;
@@ -182,6 +185,9 @@ public abstract class AbstractPipe implements Pipe {
                             Configurator.getActionOnIrrecoverableError().run();
                         }
                     }
+                    if (releaseInvalid && !carriersAsArray[i].isValid()) {
+                        carriersAsArray[i].releasePayload();
+                    }
                 } else {
                     logger.info("Skipping invalid instance " + carriersAsArray[i].toString());
                 }
@@ -190,6 +196,9 @@ public abstract class AbstractPipe implements Pipe {
             //AbstractPipe the last valid instance
             isLast = true;
             pipe(carriersAsArray[lastValidInstanceIdx]);
+            if (releaseInvalid && !carriersAsArray[lastValidInstanceIdx].isValid()) {
+                carriersAsArray[lastValidInstanceIdx].releasePayload();
+            }
         } catch (Exception e) {
             logger.fatal("Exception caught on pipe " + getClass().getName() + ". " + e.getMessage() + " while processing instance");
             e.printStackTrace(System.err);
@@ -200,6 +209,92 @@ public abstract class AbstractPipe implements Pipe {
         return carriers;
     }
 
+    /**
+     * Determines whether the pipe requires the data of the instances. Pipes
+     * annotated with PropertyReadingPipe do not require data unless their
+     * declared input and output types show that they transform it.
+     *
+     * @return true if the pipe requires the data of the instances
+     */
+    public boolean requiresData() {
+        if (getClass().getAnnotation(PropertyReadingPipe.class) == null) {
+            return true;
+        }
+
+        Class<?> input = getInputType();
+        Class<?> output = getOutputType();
+        if (input != null && output != null && input != output
+                && !input.equals(Object.class) && !output.equals(Object.class)) {
+            logger.warn("[REQUIRES DATA] " + getClass().getSimpleName() + " is annotated as PropertyReadingPipe but transforms "
+                    + input.getSimpleName() + " into " + output.getSimpleName() + ". Data will be kept.");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Determines whether invalidated instances should be released (keeping
+     * only their name and invalidation reason) and removed from the working
+     * set between pipes. See Configurator.RELEASE_INVALID_MODE
+     *
+     * @return true if invalidated instances should be released
+     */
+    static boolean isReleaseInvalidMode() {
+        return EBoolean.getBoolean(Configurator.getLastUsed().getProp(Configurator.RELEASE_INVALID_MODE));
+    }
+
+    /**
+     * Determines whether the data of the instances should be released after
+     * the last pipe that requires it. See Configurator.RELEASE_DATA_MODE
+     *
+     * @return true if the data should be released after its last consumer
+     */
+    static boolean isReleaseDataMode() {
+        return EBoolean.getBoolean(Configurator.getLastUsed().getProp(Configurator.RELEASE_DATA_MODE));
+    }
+
+    /**
+     * Replaces the data of all instances of a collection with a lightweight
+     * tombstone
+     *
+     * @param carriers The collection of instances
+     */
+    static void releaseData(Collection<Instance> carriers) {
+        for (Instance carrier : carriers) {
+            carrier.releaseData();
+        }
+    }
+
+    /**
+     * Releases the payload of the invalid instances included in a collection
+     * and computes the working set for the next pipe (only valid instances).
+     *
+     * @param carriers The collection of instances
+     * @return The same collection if all instances are valid, a new list
+     * containing only the valid instances otherwise
+     */
+    static Collection<Instance> compactInvalidInstances(Collection<Instance> carriers) {
+        int invalidCount = 0;
+        for (Instance carrier : carriers) {
+            if (!carrier.isValid()) {
+                carrier.releasePayload();
+                invalidCount++;
+            }
+        }
+
+        if (invalidCount == 0) {
+            return carriers;
+        }
+
+        List<Instance> workingSet = new ArrayList<>(carriers.size() - invalidCount);
+        for (Instance carrier : carriers) {
+            if (carrier.isValid()) {
+                workingSet.add(carrier);
+            }
+        }
+        return workingSet;
+    }
+
     /**
      * Finds the parent AbstractPipe
      *
@@ -29,12 +29,14 @@ package org.bdp4j.pipe;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.bdp4j.types.Instance;
+import org.bdp4j.util.CompiledExpression;
 import org.bdp4j.util.RegularExpressionEvaluator;
 
 /**
  *
  * @author María Novo
  */
+@PropertyReadingPipe
 public class CombinePropertiesPipe extends AbstractPipe {
 
     /**
@@ -73,6 +75,11 @@ public class CombinePropertiesPipe extends AbstractPipe {
      */
     private Class[] parameterTypes;
 
+    /**
+     * The compiled expression (compiled when the first instance is processed)
+     */
+    private transient CompiledExpression compiledExpression = null;
+
     /**
      * Default constructor. Build a CombineColumnsFromStringBufferPipe that
      * stores the result of combined properties in the default property
@@ -165,7 +172,6 @@ public class CombinePropertiesPipe extends AbstractPipe {
      */
     @Override
     public Instance pipe(Instance carrier) {
-        RegularExpressionEvaluator ree = new RegularExpressionEvaluator();
         Object[] parameterValues = new Object[parameterNames.length];
         boolean validProperty = true;
 
@@ -187,12 +193,7 @@ public class CombinePropertiesPipe extends AbstractPipe {
         }
         if (validProperty) {
             try {
-                // This is necessary because RegularExpressionEvaluator doesn't allow non alphanumeric characters. 
-                String[] formattedParameterNames = ree.formatParameterNames(parameterNames);
-                String formattedExpression = ree.formatExpression(this.expression, this.parameterNames);
-
-                Object result = ree.evaluateExpression(formattedExpression, this.expressionType, formattedParameterNames,
-                        this.parameterTypes, parameterValues);
+                Object result = getCompiledExpression().evaluate(parameterValues);
                 
                 if (this.expressionType.equals(Integer.class)) {
                     if (result != null){
@@ -220,4 +221,19 @@ public class CombinePropertiesPipe extends AbstractPipe {
 
         return carrier;
     }
+
+    /**
+     * Returns the compiled expression (compiling it only once)
+     *
+     * @return the compiled expression
+     * @throws Exception if the expression cannot be compiled
+     */
+    private CompiledExpression getCompiledExpression() throws Exception {
+        if (compiledExpression == null) {
+            // This is necessary because RegularExpressionEvaluator doesn't allow non alphanumeric characters. 
+            compiledExpression = new RegularExpressionEvaluator().compile(this.expression, this.expressionType,
+                    this.parameterNames, this.parameterTypes);
+        }
+        return compiledExpression;
+    }
 }
@@ -218,6 +218,22 @@ public class ParallelPipes extends AbstractPipe {
         }
     }
 
+    /**
+     * Determines whether any of the included pipes requires the data of the
+     * instances
+     *
+     * @return true if any included pipe requires the data
+     */
+    @Override
+    public boolean requiresData() {
+        for (AbstractPipe p : pipes) {
+            if (p == null || p.requiresData()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Determines the input type for the pipe
      *
@@ -0,0 +1,45 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+
+
+package org.bdp4j.pipe;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+
+/**
+ * This annotation is used to indicate which pipes only read the properties
+ * (and maybe the target) of Instances. These pipes never access the data of
+ * an instance, so the pipeline is able to release the data once the last
+ * pipe that requires it has been executed. Pipes without this annotation
+ * are always considered to require the data. This annotation is a marker
+ * and is not a PipeType, so it is not counted with countPipes.
+ * @author María Novo
+ */
+public @interface PropertyReadingPipe {
+}
@@ -135,10 +135,7 @@ public class ResumableParallelPipes extends ParallelPipes {
 
                     if (savedFile) {
                         // Check if instances(carriers) matches
-                        StringBuilder md5Carriers = new StringBuilder();
-                        carriers.stream().map((carrier) -> PipeUtils.generateMD5(carrier.toString())).forEachOrdered((md5Carrier) -> {
-                            md5Carriers.append(md5Carrier);
-                        });
+                        String md5Carriers = PipeUtils.generateCheckpointKey(carriers);
                         String instancesFileName = getStorePath(carriers) + sourcePath.getName() + ".txt";
                         File instancesFile = new File(instancesFileName);
                         if (sourcePath.exists() && sourcePath.isDirectory()) {
@@ -146,7 +143,7 @@ public class ResumableParallelPipes extends ParallelPipes {
                                 String deserializedCarriers = (String) PipeUtils.readFromDisk(getStorePath(carriers) + sourcePath.getName() + ".txt");
 
                                 // If instances match, the pipe and instances are the same, so, this is the first step
-                                if (!deserializedCarriers.equals(md5Carriers.toString())) {
+                                if (!PipeUtils.matchesCheckpointKey(deserializedCarriers, md5Carriers)) {
 
                                     return this.pipeAll(carriers, step);
                                 } else {
@@ -266,10 +263,7 @@ public class ResumableParallelPipes extends ParallelPipes {
                 String md5PipeName = getStorePath(carriers);
                 if (!md5PipeName.equals("")) {
                     // Generate MD5 to carriers
-                    StringBuilder md5Carriers = new StringBuilder();
-                    carriers.stream().map((carrier) -> PipeUtils.generateMD5(carrier.toString())).forEachOrdered((md5Carrier) -> {
-                        md5Carriers.append(md5Carrier);
-                    });
+                    String md5Carriers = PipeUtils.generateCheckpointKey(carriers);
 
                     if (!isDebuggingPipe()) {
                         File instancesFileName = new File(getStorePath(carriers));
@@ -277,7 +271,7 @@ public class ResumableParallelPipes extends ParallelPipes {
                             instancesFilePath = getStorePath(carriers) + instancesFileName.getName() + ".txt";
                             instancesFile = new File(instancesFilePath);
                             if (!instancesFile.exists()) {
-                                PipeUtils.writeToDisk(instancesFile.getPath(), md5Carriers.toString());
+                                PipeUtils.writeToDisk(instancesFile.getPath(), md5Carriers);
                             }
                         }
                     }
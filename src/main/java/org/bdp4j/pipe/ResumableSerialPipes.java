@@ -144,17 +144,14 @@ public class ResumableSerialPipes extends SerialPipes {
 
                     if (lastModifiedFile.equals(pipeFilename) && lastModifiedFileStep == step) {
                         // Check if instances(carriers) matches
-                        StringBuilder md5Carriers = new StringBuilder();
-                        carriers.stream().map((carrier) -> PipeUtils.generateMD5(carrier.toString())).forEachOrdered((md5Carrier) -> {
-                            md5Carriers.append(md5Carrier);
-                        });
+                        String md5Carriers = PipeUtils.generateCheckpointKey(carriers);
                         String instancesFileName = getStorePath(carriers) + sourcePath.getName() + ".txt";
                         File instancesFile = new File(instancesFileName);
                         if (sourcePath.exists() && sourcePath.isDirectory()) {
                             if (instancesFile.exists()) {
                                 String deserializedCarriers = (String) PipeUtils.readFromDisk(getStorePath(carriers) + sourcePath.getName() + ".txt");
                                 // If instances match, the pipe and instances are the same, so, this is the first step
-                                if (!deserializedCarriers.equals(md5Carriers.toString())) {
+                                if (!PipeUtils.matchesCheckpointKey(deserializedCarriers, md5Carriers)) {
 
                                     return this.pipeAll(carriers, step);
                                 } else {
@@ -201,16 +198,17 @@ public class ResumableSerialPipes extends SerialPipes {
             AbstractPipe[] pipeList = super.getPipes();
             boolean resumableMode = EBoolean.getBoolean(configurator.getProp(Configurator.RESUMABLE_MODE));
             boolean debugMode = EBoolean.getBoolean(configurator.getProp(Configurator.DEBUG_MODE));
+            boolean releaseInvalid = EBoolean.getBoolean(configurator.getProp(Configurator.RELEASE_INVALID_MODE));
+            boolean releaseData = getParent() == null && EBoolean.getBoolean(configurator.getProp(Configurator.RELEASE_DATA_MODE));
+            int lastDataConsumer = releaseData ? findLastDataConsumer() : pipeList.length;
+            Collection<Instance> workingSet = carriers;
             String instancesFilePath = "";
             File instancesFile = null;
             if (resumableMode && !isDebuggingPipe() && step < pipeList.length) {
                 String md5PipeName = getStorePath(carriers);
                 if (!md5PipeName.equals("")) {
                     // Generate MD5 to carriers
-                    StringBuilder md5Carriers = new StringBuilder();
-                    carriers.stream().map((carrier) -> PipeUtils.generateMD5(carrier.toString())).forEachOrdered((md5Carrier) -> {
-                        md5Carriers.append(md5Carrier);
-                    });
+                    String md5Carriers = PipeUtils.generateCheckpointKey(carriers);
 
                     if (!isDebuggingPipe()) {
                         File instancesFileName = new File(getStorePath(carriers));
@@ -218,19 +216,25 @@ public class ResumableSerialPipes extends SerialPipes {
                             instancesFilePath = getStorePath(carriers) + instancesFileName.getName() + ".txt";
                             instancesFile = new File(instancesFilePath);
                             if (!instancesFile.exists()) {
-                                PipeUtils.writeToDisk(instancesFile.getPath(), md5Carriers.toString());
+                                PipeUtils.writeToDisk(instancesFile.getPath(), md5Carriers);
                             }
                         }
                     }
                     for (i = step; i < pipeList.length; i++) {
                         p = pipeList[i];
+                        if (i == lastDataConsumer + 1 || (i == step && i > lastDataConsumer)) {
+                            releaseData(workingSet);
+                        }
 
                         if (p == null) {
                             logger.fatal("AbstractPipe " + i + " is null");
                             Configurator.setIrrecoverableErrorInfo("AbstractPipe " + i + " is null");
                             Configurator.getActionOnIrrecoverableError().run();
                         } else {
-                            p.pipeAll(carriers);
+                            p.pipeAll(workingSet);
+                        }
+                        if (releaseInvalid) {
+                            workingSet = compactInvalidInstances(workingSet);
                         }
 
                         // Save instances
@@ -273,13 +277,18 @@ public class ResumableSerialPipes extends SerialPipes {
             } else {
                 for (i = step; i < pipeList.length; i++) {
                     p = pipeList[i];
+                    if (i == lastDataConsumer + 1 || (i == step && i > lastDataConsumer)) {
+                        releaseData(workingSet);
+                    }
                     if (p == null) {
                         logger.fatal("AbstractPipe " + i + " is null");
                         Configurator.setIrrecoverableErrorInfo("AbstractPipe " + i + " is null");
                         Configurator.getActionOnIrrecoverableError().run();
                     } else {
-                        p.pipeAll(carriers);
-
+                        p.pipeAll(workingSet);
+                    }
+                    if (releaseInvalid) {
+                        workingSet = compactInvalidInstances(workingSet);
                     }
                 }
             }
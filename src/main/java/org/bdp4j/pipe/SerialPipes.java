@@ -284,6 +284,9 @@ public class SerialPipes extends AbstractPipe {
                     if (carrier.isValid()) {
                         p.isLast = isLast; //Indicate whether the current instance is the last or not
                         carrier = p.pipe(carrier);
+                        if (!carrier.isValid() && isReleaseInvalidMode()) {
+                            carrier.releasePayload();
+                        }
                     } else {
                         logger.info("Skipping invalid instance " + carrier.toString());
                     }
@@ -306,21 +309,69 @@ public class SerialPipes extends AbstractPipe {
      */
     @Override
     public Collection<Instance> pipeAll(Collection<Instance> carriers) {
+        boolean releaseInvalid = isReleaseInvalidMode();
+        int lastDataConsumer = (getParent() == null && isReleaseDataMode()) ? findLastDataConsumer() : pipes.size();
+        Collection<Instance> workingSet = carriers;
+
         // Call pipeAll for each pipe included in the serialPipes
         for (int i = 0; i < pipes.size(); i++) {
+            // Remaining pipes do not need data
+            if (i == lastDataConsumer + 1) {
+                releaseData(workingSet);
+            }
+
             AbstractPipe p = pipes.get(i);
             if (p == null) {
                 logger.fatal("AbstractPipe " + i + " is null");
                 Configurator.setIrrecoverableErrorInfo("AbstractPipe " + i + " is null");
                 Configurator.getActionOnIrrecoverableError().run();
             } else {
-                p.pipeAll(carriers);
+                p.pipeAll(workingSet);
+            }
+
+            // Invalid instances are released and removed from the working set
+            if (releaseInvalid) {
+                workingSet = compactInvalidInstances(workingSet);
+                if (workingSet.isEmpty() && i < pipes.size() - 1) {
+                    logger.fatal("All instances were invalidated.");
+                    Configurator.setIrrecoverableErrorInfo(this.getClass().getName() + " - " + "All instances were invalidated.");
+                    Configurator.getActionOnIrrecoverableError().run();
+                    return carriers;
+                }
             }
         }
 
         return carriers;
     }
 
+    /**
+     * Finds the position of the last pipe that requires the data of the
+     * instances. Pipes placed after this position only read properties.
+     *
+     * @return the position of the last pipe that requires data or -1 if no
+     * pipe requires data
+     */
+    public int findLastDataConsumer() {
+        for (int i = pipes.size() - 1; i >= 0; i--) {
+            AbstractPipe p = pipes.get(i);
+            if (p == null || p.requiresData()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Determines whether any of the included pipes requires the data of the
+     * instances
+     *
+     * @return true if any included pipe requires the data
+     */
+    @Override
+    public boolean requiresData() {
+        return findLastDataConsumer() >= 0;
+    }
+
     /**
      * Remove a pipe from the processing pipe
      *
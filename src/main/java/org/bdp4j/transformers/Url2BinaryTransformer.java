@@ -38,6 +38,11 @@ import org.bdp4j.types.Transformer;
  */
 public class Url2BinaryTransformer extends Transformer {
 
+    /**
+     * The serial version UID
+     */
+    private static final long serialVersionUID = 1L;
+
     private String transformerListValues;
 
     /**
@@ -35,6 +35,11 @@ import java.util.List;
  */
 public class CheckVoidTransformer extends Transformer {
 
+    /**
+     * The serial version UID
+     */
+    private static final long serialVersionUID = 1L;
+
     private String transformerListValues;
 
     /**
@@ -37,6 +37,11 @@ import org.bdp4j.types.Transformer;
  */
 public class ComputeOcurrencesTransformer extends Transformer {
 
+    /**
+     * The serial version UID
+     */
+    private static final long serialVersionUID = 1L;
+
     private String transformerListValues;
 
     /**
@@ -37,6 +37,11 @@ import org.bdp4j.util.DateTimeIdentifier;
  */
 public class Date2MillisTransformer extends Transformer {
 
+    /**
+     * The serial version UID
+     */
+    private static final long serialVersionUID = 1L;
+
     private String transformerListValues;
 
     /**
@@ -36,6 +36,11 @@ import java.util.List;
  */
 public class Double2BinaryTransformer extends Transformer {
 
+    /**
+     * The serial version UID
+     */
+    private static final long serialVersionUID = 1L;
+
     private String transformerListValues;
 
     /**
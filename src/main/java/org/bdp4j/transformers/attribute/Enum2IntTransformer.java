@@ -37,6 +37,11 @@ import java.util.Map;
  * @author María Novo
  */
 public class Enum2IntTransformer extends Transformer {
+
+    /**
+     * The serial version UID
+     */
+    private static final long serialVersionUID = 1L;
     
     /**
      * Represents the conversor from String to Integer
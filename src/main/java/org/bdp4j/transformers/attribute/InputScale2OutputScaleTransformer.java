@@ -28,6 +28,7 @@ package org.bdp4j.transformers.attribute;
 
 import java.util.ArrayList;
 import java.util.List;
+import org.bdp4j.types.ColumnStatistics;
 import org.bdp4j.types.Transformer;
 import org.bdp4j.util.Pair;
 
@@ -38,6 +39,11 @@ import org.bdp4j.util.Pair;
  */
 public class InputScale2OutputScaleTransformer extends Transformer {
 
+    /**
+     * The serial version UID
+     */
+    private static final long serialVersionUID = 1L;
+
     private String transformerListValues;
 
     /**
@@ -61,6 +67,70 @@ public class InputScale2OutputScaleTransformer extends Transformer {
         this.outputScale = outputScale;
     }
 
+    /**
+     * Build a InputScale2OutputScaleTransformer using the range of values of
+     * a column as input scale
+     *
+     * @param inputStatistics The statistics of the input values (see
+     * Dataset.getStatistics())
+     * @param outputScale Output value scale
+     * @throws IllegalArgumentException If the column has no values
+     */
+    public InputScale2OutputScaleTransformer(ColumnStatistics inputStatistics, Pair<Double, Double> outputScale) {
+        this(new Pair<>(checkValues(inputStatistics).getMin(), inputStatistics.getMax()), outputScale);
+    }
+
+    /**
+     * Build a InputScale2OutputScaleTransformer using two quantiles of a column
+     * as input scale (which makes the scale robust to outliers)
+     *
+     * @param inputStatistics The statistics of the input values including
+     * sketches (see Dataset.getStatistics(boolean))
+     * @param lowerQuantile The fraction of values under the lower bound of the
+     * input scale (for instance, 0.01)
+     * @param upperQuantile The fraction of values under the upper bound of the
+     * input scale (for instance, 0.99)
+     * @param outputScale Output value scale
+     * @throws IllegalArgumentException If the statistics do not include
+     * sketches or the column has no values
+     */
+    public InputScale2OutputScaleTransformer(ColumnStatistics inputStatistics, double lowerQuantile,
+            double upperQuantile, Pair<Double, Double> outputScale) {
+        this(new Pair<>(checkSketches(inputStatistics).getQuantile(lowerQuantile), inputStatistics.getQuantile(upperQuantile)),
+                outputScale);
+    }
+
+    /**
+     * Checks that the statistics used to build the input scale summarize some
+     * values (otherwise the scale is undefined)
+     *
+     * @param inputStatistics The statistics of the input values
+     * @return the statistics
+     * @throws IllegalArgumentException If the column has no values
+     */
+    private static ColumnStatistics checkValues(ColumnStatistics inputStatistics) {
+        if (inputStatistics.getCount() == 0) {
+            throw new IllegalArgumentException("The input scale cannot be computed for a column without values");
+        }
+        return inputStatistics;
+    }
+
+    /**
+     * Checks that the statistics used to build the input scale include the
+     * sketches required to estimate quantiles
+     *
+     * @param inputStatistics The statistics of the input values
+     * @return the statistics
+     * @throws IllegalArgumentException If the statistics do not include
+     * sketches or the column has no values
+     */
+    private static ColumnStatistics checkSketches(ColumnStatistics inputStatistics) {
+        if (!inputStatistics.hasSketches()) {
+            throw new IllegalArgumentException("Quantiles require statistics computed with sketches (see Dataset.getStatistics(boolean))");
+        }
+        return checkValues(inputStatistics);
+    }
+
     /**
      * Transform an input value from input scale to output scale
      *
@@ -0,0 +1,265 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.util.Arrays;
+import org.bdp4j.util.ByteSink;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ * Exports a Dataset to ARFF using the same format as Weka ArffSaver (used by
+ * Dataset.generateARFFWithComments()). Rows can be written in dense form or in
+ * sparse form ("{index value, ...}", only non-zero values), which is used by
+ * default for sparse datasets. Optional comments are written before the
+ * header. Rows are streamed to the output and can be compressed with gzip
+ * (see DatasetExporter).
+ *
+ * @author María Novo
+ */
+public class ARFFExporter extends DatasetExporter {
+
+    /**
+     * The maximum number of decimals of numbers (as Weka does)
+     */
+    private static final int MAX_DECIMALS = 6;
+
+    /**
+     * The comments written before the header
+     */
+    private String comments = "";
+
+    /**
+     * Indicates whether rows are written in sparse form
+     */
+    private boolean sparse;
+
+    /**
+     * The indexes of string columns. Weka always writes string values in
+     * sparse rows, even when they are stored as zero.
+     */
+    private final int[] stringColumns;
+
+    /**
+     * Build an exporter
+     *
+     * @param dataset The dataset to export
+     */
+    public ARFFExporter(Dataset dataset) {
+        super(dataset);
+        this.sparse = dataset.hasSparseRows();
+        int numStringColumns = 0;
+        int[] columns = new int[header.numAttributes()];
+        for (int i = 0; i < columns.length; i++) {
+            if (header.attribute(i).isString()) {
+                columns[numStringColumns++] = i;
+            }
+        }
+        this.stringColumns = Arrays.copyOf(columns, numStringColumns);
+    }
+
+    /**
+     * Sets the comments written before the header. Each line should start with
+     * "%".
+     *
+     * @param comments The comments
+     * @return this exporter
+     */
+    public ARFFExporter setComments(String comments) {
+        this.comments = (comments == null) ? "" : comments;
+        return this;
+    }
+
+    /**
+     * Indicates whether rows should be written in sparse form
+     *
+     * @param sparse true to write rows in sparse form
+     * @return this exporter
+     */
+    public ARFFExporter setSparse(boolean sparse) {
+        this.sparse = sparse;
+        return this;
+    }
+
+    @Override
+    protected void writeHeader(ByteSink sink) {
+        if (!comments.isEmpty()) {
+            sink.append(comments).append('\n');
+        }
+        sink.append('\n');
+        // Weka writes the header as an empty dataset
+        sink.append(new Instances(header, 0).toString());
+    }
+
+    @Override
+    protected void writeRows(int from, int to, ByteSink sink) {
+        if (!sparse) {
+            super.writeRows(from, to, sink);
+            return;
+        }
+        SparseRowWriter writer = new SparseRowWriter(from, sink);
+        dataset.forEachNonZero(from, to, writer);
+        writer.finish(to);
+    }
+
+    @Override
+    protected void writeRow(int row, ByteSink sink) {
+        for (int i = 0; i < header.numAttributes(); i++) {
+            if (i > 0) {
+                sink.append(',');
+            }
+            appendValue(i, value(row, i), MAX_DECIMALS, sink);
+        }
+        writeWeight(row, sink);
+        sink.append('\n');
+    }
+
+    /**
+     * Writes the weight of a row when it is not 1 (as Weka does)
+     *
+     * @param row The index of the row
+     * @param sink The buffer where the weight is written
+     */
+    private void writeWeight(int row, ByteSink sink) {
+        double weight = weight(row);
+        if (weight != 1d) {
+            sink.append(",{").append(weight, MAX_DECIMALS).append('}');
+        }
+    }
+
+    /**
+     * Writes the rows of a chunk in sparse form from their non-zero values
+     */
+    private class SparseRowWriter implements Dataset.CellConsumer {
+
+        /**
+         * The buffer where the rows are written
+         */
+        private final ByteSink sink;
+
+        /**
+         * The index of the row being written
+         */
+        private int row;
+
+        /**
+         * The position (in stringColumns) of the next string column not
+         * written in the current row
+         */
+        private int nextString;
+
+        /**
+         * Indicates whether no value has been written in the current row
+         */
+        private boolean first;
+
+        /**
+         * Build a writer
+         *
+         * @param from The index of the first row of the chunk
+         * @param sink The buffer where the rows are written
+         */
+        SparseRowWriter(int from, ByteSink sink) {
+            this.sink = sink;
+            this.row = from;
+            startRow();
+        }
+
+        @Override
+        public void accept(int row, int column, double value) {
+            moveTo(row);
+            writeStringColumns(column);
+            if (nextString < stringColumns.length && stringColumns[nextString] == column) {
+                nextString++;
+            }
+            writeValue(column, value);
+        }
+
+        /**
+         * Writes the remaining rows of the chunk
+         *
+         * @param to The index of the row after the last one of the chunk
+         */
+        void finish(int to) {
+            moveTo(to - 1);
+            endRow();
+        }
+
+        /**
+         * Ends the current row and the (empty) ones before a row
+         *
+         * @param target The index of the row
+         */
+        private void moveTo(int target) {
+            while (row < target) {
+                endRow();
+                row++;
+                startRow();
+            }
+        }
+
+        /**
+         * Starts the current row
+         */
+        private void startRow() {
+            sink.append('{');
+            first = true;
+            nextString = 0;
+        }
+
+        /**
+         * Ends the current row
+         */
+        private void endRow() {
+            writeStringColumns(header.numAttributes());
+            sink.append('}');
+            writeWeight(row, sink);
+            sink.append('\n');
+        }
+
+        /**
+         * Writes the string columns (stored as zero) before a column
+         *
+         * @param column The index of the column
+         */
+        private void writeStringColumns(int column) {
+            while (nextString < stringColumns.length && stringColumns[nextString] < column) {
+                writeValue(stringColumns[nextString++], 0d);
+            }
+        }
+
+        /**
+         * Writes a value of the current row
+         *
+         * @param column The index of the column
+         * @param value The value
+         */
+        private void writeValue(int column, double value) {
+            if (!first) {
+                sink.append(',');
+            }
+            first = false;
+            sink.append((long) column).append(' ');
+            appendValue(column, value, MAX_DECIMALS, sink);
+        }
+    }
+}
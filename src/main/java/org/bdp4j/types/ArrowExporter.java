@@ -0,0 +1,500 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import org.bdp4j.types.FlatBuffer.Table;
+import org.bdp4j.util.ByteSink;
+import weka.core.Attribute;
+import weka.core.Utils;
+
+/**
+ * Exports a Dataset using the Apache Arrow IPC file (default) or stream
+ * format, so other tools can use its columns without parsing or converting
+ * values. Numeric columns are written as float64 vectors, date columns as
+ * timestamps (milliseconds), nominal columns as dictionary-encoded vectors
+ * (int32 indexes of a utf8 dictionary) and string columns (such as the id) as
+ * utf8 vectors. Missing values are written as nulls and the weights of rows
+ * are not exported.
+ *
+ * Each chunk of rows is written as a record batch (see
+ * DatasetExporter.setChunkSize()), so memory used by the export is bounded
+ * and batches can be built in parallel. The metadata is written following
+ * the Arrow columnar format specification (version 5) without depending on
+ * the Arrow libraries.
+ *
+ * @author María Novo
+ */
+public class ArrowExporter extends DatasetExporter {
+
+    /**
+     * The magic number of Arrow files
+     */
+    private static final byte[] FILE_MAGIC = {'A', 'R', 'R', 'O', 'W', '1'};
+
+    /**
+     * The marker that starts each message
+     */
+    private static final int CONTINUATION = 0xFFFFFFFF;
+
+    /**
+     * The version of the metadata (V5)
+     */
+    private static final int METADATA_VERSION = 4;
+
+    /**
+     * The type of schema messages
+     */
+    private static final int SCHEMA = 1;
+
+    /**
+     * The type of dictionary batch messages
+     */
+    private static final int DICTIONARY_BATCH = 2;
+
+    /**
+     * The type of record batch messages
+     */
+    private static final int RECORD_BATCH = 3;
+
+    /**
+     * The Int type (used for the indexes of dictionary-encoded vectors)
+     */
+    private static final int INT = 2;
+
+    /**
+     * The FloatingPoint type
+     */
+    private static final int FLOATING_POINT = 3;
+
+    /**
+     * The Utf8 type
+     */
+    private static final int UTF8 = 5;
+
+    /**
+     * The Timestamp type
+     */
+    private static final int TIMESTAMP = 10;
+
+    /**
+     * The double precision of FloatingPoint types
+     */
+    private static final int DOUBLE = 2;
+
+    /**
+     * The millisecond unit of Timestamp types
+     */
+    private static final int MILLISECOND = 1;
+
+    /**
+     * Indicates whether the output uses the IPC file format
+     */
+    private boolean fileFormat = true;
+
+    /**
+     * The type of the vector of each column
+     */
+    private final int[] types;
+
+    /**
+     * The buffer used to build the body of record batches by each thread
+     */
+    private final ThreadLocal<Batch> batches = ThreadLocal.withInitial(Batch::new);
+
+    /**
+     * The blocks (position, metadata length and body length) of dictionary
+     * batches
+     */
+    private final List<long[]> dictionaryBlocks = new ArrayList<>();
+
+    /**
+     * The metadata and body lengths of record batches (by first row)
+     */
+    private final Map<Integer, long[]> recordBatchSizes = new ConcurrentSkipListMap<>();
+
+    /**
+     * The size of the output before the first record batch
+     */
+    private long headerSize;
+
+    /**
+     * Build an exporter
+     *
+     * @param dataset The dataset to export
+     */
+    public ArrowExporter(Dataset dataset) {
+        super(dataset);
+        this.types = new int[header.numAttributes()];
+        for (int i = 0; i < types.length; i++) {
+            Attribute attribute = header.attribute(i);
+            if (attribute.isDate()) {
+                types[i] = TIMESTAMP;
+            } else if (attribute.isNumeric()) {
+                types[i] = FLOATING_POINT;
+            } else if (attribute.isNominal()) {
+                types[i] = INT;
+            } else if (attribute.isString()) {
+                types[i] = UTF8;
+            } else {
+                throw new IllegalArgumentException("Unsupported type for attribute " + attribute.name());
+            }
+        }
+    }
+
+    /**
+     * Indicates whether the output should use the IPC file format (with a
+     * footer allowing random access to record batches) or the IPC stream
+     * format
+     *
+     * @param fileFormat true for the file format, false for the stream format
+     * @return this exporter
+     */
+    public ArrowExporter setFileFormat(boolean fileFormat) {
+        this.fileFormat = fileFormat;
+        return this;
+    }
+
+    @Override
+    protected void writeHeader(ByteSink sink) {
+        dictionaryBlocks.clear();
+        recordBatchSizes.clear();
+        if (fileFormat) {
+            sink.append(FILE_MAGIC).pad(8);
+        }
+        writeMessage(sink, message(SCHEMA, schema(), 0), null);
+
+        // Nominal columns use their values as dictionaries (with the index of the column as id)
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] != INT) {
+                continue;
+            }
+            Attribute attribute = header.attribute(i);
+            byte[][] labels = new byte[attribute.numValues()][];
+            for (int j = 0; j < labels.length; j++) {
+                labels[j] = attribute.value(j).getBytes(StandardCharsets.UTF_8);
+            }
+            Batch batch = batches.get();
+            batch.clear();
+            batch.node(labels.length, 0);
+            batch.buffer(batch.body.size());
+            writeStrings(labels, batch);
+            Table dictionaryBatch = new Table()
+                    .addLong(0, i)
+                    .addOffset(1, batch.recordBatch(labels.length))
+                    .addByte(2, 0);
+            long position = sink.size();
+            long metadataLength = writeMessage(sink, message(DICTIONARY_BATCH, dictionaryBatch, batch.body.size()), batch.body);
+            dictionaryBlocks.add(new long[]{position, metadataLength, batch.body.size()});
+        }
+        headerSize = sink.size();
+    }
+
+    @Override
+    protected void writeRows(int from, int to, ByteSink sink) {
+        Batch batch = batches.get();
+        batch.clear();
+        for (int i = 0; i < types.length; i++) {
+            writeColumn(i, from, to, batch);
+        }
+        long metadataLength = writeMessage(sink, message(RECORD_BATCH, batch.recordBatch(to - from), batch.body.size()), batch.body);
+        recordBatchSizes.put(from, new long[]{metadataLength, batch.body.size()});
+    }
+
+    @Override
+    protected void writeRow(int row, ByteSink sink) {
+        writeRows(row, row + 1, sink);
+    }
+
+    @Override
+    protected void writeFooter(ByteSink sink) {
+        // End of stream
+        sink.appendIntLE(CONTINUATION).appendIntLE(0);
+        if (!fileFormat) {
+            return;
+        }
+        ByteSink dictionaries = new ByteSink(24 * dictionaryBlocks.size());
+        for (long[] block : dictionaryBlocks) {
+            appendBlock(dictionaries, block[0], block[1], block[2]);
+        }
+        ByteSink recordBatches = new ByteSink(24 * recordBatchSizes.size());
+        long position = headerSize;
+        for (long[] sizes : recordBatchSizes.values()) {
+            appendBlock(recordBatches, position, sizes[0], sizes[1]);
+            position += sizes[0] + sizes[1];
+        }
+        byte[] footer = FlatBuffer.serialize(new Table()
+                .addShort(0, METADATA_VERSION)
+                .addOffset(1, schema())
+                .addOffset(2, FlatBuffer.structVector(dictionaryBlocks.size(), Arrays.copyOf(dictionaries.array(), dictionaries.size())))
+                .addOffset(3, FlatBuffer.structVector(recordBatchSizes.size(), Arrays.copyOf(recordBatches.array(), recordBatches.size()))));
+        sink.append(footer).appendIntLE(footer.length).append(FILE_MAGIC);
+    }
+
+    /**
+     * Appends a block (the location of a message in the file)
+     *
+     * @param sink The buffer
+     * @param position The position of the message
+     * @param metadataLength The length of the metadata (including its
+     * prefix)
+     * @param bodyLength The length of the body
+     */
+    private static void appendBlock(ByteSink sink, long position, long metadataLength, long bodyLength) {
+        sink.appendLongLE(position).appendIntLE((int) metadataLength).appendIntLE(0).appendLongLE(bodyLength);
+    }
+
+    /**
+     * Writes an encapsulated message
+     *
+     * @param sink The buffer
+     * @param message The metadata of the message
+     * @param body The body of the message (null if it has no body)
+     * @return the length of the metadata (including its prefix)
+     */
+    private static long writeMessage(ByteSink sink, Table message, ByteSink body) {
+        byte[] metadata = FlatBuffer.serialize(message);
+        sink.appendIntLE(CONTINUATION).appendIntLE(metadata.length).append(metadata);
+        if (body != null) {
+            sink.append(body.array(), 0, body.size());
+        }
+        return 8 + metadata.length;
+    }
+
+    /**
+     * Builds the metadata of a message
+     *
+     * @param headerType The type of the header
+     * @param header The header
+     * @param bodyLength The length of the body
+     * @return the message
+     */
+    private static Table message(int headerType, Table header, long bodyLength) {
+        return new Table()
+                .addShort(0, METADATA_VERSION)
+                .addByte(1, headerType)
+                .addOffset(2, header)
+                .addLong(3, bodyLength);
+    }
+
+    /**
+     * Builds the schema (a field per column)
+     *
+     * @return the schema
+     */
+    private Table schema() {
+        List<Table> fields = new ArrayList<>(types.length);
+        for (int i = 0; i < types.length; i++) {
+            Table field = new Table()
+                    .addOffset(0, FlatBuffer.string(header.attribute(i).name()))
+                    .addByte(1, 1)
+                    .addOffset(5, FlatBuffer.vector(new ArrayList<Table>()));
+            switch (types[i]) {
+                case FLOATING_POINT:
+                    field.addByte(2, FLOATING_POINT).addOffset(3, new Table().addShort(0, DOUBLE));
+                    break;
+                case TIMESTAMP:
+                    field.addByte(2, TIMESTAMP).addOffset(3, new Table().addShort(0, MILLISECOND));
+                    break;
+                case INT:
+                    // Dictionary-encoded fields have the type of the dictionary values
+                    field.addByte(2, UTF8).addOffset(3, new Table())
+                            .addOffset(4, new Table()
+                                    .addLong(0, i)
+                                    .addOffset(1, new Table().addInt(0, 32).addByte(1, 1))
+                                    .addByte(2, 0));
+                    break;
+                default:
+                    field.addByte(2, UTF8).addOffset(3, new Table());
+            }
+            fields.add(field);
+        }
+        return new Table().addShort(0, 0).addOffset(1, FlatBuffer.vector(fields));
+    }
+
+    /**
+     * Writes the vector of a column for some rows
+     *
+     * @param column The index of the column
+     * @param from The index of the first row
+     * @param to The index of the row after the last one
+     * @param batch The record batch
+     */
+    private void writeColumn(int column, int from, int to, Batch batch) {
+        int numRows = to - from;
+        int nullCount = 0;
+        for (int row = from; row < to; row++) {
+            if (Utils.isMissingValue(value(row, column))) {
+                nullCount++;
+            }
+        }
+        batch.node(numRows, nullCount);
+        ByteSink body = batch.body;
+
+        // Validity bitmap (omitted when there are no nulls)
+        int start = body.size();
+        if (nullCount > 0) {
+            for (int row = from; row < to; row += 8) {
+                int bits = 0;
+                for (int bit = 0; bit < 8 && row + bit < to; bit++) {
+                    if (!Utils.isMissingValue(value(row + bit, column))) {
+                        bits |= 1 << bit;
+                    }
+                }
+                body.append((byte) bits);
+            }
+        }
+        batch.buffer(start);
+
+        if (types[column] == UTF8) {
+            byte[][] strings = new byte[numRows][];
+            for (int row = from; row < to; row++) {
+                double value = value(row, column);
+                strings[row - from] = Utils.isMissingValue(value) ? new byte[0] : text(column, value).getBytes(StandardCharsets.UTF_8);
+            }
+            writeStrings(strings, batch);
+            return;
+        }
+        start = body.size();
+        for (int row = from; row < to; row++) {
+            double value = value(row, column);
+            boolean missing = Utils.isMissingValue(value);
+            switch (types[column]) {
+                case FLOATING_POINT:
+                    body.appendDoubleLE(missing ? 0d : value);
+                    break;
+                case TIMESTAMP:
+                    body.appendLongLE(missing ? 0L : (long) value);
+                    break;
+                default:
+                    body.appendIntLE(missing ? 0 : (int) value);
+            }
+        }
+        batch.buffer(start);
+    }
+
+    /**
+     * Writes the offsets and data buffers of a utf8 vector
+     *
+     * @param strings The encoded strings
+     * @param batch The record batch
+     */
+    private static void writeStrings(byte[][] strings, Batch batch) {
+        ByteSink body = batch.body;
+        int start = body.size();
+        int offset = 0;
+        body.appendIntLE(0);
+        for (byte[] string : strings) {
+            offset += string.length;
+            body.appendIntLE(offset);
+        }
+        batch.buffer(start);
+        start = body.size();
+        for (byte[] string : strings) {
+            body.append(string);
+        }
+        batch.buffer(start);
+    }
+
+    /**
+     * The body of a record batch and the description of its vectors
+     */
+    private static final class Batch {
+
+        /**
+         * The body
+         */
+        final ByteSink body = new ByteSink(1 << 16);
+
+        /**
+         * The field nodes (length and null count of each vector)
+         */
+        final ByteSink nodes = new ByteSink(256);
+
+        /**
+         * The buffers (offset and length in the body)
+         */
+        final ByteSink buffers = new ByteSink(256);
+
+        /**
+         * The number of field nodes
+         */
+        int numNodes;
+
+        /**
+         * The number of buffers
+         */
+        int numBuffers;
+
+        /**
+         * Removes the contents of the batch
+         */
+        void clear() {
+            body.clear();
+            nodes.clear();
+            buffers.clear();
+            numNodes = 0;
+            numBuffers = 0;
+        }
+
+        /**
+         * Adds a field node
+         *
+         * @param length The number of values
+         * @param nullCount The number of nulls
+         */
+        void node(long length, long nullCount) {
+            nodes.appendLongLE(length).appendLongLE(nullCount);
+            numNodes++;
+        }
+
+        /**
+         * Adds a buffer that ends at the end of the body (and pads the body
+         * to 8 bytes)
+         *
+         * @param start The position where the buffer starts
+         */
+        void buffer(int start) {
+            buffers.appendLongLE(start).appendLongLE(body.size() - start);
+            numBuffers++;
+            body.pad(8);
+        }
+
+        /**
+         * Builds the record batch metadata
+         *
+         * @param length The number of rows
+         * @return the record batch
+         */
+        Table recordBatch(long length) {
+            return new Table()
+                    .addLong(0, length)
+                    .addOffset(1, FlatBuffer.structVector(numNodes, Arrays.copyOf(nodes.array(), nodes.size())))
+                    .addOffset(2, FlatBuffer.structVector(numBuffers, Arrays.copyOf(buffers.array(), buffers.size())));
+        }
+    }
+}
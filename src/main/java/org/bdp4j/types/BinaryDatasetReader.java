@@ -0,0 +1,437 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.bdp4j.types.ColumnarStore.Column;
+import org.bdp4j.types.ColumnarStore.MappedColumn;
+import org.bdp4j.types.ColumnarStore.SparseNumericColumn;
+import weka.core.Attribute;
+
+/**
+ * Loads a dataset from a binary file (see BinaryDatasetWriter). Dense blocks
+ * are memory-mapped and used directly as the columns of a columnar Dataset
+ * (values are neither parsed nor copied, and they are read from the file when
+ * required). The non-zero values of sparse columns are loaded with bulk
+ * copies. Columns are copied to memory when the Dataset modifies them.
+ *
+ * @author María Novo
+ */
+public class BinaryDatasetReader {
+
+    /**
+     * The size of the regions in which the file is mapped. Blocks are views
+     * of these regions, so the number of mappings depends on the size of the
+     * file and not on the number of blocks.
+     */
+    private static final long REGION_SIZE = 1L << 30;
+
+    /**
+     * The bytes mapped after the end of each region, so any block starting in
+     * a region (dense blocks take at most 64 MB) is contained in it
+     */
+    private static final long REGION_OVERLAP = 1L << 27;
+
+    /**
+     * The file
+     */
+    private final File file;
+
+    /**
+     * The transformers stored in the file (null until it is loaded)
+     */
+    private Map<String, Transformer> transformersList = null;
+
+    /**
+     * Build a reader
+     *
+     * @param file The file
+     */
+    public BinaryDatasetReader(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the transformers used to build the dataset (available after
+     * loading it)
+     *
+     * @return the transformers (by name) or null if they were not stored
+     */
+    public Map<String, Transformer> getTransformersList() {
+        return transformersList;
+    }
+
+    /**
+     * Loads the dataset
+     *
+     * @return The columnar Dataset
+     * @throws IOException If an I/O error occurs or the file is not a binary
+     * dataset
+     */
+    public Dataset load() throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            int trailerSize = 8 + BinaryDatasetWriter.MAGIC.length;
+            if (size < BinaryDatasetWriter.MAGIC.length + trailerSize
+                    || !Arrays.equals(magic(read(channel, 0, BinaryDatasetWriter.MAGIC.length)), BinaryDatasetWriter.MAGIC)) {
+                throw new IOException("The file " + file + " is not a binary dataset");
+            }
+            ByteBuffer trailer = read(channel, size - trailerSize, trailerSize);
+            long footerPosition = trailer.getLong();
+            if (!Arrays.equals(magic(trailer), BinaryDatasetWriter.MAGIC)) {
+                throw new IOException("The file " + file + " is incomplete");
+            }
+            if (footerPosition < BinaryDatasetWriter.MAGIC.length || footerPosition > size - trailerSize
+                    || size - trailerSize - footerPosition > Integer.MAX_VALUE) {
+                throw new IOException("The file " + file + " is corrupted");
+            }
+            BinaryDatasetWriter.Footer footer = readFooter(read(channel, footerPosition, (int) (size - trailerSize - footerPosition)));
+            checkFooter(footer, footerPosition);
+            transformersList = readTransformers(footer.transformers);
+
+            int numColumns = footer.attributes.size();
+            int shift = Integer.numberOfTrailingZeros(footer.rowGroupSize);
+            Regions regions = new Regions(channel, footerPosition);
+            List<Column> columns = new ArrayList<>(numColumns);
+            for (int i = 0; i < numColumns; i++) {
+                Column template = Column.fromAttribute(footer.attributes.get(i), 0);
+                if (footer.sparse && template.type() == Attribute.NUMERIC) {
+                    columns.add(loadSparse(regions, footer, i, template.name()));
+                } else {
+                    DoubleBuffer[] blocks = new DoubleBuffer[footer.offsets.size()];
+                    for (int group = 0; group < blocks.length; group++) {
+                        blocks[group] = regions.block(footer.offsets.get(group)[i], groupRows(footer, group) * 8L).asDoubleBuffer();
+                    }
+                    columns.add(new MappedColumn(template, blocks, shift, footer.numRows));
+                }
+            }
+
+            double[] weights = null;
+            for (int group = 0; group < footer.offsets.size(); group++) {
+                long position = footer.offsets.get(group)[numColumns];
+                if (position >= 0) {
+                    if (weights == null) {
+                        weights = new double[footer.numRows];
+                        Arrays.fill(weights, 1d);
+                    }
+                    regions.block(position, groupRows(footer, group) * 8L).asDoubleBuffer().get(weights, group << shift, groupRows(footer, group));
+                }
+            }
+            return new Dataset(ColumnarStore.wrap(footer.relationName, columns, footer.numRows, weights, footer.classIndex, footer.sparse));
+        }
+    }
+
+    /**
+     * Loads a sparse column
+     *
+     * @param regions The mapped regions of the file
+     * @param footer The description of the file
+     * @param column The index of the column
+     * @param name The name of the column
+     * @return The column
+     * @throws IOException If an I/O error occurs
+     */
+    private static Column loadSparse(Regions regions, BinaryDatasetWriter.Footer footer, int column, String name) throws IOException {
+        int size = 0;
+        for (int[] nonZero : footer.nonZero) {
+            size += nonZero[column];
+        }
+        int[] rows = new int[Math.max(size, 1)];
+        double[] data = new double[Math.max(size, 1)];
+        int position = 0;
+        for (int group = 0; group < footer.offsets.size(); group++) {
+            int count = footer.nonZero.get(group)[column];
+            if (count == 0) {
+                continue;
+            }
+            long offset = footer.offsets.get(group)[column];
+            long dataOffset = (offset + 4L * count + 7) & ~7L;
+            regions.block(offset, count * 4L).asIntBuffer().get(rows, position, count);
+            regions.block(dataOffset, count * 8L).asDoubleBuffer().get(data, position, count);
+            int firstRow = group * footer.rowGroupSize;
+            for (int i = position; i < position + count; i++) {
+                rows[i] += firstRow;
+            }
+            position += count;
+        }
+        return new SparseNumericColumn(name, rows, data, size);
+    }
+
+    /**
+     * Checks that the description of the file is consistent, so a corrupted
+     * file is reported with an IOException instead of failing while its
+     * blocks are loaded
+     *
+     * @param footer The description of the file
+     * @param dataEnd The position where the data ends (the position of the
+     * footer)
+     * @throws IOException If the description is not consistent
+     */
+    private void checkFooter(BinaryDatasetWriter.Footer footer, long dataEnd) throws IOException {
+        int numColumns = footer.attributes.size();
+        if (footer.numRows < 0 || footer.rowGroupSize <= 0 || Integer.bitCount(footer.rowGroupSize) != 1
+                || footer.classIndex < -1 || footer.classIndex >= numColumns
+                || footer.offsets.size() != (int) ((footer.numRows + (long) footer.rowGroupSize - 1) / footer.rowGroupSize)) {
+            throw new IOException("The file " + file + " is corrupted");
+        }
+        for (int group = 0; group < footer.offsets.size(); group++) {
+            long[] offsets = footer.offsets.get(group);
+            int[] nonZero = footer.nonZero.get(group);
+            int rows = groupRows(footer, group);
+            for (int i = 0; i <= numColumns; i++) {
+                long length;
+                if (i < numColumns && nonZero[i] >= 0) {
+                    if (!footer.sparse || nonZero[i] > rows) {
+                        throw new IOException("The file " + file + " is corrupted");
+                    }
+                    length = ((4L * nonZero[i] + 7) & ~7L) + 8L * nonZero[i];
+                } else if (i == numColumns && offsets[i] == -1) {
+                    continue;
+                } else {
+                    length = 8L * rows;
+                }
+                if (offsets[i] < BinaryDatasetWriter.MAGIC.length || offsets[i] > dataEnd - length) {
+                    throw new IOException("The file " + file + " is corrupted");
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of rows of a row group
+     *
+     * @param footer The description of the file
+     * @param group The index of the row group
+     * @return the number of rows
+     */
+    private static int groupRows(BinaryDatasetWriter.Footer footer, int group) {
+        return Math.min(footer.rowGroupSize, footer.numRows - group * footer.rowGroupSize);
+    }
+
+    /**
+     * Maps a region of the file
+     *
+     * @param channel The channel of the file
+     * @param position The position of the region
+     * @param length The length of the region
+     * @return the mapped region (little-endian)
+     * @throws IOException If an I/O error occurs
+     */
+    private static ByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * The data of the file mapped in large regions (of REGION_SIZE bytes plus
+     * REGION_OVERLAP bytes) when they are first required. Blocks are slices
+     * of the regions, which keeps the number of mappings far below the limit
+     * of the operating system (vm.max_map_count in Linux).
+     */
+    private static class Regions {
+
+        /**
+         * The channel of the file
+         */
+        private final FileChannel channel;
+
+        /**
+         * The size of the data (the footer is not mapped)
+         */
+        private final long size;
+
+        /**
+         * The mapped regions (null until they are required)
+         */
+        private final ByteBuffer[] regions;
+
+        /**
+         * Build the regions of a file
+         *
+         * @param channel The channel of the file
+         * @param size The size of the data
+         */
+        Regions(FileChannel channel, long size) {
+            this.channel = channel;
+            this.size = size;
+            this.regions = new ByteBuffer[(int) ((size + REGION_SIZE - 1) / REGION_SIZE)];
+        }
+
+        /**
+         * Returns a block of the file
+         *
+         * @param position The position of the block
+         * @param length The length of the block
+         * @return the block (little-endian)
+         * @throws IOException If an I/O error occurs
+         */
+        ByteBuffer block(long position, long length) throws IOException {
+            if (length > REGION_OVERLAP) {
+                // Blocks larger than the overlap may not fit in a region
+                return map(channel, position, length);
+            }
+            int index = (int) (position / REGION_SIZE);
+            long start = index * REGION_SIZE;
+            if (regions[index] == null) {
+                regions[index] = map(channel, start, Math.min(REGION_SIZE + REGION_OVERLAP, size - start));
+            }
+            ByteBuffer block = regions[index].duplicate();
+            block.position((int) (position - start));
+            block.limit((int) (position - start + length));
+            return block.slice().order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * Reads a region of the file
+     *
+     * @param channel The channel of the file
+     * @param position The position of the region
+     * @param length The length of the region
+     * @return the contents of the region (little-endian)
+     * @throws IOException If an I/O error occurs
+     */
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Reads a magic number
+     *
+     * @param buffer The buffer (at the position of the magic number)
+     * @return the magic number
+     */
+    private static byte[] magic(ByteBuffer buffer) {
+        byte[] magic = new byte[BinaryDatasetWriter.MAGIC.length];
+        buffer.get(magic);
+        return magic;
+    }
+
+    /**
+     * Deserializes the transformers stored in the file. Only transformers and
+     * the classes that they usually contain (strings, boxed primitives, enums,
+     * standard collections, arrays and bdp4j classes) can be deserialized (see
+     * TransformersInputStream).
+     *
+     * @param bytes The serialized transformers (could be null)
+     * @return the transformers or null if they were not stored
+     * @throws IOException If the transformers cannot be deserialized
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Transformer> readTransformers(byte[] bytes) throws IOException {
+        if (bytes == null) {
+            return null;
+        }
+        try (ObjectInputStream input = new TransformersInputStream(new ByteArrayInputStream(bytes))) {
+            return (Map<String, Transformer>) input.readObject();
+        } catch (ClassNotFoundException | ClassCastException ex) {
+            throw new IOException("Unable to read the transformers of the dataset", ex);
+        }
+    }
+
+    /**
+     * Reads the footer of the file (see BinaryDatasetWriter.Footer.write())
+     *
+     * @param buffer The contents of the footer
+     * @return the footer
+     * @throws IOException If the footer is not valid
+     */
+    private static BinaryDatasetWriter.Footer readFooter(ByteBuffer buffer) throws IOException {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(buffer.array(), buffer.position(), buffer.remaining()))) {
+            return BinaryDatasetWriter.Footer.read(input, buffer.remaining());
+        }
+    }
+
+    /**
+     * A stream that only deserializes the classes allowed in the transformers
+     * stored in binary dataset files, so a crafted file cannot instantiate
+     * arbitrary classes
+     */
+    private static class TransformersInputStream extends ObjectInputStream {
+
+        /**
+         * The classes (other than transformers, enums, arrays and bdp4j
+         * classes) that can be deserialized
+         */
+        private static final Set<String> ALLOWED_CLASSES = new HashSet<>(Arrays.asList(
+                "java.lang.String", "java.lang.Number", "java.lang.Boolean", "java.lang.Character",
+                "java.lang.Byte", "java.lang.Short", "java.lang.Integer", "java.lang.Long",
+                "java.lang.Float", "java.lang.Double", "java.lang.Enum",
+                "java.util.HashMap", "java.util.LinkedHashMap", "java.util.TreeMap",
+                "java.util.ArrayList", "java.util.LinkedList",
+                "java.util.HashSet", "java.util.LinkedHashSet", "java.util.TreeSet"));
+
+        /**
+         * Build the stream
+         *
+         * @param input The serialized data
+         * @throws IOException If the stream header cannot be read
+         */
+        TransformersInputStream(InputStream input) throws IOException {
+            super(input);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass description) throws IOException, ClassNotFoundException {
+            // Classes are loaded without being initialized
+            Class<?> resolved = super.resolveClass(description);
+            Class<?> component = resolved;
+            while (component.isArray()) {
+                component = component.getComponentType();
+            }
+            if (component.isPrimitive() || component.isEnum() || ALLOWED_CLASSES.contains(component.getName())
+                    || Transformer.class.isAssignableFrom(component) || component.getName().startsWith("org.bdp4j.")) {
+                return resolved;
+            }
+            throw new InvalidClassException(description.getName(), "Class not allowed in the transformers of a binary dataset");
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+            throw new InvalidClassException("Proxy classes are not allowed in the transformers of a binary dataset");
+        }
+    }
+}
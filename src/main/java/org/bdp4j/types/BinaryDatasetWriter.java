@@ -0,0 +1,676 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import weka.core.Attribute;
+import weka.core.Instances;
+
+/**
+ * Writes a dataset to a binary file that can be loaded by memory-mapping it
+ * (see BinaryDatasetReader). Rows are buffered in row groups and each group
+ * is written as a block of little-endian primitives per column, so the file
+ * is written in a streaming fashion and the memory used does not depend on
+ * the number of rows. The schema (including the dictionaries of nominal and
+ * string columns) and the transformers used to build the dataset are written
+ * at the end of the file.
+ *
+ * The layout of the file is:
+ * <ul>
+ * <li>The magic number ("BDP4JBIN").</li>
+ * <li>The row groups. For each column, a dense block (a double per row, using
+ * the Weka internal representation) or, for sparse numeric columns, a sparse
+ * block (the int index of the rows with non-zero values inside the group,
+ * padded to 8 bytes, followed by a double per non-zero value). Then, if any
+ * row of the group has a weight other than 1, a dense block with the weights.
+ * Blocks start at multiples of 8 bytes.</li>
+ * <li>The footer: a description of the schema, the position of each block and
+ * the serialized transformers. The footer is written as plain fields (see
+ * Footer.write()), so reading it never deserializes objects.</li>
+ * <li>The position of the footer (long) and the magic number.</li>
+ * </ul>
+ *
+ * @author María Novo
+ */
+public class BinaryDatasetWriter implements Closeable {
+
+    /**
+     * The magic number that starts and ends binary dataset files
+     */
+    static final byte[] MAGIC = {'B', 'D', 'P', '4', 'J', 'B', 'I', 'N'};
+
+    /**
+     * The maximum number of rows of each row group
+     */
+    public static final int MAX_ROW_GROUP_SIZE = 1 << 20;
+
+    /**
+     * The maximum size (in bytes) of the values of a row group buffered in
+     * memory
+     */
+    private static final long MAX_ROW_GROUP_BYTES = 1L << 26;
+
+    /**
+     * The initial capacity of the buffers of sparse columns
+     */
+    private static final int SPARSE_CAPACITY = 16;
+
+    /**
+     * The size of the buffer used to write to the file
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The channel of the file
+     */
+    private final FileChannel channel;
+
+    /**
+     * The buffer used to write to the file
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * The position in the file of the next byte to write
+     */
+    private long position = 0;
+
+    /**
+     * The header of the dataset
+     */
+    private final Instances header;
+
+    /**
+     * Indicates whether each column is stored in sparse blocks
+     */
+    private final boolean[] sparseColumns;
+
+    /**
+     * The number of rows of each row group
+     */
+    private final int rowGroupSize;
+
+    /**
+     * The values of dense columns in the current row group (null for sparse
+     * columns)
+     */
+    private final double[][] groupValues;
+
+    /**
+     * The rows (inside the current row group) of the non-zero values of
+     * sparse columns (null for dense columns)
+     */
+    private final int[][] sparseRows;
+
+    /**
+     * The non-zero values of sparse columns in the current row group (null for
+     * dense columns)
+     */
+    private final double[][] sparseData;
+
+    /**
+     * The number of non-zero values of sparse columns in the current row group
+     */
+    private final int[] sparseSizes;
+
+    /**
+     * The weights of the rows of the current row group
+     */
+    private final double[] groupWeights;
+
+    /**
+     * The number of rows of the current row group
+     */
+    private int groupRows = 0;
+
+    /**
+     * The description of the file written at the end
+     */
+    private final Footer footer = new Footer();
+
+    /**
+     * Build a writer. Nominal and string values are the indexes of the values
+     * of the attributes of the header. String values can be added to the
+     * attributes of the header until the writer is closed.
+     *
+     * @param file The file
+     * @param header The header of the dataset
+     * @param sparse true to store numeric columns in sparse blocks
+     * @throws IOException If an I/O error occurs
+     */
+    public BinaryDatasetWriter(File file, Instances header, boolean sparse) throws IOException {
+        this(file, header, sparse, MAX_ROW_GROUP_SIZE);
+    }
+
+    /**
+     * Build a writer limiting the number of rows of row groups
+     *
+     * @param file The file
+     * @param header The header of the dataset
+     * @param sparse true to store numeric columns in sparse blocks
+     * @param maxRowGroupSize The maximum number of rows of each row group
+     * @throws IOException If an I/O error occurs
+     */
+    BinaryDatasetWriter(File file, Instances header, boolean sparse, int maxRowGroupSize) throws IOException {
+        this.header = header;
+        int numColumns = header.numAttributes();
+        this.sparseColumns = new boolean[numColumns];
+        int numDenseColumns = 0;
+        for (int i = 0; i < numColumns; i++) {
+            sparseColumns[i] = sparse && header.attribute(i).type() == Attribute.NUMERIC;
+            numDenseColumns += sparseColumns[i] ? 0 : 1;
+        }
+        // The size of row groups depends on dense columns (sparse columns only buffer non-zero values)
+        long rowsPerGroup = Math.min(maxRowGroupSize, MAX_ROW_GROUP_BYTES / (8L * (numDenseColumns + 1)));
+        this.rowGroupSize = Integer.highestOneBit((int) Math.max(rowsPerGroup, 1));
+        this.groupValues = new double[numColumns][];
+        this.sparseRows = new int[numColumns][];
+        this.sparseData = new double[numColumns][];
+        this.sparseSizes = new int[numColumns];
+        for (int i = 0; i < numColumns; i++) {
+            if (sparseColumns[i]) {
+                sparseRows[i] = new int[SPARSE_CAPACITY];
+                sparseData[i] = new double[SPARSE_CAPACITY];
+            } else {
+                groupValues[i] = new double[rowGroupSize];
+            }
+        }
+        this.groupWeights = new double[rowGroupSize];
+        this.footer.relationName = header.relationName();
+        this.footer.classIndex = header.classIndex();
+        this.footer.sparse = sparse;
+        this.footer.rowGroupSize = rowGroupSize;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.put(MAGIC);
+    }
+
+    /**
+     * Sets the transformers used to build the dataset (stored in the file).
+     * They are serialized immediately, so transformers that cannot be
+     * serialized are reported before writing any row.
+     *
+     * @param transformersList The transformers (by name)
+     * @return this writer
+     * @throws IOException If the transformers cannot be serialized
+     */
+    public BinaryDatasetWriter setTransformers(Map<String, Transformer> transformersList) throws IOException {
+        if (transformersList == null) {
+            footer.transformers = null;
+            return this;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(new LinkedHashMap<>(transformersList));
+        }
+        footer.transformers = bytes.toByteArray();
+        return this;
+    }
+
+    /**
+     * Adds a row
+     *
+     * @param values The values of the row (internal representation)
+     * @param weight The weight of the row
+     * @throws IOException If an I/O error occurs
+     */
+    public void addRow(double[] values, double weight) throws IOException {
+        if (values.length != groupValues.length) {
+            throw new IllegalArgumentException("The number of values doesn't match with the number of columns");
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (!sparseColumns[i]) {
+                groupValues[i][groupRows] = values[i];
+            } else if (values[i] != 0d) {
+                if (sparseSizes[i] == sparseRows[i].length) {
+                    sparseRows[i] = Arrays.copyOf(sparseRows[i], sparseSizes[i] * 2);
+                    sparseData[i] = Arrays.copyOf(sparseData[i], sparseSizes[i] * 2);
+                }
+                sparseRows[i][sparseSizes[i]] = groupRows;
+                sparseData[i][sparseSizes[i]++] = values[i];
+            }
+        }
+        groupWeights[groupRows++] = weight;
+        if (groupRows == rowGroupSize) {
+            writeRowGroup();
+        }
+    }
+
+    /**
+     * Writes the remaining rows and the footer and closes the file
+     *
+     * @throws IOException If an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (groupRows > 0) {
+                writeRowGroup();
+            }
+            footer.attributes = new ArrayList<>(header.numAttributes());
+            for (int i = 0; i < header.numAttributes(); i++) {
+                footer.attributes.add(header.attribute(i));
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream output = new DataOutputStream(bytes)) {
+                footer.write(output);
+            }
+            long footerPosition = position + buffer.position();
+            put(bytes.toByteArray());
+            ensureAvailable(8 + MAGIC.length);
+            buffer.putLong(footerPosition);
+            buffer.put(MAGIC);
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes the current row group
+     *
+     * @throws IOException If an I/O error occurs
+     */
+    private void writeRowGroup() throws IOException {
+        int numColumns = groupValues.length;
+        long[] offsets = new long[numColumns + 1];
+        int[] nonZero = new int[numColumns];
+        for (int i = 0; i < numColumns; i++) {
+            align();
+            offsets[i] = position + buffer.position();
+            if (sparseColumns[i]) {
+                nonZero[i] = sparseSizes[i];
+                putInts(sparseRows[i], sparseSizes[i]);
+                align();
+                putDoubles(sparseData[i], sparseSizes[i]);
+                sparseSizes[i] = 0;
+            } else {
+                nonZero[i] = -1;
+                putDoubles(groupValues[i], groupRows);
+            }
+        }
+        offsets[numColumns] = -1;
+        for (int row = 0; row < groupRows; row++) {
+            if (groupWeights[row] != 1d) {
+                align();
+                offsets[numColumns] = position + buffer.position();
+                putDoubles(groupWeights, groupRows);
+                break;
+            }
+        }
+        footer.offsets.add(offsets);
+        footer.nonZero.add(nonZero);
+        footer.numRows += groupRows;
+        groupRows = 0;
+    }
+
+    /**
+     * Writes some ints
+     *
+     * @param values The values
+     * @param length The number of values to write
+     * @throws IOException If an I/O error occurs
+     */
+    private void putInts(int[] values, int length) throws IOException {
+        for (int offset = 0; offset < length;) {
+            ensureAvailable(4);
+            int count = Math.min(buffer.remaining() / 4, length - offset);
+            buffer.asIntBuffer().put(values, offset, count);
+            buffer.position(buffer.position() + count * 4);
+            offset += count;
+        }
+    }
+
+    /**
+     * Writes some doubles
+     *
+     * @param values The values
+     * @param length The number of values to write
+     * @throws IOException If an I/O error occurs
+     */
+    private void putDoubles(double[] values, int length) throws IOException {
+        for (int offset = 0; offset < length;) {
+            ensureAvailable(8);
+            int count = Math.min(buffer.remaining() / 8, length - offset);
+            buffer.asDoubleBuffer().put(values, offset, count);
+            buffer.position(buffer.position() + count * 8);
+            offset += count;
+        }
+    }
+
+    /**
+     * Writes some bytes
+     *
+     * @param bytes The bytes
+     * @throws IOException If an I/O error occurs
+     */
+    private void put(byte[] bytes) throws IOException {
+        for (int offset = 0; offset < bytes.length;) {
+            ensureAvailable(1);
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    /**
+     * Writes zeros until the position is a multiple of 8
+     *
+     * @throws IOException If an I/O error occurs
+     */
+    private void align() throws IOException {
+        ensureAvailable(8);
+        while (((position + buffer.position()) & 7) != 0) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    /**
+     * Writes the buffer to the file if it has not enough free bytes
+     *
+     * @param bytes The number of free bytes required
+     * @throws IOException If an I/O error occurs
+     */
+    private void ensureAvailable(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the buffer to the file
+     *
+     * @throws IOException If an I/O error occurs
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * The description of a binary dataset file (written at its end)
+     */
+    static class Footer {
+
+        /**
+         * The name of the relation
+         */
+        String relationName;
+
+        /**
+         * The attributes describing the columns
+         */
+        ArrayList<Attribute> attributes;
+
+        /**
+         * The index of the class column (-1 if undefined)
+         */
+        int classIndex;
+
+        /**
+         * Indicates whether numeric columns are stored in sparse form
+         */
+        boolean sparse;
+
+        /**
+         * The number of rows
+         */
+        int numRows = 0;
+
+        /**
+         * The number of rows of each row group (a power of 2)
+         */
+        int rowGroupSize;
+
+        /**
+         * The position of the block of each column of each row group (the
+         * last position is the block of weights, -1 if all the weights of
+         * the group are 1)
+         */
+        List<long[]> offsets = new ArrayList<>();
+
+        /**
+         * The number of non-zero values of the block of each column of each
+         * row group (-1 for dense blocks)
+         */
+        List<int[]> nonZero = new ArrayList<>();
+
+        /**
+         * The transformers used to build the dataset (a serialized
+         * LinkedHashMap, null if not provided)
+         */
+        byte[] transformers = null;
+
+        /**
+         * Writes the footer
+         *
+         * @param output The output
+         * @throws IOException If an I/O error occurs or an attribute type is
+         * not supported
+         */
+        void write(DataOutput output) throws IOException {
+            writeString(output, relationName);
+            output.writeInt(classIndex);
+            output.writeBoolean(sparse);
+            output.writeInt(numRows);
+            output.writeInt(rowGroupSize);
+            output.writeInt(attributes.size());
+            for (Attribute attribute : attributes) {
+                writeAttribute(output, attribute);
+            }
+            output.writeInt(offsets.size());
+            for (int group = 0; group < offsets.size(); group++) {
+                for (long offset : offsets.get(group)) {
+                    output.writeLong(offset);
+                }
+                for (int count : nonZero.get(group)) {
+                    output.writeInt(count);
+                }
+            }
+            output.writeInt((transformers == null) ? -1 : transformers.length);
+            if (transformers != null) {
+                output.write(transformers);
+            }
+        }
+
+        /**
+         * Reads a footer
+         *
+         * @param input The input
+         * @param length The number of bytes of the footer (used to check the
+         * lengths read)
+         * @return the footer
+         * @throws IOException If an I/O error occurs or the footer is not
+         * valid
+         */
+        static Footer read(DataInput input, int length) throws IOException {
+            Footer footer = new Footer();
+            footer.relationName = readString(input, length);
+            footer.classIndex = input.readInt();
+            footer.sparse = input.readBoolean();
+            footer.numRows = input.readInt();
+            footer.rowGroupSize = input.readInt();
+            int numColumns = readLength(input, length);
+            footer.attributes = new ArrayList<>(numColumns);
+            for (int i = 0; i < numColumns; i++) {
+                footer.attributes.add(readAttribute(input, length));
+            }
+            int numGroups = readLength(input, length / (8 * (numColumns + 1)));
+            for (int group = 0; group < numGroups; group++) {
+                long[] offsets = new long[numColumns + 1];
+                for (int i = 0; i < offsets.length; i++) {
+                    offsets[i] = input.readLong();
+                }
+                int[] nonZero = new int[numColumns];
+                for (int i = 0; i < nonZero.length; i++) {
+                    nonZero[i] = input.readInt();
+                }
+                footer.offsets.add(offsets);
+                footer.nonZero.add(nonZero);
+            }
+            int transformersLength = input.readInt();
+            if (transformersLength >= 0) {
+                footer.transformers = new byte[checkLength(transformersLength, length)];
+                input.readFully(footer.transformers);
+            }
+            return footer;
+        }
+
+        /**
+         * Writes an attribute
+         *
+         * @param output The output
+         * @param attribute The attribute
+         * @throws IOException If an I/O error occurs or the type of the
+         * attribute is not supported
+         */
+        private static void writeAttribute(DataOutput output, Attribute attribute) throws IOException {
+            writeString(output, attribute.name());
+            output.writeByte(attribute.type());
+            switch (attribute.type()) {
+                case Attribute.NUMERIC:
+                    break;
+                case Attribute.DATE:
+                    writeString(output, attribute.getDateFormat());
+                    break;
+                case Attribute.NOMINAL:
+                case Attribute.STRING:
+                    output.writeInt(attribute.numValues());
+                    for (int i = 0; i < attribute.numValues(); i++) {
+                        writeString(output, attribute.value(i));
+                    }
+                    break;
+                default:
+                    throw new IOException("Unsupported type for attribute " + attribute.name());
+            }
+        }
+
+        /**
+         * Reads an attribute
+         *
+         * @param input The input
+         * @param length The number of bytes of the footer
+         * @return the attribute
+         * @throws IOException If an I/O error occurs or the attribute is not
+         * valid
+         */
+        private static Attribute readAttribute(DataInput input, int length) throws IOException {
+            String name = readString(input, length);
+            byte type = input.readByte();
+            switch (type) {
+                case Attribute.NUMERIC:
+                    return new Attribute(name);
+                case Attribute.DATE:
+                    return new Attribute(name, readString(input, length));
+                case Attribute.NOMINAL:
+                case Attribute.STRING: {
+                    int numValues = readLength(input, length);
+                    List<String> values = new ArrayList<>(numValues);
+                    for (int i = 0; i < numValues; i++) {
+                        values.add(readString(input, length));
+                    }
+                    if (type == Attribute.NOMINAL) {
+                        return new Attribute(name, values);
+                    }
+                    Attribute attribute = new Attribute(name, true);
+                    values.forEach(attribute::addStringValue);
+                    return attribute;
+                }
+                default:
+                    throw new IOException("Unsupported type for attribute " + name);
+            }
+        }
+
+        /**
+         * Writes a string (its length and its UTF-8 bytes)
+         *
+         * @param output The output
+         * @param value The string
+         * @throws IOException If an I/O error occurs
+         */
+        private static void writeString(DataOutput output, String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+
+        /**
+         * Reads a string (see writeString())
+         *
+         * @param input The input
+         * @param length The number of bytes of the footer
+         * @return the string
+         * @throws IOException If an I/O error occurs or the length is not valid
+         */
+        private static String readString(DataInput input, int length) throws IOException {
+            byte[] bytes = new byte[readLength(input, length)];
+            input.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Reads a length (or a number of elements)
+         *
+         * @param input The input
+         * @param max The maximum value allowed
+         * @return the length
+         * @throws IOException If an I/O error occurs or the length is not valid
+         */
+        private static int readLength(DataInput input, int max) throws IOException {
+            return checkLength(input.readInt(), max);
+        }
+
+        /**
+         * Checks a length read from the footer
+         *
+         * @param length The length
+         * @param max The maximum value allowed
+         * @return the length
+         * @throws IOException If the length is not valid
+         */
+        private static int checkLength(int length, int max) throws IOException {
+            if (length < 0 || length > max) {
+                throw new IOException("The description of the dataset is corrupted");
+            }
+            return length;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import org.bdp4j.util.ByteSink;
+import weka.core.Utils;
+
+/**
+ * Exports a Dataset to CSV using the same format as Weka CSVSaver (used by
+ * Dataset.generateCSV()): a first line with the name of the attributes,
+ * numbers with up to 6 decimals, quoted nominal, string and date values when
+ * required, and "?" for missing values. Rows are streamed to the output (see
+ * DatasetExporter).
+ *
+ * @author María Novo
+ */
+public class CSVExporter extends DatasetExporter {
+
+    /**
+     * The default field separator
+     */
+    public static final char DEFAULT_FIELD_SEPARATOR = ',';
+
+    /**
+     * The default maximum number of decimals
+     */
+    public static final int DEFAULT_MAX_DECIMALS = 6;
+
+    /**
+     * The field separator
+     */
+    private char fieldSeparator = DEFAULT_FIELD_SEPARATOR;
+
+    /**
+     * The maximum number of decimals
+     */
+    private int maxDecimals = DEFAULT_MAX_DECIMALS;
+
+    /**
+     * Build an exporter
+     *
+     * @param dataset The dataset to export
+     */
+    public CSVExporter(Dataset dataset) {
+        super(dataset);
+    }
+
+    /**
+     * Sets the field separator
+     *
+     * @param fieldSeparator The field separator
+     * @return this exporter
+     */
+    public CSVExporter setFieldSeparator(char fieldSeparator) {
+        this.fieldSeparator = fieldSeparator;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of decimals of numbers
+     *
+     * @param maxDecimals The maximum number of decimals
+     * @return this exporter
+     */
+    public CSVExporter setMaxDecimals(int maxDecimals) {
+        this.maxDecimals = maxDecimals;
+        return this;
+    }
+
+    @Override
+    protected void writeHeader(ByteSink sink) {
+        for (int i = 0; i < header.numAttributes(); i++) {
+            if (i > 0) {
+                sink.append(fieldSeparator);
+            }
+            sink.append(Utils.quote(header.attribute(i).name()));
+        }
+        sink.append('\n');
+    }
+
+    @Override
+    protected void writeRow(int row, ByteSink sink) {
+        for (int i = 0; i < header.numAttributes(); i++) {
+            if (i > 0) {
+                sink.append(fieldSeparator);
+            }
+            appendValue(i, value(row, i), maxDecimals, sink);
+        }
+        sink.append('\n');
+    }
+}
@@ -0,0 +1,400 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.io.Serializable;
+import org.bdp4j.util.HashUtils;
+import org.bdp4j.util.HyperLogLog;
+import org.bdp4j.util.KLLSketch;
+
+/**
+ * Statistics of the values of a column (count, minimum, maximum, mean,
+ * variance, zeros and missing values) computed in a single pass. Statistics
+ * can be updated incrementally and partial statistics (for instance, computed
+ * in parallel for different rows) can be merged. Mean and variance are
+ * computed with the numerically stable algorithm of Welford (merged as
+ * proposed by Chan et al.). Values are given in the internal representation
+ * (indexes for nominal and string columns). Optionally, statistics include
+ * bounded-memory sketches to estimate the number of distinct values
+ * (HyperLogLog) and quantiles (KLL), which are merged as well.
+ *
+ * @author María Novo
+ */
+public class ColumnStatistics implements Serializable {
+
+    /**
+     * The serial version UID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The number of values (excluding missing values)
+     */
+    private long count = 0;
+
+    /**
+     * The number of missing values
+     */
+    private long missingCount = 0;
+
+    /**
+     * The number of zeros
+     */
+    private long zeroCount = 0;
+
+    /**
+     * The minimum value
+     */
+    private double min = Double.NaN;
+
+    /**
+     * The maximum value
+     */
+    private double max = Double.NaN;
+
+    /**
+     * The mean of the values
+     */
+    private double mean = 0d;
+
+    /**
+     * The sum of squared differences from the mean
+     */
+    private double m2 = 0d;
+
+    /**
+     * The number of non-numeric values (see addObject(Object))
+     */
+    private long nonNumericCount = 0;
+
+    /**
+     * The sketch of distinct values (null if sketches are not computed)
+     */
+    private HyperLogLog distinct = null;
+
+    /**
+     * The sketch of quantiles (null if sketches are not computed)
+     */
+    private KLLSketch quantiles = null;
+
+    /**
+     * Build empty statistics (without sketches)
+     */
+    public ColumnStatistics() {
+    }
+
+    /**
+     * Build empty statistics
+     *
+     * @param sketches Whether the number of distinct values and quantiles
+     * should be estimated
+     */
+    public ColumnStatistics(boolean sketches) {
+        if (sketches) {
+            this.distinct = new HyperLogLog();
+            this.quantiles = new KLLSketch();
+        }
+    }
+
+    /**
+     * Build a copy of other statistics
+     *
+     * @param other The statistics to copy
+     */
+    public ColumnStatistics(ColumnStatistics other) {
+        this.count = other.count;
+        this.missingCount = other.missingCount;
+        this.zeroCount = other.zeroCount;
+        this.min = other.min;
+        this.max = other.max;
+        this.mean = other.mean;
+        this.m2 = other.m2;
+        this.nonNumericCount = other.nonNumericCount;
+        this.distinct = (other.distinct == null) ? null : new HyperLogLog(other.distinct);
+        this.quantiles = (other.quantiles == null) ? null : new KLLSketch(other.quantiles);
+    }
+
+    /**
+     * Adds a value
+     *
+     * @param value The value (NaN for missing values)
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            missingCount++;
+            return;
+        }
+        if (value == 0d) {
+            zeroCount++;
+        }
+        if (count == 0 || value < min) {
+            min = value;
+        }
+        if (count == 0 || value > max) {
+            max = value;
+        }
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        if (distinct != null) {
+            distinct.add(HashUtils.hash64(value));
+            quantiles.add(value);
+        }
+    }
+
+    /**
+     * Adds a value of any type (for instance, the value of an instance
+     * property). Numbers are added as numeric values and null as a missing
+     * value. Other values are only counted as non-numeric values and added to
+     * the sketch of distinct values.
+     *
+     * @param value The value
+     */
+    public void addObject(Object value) {
+        if (value == null) {
+            add(Double.NaN);
+        } else if (value instanceof Number) {
+            add(((Number) value).doubleValue());
+        } else {
+            nonNumericCount++;
+            if (distinct != null) {
+                distinct.add(HashUtils.hash64(value));
+            }
+        }
+    }
+
+    /**
+     * Adds some zeros (used when only non-zero values are traversed)
+     *
+     * @param zeros The number of zeros
+     */
+    public void addZeros(long zeros) {
+        if (zeros <= 0) {
+            return;
+        }
+        ColumnStatistics other = new ColumnStatistics();
+        other.count = zeros;
+        other.zeroCount = zeros;
+        other.min = 0d;
+        other.max = 0d;
+        if (distinct != null) {
+            other.distinct = new HyperLogLog();
+            other.distinct.add(HashUtils.hash64(0d));
+            other.quantiles = new KLLSketch();
+            other.quantiles.add(0d, zeros);
+        }
+        merge(other);
+    }
+
+    /**
+     * Adds the values summarized by other statistics
+     *
+     * @param other The statistics to merge
+     */
+    public void merge(ColumnStatistics other) {
+        missingCount += other.missingCount;
+        nonNumericCount += other.nonNumericCount;
+        if (distinct != null) {
+            if (other.distinct == null) {
+                throw new IllegalArgumentException("Statistics without sketches cannot be merged into statistics with sketches");
+            }
+            distinct.merge(other.distinct);
+            quantiles.merge(other.quantiles);
+        }
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            zeroCount = other.zeroCount;
+            min = other.min;
+            max = other.max;
+            mean = other.mean;
+            m2 = other.m2;
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+        count = total;
+        zeroCount += other.zeroCount;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Returns the number of values (excluding missing values)
+     *
+     * @return the number of values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of missing values
+     *
+     * @return the number of missing values
+     */
+    public long getMissingCount() {
+        return missingCount;
+    }
+
+    /**
+     * Returns the number of zeros
+     *
+     * @return the number of zeros
+     */
+    public long getZeroCount() {
+        return zeroCount;
+    }
+
+    /**
+     * Returns the fraction of rows (including those with missing values)
+     * whose value is zero
+     *
+     * @return the fraction of zeros (NaN if there are no rows)
+     */
+    public double getZeroFraction() {
+        long rows = count + missingCount;
+        return (rows == 0) ? Double.NaN : (double) zeroCount / rows;
+    }
+
+    /**
+     * Returns the minimum value
+     *
+     * @return the minimum value (NaN if there are no values)
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * Returns the maximum value
+     *
+     * @return the maximum value (NaN if there are no values)
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the mean of the values
+     *
+     * @return the mean (NaN if there are no values)
+     */
+    public double getMean() {
+        return (count == 0) ? Double.NaN : mean;
+    }
+
+    /**
+     * Returns the (population) variance of the values
+     *
+     * @return the variance (NaN if there are no values)
+     */
+    public double getVariance() {
+        return (count == 0) ? Double.NaN : m2 / count;
+    }
+
+    /**
+     * Returns the sample variance of the values
+     *
+     * @return the sample variance (NaN if there are less than two values)
+     */
+    public double getSampleVariance() {
+        return (count < 2) ? Double.NaN : m2 / (count - 1);
+    }
+
+    /**
+     * Returns the (population) standard deviation of the values
+     *
+     * @return the standard deviation (NaN if there are no values)
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * Returns the number of non-numeric values (see addObject(Object))
+     *
+     * @return the number of non-numeric values
+     */
+    public long getNonNumericCount() {
+        return nonNumericCount;
+    }
+
+    /**
+     * Checks whether the number of distinct values and quantiles are estimated
+     *
+     * @return true if sketches are computed
+     */
+    public boolean hasSketches() {
+        return distinct != null;
+    }
+
+    /**
+     * Estimates the number of distinct values (excluding missing values)
+     *
+     * @return the estimated number of distinct values (-1 if sketches are not
+     * computed)
+     */
+    public long getDistinctCount() {
+        return (distinct == null) ? -1 : distinct.estimate();
+    }
+
+    /**
+     * Estimates a quantile of the numeric values
+     *
+     * @param fraction The fraction of values lower than or equal to the
+     * quantile (between 0 and 1)
+     * @return the estimated quantile (NaN if there are no values or sketches
+     * are not computed)
+     */
+    public double getQuantile(double fraction) {
+        return (quantiles == null) ? Double.NaN : quantiles.getQuantile(fraction);
+    }
+
+    /**
+     * Estimates the median of the numeric values
+     *
+     * @return the estimated median (NaN if there are no values or sketches are
+     * not computed)
+     */
+    public double getMedian() {
+        return getQuantile(0.5);
+    }
+
+    @Override
+    public String toString() {
+        String result = "count=" + count + ", missing=" + missingCount + ", zeros=" + zeroCount + ", min=" + min
+                + ", max=" + max + ", mean=" + getMean() + ", variance=" + getVariance();
+        if (nonNumericCount > 0) {
+            result += ", nonNumeric=" + nonNumericCount;
+        }
+        if (distinct != null) {
+            result += ", distinct=" + getDistinctCount() + ", median=" + getMedian();
+        }
+        return result;
+    }
+}
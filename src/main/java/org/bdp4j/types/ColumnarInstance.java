@@ -0,0 +1,100 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Utils;
+
+/**
+ * A row of a columnar Dataset exposed as a Weka instance (see
+ * Dataset.getInstances() and Dataset.createDenseInstance()). Values are built
+ * when the row is created and every value set through the instance is also
+ * written in the columns of the Dataset, so the Dataset keeps being columnar.
+ *
+ * Weights cannot be changed through the row (Weka does not allow to intercept
+ * setWeight()). The row should not be used after inserting, deleting or
+ * reordering columns or rows of the Dataset.
+ *
+ * @author María Novo
+ */
+class ColumnarInstance extends DenseInstance {
+
+    /**
+     * The serial version UID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The Dataset that stores the row
+     */
+    private final transient Dataset owner;
+
+    /**
+     * The index of the row in the Dataset
+     */
+    private final int row;
+
+    /**
+     * Build a row of a columnar Dataset
+     *
+     * @param owner The Dataset that stores the row
+     * @param row The index of the row in the Dataset
+     * @param weight The weight of the row
+     * @param values The values of the row (using the encoding of the dataset
+     * assigned to the instance)
+     */
+    ColumnarInstance(Dataset owner, int row, double weight, double[] values) {
+        super(weight, values);
+        this.owner = owner;
+        this.row = row;
+    }
+
+    @Override
+    public void setValue(int attIndex, double value) {
+        super.setValue(attIndex, value);
+        if (owner == null) {
+            return;
+        }
+        Attribute attribute = attribute(attIndex);
+        if (attribute.isString() && !Utils.isMissingValue(value)) {
+            // String codes of the row and the columns are different
+            owner.setColumnarString(row, attIndex, attribute.value((int) value));
+        } else {
+            owner.setColumnarValue(row, attIndex, value);
+        }
+    }
+
+    @Override
+    public void setValueSparse(int indexOfIndex, double value) {
+        setValue(indexOfIndex, value);
+    }
+
+    @Override
+    public void replaceMissingValues(double[] array) {
+        for (int i = 0; i < numAttributes(); i++) {
+            if (isMissing(i)) {
+                setValue(i, array[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,1718 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.io.Serializable;
+import java.nio.DoubleBuffer;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+import weka.core.Utils;
+
+/**
+ * Columnar storage for the contents of a Dataset. Each column keeps its values
+ * in a primitive array: numeric (and date) columns store doubles and nominal
+ * and string columns store the codes of their values in a dictionary. Values
+ * are exchanged using the Weka internal representation (the value for numeric
+ * columns and the index of the value for nominal and string columns, NaN for
+ * missing values), and Weka Instances are only built when required (see
+ * toInstances()).
+ *
+ * Sparse stores keep numeric columns in a compressed form (only non-zero
+ * values and their rows are stored) and export their contents as Weka
+ * SparseInstance rows. They are intended for high-dimensional datasets where
+ * most values are zero (bag-of-words representations).
+ *
+ * Numeric columns whose values are small integers (for instance, binary
+ * features) are bit-packed using the minimum width able to represent the
+ * observed range of values (see compact()). Packed columns are transparently
+ * converted to plain numeric columns when a value out of their range is
+ * appended.
+ *
+ * Columns can be shared by several stores (for instance, after selecting some
+ * columns or cloning a Dataset). Shared columns are copied before being
+ * modified (copy-on-write), so stores never see the modifications made by
+ * other stores.
+ *
+ * @author María Novo
+ */
+public class ColumnarStore implements Serializable {
+
+    /**
+     * The serial version UID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The initial capacity of columns when no capacity is provided
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The name of the relation
+     */
+    private final String relationName;
+
+    /**
+     * The columns of the store
+     */
+    private final ArrayList<Column> columns;
+
+    /**
+     * Indicates whether each column belongs exclusively to this store
+     */
+    private final boolean[] owned;
+
+    /**
+     * The weight of each row (null if all the rows have weight 1)
+     */
+    private double[] weights = null;
+
+    /**
+     * Indicates whether the weights array belongs exclusively to this store
+     */
+    private boolean weightsOwned = true;
+
+    /**
+     * The number of rows
+     */
+    private int numRows = 0;
+
+    /**
+     * The index of the class column (-1 if undefined)
+     */
+    private int classIndex = -1;
+
+    /**
+     * Indicates whether new numeric columns are stored in sparse form
+     */
+    private final boolean sparse;
+
+    /**
+     * The index of each column by name (built when required)
+     */
+    private transient Map<String, Integer> columnIndexes = null;
+
+    /**
+     * A Weka dataset without instances describing the columns (built when
+     * required)
+     */
+    private transient Instances header = null;
+
+    /**
+     * Build an empty store
+     *
+     * @param relationName The name of the relation
+     * @param attributes The attributes describing the columns
+     * @param capacity The expected number of rows
+     */
+    public ColumnarStore(String relationName, List<Attribute> attributes, int capacity) {
+        this(relationName, attributes, capacity, false);
+    }
+
+    /**
+     * Build an empty store
+     *
+     * @param relationName The name of the relation
+     * @param attributes The attributes describing the columns
+     * @param capacity The expected number of rows
+     * @param sparse true to store numeric columns in sparse form
+     */
+    public ColumnarStore(String relationName, List<Attribute> attributes, int capacity, boolean sparse) {
+        this.relationName = relationName;
+        this.sparse = sparse;
+        this.columns = new ArrayList<>(attributes.size());
+        for (Attribute attribute : attributes) {
+            this.columns.add(Column.fromAttribute(attribute, sparse ? DEFAULT_CAPACITY : Math.max(capacity, DEFAULT_CAPACITY), sparse));
+        }
+        this.owned = new boolean[columns.size()];
+        Arrays.fill(owned, true);
+    }
+
+    /**
+     * Build a store with existing columns (shared with other stores)
+     *
+     * @param relationName The name of the relation
+     * @param columns The columns of the store
+     * @param numRows The number of rows
+     * @param weights The weights of rows (null if all the rows have weight 1)
+     * @param classIndex The index of the class column
+     * @param sparse true to store new numeric columns in sparse form
+     */
+    private ColumnarStore(String relationName, List<Column> columns, int numRows, double[] weights, int classIndex, boolean sparse) {
+        this.relationName = relationName;
+        this.sparse = sparse;
+        this.columns = new ArrayList<>(columns);
+        this.owned = new boolean[columns.size()];
+        this.numRows = numRows;
+        this.weights = weights;
+        this.weightsOwned = (weights == null);
+        this.classIndex = classIndex;
+    }
+
+    /**
+     * Build a store with existing columns that do not belong to it (they are
+     * copied before being modified)
+     *
+     * @param relationName The name of the relation
+     * @param columns The columns of the store
+     * @param numRows The number of rows
+     * @param weights The weights of rows (null if all the rows have weight 1)
+     * @param classIndex The index of the class column
+     * @param sparse true to store new numeric columns in sparse form
+     * @return The store
+     */
+    static ColumnarStore wrap(String relationName, List<Column> columns, int numRows, double[] weights, int classIndex, boolean sparse) {
+        return new ColumnarStore(relationName, columns, numRows, weights, classIndex, sparse);
+    }
+
+    /**
+     * Build a store with the contents of a Weka dataset
+     *
+     * @param instances The Weka dataset
+     * @return The store
+     */
+    public static ColumnarStore fromInstances(Instances instances) {
+        return fromInstances(instances, false);
+    }
+
+    /**
+     * Build a store with the contents of a Weka dataset
+     *
+     * @param instances The Weka dataset
+     * @param sparse true to store numeric columns in sparse form
+     * @return The store
+     */
+    public static ColumnarStore fromInstances(Instances instances, boolean sparse) {
+        ArrayList<Attribute> attributes = new ArrayList<>(instances.numAttributes());
+        for (int i = 0; i < instances.numAttributes(); i++) {
+            attributes.add(instances.attribute(i));
+        }
+        ColumnarStore store = new ColumnarStore(instances.relationName(), attributes, instances.numInstances(), sparse);
+        store.classIndex = instances.classIndex();
+        for (int row = 0; row < instances.numInstances(); row++) {
+            weka.core.Instance instance = instances.instance(row);
+            if (sparse) {
+                // Only non-zero values are stored in sparse columns
+                for (int i = 0; i < store.columns.size(); i++) {
+                    if (!(store.columns.get(i) instanceof SparseNumericColumn)) {
+                        store.columns.get(i).append(instance.value(i), row);
+                    }
+                }
+                for (int p = 0; p < instance.numValues(); p++) {
+                    Column column = store.columns.get(instance.index(p));
+                    if (column instanceof SparseNumericColumn) {
+                        column.append(instance.valueSparse(p), row);
+                    }
+                }
+            } else {
+                for (int i = 0; i < store.columns.size(); i++) {
+                    store.columns.get(i).append(instance.value(i), row);
+                }
+            }
+            store.appendWeight(instance.weight(), row);
+            store.numRows++;
+        }
+        store.compact();
+        return store;
+    }
+
+    /**
+     * Returns the name of the relation
+     *
+     * @return the name of the relation
+     */
+    public String getRelationName() {
+        return relationName;
+    }
+
+    /**
+     * Returns the number of rows
+     *
+     * @return the number of rows
+     */
+    public int numRows() {
+        return numRows;
+    }
+
+    /**
+     * Indicates whether numeric columns are stored in sparse form
+     *
+     * @return true if numeric columns are stored in sparse form
+     */
+    public boolean isSparse() {
+        return sparse;
+    }
+
+    /**
+     * Returns the number of columns
+     *
+     * @return the number of columns
+     */
+    public int numColumns() {
+        return columns.size();
+    }
+
+    /**
+     * Returns a column
+     *
+     * @param index The index of the column
+     * @return The column
+     */
+    public Column column(int index) {
+        return columns.get(index);
+    }
+
+    /**
+     * Returns the index of a column
+     *
+     * @param name The name of the column
+     * @return the index of the column or -1 if it does not exist
+     */
+    public int columnIndex(String name) {
+        if (columnIndexes == null) {
+            Map<String, Integer> indexes = new HashMap<>();
+            for (int i = 0; i < columns.size(); i++) {
+                indexes.put(columns.get(i).name(), i);
+            }
+            columnIndexes = indexes;
+        }
+        Integer index = columnIndexes.get(name);
+        return (index == null) ? -1 : index;
+    }
+
+    /**
+     * Returns the index of the class column
+     *
+     * @return the index of the class column (-1 if undefined)
+     */
+    public int getClassIndex() {
+        return classIndex;
+    }
+
+    /**
+     * Sets the class column
+     *
+     * @param classIndex the index of the class column (-1 if undefined)
+     */
+    public void setClassIndex(int classIndex) {
+        this.classIndex = classIndex;
+        this.header = null;
+    }
+
+    /**
+     * Returns a value (internal representation)
+     *
+     * @param row The index of the row
+     * @param column The index of the column
+     * @return The value
+     */
+    public double value(int row, int column) {
+        return columns.get(column).value(row);
+    }
+
+    /**
+     * Returns the value of a nominal or string column for an internal code
+     *
+     * @param column The index of the column
+     * @param code The internal representation of the value
+     * @return the value
+     */
+    public String label(int column, int code) {
+        Column target = columns.get(column);
+        if (target instanceof MappedColumn) {
+            target = ((MappedColumn) target).getTemplate();
+        }
+        if (target instanceof NominalColumn) {
+            return ((NominalColumn) target).getLabels().get(code);
+        } else if (target instanceof StringColumn) {
+            return ((StringColumn) target).getString(code);
+        }
+        throw new IllegalArgumentException("Column " + target.name() + " is not nominal or string");
+    }
+
+    /**
+     * Returns the weight of a row
+     *
+     * @param row The index of the row
+     * @return the weight of the row
+     */
+    public double weight(int row) {
+        return (weights == null) ? 1d : weights[row];
+    }
+
+    /**
+     * Returns the values (internal representation) of a column. For numeric
+     * columns, the returned array is the storage of the column (it can be
+     * longer than the number of rows and must not be modified).
+     *
+     * @param column The index of the column
+     * @return The values of the column
+     */
+    public double[] columnValues(int column) {
+        return columns.get(column).values(numRows);
+    }
+
+    /**
+     * Appends a row
+     *
+     * @param values The values (internal representation) of the row
+     * @param weight The weight of the row
+     */
+    public void appendRow(double[] values, double weight) {
+        if (values.length != columns.size()) {
+            throw new IllegalArgumentException("The number of values doesn't match with the number of columns");
+        }
+        for (int i = 0; i < values.length; i++) {
+            ensureOwned(i);
+            if (!columns.get(i).accepts(values[i])) {
+                columns.set(i, ((PackedNumericColumn) columns.get(i)).unpack(Math.max(numRows + 1, DEFAULT_CAPACITY)));
+            }
+            columns.get(i).append(values[i], numRows);
+        }
+        appendWeight(weight, numRows);
+        numRows++;
+    }
+
+    /**
+     * Replaces a value of a row
+     *
+     * @param row The index of the row
+     * @param column The index of the column
+     * @param value The value (internal representation)
+     */
+    public void setValue(int row, int column, double value) {
+        if (row < 0 || row >= numRows) {
+            throw new IndexOutOfBoundsException("Row " + row + " is out of range");
+        }
+        ensureOwned(column);
+        if (!columns.get(column).accepts(value)) {
+            columns.set(column, ((PackedNumericColumn) columns.get(column)).unpack(Math.max(numRows, DEFAULT_CAPACITY)));
+        }
+        columns.get(column).set(value, row);
+    }
+
+    /**
+     * Computes the internal representation of a value for a column (adding it
+     * to the dictionary of string columns)
+     *
+     * @param column The index of the column
+     * @param value The value
+     * @return the internal representation of the value
+     * @throws ParseException if a date cannot be parsed
+     */
+    public double encode(int column, String value) throws ParseException {
+        if (columns.get(column).type() == Attribute.STRING) {
+            ensureOwned(column);
+        }
+        return columns.get(column).encode(value);
+    }
+
+    /**
+     * Creates a store with other columns and the same rows (columns are
+     * shared, not copied)
+     *
+     * @param newColumns The columns of the new store (with numRows values)
+     * @param newClassIndex The index of the class column in the new store
+     * @return The new store
+     */
+    public ColumnarStore withColumns(List<Column> newColumns, int newClassIndex) {
+        Arrays.fill(owned, false);
+        weightsOwned = (weights == null);
+        return new ColumnarStore(relationName, newColumns, numRows, weights, newClassIndex, sparse);
+    }
+
+    /**
+     * Creates a column (that does not belong to the store yet) with a value
+     * for each row of the store. Numeric columns are bit-packed when possible
+     * (see compact()).
+     *
+     * @param attribute The attribute describing the column
+     * @param values The values (internal representation)
+     * @return The column
+     */
+    public Column createColumn(Attribute attribute, double[] values) {
+        Column column = Column.fromAttribute(attribute, sparse ? DEFAULT_CAPACITY : Math.max(numRows, DEFAULT_CAPACITY), sparse);
+        for (int row = 0; row < numRows; row++) {
+            column.append(values[row], row);
+        }
+        return compact(column);
+    }
+
+    /**
+     * Bit-packs the numeric columns whose values are small integers, using
+     * the minimum width (1, 2, 4, 8 or 16 bits per value) able to represent
+     * the observed range of values. Date and sparse columns are not packed.
+     *
+     * @return the number of columns packed
+     */
+    public int compact() {
+        int packed = 0;
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            Column compacted = compact(column);
+            if (compacted != column) {
+                columns.set(i, compacted);
+                owned[i] = true;
+                packed++;
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * Bit-packs a column if possible
+     *
+     * @param column The column
+     * @return the packed column or the same column if it cannot be packed
+     */
+    private Column compact(Column column) {
+        if (column instanceof NumericColumn && column.type() == Attribute.NUMERIC) {
+            PackedNumericColumn packed = PackedNumericColumn.pack((NumericColumn) column, numRows);
+            if (packed != null) {
+                return packed;
+            }
+        }
+        return column;
+    }
+
+    /**
+     * Creates a column (that does not belong to the store yet) with the same
+     * value for all the rows of the store
+     *
+     * @param attribute The attribute describing the column
+     * @param value The value (internal representation)
+     * @return The column
+     */
+    public Column createColumn(Attribute attribute, double value) {
+        Column column = Column.fromAttribute(attribute, (sparse && value == 0d) ? DEFAULT_CAPACITY : Math.max(numRows, DEFAULT_CAPACITY), sparse);
+        for (int row = 0; row < numRows; row++) {
+            column.append(value, row);
+        }
+        return column;
+    }
+
+    /**
+     * Creates a store sharing all the columns of this store. Columns will be
+     * copied by the first store that modifies them.
+     *
+     * @return The new store
+     */
+    public ColumnarStore share() {
+        return withColumns(columns, classIndex);
+    }
+
+    /**
+     * Renames a column (the data is not copied)
+     *
+     * @param column The index of the column
+     * @param newName The new name
+     */
+    public void renameColumn(int column, String newName) {
+        columns.set(column, columns.get(column).rename(newName));
+        columnIndexes = null;
+        header = null;
+    }
+
+    /**
+     * Returns a Weka dataset without instances describing the columns. String
+     * attributes do not include their values.
+     *
+     * @return the Weka dataset describing the columns
+     */
+    public Instances header() {
+        if (header == null) {
+            ArrayList<Attribute> attributes = new ArrayList<>(columns.size());
+            for (Column column : columns) {
+                attributes.add(column.headerAttribute());
+            }
+            Instances newHeader = new Instances(relationName, attributes, 0);
+            newHeader.setClassIndex(classIndex);
+            header = newHeader;
+        }
+        return header;
+    }
+
+    /**
+     * Returns a Weka dataset describing the columns for rows that can be
+     * modified (see ColumnarInstance). String attributes are not shared with
+     * header(), so the values added to them do not modify the store.
+     *
+     * @param withStrings true to include the values of string columns (in
+     * the order of their dictionary)
+     * @return the Weka dataset describing the columns
+     */
+    public Instances rowHeader(boolean withStrings) {
+        Instances shared = header();
+        ArrayList<Attribute> attributes = new ArrayList<>(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            if (column.type() != Attribute.STRING) {
+                attributes.add(shared.attribute(i));
+            } else {
+                attributes.add(withStrings ? column.toAttribute() : column.headerAttribute());
+            }
+        }
+        Instances newHeader = new Instances(relationName, attributes, 0);
+        newHeader.setClassIndex(classIndex);
+        return newHeader;
+    }
+
+    /**
+     * Builds a Weka dataset with the contents of the store. Sparse stores
+     * build SparseInstance rows.
+     *
+     * @return The Weka dataset
+     */
+    public Instances toInstances() {
+        ArrayList<Attribute> attributes = new ArrayList<>(columns.size());
+        for (Column column : columns) {
+            attributes.add(column.toAttribute());
+        }
+        Instances instances = new Instances(relationName, attributes, numRows);
+        instances.setClassIndex(classIndex);
+        if (sparse) {
+            addSparseRows(instances);
+            return instances;
+        }
+        int numColumns = columns.size();
+        for (int row = 0; row < numRows; row++) {
+            double[] values = new double[numColumns];
+            for (int i = 0; i < numColumns; i++) {
+                values[i] = columns.get(i).value(row);
+            }
+            instances.add(new DenseInstance(weight(row), values));
+        }
+        return instances;
+    }
+
+    /**
+     * Creates a store with some of the rows of this store (in the given
+     * order). Values are copied.
+     *
+     * @param rowIndexes The indexes of the rows
+     * @return The new store
+     */
+    public ColumnarStore select(int[] rowIndexes) {
+        List<Column> selected = new ArrayList<>(columns.size());
+        for (Column column : columns) {
+            Column newColumn = column.emptyCopy(Math.max(rowIndexes.length, DEFAULT_CAPACITY));
+            for (int i = 0; i < rowIndexes.length; i++) {
+                newColumn.append(column.value(rowIndexes[i]), i);
+            }
+            selected.add(newColumn);
+        }
+        ColumnarStore store = new ColumnarStore(relationName, selected, rowIndexes.length, null, classIndex, sparse);
+        Arrays.fill(store.owned, true);
+        for (int i = 0; weights != null && i < rowIndexes.length; i++) {
+            store.appendWeight(weights[rowIndexes[i]], i);
+        }
+        return store;
+    }
+
+    /**
+     * Adds the rows of the store to a Weka dataset as SparseInstance objects.
+     * Columns are traversed only once (rows are not built by looking up every
+     * column).
+     *
+     * @param instances The Weka dataset
+     */
+    private void addSparseRows(Instances instances) {
+        int numColumns = columns.size();
+        int[] rowSizes = new int[numRows];
+        for (Column column : columns) {
+            column.forEachNonZero(0, numRows, (row, value) -> rowSizes[row]++);
+        }
+        int[][] indices = new int[numRows][];
+        double[][] values = new double[numRows][];
+        for (int row = 0; row < numRows; row++) {
+            indices[row] = new int[rowSizes[row]];
+            values[row] = new double[rowSizes[row]];
+        }
+        int[] positions = new int[numRows];
+        for (int i = 0; i < numColumns; i++) {
+            int columnIndex = i;
+            columns.get(i).forEachNonZero(0, numRows, (row, value) -> {
+                indices[row][positions[row]] = columnIndex;
+                values[row][positions[row]++] = value;
+            });
+        }
+        for (int row = 0; row < numRows; row++) {
+            instances.add(new SparseInstance(weight(row), values[row], indices[row], numColumns));
+            indices[row] = null;
+            values[row] = null;
+        }
+    }
+
+    /**
+     * Receives the non-zero values of a column
+     */
+    @FunctionalInterface
+    public interface ValueConsumer {
+
+        /**
+         * Receives a value
+         *
+         * @param row The index of the row
+         * @param value The value (internal representation)
+         */
+        void accept(int row, double value);
+    }
+
+    /**
+     * Copies a column if it is shared with other stores
+     *
+     * @param column The index of the column
+     */
+    private void ensureOwned(int column) {
+        if (!owned[column]) {
+            columns.set(column, columns.get(column).copy(Math.max(numRows + 1, DEFAULT_CAPACITY)));
+            owned[column] = true;
+        }
+    }
+
+    /**
+     * Stores the weight of a row
+     *
+     * @param weight The weight
+     * @param row The index of the row
+     */
+    private void appendWeight(double weight, int row) {
+        if (weights == null && weight == 1d) {
+            return;
+        }
+        if (weights == null) {
+            weights = new double[Math.max(row + 1, DEFAULT_CAPACITY)];
+            Arrays.fill(weights, 0, row, 1d);
+            weightsOwned = true;
+        } else if (!weightsOwned || row >= weights.length) {
+            weights = Arrays.copyOf(weights, Math.max(row + 1, weights.length * 2));
+            weightsOwned = true;
+        }
+        weights[row] = weight;
+    }
+
+    /**
+     * A column of the store. The values of a column are exchanged using the
+     * Weka internal representation.
+     */
+    public abstract static class Column implements Serializable {
+
+        /**
+         * The serial version UID
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The name of the column
+         */
+        protected final String name;
+
+        /**
+         * Build a column
+         *
+         * @param name The name of the column
+         */
+        protected Column(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Creates an empty column from a Weka attribute
+         *
+         * @param attribute The attribute describing the column
+         * @param capacity The expected number of rows
+         * @return The column
+         */
+        public static Column fromAttribute(Attribute attribute, int capacity) {
+            return fromAttribute(attribute, capacity, false);
+        }
+
+        /**
+         * Creates an empty column from a Weka attribute
+         *
+         * @param attribute The attribute describing the column
+         * @param capacity The expected number of rows (or non-zero values for
+         * sparse columns)
+         * @param sparse true to create a sparse column for numeric attributes
+         * @return The column
+         */
+        public static Column fromAttribute(Attribute attribute, int capacity, boolean sparse) {
+            switch (attribute.type()) {
+                case Attribute.NUMERIC:
+                    return sparse ? new SparseNumericColumn(attribute.name(), new int[capacity], new double[capacity], 0)
+                            : new NumericColumn(attribute.name(), null, new double[capacity]);
+                case Attribute.DATE:
+                    return new NumericColumn(attribute.name(), attribute.getDateFormat(), new double[capacity]);
+                case Attribute.NOMINAL: {
+                    List<String> values = new ArrayList<>(attribute.numValues());
+                    for (int i = 0; i < attribute.numValues(); i++) {
+                        values.add(attribute.value(i));
+                    }
+                    return new NominalColumn(attribute.name(), Collections.unmodifiableList(values), new int[capacity]);
+                }
+                case Attribute.STRING: {
+                    StringColumn column = new StringColumn(attribute.name(), new ArrayList<>(), new int[capacity]);
+                    for (int i = 0; i < attribute.numValues(); i++) {
+                        column.encode(attribute.value(i));
+                    }
+                    return column;
+                }
+                default:
+                    throw new IllegalArgumentException("Unsupported type for attribute " + attribute.name());
+            }
+        }
+
+        /**
+         * Returns the name of the column
+         *
+         * @return the name of the column
+         */
+        public String name() {
+            return name;
+        }
+
+        /**
+         * Returns the type of the column (see weka.core.Attribute types)
+         *
+         * @return the type of the column
+         */
+        public abstract int type();
+
+        /**
+         * Returns a value of the column
+         *
+         * @param row The index of the row
+         * @return The value (internal representation)
+         */
+        public abstract double value(int row);
+
+        /**
+         * Returns the values of the column
+         *
+         * @param numRows The number of rows
+         * @return The values (internal representation)
+         */
+        public double[] values(int numRows) {
+            double[] values = new double[numRows];
+            for (int row = 0; row < numRows; row++) {
+                values[row] = value(row);
+            }
+            return values;
+        }
+
+        /**
+         * Traverses the non-zero values of some rows of the column in row
+         * order
+         *
+         * @param from The index of the first row
+         * @param to The index of the row after the last one
+         * @param consumer The consumer of the values
+         */
+        public void forEachNonZero(int from, int to, ValueConsumer consumer) {
+            for (int row = from; row < to; row++) {
+                double value = value(row);
+                if (value != 0d) {
+                    consumer.accept(row, value);
+                }
+            }
+        }
+
+        /**
+         * Indicates whether a value can be appended to the column
+         *
+         * @param value The value (internal representation)
+         * @return true if the value can be appended
+         */
+        boolean accepts(double value) {
+            return true;
+        }
+
+        /**
+         * Appends a value to the column
+         *
+         * @param value The value (internal representation)
+         * @param row The index of the row (the number of values stored)
+         */
+        abstract void append(double value, int row);
+
+        /**
+         * Replaces the value of a row that is already stored
+         *
+         * @param value The value (internal representation)
+         * @param row The index of the row
+         */
+        void set(double value, int row) {
+            append(value, row);
+        }
+
+        /**
+         * Computes the internal representation of a value
+         *
+         * @param value The value
+         * @return the internal representation of the value
+         * @throws ParseException if a date cannot be parsed
+         */
+        abstract double encode(String value) throws ParseException;
+
+        /**
+         * Returns a column with the same values and other name (values are
+         * shared)
+         *
+         * @param newName The new name
+         * @return the renamed column
+         */
+        public abstract Column rename(String newName);
+
+        /**
+         * Returns a copy of the column
+         *
+         * @param capacity The capacity of the copy
+         * @return the copy of the column
+         */
+        abstract Column copy(int capacity);
+
+        /**
+         * Returns an empty column with the same name, type and encoding
+         *
+         * @param capacity The capacity of the new column
+         * @return the empty column
+         */
+        abstract Column emptyCopy(int capacity);
+
+        /**
+         * Returns a Weka attribute describing the column (string attributes
+         * do not include their values)
+         *
+         * @return the attribute
+         */
+        public abstract Attribute headerAttribute();
+
+        /**
+         * Returns a Weka attribute describing the column and including all
+         * its values
+         *
+         * @return the attribute
+         */
+        public Attribute toAttribute() {
+            return headerAttribute();
+        }
+    }
+
+    /**
+     * A numeric (or date) column
+     */
+    public static class NumericColumn extends Column {
+
+        /**
+         * The serial version UID
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The format of dates (null for numeric columns)
+         */
+        private final String dateFormat;
+
+        /**
+         * The values of the column
+         */
+        private double[] data;
+
+        /**
+         * An attribute used to parse dates (built when required)
+         */
+        private transient Attribute dateAttribute = null;
+
+        /**
+         * Build a numeric column
+         *
+         * @param name The name of the column
+         * @param dateFormat The format of dates (null for numeric columns)
+         * @param data The values of the column
+         */
+        NumericColumn(String name, String dateFormat, double[] data) {
+            super(name);
+            this.dateFormat = dateFormat;
+            this.data = data;
+        }
+
+        @Override
+        public int type() {
+            return (dateFormat == null) ? Attribute.NUMERIC : Attribute.DATE;
+        }
+
+        @Override
+        public double value(int row) {
+            return data[row];
+        }
+
+        @Override
+        public double[] values(int numRows) {
+            return data;
+        }
+
+        @Override
+        void append(double value, int row) {
+            if (row >= data.length) {
+                data = Arrays.copyOf(data, Math.max(row + 1, data.length * 2));
+            }
+            data[row] = value;
+        }
+
+        @Override
+        double encode(String value) throws ParseException {
+            if (dateFormat == null) {
+                return Double.parseDouble(value);
+            }
+            if (dateAttribute == null) {
+                dateAttribute = headerAttribute();
+            }
+            return dateAttribute.parseDate(value);
+        }
+
+        @Override
+        public Column rename(String newName) {
+            return new NumericColumn(newName, dateFormat, data);
+        }
+
+        @Override
+        Column copy(int capacity) {
+            return new NumericColumn(name, dateFormat, Arrays.copyOf(data, Math.max(capacity, data.length)));
+        }
+
+        @Override
+        Column emptyCopy(int capacity) {
+            return new NumericColumn(name, dateFormat, new double[capacity]);
+        }
+
+        @Override
+        public Attribute headerAttribute() {
+            return (dateFormat == null) ? new Attribute(name) : new Attribute(name, dateFormat);
+        }
+    }
+
+    /**
+     * A bit-packed numeric column for small integer values. Each value is
+     * stored as its offset from the minimum value using a fixed number of bits
+     * (1, 2, 4, 8 or 16, so values never span two words). For widths greater
+     * than 1, the largest code represents missing values.
+     */
+    public static class PackedNumericColumn extends Column {
+
+        /**
+         * The serial version UID
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The widths (bits per value) that can be used
+         */
+        private static final int[] WIDTHS = {1, 2, 4, 8, 16};
+
+        /**
+         * The number of bits per value
+         */
+        private final int width;
+
+        /**
+         * The minimum value that can be stored
+         */
+        private final long offset;
+
+        /**
+         * The packed values
+         */
+        private long[] words;
+
+        /**
+         * Build a packed column
+         *
+         * @param name The name of the column
+         * @param width The number of bits per value
+         * @param offset The minimum value that can be stored
+         * @param words The packed values
+         */
+        PackedNumericColumn(String name, int width, long offset, long[] words) {
+            super(name);
+            this.width = width;
+            this.offset = offset;
+            this.words = words;
+        }
+
+        /**
+         * Packs a numeric column if all its values are integers in a small
+         * range
+         *
+         * @param column The column
+         * @param numRows The number of rows
+         * @return the packed column or null if the column cannot be packed
+         */
+        static PackedNumericColumn pack(NumericColumn column, int numRows) {
+            if (numRows == 0) {
+                return null;
+            }
+            double[] data = column.values(numRows);
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            boolean missing = false;
+            for (int row = 0; row < numRows; row++) {
+                double value = data[row];
+                if (Utils.isMissingValue(value)) {
+                    missing = true;
+                } else if (value != Math.rint(value) || Double.isInfinite(value)) {
+                    return null;
+                } else {
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+            }
+            if (min > max) {
+                min = max = 0;
+            }
+            if (max - min >= (1 << WIDTHS[WIDTHS.length - 1])) {
+                return null;
+            }
+            long range = (long) (max - min);
+            for (int width : WIDTHS) {
+                long codes = 1L << width;
+                if ((width == 1) ? (!missing && range < codes) : range < codes - 1) {
+                    PackedNumericColumn packed = new PackedNumericColumn(column.name(), width, (long) min,
+                            new long[(int) ((Math.max(numRows, DEFAULT_CAPACITY) * (long) width + 63) / 64)]);
+                    for (int row = 0; row < numRows; row++) {
+                        packed.append(data[row], row);
+                    }
+                    return packed;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public int type() {
+            return Attribute.NUMERIC;
+        }
+
+        /**
+         * Returns the number of bits per value
+         *
+         * @return the number of bits per value
+         */
+        public int getWidth() {
+            return width;
+        }
+
+        /**
+         * Returns the code stored for a row
+         *
+         * @param row The index of the row
+         * @return the code
+         */
+        private long code(int row) {
+            long bit = (long) row * width;
+            return (words[(int) (bit >>> 6)] >>> (bit & 63)) & ((1L << width) - 1);
+        }
+
+        @Override
+        public double value(int row) {
+            long code = code(row);
+            if (width > 1 && code == (1L << width) - 1) {
+                return Utils.missingValue();
+            }
+            return offset + code;
+        }
+
+        @Override
+        boolean accepts(double value) {
+            if (Utils.isMissingValue(value)) {
+                return width > 1;
+            }
+            long maxCode = (width == 1) ? 1 : (1L << width) - 2;
+            return value == Math.rint(value) && value >= offset && value - offset <= maxCode;
+        }
+
+        @Override
+        void append(double value, int row) {
+            long bit = (long) row * width;
+            int word = (int) (bit >>> 6);
+            if (word >= words.length) {
+                words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+            }
+            long mask = (1L << width) - 1;
+            long code = Utils.isMissingValue(value) ? mask : (long) value - offset;
+            words[word] = (words[word] & ~(mask << (bit & 63))) | ((code & mask) << (bit & 63));
+        }
+
+        @Override
+        double encode(String value) {
+            return Double.parseDouble(value);
+        }
+
+        @Override
+        public Column rename(String newName) {
+            return new PackedNumericColumn(newName, width, offset, words);
+        }
+
+        @Override
+        Column copy(int capacity) {
+            int numWords = (int) ((capacity * (long) width + 63) / 64);
+            return new PackedNumericColumn(name, width, offset, Arrays.copyOf(words, Math.max(numWords, words.length)));
+        }
+
+        @Override
+        Column emptyCopy(int capacity) {
+            return new PackedNumericColumn(name, width, offset, new long[(int) ((capacity * (long) width + 63) / 64)]);
+        }
+
+        /**
+         * Converts the column into a plain numeric column
+         *
+         * @param capacity The capacity of the new column
+         * @return the numeric column
+         */
+        NumericColumn unpack(int capacity) {
+            int numRows = (int) Math.min(capacity, (words.length * 64L) / width);
+            double[] data = new double[Math.max(capacity, numRows)];
+            for (int row = 0; row < numRows; row++) {
+                data[row] = value(row);
+            }
+            return new NumericColumn(name, null, data);
+        }
+
+        @Override
+        public Attribute headerAttribute() {
+            return new Attribute(name);
+        }
+    }
+
+    /**
+     * A sparse numeric column. Only non-zero values (including missing values)
+     * are stored, together with the index of their rows.
+     */
+    public static class SparseNumericColumn extends Column {
+
+        /**
+         * The serial version UID
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The rows of the non-zero values (in ascending order)
+         */
+        private int[] rows;
+
+        /**
+         * The non-zero values
+         */
+        private double[] data;
+
+        /**
+         * The number of non-zero values
+         */
+        private int size;
+
+        /**
+         * Build a sparse numeric column
+         *
+         * @param name The name of the column
+         * @param rows The rows of the non-zero values
+         * @param data The non-zero values
+         * @param size The number of non-zero values
+         */
+        SparseNumericColumn(String name, int[] rows, double[] data, int size) {
+            super(name);
+            this.rows = rows;
+            this.data = data;
+            this.size = size;
+        }
+
+        @Override
+        public int type() {
+            return Attribute.NUMERIC;
+        }
+
+        @Override
+        public double value(int row) {
+            int position = Arrays.binarySearch(rows, 0, size, row);
+            return (position < 0) ? 0d : data[position];
+        }
+
+        @Override
+        public double[] values(int numRows) {
+            double[] values = new double[numRows];
+            for (int i = 0; i < size; i++) {
+                values[rows[i]] = data[i];
+            }
+            return values;
+        }
+
+        @Override
+        public void forEachNonZero(int from, int to, ValueConsumer consumer) {
+            int position = Arrays.binarySearch(rows, 0, size, from);
+            for (int i = (position < 0) ? -position - 1 : position; i < size && rows[i] < to; i++) {
+                consumer.accept(rows[i], data[i]);
+            }
+        }
+
+        @Override
+        void append(double value, int row) {
+            if (value == 0d) {
+                return;
+            }
+            if (size == rows.length) {
+                int capacity = Math.max(DEFAULT_CAPACITY, rows.length * 2);
+                rows = Arrays.copyOf(rows, capacity);
+                data = Arrays.copyOf(data, capacity);
+            }
+            rows[size] = row;
+            data[size++] = value;
+        }
+
+        @Override
+        void set(double value, int row) {
+            int position = Arrays.binarySearch(rows, 0, size, row);
+            if (position >= 0) {
+                if (value != 0d) {
+                    data[position] = value;
+                    return;
+                }
+                System.arraycopy(rows, position + 1, rows, position, size - position - 1);
+                System.arraycopy(data, position + 1, data, position, size - position - 1);
+                size--;
+            } else if (value != 0d) {
+                position = -position - 1;
+                if (size == rows.length) {
+                    int capacity = Math.max(DEFAULT_CAPACITY, rows.length * 2);
+                    rows = Arrays.copyOf(rows, capacity);
+                    data = Arrays.copyOf(data, capacity);
+                }
+                System.arraycopy(rows, position, rows, position + 1, size - position);
+                System.arraycopy(data, position, data, position + 1, size - position);
+                rows[position] = row;
+                data[position] = value;
+                size++;
+            }
+        }
+
+        @Override
+        double encode(String value) {
+            return Double.parseDouble(value);
+        }
+
+        @Override
+        public Column rename(String newName) {
+            return new SparseNumericColumn(newName, rows, data, size);
+        }
+
+        @Override
+        Column copy(int capacity) {
+            int newCapacity = Math.max(size + 1, rows.length);
+            return new SparseNumericColumn(name, Arrays.copyOf(rows, newCapacity), Arrays.copyOf(data, newCapacity), size);
+        }
+
+        @Override
+        Column emptyCopy(int capacity) {
+            return new SparseNumericColumn(name, new int[DEFAULT_CAPACITY], new double[DEFAULT_CAPACITY], 0);
+        }
+
+        @Override
+        public Attribute headerAttribute() {
+            return new Attribute(name);
+        }
+
+        /**
+         * Returns the number of non-zero values
+         *
+         * @return the number of non-zero values
+         */
+        public int numNonZero() {
+            return size;
+        }
+    }
+
+    /**
+     * A nominal column. Values are stored as their index in the list of
+     * allowed values (-1 for missing values).
+     */
+    public static class NominalColumn extends Column {
+
+        /**
+         * The serial version UID
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The allowed values
+         */
+        private final List<String> labels;
+
+        /**
+         * The index of the value of each row
+         */
+        private int[] codes;
+
+        /**
+         * The index of each allowed value (built when required)
+         */
+        private transient Map<String, Integer> labelIndexes = null;
+
+        /**
+         * Build a nominal column
+         *
+         * @param name The name of the column
+         * @param labels The allowed values
+         * @param codes The index of the value of each row
+         */
+        NominalColumn(String name, List<String> labels, int[] codes) {
+            super(name);
+            this.labels = labels;
+            this.codes = codes;
+        }
+
+        @Override
+        public int type() {
+            return Attribute.NOMINAL;
+        }
+
+        @Override
+        public double value(int row) {
+            return (codes[row] < 0) ? Utils.missingValue() : codes[row];
+        }
+
+        @Override
+        void append(double value, int row) {
+            if (row >= codes.length) {
+                codes = Arrays.copyOf(codes, Math.max(row + 1, codes.length * 2));
+            }
+            codes[row] = Utils.isMissingValue(value) ? -1 : (int) value;
+        }
+
+        @Override
+        double encode(String value) {
+            if (labelIndexes == null) {
+                Map<String, Integer> indexes = new HashMap<>();
+                for (int i = 0; i < labels.size(); i++) {
+                    indexes.put(labels.get(i), i);
+                }
+                labelIndexes = indexes;
+            }
+            Integer index = labelIndexes.get(value);
+            if (index == null) {
+                throw new IllegalArgumentException("Value >>" + value + "<< not defined for nominal attribute " + name);
+            }
+            return index;
+        }
+
+        @Override
+        public Column rename(String newName) {
+            return new NominalColumn(newName, labels, codes);
+        }
+
+        @Override
+        Column copy(int capacity) {
+            return new NominalColumn(name, labels, Arrays.copyOf(codes, Math.max(capacity, codes.length)));
+        }
+
+        @Override
+        Column emptyCopy(int capacity) {
+            return new NominalColumn(name, labels, new int[capacity]);
+        }
+
+        @Override
+        public Attribute headerAttribute() {
+            return new Attribute(name, new ArrayList<>(labels));
+        }
+
+        /**
+         * Returns the allowed values
+         *
+         * @return the allowed values
+         */
+        public List<String> getLabels() {
+            return labels;
+        }
+    }
+
+    /**
+     * A string column. Values are dictionary encoded: each row stores the
+     * index of its value in the dictionary (-1 for missing values).
+     */
+    public static class StringColumn extends Column {
+
+        /**
+         * The serial version UID
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The dictionary of values
+         */
+        private final ArrayList<String> dictionary;
+
+        /**
+         * The index of the value of each row
+         */
+        private int[] codes;
+
+        /**
+         * The index of each value in the dictionary (built when required)
+         */
+        private transient Map<String, Integer> dictionaryIndexes = null;
+
+        /**
+         * Build a string column
+         *
+         * @param name The name of the column
+         * @param dictionary The dictionary of values
+         * @param codes The index of the value of each row
+         */
+        StringColumn(String name, ArrayList<String> dictionary, int[] codes) {
+            super(name);
+            this.dictionary = dictionary;
+            this.codes = codes;
+        }
+
+        @Override
+        public int type() {
+            return Attribute.STRING;
+        }
+
+        @Override
+        public double value(int row) {
+            return (codes[row] < 0) ? Utils.missingValue() : codes[row];
+        }
+
+        @Override
+        void append(double value, int row) {
+            if (row >= codes.length) {
+                codes = Arrays.copyOf(codes, Math.max(row + 1, codes.length * 2));
+            }
+            codes[row] = Utils.isMissingValue(value) ? -1 : (int) value;
+        }
+
+        @Override
+        double encode(String value) {
+            if (dictionaryIndexes == null) {
+                Map<String, Integer> indexes = new HashMap<>();
+                for (int i = 0; i < dictionary.size(); i++) {
+                    indexes.put(dictionary.get(i), i);
+                }
+                dictionaryIndexes = indexes;
+            }
+            Integer index = dictionaryIndexes.get(value);
+            if (index == null) {
+                index = dictionary.size();
+                dictionary.add(value);
+                dictionaryIndexes.put(value, index);
+            }
+            return index;
+        }
+
+        @Override
+        public Column rename(String newName) {
+            return new StringColumn(newName, dictionary, codes);
+        }
+
+        @Override
+        Column copy(int capacity) {
+            return new StringColumn(name, new ArrayList<>(dictionary), Arrays.copyOf(codes, Math.max(capacity, codes.length)));
+        }
+
+        @Override
+        Column emptyCopy(int capacity) {
+            return new StringColumn(name, new ArrayList<>(dictionary), new int[capacity]);
+        }
+
+        @Override
+        public Attribute headerAttribute() {
+            return new Attribute(name, true);
+        }
+
+        @Override
+        public Attribute toAttribute() {
+            Attribute attribute = new Attribute(name, true);
+            for (String value : dictionary) {
+                attribute.addStringValue(value);
+            }
+            return attribute;
+        }
+
+        /**
+         * Returns a value of the dictionary
+         *
+         * @param code The index of the value in the dictionary
+         * @return the value
+         */
+        public String getString(int code) {
+            return dictionary.get(code);
+        }
+
+        /**
+         * Returns the number of values in the dictionary
+         *
+         * @return the number of values in the dictionary
+         */
+        public int dictionarySize() {
+            return dictionary.size();
+        }
+    }
+
+    /**
+     * A read-only column whose values are stored in memory-mapped blocks of
+     * a binary dataset file (see BinaryDatasetReader). Values are read
+     * directly from the file (they are not loaded or parsed). Stores never own
+     * mapped columns, so they are copied into a regular column before being
+     * modified (and when they are serialized).
+     */
+    public static class MappedColumn extends Column {
+
+        /**
+         * The serial version UID
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * An empty column with the same name, type and encoding
+         */
+        private final Column template;
+
+        /**
+         * The blocks of values (all of them with 2^shift values except the
+         * last one)
+         */
+        private final transient DoubleBuffer[] blocks;
+
+        /**
+         * The binary logarithm of the number of values of each block
+         */
+        private final int shift;
+
+        /**
+         * The number of values
+         */
+        private final int size;
+
+        /**
+         * Build a mapped column
+         *
+         * @param template An empty column with the same name, type and
+         * encoding
+         * @param blocks The blocks of values
+         * @param shift The binary logarithm of the number of values of each
+         * block
+         * @param size The number of values
+         */
+        MappedColumn(Column template, DoubleBuffer[] blocks, int shift, int size) {
+            super(template.name());
+            this.template = template;
+            this.blocks = blocks;
+            this.shift = shift;
+            this.size = size;
+        }
+
+        @Override
+        public int type() {
+            return template.type();
+        }
+
+        @Override
+        public double value(int row) {
+            return blocks[row >>> shift].get(row & ((1 << shift) - 1));
+        }
+
+        @Override
+        public double[] values(int numRows) {
+            double[] values = new double[numRows];
+            for (int i = 0, offset = 0; offset < numRows; i++, offset += 1 << shift) {
+                DoubleBuffer block = blocks[i].duplicate();
+                block.get(values, offset, Math.min(block.remaining(), numRows - offset));
+            }
+            return values;
+        }
+
+        @Override
+        void append(double value, int row) {
+            throw new UnsupportedOperationException("Mapped columns are read-only");
+        }
+
+        @Override
+        double encode(String value) throws ParseException {
+            return template.encode(value);
+        }
+
+        @Override
+        public Column rename(String newName) {
+            return new MappedColumn(template.rename(newName), blocks, shift, size);
+        }
+
+        @Override
+        Column copy(int capacity) {
+            Column copy = template.emptyCopy(Math.max(capacity, size));
+            for (int row = 0; row < size; row++) {
+                copy.append(value(row), row);
+            }
+            return copy;
+        }
+
+        @Override
+        Column emptyCopy(int capacity) {
+            return template.emptyCopy(capacity);
+        }
+
+        @Override
+        public Attribute headerAttribute() {
+            return template.headerAttribute();
+        }
+
+        @Override
+        public Attribute toAttribute() {
+            return template.toAttribute();
+        }
+
+        /**
+         * Returns the column that provides the type and encoding of values
+         *
+         * @return the empty column with the same name, type and encoding
+         */
+        Column getTemplate() {
+            return template;
+        }
+
+        /**
+         * Serializes a regular copy of the column (mapped blocks cannot be
+         * serialized)
+         *
+         * @return the copy of the column
+         */
+        private Object writeReplace() {
+            return copy(size);
+        }
+    }
+}
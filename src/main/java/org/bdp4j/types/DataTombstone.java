@@ -0,0 +1,72 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.io.Serializable;
+
+/**
+ * A lightweight object used to replace the data of an Instance once it is no
+ * longer needed by any pipe. It only keeps the name of the class of the
+ * released data for debugging purposes.
+ *
+ * @author María Novo
+ */
+public final class DataTombstone implements Serializable {
+
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = -3297711526402283310L;
+
+    /**
+     * The name of the class of the released data
+     */
+    private final String releasedType;
+
+    /**
+     * Build a tombstone for a data object
+     *
+     * @param releasedData The data that is being released
+     */
+    public DataTombstone(Object releasedData) {
+        this.releasedType = (releasedData == null) ? "null" : releasedData.getClass().getName();
+    }
+
+    /**
+     * Returns the name of the class of the released data
+     *
+     * @return the name of the class of the released data
+     */
+    public String getReleasedType() {
+        return releasedType;
+    }
+
+    /**
+     * Returns the string representation of the tombstone
+     *
+     * @return the string representation of the tombstone
+     */
+    @Override
+    public String toString() {
+        return "[RELEASED " + releasedType + "]";
+    }
+}
@@ -28,32 +28,28 @@ import weka.core.Attribute;
 import weka.core.DenseInstance;
 import weka.core.Instance;
 import weka.core.Instances;
-import weka.core.converters.ArffSaver;
-import weka.core.converters.CSVSaver;
-import weka.filters.Filter;
+import weka.core.SparseInstance;
+import weka.core.Utils;
 
 import java.io.*;
+import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.UUID;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import static java.util.stream.Collectors.joining;
-import static java.util.stream.Collectors.toList;
-import java.util.stream.Stream;
+import org.bdp4j.util.ColumnExpression;
+import org.bdp4j.util.CompiledExpression;
 import org.bdp4j.util.MCD;
 import org.bdp4j.util.RegularExpressionEvaluator;
 import org.codehaus.janino.CompileException;
-import weka.filters.MultiFilter;
-import weka.filters.unsupervised.attribute.AddExpression;
-import weka.filters.unsupervised.attribute.NumericToBinary;
-import weka.filters.unsupervised.attribute.Remove;
-import weka.filters.unsupervised.attribute.Reorder;
 
 /**
  * Build a weka dataset
@@ -70,6 +66,11 @@ public class Dataset implements Serializable, Cloneable {
         public Double combine(Double a, Double b) {
             return a + b;
         }
+
+        @Override
+        public double combineValues(double a, double b) {
+            return a + b;
+        }
     };
 
     /**
@@ -80,6 +81,11 @@ public class Dataset implements Serializable, Cloneable {
         public Double combine(Double a, Double b) {
             return (a > 0 || b > 0) ? 1d : 0d;
         }
+
+        @Override
+        public double combineValues(double a, double b) {
+            return (a > 0 || b > 0) ? 1d : 0d;
+        }
     };
 
     public static enum Combine implements CombineOperator {
@@ -88,6 +94,11 @@ public class Dataset implements Serializable, Cloneable {
 
         @Override
         public Double combine(Double a, Double b) {
+            return combineValues(a, b);
+        }
+
+        @Override
+        public double combineValues(double a, double b) {
             switch (this) {
                 case SUM:
                     return a + b;
@@ -109,6 +120,12 @@ public class Dataset implements Serializable, Cloneable {
      */
     private static final Logger logger = LogManager.getLogger(Dataset.class);
 
+    /**
+     * The prefix of the identifiers that replace column names in the
+     * expressions used to filter rows (see findRows(String))
+     */
+    private static final String COLUMN_PARAMETER_PREFIX = "bdp4jColumn";
+
     /**
      * The default value for the output file
      */
@@ -124,13 +141,45 @@ public class Dataset implements Serializable, Cloneable {
      */
     private Instances dataset = null;
 
+    /**
+     * Indicates whether the instances are shared with other Dataset (see
+     * clone()). Shared instances are copied before being modified in place.
+     */
+    private boolean shared = false;
+
+    /**
+     * The columnar storage of the Dataset (null when the data is stored in
+     * Weka instances). Columnar datasets build Weka instances only when they
+     * are required (see instances()).
+     */
+    private ColumnarStore store = null;
+
+    /**
+     * The statistics of the columns (null until they are required). They are
+     * updated when rows are added and discarded when the data is modified in
+     * other ways.
+     */
+    private transient DatasetStatistics statistics = null;
+
+    /**
+     * The builder used to add rows (null until it is required). The type of
+     * the columns is resolved when it is created, so it is discarded when the
+     * columns change (see rebuild()).
+     */
+    private transient DatasetBuilder rowBuilder = null;
+
     /**
      * Default constructor, creates a new Dataset from instances
      *
      * @param dataset to create a new Dataset
      */
     public Dataset(Dataset dataset) {
-        this.dataset = new Instances(dataset.getWekaDataset());
+        if (dataset.store != null) {
+            // Columns are copied when any of the datasets modifies them
+            this.store = dataset.store.share();
+        } else {
+            this.dataset = dataset.copyWekaDataset();
+        }
         this.outputFile = dataset.getOutputFile();
     }
 
@@ -168,6 +217,325 @@ public class Dataset implements Serializable, Cloneable {
         this.outputFile = outputFile;
     }
 
+    /**
+     * Creates a new Dataset from a columnar store
+     *
+     * @param store The columnar store
+     */
+    Dataset(ColumnarStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Creates a new columnar Dataset. Values are stored in primitive arrays
+     * (one per column, nominal and string values are dictionary encoded) and
+     * Weka instances are only built when they are required (exporting the
+     * dataset or modifying instances directly). Numeric, date, nominal and
+     * string attributes are supported.
+     *
+     * @param name The name of the relation
+     * @param attributes The attribute list of instances
+     * @param capacity The initial capacity of the instances
+     * @return The new Dataset
+     */
+    public static Dataset createColumnar(String name, ArrayList<Attribute> attributes, int capacity) {
+        return new Dataset(new ColumnarStore(name, attributes, capacity));
+    }
+
+    /**
+     * Stores the data of this Dataset in columns (see createColumnar())
+     *
+     * @return this Dataset
+     */
+    public Dataset toColumnar() {
+        if (store == null) {
+            store = ColumnarStore.fromInstances(dataset);
+            dataset = null;
+            shared = false;
+        }
+        return this;
+    }
+
+    /**
+     * Creates a new sparse Dataset. It is a columnar Dataset (see
+     * createColumnar()) where numeric columns only store their non-zero
+     * values, so memory grows with the number of non-zero values instead of
+     * rows x columns. Weka instances built from it are SparseInstance objects
+     * (and ARFF files are written in sparse format). It is intended for
+     * high-dimensional datasets such as bag-of-words representations.
+     *
+     * @param name The name of the relation
+     * @param attributes The attribute list of instances
+     * @param capacity The initial capacity of the instances
+     * @return The new Dataset
+     */
+    public static Dataset createSparse(String name, ArrayList<Attribute> attributes, int capacity) {
+        return new Dataset(new ColumnarStore(name, attributes, capacity, true));
+    }
+
+    /**
+     * Stores the data of this Dataset in sparse columns (see createSparse())
+     *
+     * @return this Dataset
+     */
+    public Dataset toSparse() {
+        if (store == null || !store.isSparse()) {
+            store = ColumnarStore.fromInstances(exportInstances(), true);
+            dataset = null;
+            shared = false;
+        }
+        return this;
+    }
+
+    /**
+     * Indicates whether the numeric columns of this Dataset only store their
+     * non-zero values (see createSparse())
+     *
+     * @return true if the Dataset is sparse
+     */
+    public boolean isSparse() {
+        return store != null && store.isSparse();
+    }
+
+    /**
+     * Bit-packs the numeric columns of a columnar Dataset whose values are
+     * small integers (binary features, counts, codes...). The width of each
+     * column is selected from its observed range of values, and columns are
+     * widened automatically if a value out of range is added later. Values
+     * (and exports) are not modified. It has no effect on non columnar
+     * datasets.
+     *
+     * @return this Dataset
+     */
+    public Dataset compactColumns() {
+        if (store != null) {
+            store.compact();
+        }
+        return this;
+    }
+
+    /**
+     * Indicates whether the data of this Dataset is stored in columns
+     *
+     * @return true if the data is stored in columns
+     */
+    public boolean isColumnar() {
+        return store != null;
+    }
+
+    /**
+     * Returns the Weka instances of the dataset. Columnar datasets are
+     * converted to Weka instances (and stop being columnar).
+     *
+     * @return the Weka instances
+     */
+    private Instances instances() {
+        if (store != null) {
+            dataset = store.toInstances();
+            store = null;
+            shared = false;
+        }
+        return dataset;
+    }
+
+    /**
+     * Replaces a value of a row of a columnar dataset (see ColumnarInstance)
+     *
+     * @param row The index of the row
+     * @param column The index of the column
+     * @param value The value (internal representation)
+     */
+    void setColumnarValue(int row, int column, double value) {
+        columnarStore().setValue(row, column, value);
+    }
+
+    /**
+     * Replaces a value of a string column of a columnar dataset (see
+     * ColumnarInstance)
+     *
+     * @param row The index of the row
+     * @param column The index of the column
+     * @param value The value
+     */
+    void setColumnarString(int row, int column, String value) {
+        ColumnarStore current = columnarStore();
+        try {
+            current.setValue(row, column, current.encode(column, value));
+        } catch (ParseException ex) {
+            throw new IllegalArgumentException("Unable to parse " + value, ex);
+        }
+    }
+
+    /**
+     * Returns the columnar store before modifying it in place
+     *
+     * @return the columnar store
+     */
+    private ColumnarStore columnarStore() {
+        if (store == null) {
+            throw new IllegalStateException("The rows of a columnar dataset cannot be modified once it stops being columnar");
+        }
+        statistics = null;
+        return store;
+    }
+
+    /**
+     * Returns the Weka instances of the dataset before modifying them in
+     * place (see ensureExclusive())
+     *
+     * @return the Weka instances
+     */
+    private Instances exclusiveInstances() {
+        statistics = null;
+        instances();
+        ensureExclusive();
+        return dataset;
+    }
+
+    /**
+     * Returns Weka instances with the contents of the dataset that should not
+     * be modified. Columnar datasets build them without stopping being
+     * columnar.
+     *
+     * @return the Weka instances
+     */
+    private Instances exportInstances() {
+        return (store != null) ? store.toInstances() : dataset;
+    }
+
+    /**
+     * Returns a Weka dataset describing the attributes. It should be used only
+     * for reading metadata (string attributes of columnar datasets do not
+     * include their values).
+     *
+     * @return the Weka dataset describing the attributes
+     */
+    Instances header() {
+        return (store != null) ? store.header() : dataset;
+    }
+
+    /**
+     * Returns the number of instances
+     *
+     * @return the number of instances
+     */
+    int numRows() {
+        return (store != null) ? store.numRows() : dataset.numInstances();
+    }
+
+    /**
+     * Returns a value without building Weka instances. It is safe to call it
+     * from several threads while the dataset is not modified.
+     *
+     * @param row The index of the row
+     * @param column The index of the column
+     * @return the value (internal representation)
+     */
+    double value(int row, int column) {
+        return (store != null) ? store.value(row, column) : dataset.instance(row).value(column);
+    }
+
+    /**
+     * Returns the weight of a row
+     *
+     * @param row The index of the row
+     * @return the weight of the row
+     */
+    double weight(int row) {
+        return (store != null) ? store.weight(row) : dataset.instance(row).weight();
+    }
+
+    /**
+     * Indicates whether rows are stored in sparse form (sparse datasets or
+     * Weka datasets with SparseInstance rows)
+     *
+     * @return true if rows are stored in sparse form
+     */
+    boolean hasSparseRows() {
+        if (store != null) {
+            return store.isSparse();
+        }
+        return dataset.numInstances() > 0 && dataset.instance(0) instanceof SparseInstance;
+    }
+
+    /**
+     * Traverses the non-zero values of some rows (rows in ascending order and,
+     * for each row, columns in ascending order). Only the stored values are
+     * visited for sparse rows. It is safe to call it from several threads
+     * while the dataset is not modified.
+     *
+     * @param from The index of the first row
+     * @param to The index of the row after the last one
+     * @param consumer The consumer of the values
+     */
+    void forEachNonZero(int from, int to, CellConsumer consumer) {
+        if (store == null) {
+            for (int row = from; row < to; row++) {
+                Instance instance = dataset.instance(row);
+                for (int p = 0; p < instance.numValues(); p++) {
+                    double value = instance.valueSparse(p);
+                    if (value != 0d) {
+                        consumer.accept(row, instance.index(p), value);
+                    }
+                }
+            }
+            return;
+        }
+
+        // Values are gathered by column and then visited by row
+        int numRows = to - from;
+        int[] rowSizes = new int[numRows + 1];
+        for (int i = 0; i < store.numColumns(); i++) {
+            store.column(i).forEachNonZero(from, to, (row, value) -> rowSizes[row - from + 1]++);
+        }
+        for (int i = 1; i <= numRows; i++) {
+            rowSizes[i] += rowSizes[i - 1];
+        }
+        int[] columns = new int[rowSizes[numRows]];
+        double[] values = new double[rowSizes[numRows]];
+        int[] positions = Arrays.copyOf(rowSizes, numRows);
+        for (int i = 0; i < store.numColumns(); i++) {
+            int column = i;
+            store.column(i).forEachNonZero(from, to, (row, value) -> {
+                int position = positions[row - from]++;
+                columns[position] = column;
+                values[position] = value;
+            });
+        }
+        for (int row = 0; row < numRows; row++) {
+            for (int position = rowSizes[row]; position < rowSizes[row + 1]; position++) {
+                consumer.accept(from + row, columns[position], values[position]);
+            }
+        }
+    }
+
+    /**
+     * Receives the values of a dataset
+     */
+    @FunctionalInterface
+    interface CellConsumer {
+
+        /**
+         * Receives a value
+         *
+         * @param row The index of the row
+         * @param column The index of the column
+         * @param value The value (internal representation)
+         */
+        void accept(int row, int column, double value);
+    }
+
+    /**
+     * Returns the value of a nominal or string column for an internal code
+     *
+     * @param column The index of the column
+     * @param code The internal representation of the value
+     * @return the value
+     */
+    String label(int column, int code) {
+        return (store != null) ? store.label(column, code) : dataset.attribute(column).value(code);
+    }
+
     /**
      * Set the output filename to store the CSV contents
      *
@@ -193,54 +561,103 @@ public class Dataset implements Serializable, Cloneable {
      * @return the number of attributes in instances
      */
     public int numAttributes() {
-        return dataset.numAttributes();
+        return header().numAttributes();
     }
 
     /**
-     * Creates a Dense instance
+     * Creates a Dense instance. For columnar datasets, the row is added to the
+     * columns and the values set through the returned instance are written
+     * back to them (its weight cannot be changed).
      *
      * @return The DenseInstance created
      */
     public Instance createDenseInstance() {
-        dataset.add(new DenseInstance(this.numAttributes()));
-        return dataset.lastInstance();
+        if (store != null) {
+            // The row is added to the columns (see ColumnarInstance)
+            statistics = null;
+            double[] values = new double[store.numColumns()];
+            Arrays.fill(values, Utils.missingValue());
+            store.appendRow(values, 1d);
+            Instance instance = new ColumnarInstance(this, store.numRows() - 1, 1d, values);
+            instance.setDataset(store.rowHeader(false));
+            return instance;
+        }
+        Instances instances = exclusiveInstances();
+        instances.add(new DenseInstance(this.numAttributes()));
+        return instances.lastInstance();
     }
 
     /**
-     * Get an Instances from instances
+     * Get an Instances from instances. The Instances returned is a copy (see
+     * copyWekaDataset()). Use getWekaDatasetView() if you only need to inspect
+     * the data of a non columnar Dataset.
      *
      * @return an Instances from instances
      */
     public weka.core.Instances getWekaDataset() {
-        return new Instances(dataset);
+        return copyWekaDataset();
+    }
+
+    /**
+     * Get a modifiable copy of the instances
+     *
+     * @return a copy of the instances
+     */
+    public weka.core.Instances copyWekaDataset() {
+        // Columnar datasets build a new Weka dataset
+        return (store != null) ? store.toInstances() : new Instances(dataset);
+    }
+
+    /**
+     * Get a read-only view of the instances. Any attempt to modify it throws
+     * an UnsupportedOperationException and it should not be used after
+     * modifying this Dataset. The view only avoids copying the data of non
+     * columnar datasets: columnar datasets (see isColumnar()) build all their
+     * Weka instances for each call, which costs as much as copyWekaDataset().
+     *
+     * @return a read-only view of the instances
+     */
+    public weka.core.Instances getWekaDatasetView() {
+        return new ReadOnlyInstances(exportInstances());
     }
 
     /**
      * Print the instances content using Standard output
      */
     public void printLine() {
-        dataset.stream().forEach(System.out::println);
+        exportInstances().stream().forEach(System.out::println);
     }
 
     /**
      * Generates a CSV with the instances contents. The CSV will be saved in the
-     * file that store the outputFile. See Dataset.setOutputFile()
+     * file that store the outputFile. See Dataset.setOutputFile(). Rows are
+     * streamed to the file (see CSVExporter).
      */
     public void generateCSV() {
-        CSVSaver saver = new CSVSaver();
         try {
-            File file = new File(outputFile);
-            saver.setFile(file);
-            saver.setInstances(dataset);
             //WEKA uses this fieldSeparator. In other case, you can't load this file in WEKA application
-            saver.setFieldSeparator(",");
-            saver.writeBatch();
+            new CSVExporter(this).setFieldSeparator(',').export(new File(outputFile));
         } catch (IOException ex) {
             logger.error(ex.getMessage());
         }
 
     }
 
+    /**
+     * Generates a LibSVM file with the instances contents (only non-zero
+     * features are written, see LibSVMExporter). Rows are streamed to the
+     * file.
+     *
+     * @param file The destination file
+     */
+    public void generateLibSVM(String file) {
+        try {
+            new LibSVMExporter(this).export(new File(file));
+        } catch (IOException ex) {
+            logger.error(ex.getMessage());
+        }
+    }
+
     /**
      * Generate comments to apply a transformer list
      *
@@ -266,40 +683,130 @@ public class Dataset implements Serializable, Cloneable {
     }
 
     /**
-     * Generates a CSV with instances content.
+     * Generates an ARFF file with instances content and comments describing
+     * the transformers applied.
      *
      * @param transformersList The list of transformers
      * @param file The destination file
      * @return The ARFF content
+     * @throws UncheckedIOException If the file cannot be written
      */
     public String generateARFFWithComments(Map<String, Transformer> transformersList, String file) {
+        return generateARFFWithComments(transformersList, file, false);
+    }
+
+    /**
+     * Generates an ARFF file (optionally compressed with gzip) with instances
+     * content and comments describing the transformers applied. Rows are
+     * streamed to the file (see ARFFExporter) and written in sparse form for
+     * sparse datasets.
+     *
+     * @param transformersList The list of transformers
+     * @param file The destination file
+     * @param compress true to compress the file with gzip
+     * @return The ARFF content
+     * @throws UncheckedIOException If the file cannot be written
+     */
+    public String generateARFFWithComments(Map<String, Transformer> transformersList, String file, boolean compress) {
         String comments = "";
         if (transformersList != null) {
             comments = getComments(transformersList);
         }
-        // Generate 
-        Instances wekaDataset = this.getWekaDataset();
         if (file.length() == 0) {
-            file = "WEKADatasetWithComments.arff";
+            file = compress ? "WEKADatasetWithComments.arff.gz" : "WEKADatasetWithComments.arff";
+        }
+        try {
+            new ARFFExporter(this).setComments(comments).setCompressed(compress).export(new File(file));
+        } catch (IOException ex) {
+            logger.error("[GENERATE ARFF] Unable to write " + file + ": " + ex.getMessage());
+            throw new UncheckedIOException(ex);
         }
-        try (OutputStream outputStream = new FileOutputStream(new File(file))) {
+        return file;
+    }
 
-            ArffSaver saver = new ArffSaver();
-            saver.setInstances(wekaDataset);
-            BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(outputStream));
-            if (!comments.isEmpty()) {
-                bw.write(comments + "\n");
+    /**
+     * Saves the dataset in a binary file that can be loaded by memory-mapping
+     * it (see loadBinary()). Rows are streamed to the file (see
+     * BinaryDatasetWriter).
+     *
+     * @param file The destination file
+     * @param transformersList The transformers used to build the dataset
+     * (stored in the file, it can be null)
+     * @throws IOException If an I/O error occurs
+     */
+    public void saveBinary(File file, Map<String, Transformer> transformersList) throws IOException {
+        Instances header = header();
+        ArrayList<Attribute> attributes = new ArrayList<>(header.numAttributes());
+        for (int i = 0; i < header.numAttributes(); i++) {
+            // Columnar headers do not include the dictionaries of string columns
+            attributes.add((store != null) ? store.column(i).toAttribute() : header.attribute(i));
+        }
+        Instances fullHeader = new Instances(header.relationName(), attributes, 0);
+        fullHeader.setClassIndex(header.classIndex());
+        int numColumns = attributes.size();
+        int numRows = numRows();
+        try (BinaryDatasetWriter writer = new BinaryDatasetWriter(file, fullHeader, hasSparseRows())) {
+            writer.setTransformers(transformersList);
+            double[] values = new double[numColumns];
+            if (!hasSparseRows()) {
+                for (int row = 0; row < numRows; row++) {
+                    for (int i = 0; i < numColumns; i++) {
+                        values[i] = value(row, i);
+                    }
+                    writer.addRow(values, weight(row));
+                }
+                return;
             }
-            bw.write("\n");
-            bw.flush();
-
-            saver.setDestination(outputStream);
-            saver.writeBatch();
+            // Rows are built from their non-zero values
+            int[] next = {0};
+            for (int from = 0; from < numRows; from += DatasetExporter.DEFAULT_CHUNK_SIZE) {
+                try {
+                    forEachNonZero(from, Math.min(from + DatasetExporter.DEFAULT_CHUNK_SIZE, numRows), (row, column, value) -> {
+                        while (next[0] < row) {
+                            addBinaryRow(writer, values, next[0]++);
+                        }
+                        values[column] = value;
+                    });
+                } catch (UncheckedIOException ex) {
+                    throw ex.getCause();
+                }
+            }
+            while (next[0] < numRows) {
+                addBinaryRow(writer, values, next[0]++);
+            }
+        }
+    }
 
+    /**
+     * Writes a row to a binary file and clears its values
+     *
+     * @param writer The writer of the binary file
+     * @param values The values of the row
+     * @param row The index of the row
+     */
+    private void addBinaryRow(BinaryDatasetWriter writer, double[] values, int row) {
+        try {
+            writer.addRow(values, weight(row));
         } catch (IOException ex) {
-            ex.printStackTrace();
+            throw new UncheckedIOException(ex);
         }
-        return file;
+        Arrays.fill(values, 0d);
+    }
+
+    /**
+     * Loads a dataset from a binary file (see saveBinary()). The file is
+     * memory-mapped and its values are used without parsing or copying them
+     * (columns are copied to memory only when they are modified). The
+     * transformers stored in the file can be retrieved using a
+     * BinaryDatasetReader.
+     *
+     * @param file The file
+     * @return The columnar Dataset
+     * @throws IOException If an I/O error occurs or the file is not a valid
+     * binary dataset
+     */
+    public static Dataset loadBinary(File file) throws IOException {
+        return new BinaryDatasetReader(file).load();
     }
 
     /**
@@ -308,7 +815,7 @@ public class Dataset implements Serializable, Cloneable {
      * @return A list with the attributes of instances
      */
     public List<String> getAttributes() {
-        Enumeration<Attribute> attributeEnum = dataset.enumerateAttributes();
+        Enumeration<Attribute> attributeEnum = header().enumerateAttributes();
         List<String> attributeList = new ArrayList<>();
         while (attributeEnum.hasMoreElements()) {
             attributeList.add(attributeEnum.nextElement().name());
@@ -317,13 +824,32 @@ public class Dataset implements Serializable, Cloneable {
     }
 
     /**
-     * Get the instance list of instances
+     * Get the instance list of instances. For columnar datasets, the rows are
+     * built from the columns (the dataset keeps being columnar) and the values
+     * set through them are written back to the columns (their weights cannot
+     * be changed).
      *
      * @return A list with the instances of instances
      */
     public List<Instance> getInstances() {
-
-        Enumeration<Instance> instanceEnum = dataset.enumerateInstances();
+        if (store != null) {
+            // Rows are built from the columns and write their changes back
+            Instances rowHeader = store.rowHeader(true);
+            int numColumns = store.numColumns();
+            List<Instance> instanceList = new ArrayList<>(store.numRows());
+            for (int row = 0; row < store.numRows(); row++) {
+                double[] values = new double[numColumns];
+                for (int column = 0; column < numColumns; column++) {
+                    values[column] = store.value(row, column);
+                }
+                Instance instance = new ColumnarInstance(this, row, store.weight(row), values);
+                instance.setDataset(rowHeader);
+                instanceList.add(instance);
+            }
+            return instanceList;
+        }
+        // Returned instances can be modified
+        Enumeration<Instance> instanceEnum = exclusiveInstances().enumerateInstances();
         List<Instance> instanceList = new ArrayList<>();
         while (instanceEnum.hasMoreElements()) {
             instanceList.add(instanceEnum.nextElement());
@@ -360,57 +886,170 @@ public class Dataset implements Serializable, Cloneable {
      * @return Dataset with new columns names
      */
     public Dataset replaceColumnNames(Map<String, String> newColumnNames, CombineOperator op) {
-        Instances instances = this.dataset;
-        List<String> listAttributeName = new ArrayList<>();
+        // Resolve all renames and merges (only metadata, data is not touched)
+        Instances header = header();
+        List<MergeSlot> slots = new ArrayList<>(header.numAttributes());
+        Map<String, MergeSlot> slotsByName = new HashMap<>();
+        for (int i = 0; i < header.numAttributes(); i++) {
+            MergeSlot slot = new MergeSlot(header.attribute(i).name(), i);
+            slots.add(slot);
+            slotsByName.put(slot.name, slot);
+        }
+
+        boolean modified = false;
         for (Map.Entry<String, String> entry : newColumnNames.entrySet()) {
             String oldValue = entry.getKey();
             String newValue = entry.getValue();
-            if (!oldValue.equals("") || !newValue.equals("")) {
-                try {
-                    Attribute lastAttribute = instances.attribute(newValue);
-                    Attribute att = instances.attribute(oldValue);
-                    if (lastAttribute == null) {
-                        instances.renameAttribute(att, newValue);
-                    } else {
-                        for (Instance instance : instances) {
-                            Double lastAttValue = instance.value(lastAttribute.index());
-                            Double oldAttValue = instance.value(att.index());
-                            Double combineValues = op.combine(lastAttValue, oldAttValue);
-                            instance.setValue(lastAttribute, combineValues);
-                        }
-
-                        listAttributeName.add(oldValue);
-                    }
-                } catch (NullPointerException ex) {
-                    logger.warn(" Attribute name doesn't exist. " + ex.getMessage());
+            if ((!oldValue.equals("") || !newValue.equals("")) && !oldValue.equals(newValue)) {
+                MergeSlot lastSlot = slotsByName.get(newValue);
+                MergeSlot slot = slotsByName.get(oldValue);
+                if (slot == null || (lastSlot != null && op == null)) {
+                    logger.warn(" Attribute name doesn't exist. " + oldValue);
+                } else if (lastSlot == null) {
+                    slotsByName.remove(oldValue);
+                    slot.name = newValue;
+                    slotsByName.put(newValue, slot);
+                    modified = true;
+                } else {
+                    slotsByName.remove(oldValue);
+                    slot.merged = true;
+                    lastSlot.merges.add(slot);
+                    modified = true;
                 }
             }
-            if (listAttributeName.size() > 0) {
-                deleteAttributeColumns(listAttributeName);
+        }
+        if (!modified) {
+            return this;
+        }
+
+        // Merge the values of the colliding columns in a single pass
+        int numInstances = numRows();
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        List<MergeSlot> survivors = new ArrayList<>();
+        for (MergeSlot slot : slots) {
+            if (!slot.merged) {
+                attributes.add(attribute(slot.source).copy(slot.name));
+                survivors.add(slot);
+            }
+        }
+        int[] sourceIndex = new int[survivors.size()];
+        double[][] computedValues = new double[survivors.size()][];
+        for (int i = 0; i < sourceIndex.length; i++) {
+            MergeSlot slot = survivors.get(i);
+            if (slot.merges.isEmpty()) {
+                sourceIndex[i] = slot.source;
+            } else {
+                sourceIndex[i] = -1;
+                computedValues[i] = new double[numInstances];
+            }
+        }
+        double[][] columns = new double[slots.size()][];
+        for (int i = 0; i < sourceIndex.length; i++) {
+            if (computedValues[i] != null) {
+                survivors.get(i).loadColumns(this, columns);
+            }
+        }
+        for (int row = 0; row < numInstances; row++) {
+            for (int i = 0; i < sourceIndex.length; i++) {
+                if (computedValues[i] != null) {
+                    computedValues[i][row] = survivors.get(i).combine(columns, row, op);
+                }
             }
         }
+
+        // Remove the merged columns at once
+        rebuild(attributes, sourceIndex, new double[sourceIndex.length], computedValues);
         return this;
     }
 
     /**
-     * Delete all attributes from Dataset except all that match with pattern
-     *
-     * @param pattern Param for filtering.
+     * Describes a column of the dataset while renames and merges are being
+     * resolved
+     */
+    private static class MergeSlot {
+
+        /**
+         * The name of the column
+         */
+        String name;
+
+        /**
+         * The index of the column in the current dataset
+         */
+        final int source;
+
+        /**
+         * The columns combined with this one (in order)
+         */
+        final List<MergeSlot> merges = new ArrayList<>();
+
+        /**
+         * Indicates whether the column has been combined with other one (and
+         * should be deleted)
+         */
+        boolean merged = false;
+
+        /**
+         * Build a column description
+         *
+         * @param name The name of the column
+         * @param source The index of the column in the current dataset
+         */
+        MergeSlot(String name, int source) {
+            this.name = name;
+            this.source = source;
+        }
+
+        /**
+         * Reads the values of the column and the merged columns
+         *
+         * @param dataset The dataset
+         * @param columns The values of the columns by index in the current
+         * dataset (only the required ones are loaded)
+         */
+        void loadColumns(Dataset dataset, double[][] columns) {
+            if (columns[source] == null) {
+                columns[source] = dataset.getColumnValues(new int[]{source})[0];
+            }
+            for (MergeSlot merge : merges) {
+                merge.loadColumns(dataset, columns);
+            }
+        }
+
+        /**
+         * Computes the value of the column for a row after combining it with
+         * the merged columns
+         *
+         * @param columns The values of the columns (see loadColumns())
+         * @param row The index of the row
+         * @param op The column combining operator
+         * @return The combined value
+         */
+        double combine(double[][] columns, int row, CombineOperator op) {
+            double value = columns[source][row];
+            for (MergeSlot merge : merges) {
+                value = op.combineValues(value, merge.combine(columns, row, op));
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Delete all attributes from Dataset except all that match with pattern
+     *
+     * @param pattern Param for filtering.
      * @return Dataset only with attributes that match with pattern
      */
     public Dataset filterColumns(String pattern) {
         Pattern p = Pattern.compile(pattern);
-        Instances instances = this.dataset;
-        List<String> attributesToDelete = new ArrayList<>();
-        List<String> attributes = this.getAttributes();
-
-        for (String attribute : attributes) {
+        Set<String> attributesToKeep = new HashSet<>();
+        for (String attribute : this.getAttributes()) {
             Matcher m = p.matcher(attribute);
-            if (!m.find()) {
-                attributesToDelete.add(attribute);
+            if (m.find()) {
+                attributesToKeep.add(attribute);
             }
         }
-        return this.deleteAttributeColumns(attributesToDelete);
+        return this.project(attributesToKeep, true);
     }
 
     /**
@@ -420,27 +1059,65 @@ public class Dataset implements Serializable, Cloneable {
      * @return Dataset without this list of attributes
      */
     public Dataset deleteAttributeColumns(List<String> listAttributeName) {
-        Instances instances = this.dataset;
-        for (String attributeName : listAttributeName) {
-            try {
-                Attribute attribute = instances.attribute(attributeName);
-                if (attribute != null) {
-                    int attPosition = attribute.index();
-                    if (attPosition >= 0) {
-                        instances.deleteAttributeAt(attPosition);
-                    }
-                }
-            } catch (NullPointerException ex) {
-                logger.warn("[WARNING DELETE ATTRIBUTES COLUMNS] . Attribute >>" + attributeName + "<< doesn't exist. ");
+        return this.dropColumns(listAttributeName);
+    }
+
+    /**
+     * Keep only the indicated attributes. The dataset is rebuilt in a single
+     * pass and the order of the attributes is not modified.
+     *
+     * @param columnNames The name of the attributes to keep
+     * @return Dataset only with the indicated attributes
+     */
+    public Dataset keepColumns(Collection<String> columnNames) {
+        return this.project(new HashSet<>(columnNames), true);
+    }
+
+    /**
+     * Delete the indicated attributes. The dataset is rebuilt in a single pass
+     * and the order of the remaining attributes is not modified.
+     *
+     * @param columnNames The name of the attributes to delete
+     * @return Dataset without the indicated attributes
+     */
+    public Dataset dropColumns(Collection<String> columnNames) {
+        return this.project(new HashSet<>(columnNames), false);
+    }
+
+    /**
+     * Keep or delete a set of attributes in a single pass over the data. The
+     * class attribute (if any) is kept unless it is explicitly deleted.
+     *
+     * @param columnNames The name of the attributes to keep or delete
+     * @param keep true to keep only the indicated attributes, false to delete
+     * them
+     * @return this Dataset
+     */
+    private Dataset project(Set<String> columnNames, boolean keep) {
+        Instances header = header();
+        int numAttributes = header.numAttributes();
+        int classIndex = header.classIndex();
+        ArrayList<Attribute> attributes = new ArrayList<>(numAttributes);
+        int[] sourceIndex = new int[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            boolean listed = columnNames.contains(header.attribute(i).name());
+            if (keep ? (listed || i == classIndex) : !listed) {
+                sourceIndex[attributes.size()] = i;
+                attributes.add((Attribute) attribute(i).copy());
             }
         }
+
+        if (attributes.size() < numAttributes) {
+            rebuild(attributes, Arrays.copyOf(sourceIndex, attributes.size()), new double[attributes.size()]);
+        }
         return this;
     }
 
     /**
      * Join attributes, combining their values and creating a new attribute. If
      * the newAttributeName already exists, listAttributeNameToJoin attributes
-     * not be combined
+     * not be combined (see joinAttributes(List, String, CombineOperator,
+     * boolean))
      *
      * @param listAttributeNameToJoin The name of attributes that should be
      * joined
@@ -463,55 +1140,69 @@ public class Dataset implements Serializable, Cloneable {
      * attributes
      * @param joinExistingAttribute Indicates if, in case of the
      * newAttributeName already exists, you want to combine values with the new
-     * one
+     * one. If it is false and newAttributeName exists, the Dataset is not
+     * modified.
      * @return A Dataset where some attributes have been combined
      */
     public Dataset joinAttributes(List<String> listAttributeNameToJoin, String newAttributeName, CombineOperator op, boolean joinExistingAttribute) {//, Combine combine
-        try {
-            boolean binarize = op == Dataset.COMBINE_OR;
-
-            List<Integer> indexes = Stream.concat(listAttributeNameToJoin.stream(), Stream.of(newAttributeName))
-                    .map(name -> this.dataset.attribute(name))
-                    .filter(Objects::nonNull)
-                    .map(Attribute::index)
-                    .collect(toList());
-
-            String id = UUID.randomUUID().toString();
-
-            AddExpression expressionFilter = new AddExpression();
-            final String expression = indexes.stream()
-                    .map(index -> "a" + (index + 1))
-                    .collect(joining("+"));
-            expressionFilter.setExpression(expression);
-            expressionFilter.setName(id);
-
-            Remove removeFilter = new Remove();
-            int[] indices = indexes.stream().mapToInt(Integer::intValue).toArray();
-            removeFilter.setAttributeIndicesArray(indices);
-
-            Reorder reorderFilter = new Reorder();
-            int outputSize = this.dataset.numAttributes() - indexes.size() + 1;
-            reorderFilter.setAttributeIndices("1-" + (outputSize - 2) + "," + outputSize + "," + (outputSize - 1));
-            
-            MultiFilter filter = new MultiFilter();
-
-            if (binarize) {
-                NumericToBinary binarizeFilter = new NumericToBinary();
-                binarizeFilter.setAttributeIndices(Integer.toString(outputSize - 1));
-
-                filter.setFilters(new Filter[]{expressionFilter, removeFilter, binarizeFilter, reorderFilter});
-            } else {
-                filter.setFilters(new Filter[]{expressionFilter, removeFilter, reorderFilter});
+        boolean binarize = (op == Dataset.COMBINE_OR || op == Combine.OR);
+
+        // Columns to combine (each one only once)
+        Set<Integer> indexSet = new LinkedHashSet<>();
+        Instances header = header();
+        for (String attributeName : listAttributeNameToJoin) {
+            Attribute attribute = header.attribute(attributeName);
+            if (attribute != null) {
+                indexSet.add(attribute.index());
             }
-
-            filter.setInputFormat(this.dataset);
-            this.dataset = Filter.useFilter(this.dataset, filter);
-            this.dataset.renameAttribute(this.dataset.attribute(id), newAttributeName);
-
+        }
+        Attribute existingAttribute = header.attribute(newAttributeName);
+        if (existingAttribute != null) {
+            if (!joinExistingAttribute) {
+                logger.warn("[JOIN ATTRIBUTES] Attributes have not been joined because '" + newAttributeName + "' already exists.");
+                return this;
+            }
+            indexSet.add(existingAttribute.index());
+        }
+        if (indexSet.isEmpty()) {
+            logger.warn("[JOIN ATTRIBUTES] None of the attributes to join exists.");
             return this;
-        } catch (Exception e) {
-            throw new RuntimeException(e);
         }
+        int[] inputs = indexSet.stream().mapToInt(Integer::intValue).toArray();
+
+        // Combine the values of all rows in a single pass
+        double[][] columns = getColumnValues(inputs);
+        double[] combined = new double[numRows()];
+        for (int row = 0; row < combined.length; row++) {
+            double value = columns[0][row];
+            for (int i = 1; i < inputs.length; i++) {
+                value = op.combineValues(value, columns[i][row]);
+            }
+            if (binarize && !Utils.isMissingValue(value)) {
+                value = (value > 0) ? 1d : 0d;
+            }
+            combined[row] = value;
+        }
+
+        // The new column is placed before the last remaining column
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        List<Integer> sources = new ArrayList<>();
+        for (int i = 0; i < header.numAttributes(); i++) {
+            if (!indexSet.contains(i)) {
+                attributes.add((Attribute) attribute(i).copy());
+                sources.add(i);
+            }
+        }
+        int position = Math.max(0, attributes.size() - 1);
+        attributes.add(position, binarize ? new Attribute(newAttributeName, Arrays.asList("0", "1")) : new Attribute(newAttributeName));
+        sources.add(position, -1);
+
+        int[] sourceIndex = sources.stream().mapToInt(Integer::intValue).toArray();
+        double[][] computedValues = new double[sourceIndex.length][];
+        computedValues[position] = combined;
+        rebuild(attributes, sourceIndex, new double[sourceIndex.length], computedValues);
+
+        return this;
     }
 
     /**
@@ -523,101 +1214,163 @@ public class Dataset implements Serializable, Cloneable {
      * @param parameterNames The name of attributes to evaluate
      * @param parameterTypes The type of attributes to evaluate
      * @param replaceExistingAttribute Indicates, in case of newAttributeName
-     * attribute exists, if is replaced or not(in this case, application
-     * finished).
+     * attribute exists, if is replaced or not (in this case, an
+     * IllegalStateException is thrown).
      * @param invalidateInstance In case of the result of evaluate expression is
      * not a number, indicates if instance be invalidated(deleted) or not
      * @param defaultNaNValue In case of the result of evaluate expression is
      * not a number, and invalidateInstance is false, indicates the value to set
      * @return A Dataset where some attributes have been combined
+     * @throws IllegalStateException If newAttributeName exists and
+     * replaceExistingAttribute is false
+     * @throws IllegalArgumentException If any of the parameter names is not an
+     * attribute of the Dataset
      */
     public Dataset joinAttributesByMathExpression(String newAttributeName, String expression, Class expressionType, String[] parameterNames, Class[] parameterTypes, Boolean replaceExistingAttribute, Boolean invalidateInstance, Double defaultNaNValue) {
 
         RegularExpressionEvaluator ree = new RegularExpressionEvaluator();
-        Object[] parameterValues = new Object[parameterNames.length];
         String tmpName = "temporalAttName";
 
+        //if the  newAttribute name already exists and replaceExistinAttribute is false, fail
+        if (header().attribute(newAttributeName) != null && !replaceExistingAttribute) {
+            throw new IllegalStateException("Attributes have not been joined because '" + newAttributeName + "' already exists. If you want to replace the existing attribute, set replaceExistingAttribute true.");
+        }
+        for (String parameterName : parameterNames) {
+            if (header().attribute(parameterName) == null) {
+                throw new IllegalArgumentException("Attributes have not been joined because '" + parameterName + "' not exists.");
+            }
+        }
+
         try {
             // if the new attribute name does not exists, insert after the last parameter name
-            if (this.dataset.attribute(newAttributeName) == null) {
+            if (header().attribute(newAttributeName) == null) {
                 ColumnDefinition column = new ColumnDefinition(tmpName, expressionType, 0);
-                int position = this.dataset.attribute(parameterNames[parameterNames.length - 1]).index();
+                int position = header().attribute(parameterNames[parameterNames.length - 1]).index();
                 if (position < this.numAttributes()) {
                     position++;
                 }
                 this.insertColumnAt(column, position);
-                //if the  newAttribute name already existi and replaceExistinAttribute is false, exit
-            } else if (this.dataset.attribute(newAttributeName) != null && !replaceExistingAttribute) {
-                logger.fatal("Attributes have not been joined because  '" + newAttributeName + "' already exists. If you want to replace the existing attribute, set replaceExistingAttribute true.");
-                System.exit(-1);
-            } else if (replaceExistingAttribute) {
+            } else {
                 tmpName = newAttributeName;
             }
 
-            String[] formattedParameterNames = new String[parameterNames.length];
-            String formattedExpression = expression;
-            for (String attributeToJoin : parameterNames) {
-                // This is necessary because RegularExpressionEvaluator doesn't allow non alphanumeric characters. 
-                formattedParameterNames = ree.formatParameterNames(parameterNames);
-                formattedExpression = ree.formatExpression(expression, parameterNames);
-            }
-            Instances instances = this.dataset;
-            int instanceIndex = 0;
-            for (Instance instance : instances) {
-                // Fill parameterValues with instances values
-                for (int i = 0; i < parameterNames.length; i++) {
-                    Attribute currentAtt = instances.attribute(parameterNames[i]);
-                    if (currentAtt != null) {
-                        parameterValues[i] = instance.value(currentAtt);
-                    } else {
-                        logger.fatal("Attributes have not been joined because  '" + parameterNames[i] + "' not exists.");
-                        System.exit(-1);
+            // Bind parameter names to columns only once
+            int[] parameterIndexes = new int[parameterNames.length];
+            for (int i = 0; i < parameterNames.length; i++) {
+                parameterIndexes[i] = header().attribute(parameterNames[i]).index();
+            }
+            int resultIndex = header().attribute(tmpName).index();
+
+            if (ColumnExpression.isSupported(expressionType, parameterTypes)) {
+                // Numeric results are evaluated over whole columns
+                int numInstances = numRows();
+                boolean[] failed = new boolean[numInstances];
+                double[] values = ree.compileColumnExpression(expression, expressionType, parameterNames, parameterTypes)
+                        .evaluate(getColumnValues(parameterIndexes), numInstances, failed);
+
+                List<Integer> instancesToDelete = new ArrayList<>();
+                for (int row = 0; row < numInstances; row++) {
+                    if (failed[row]) {
+                        values[row] = 0d;
+                    } else if (Double.isNaN(values[row])) {
+                        if (invalidateInstance) {
+                            instancesToDelete.add(row);
+                        } else {
+                            values[row] = defaultNaNValue;
+                        }
                     }
                 }
-
-                for (String attributeToJoin : parameterNames) {
-                    try {
-                        Object result = ree.evaluateExpression(formattedExpression, expressionType, formattedParameterNames, parameterTypes, parameterValues);
-                        if (expressionType.equals(Integer.class)) {
-                            Integer intVal = (result != null) ? (Integer) result : 0;
-                            instance.setValue(instances.attribute(tmpName), intVal);
-                        } else if (expressionType.equals(Double.class)) {
-                            Double resultToDouble = new Double(result.toString());
-                            if (resultToDouble.isNaN()) {
-                                if (invalidateInstance) {
-                                    this.dataset.delete(instanceIndex);
-                                    logger.info("[JOIN ATTRIBUTES BY MATH EXPRESSION]: Instance has been delete because the result of the operation is NaN (Not a Number)");
-                                } else {
-                                    instance.setValue(instances.attribute(tmpName), defaultNaNValue);
-                                }
-                            } else {
-                                //Double doubleVal = (result != null) ? resultToDouble : 0d;
-                                instance.setValue(instances.attribute(tmpName), resultToDouble);
-                            }
+                replaceColumnValues(resultIndex, values);
+
+                // Invalid rows are dropped in a single pass
+                if (!instancesToDelete.isEmpty()) {
+                    int[] rowsToKeep = new int[numInstances - instancesToDelete.size()];
+                    int position = 0;
+                    for (int row = 0, next = 0; row < numInstances; row++) {
+                        if (next < instancesToDelete.size() && instancesToDelete.get(next) == row) {
+                            next++;
                         } else {
-                            //String stringVal = (result != null) ? (String) result : null;
-                            instance.setValue(instances.attribute(tmpName), (String) result);
+                            rowsToKeep[position++] = row;
                         }
-                    } catch (NullPointerException ex) {
-                        instance.setValue(instances.attribute(tmpName), 0d);
-                        logger.warn("[WARNING JOIN ATTRIBUTES BY MATH EXPRESSION] . Attribute >>" + attributeToJoin + "<< doesn't exist. " + ex.getMessage());
+                    }
+                    retainRows(rowsToKeep);
+                    logger.info("[JOIN ATTRIBUTES BY MATH EXPRESSION]: " + instancesToDelete.size() + " instances have been deleted because the result of the operation is NaN (Not a Number)");
+                }
+            } else {
+                // This is necessary because RegularExpressionEvaluator doesn't allow non alphanumeric characters. 
+                CompiledExpression compiledExpression = ree.compile(expression, expressionType, parameterNames, parameterTypes);
+                Object[] parameterValues = new Object[parameterNames.length];
+                for (Instance instance : exclusiveInstances()) {
+                    for (int i = 0; i < parameterIndexes.length; i++) {
+                        parameterValues[i] = instance.value(parameterIndexes[i]);
+                    }
+                    try {
+                        instance.setValue(resultIndex, (String) compiledExpression.evaluate(parameterValues));
                     } catch (Exception ex) {
-                        instance.setValue(instances.attribute(tmpName), 0d);
+                        instance.setValue(resultIndex, 0d);
                         logger.error("ERROR: " + this.getClass() + ". " + ex.getMessage());
                     }
                 }
-                instanceIndex++;
             }
-            Map<String, String> newColumnNames = new HashMap<>();
-            newColumnNames.put(tmpName, newAttributeName);
-            this.replaceColumnNames(newColumnNames, null);
 
+            if (!tmpName.equals(newAttributeName)) {
+                renameColumn(resultIndex, newAttributeName);
+            }
         } catch (Exception ex) {
             logger.error("ERROR: " + this.getClass() + ". " + ex.getMessage());
         }
         return this;
     }
 
+    /**
+     * Returns the values of some columns as primitive arrays (one array per
+     * column) reading the dataset only once. For columnar datasets, the
+     * arrays of numeric columns are the storage of the columns (they can be
+     * longer than the number of instances and must not be modified).
+     *
+     * @param columnIndexes The indexes of the columns
+     * @return The values (internal representation) of the columns
+     */
+    private double[][] getColumnValues(int[] columnIndexes) {
+        if (store != null) {
+            // Numeric columns are not copied
+            double[][] columns = new double[columnIndexes.length][];
+            for (int i = 0; i < columnIndexes.length; i++) {
+                columns[i] = store.columnValues(columnIndexes[i]);
+            }
+            return columns;
+        }
+        int numInstances = this.dataset.numInstances();
+        double[][] columns = new double[columnIndexes.length][numInstances];
+        for (int row = 0; row < numInstances; row++) {
+            Instance instance = this.dataset.instance(row);
+            for (int i = 0; i < columnIndexes.length; i++) {
+                columns[i][row] = instance.value(columnIndexes[i]);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Replaces the values of a column in a single pass
+     *
+     * @param columnIndex The index of the column
+     * @param values The new values (internal representation) of the column
+     */
+    private void replaceColumnValues(int columnIndex, double[] values) {
+        int numAttributes = numAttributes();
+        ArrayList<Attribute> attributes = new ArrayList<>(numAttributes);
+        int[] sourceIndex = new int[numAttributes];
+        double[][] computedValues = new double[numAttributes][];
+        for (int i = 0; i < numAttributes; i++) {
+            attributes.add((Attribute) attribute(i).copy());
+            sourceIndex[i] = i;
+        }
+        sourceIndex[columnIndex] = -1;
+        computedValues[columnIndex] = values;
+        rebuild(attributes, sourceIndex, new double[numAttributes], computedValues);
+    }
+
     /**
      * Insert a column to the instances (inserted before a certain position)
      *
@@ -629,68 +1382,7 @@ public class Dataset implements Serializable, Cloneable {
      * @return true if sucessfull, false otherwise
      */
     public boolean insertColumnAt(String columnName, Class<?> columnType, Object defaultValue, int position) {
-        boolean isStringType = String.class.equals(columnType);
-        boolean isEnum = Enum.class.equals(columnType);
-
-        if (!isStringType && !isEnum && !Number.class.isAssignableFrom(columnType)) {
-            logger.error("[INSERT COLUMN AT] Column type must be a String or a Number type");
-            return false;
-        } else if (isStringType && defaultValue != null && !(defaultValue instanceof String)) {
-            logger.error("[INSERT COLUMN AT] Default value must have the column's type");
-            return false;
-        } else if (!isStringType && !isEnum && !(defaultValue instanceof Number)) {
-            logger.error("[INSERT COLUMN AT] Default value must have the column's type");
-            return false;
-        }
-
-        try {
-            ArrayList<Attribute> attributes = new ArrayList<>();
-
-            Enumeration<Attribute> attrEnum = this.dataset.enumerateAttributes();
-            while (attrEnum.hasMoreElements()) {
-                attributes.add(attrEnum.nextElement());
-            }
-            Attribute newAttribute = isStringType ? new Attribute(columnName, true) : (isEnum ? new Attribute(columnName, (List<String>) defaultValue) : new Attribute(columnName));
-            if (!containsAttribute(attributes, newAttribute)) {
-                attributes.add(position, newAttribute);
-                Instances newDataset = new Instances("dataset", attributes, 0);
-                for (Instance instance : this.dataset) {
-                    newDataset.add(new DenseInstance(attributes.size()));
-                    Instance newInstance = newDataset.lastInstance();
-
-                    int indexOffset = 0;
-                    for (Attribute attribute : attributes) {
-                        if (attribute == newAttribute) {
-                            indexOffset = 1;
-                            if (isStringType) {
-                                newInstance.setValue(attribute, (String) defaultValue);
-                            } else if (isEnum) {
-                                newInstance.setValue(attribute, ((List<String>) defaultValue).get(0));
-                            } else {
-                                newInstance.setValue(attribute, ((Number) defaultValue).doubleValue());
-                            }
-                        } else {
-                            newInstance.setValue(attribute, instance.value(attribute.index() - indexOffset));
-                        }
-                    }
-                }
-
-                this.dataset = newDataset;
-            }
-            return true;
-        } catch (Exception ex) {
-            logger.error("[INSERT COLUMN AT] " + ex.getMessage());
-            return false;
-        }
-    }
-
-    private boolean containsAttribute(List<Attribute> attributeList, Attribute attribute) {
-        for (Attribute att : attributeList) {
-            if (att.name().equals(attribute.name())) {
-                return true;
-            }
-        }
-        return false;
+        return applySchemaChange(new SchemaChange().insertColumn(columnName, columnType, defaultValue, position));
     }
 
     /**
@@ -702,51 +1394,7 @@ public class Dataset implements Serializable, Cloneable {
      * @return true if sucessfull, false otherwise
      */
     public boolean insertColumnAt(ColumnDefinition column, int position) {
-        ArrayList<Attribute> attributes = new ArrayList<>();
-
-        try {
-            Enumeration<Attribute> attrEnum = this.dataset.enumerateAttributes();
-            while (attrEnum.hasMoreElements()) {
-                attributes.add(attrEnum.nextElement());
-            }
-
-            Attribute newAttribute = column.isStringType()
-                    ? new Attribute(column.getColumnName(), true)
-                    : new Attribute(column.getColumnName());
-            // if (!attributes.contains(newAttribute)) {
-            if (!containsAttribute(attributes, newAttribute)) {
-                attributes.add(position, newAttribute);
-
-                Instances newDataset = new Instances("dataset", attributes, 0);
-
-                for (Instance instance : this.dataset) {
-                    newDataset.add(new DenseInstance(attributes.size()));
-                    Instance newInstance = newDataset.lastInstance();
-
-                    int indexOffset = 0;
-                    for (Attribute attribute : attributes) {
-                        if (attribute == newAttribute) {
-                            indexOffset = 1;
-                            if (column.isStringType()) {
-                                newInstance.setValue(attribute, (String) column.getDefaultValue());
-                            } else if (column.isEnumType()) {
-                                newInstance.setValue(attribute, ((List<String>) column.getDefaultValue()).get(0));
-                            } else {
-                                newInstance.setValue(attribute, ((Number) column.getDefaultValue()).doubleValue());
-                            }
-                        } else {
-                            newInstance.setValue(attribute, instance.value(attribute.index() - indexOffset));
-                        }
-                    }
-                }
-                this.dataset = newDataset;
-            }
-            return true;
-        } catch (Exception ex) {
-            logger.error("[INSERT COLUMN AT] " + ex.getMessage());
-            return false;
-        }
-
+        return applySchemaChange(new SchemaChange().insertColumn(column, position));
     }
 
     /**
@@ -761,12 +1409,11 @@ public class Dataset implements Serializable, Cloneable {
      */
     public boolean insertColumnsAt(String columnNames[], Class<?> columnTypes[], Object defaultValues[], int position) {
         if (columnNames.length == columnTypes.length && columnTypes.length == defaultValues.length) {
+            SchemaChange change = new SchemaChange();
             for (int i = 0; i < columnNames.length; i++) {
-                if (!insertColumnAt(columnNames[i], columnTypes[i], defaultValues[i], position + i)) {
-                    return false;
-                }
+                change.insertColumn(columnNames[i], columnTypes[i], defaultValues[i], position + i);
             }
-            return true;
+            return applySchemaChange(change);
         } else {
             return false;
         }
@@ -781,108 +1428,395 @@ public class Dataset implements Serializable, Cloneable {
      * @return true if sucessfull, false otherwise
      */
     public boolean insertColumnsAt(ColumnDefinition[] columns, int position) {
+        SchemaChange change = new SchemaChange();
         for (int i = 0; i < columns.length; i++) {
-            if (!insertColumnAt(columns[i], position + i)) {
-                return false;
-            }
+            change.insertColumn(columns[i], position + i);
         }
-        return true;
+        return applySchemaChange(change);
     }
 
     /**
-     * Add a column to the end of a Dataset
-     *
-     * @param columnName Column to add where columName stands for the name of
-     * the column. Column add at the end.
-     * @param columnType The type of the column
-     * @param defaultValue Column value
+     * Apply a batch of column insertions, deletions and renames in a single
+     * pass over the data. Operations are interpreted in order (see
+     * SchemaChange). If any operation is not valid (wrong column type or
+     * default value, or a position out of range) the dataset is not modified.
+     * Insertions of already existing columns are ignored, and deletions or
+     * renames of missing columns are ignored with a warning.
      *
-     * @return true if the column were sucessfully added, false otherwise
+     * @param change The schema modifications to apply
+     * @return true if sucessfull, false otherwise
      */
-    public boolean addColumn(String columnName, Class<?> columnType, Object defaultValue) {
-        return insertColumnAt(columnName, columnType, defaultValue, this.numAttributes());
-    }
+    public boolean applySchemaChange(SchemaChange change) {
+        // Columns of the resulting dataset (only metadata, data is not touched)
+        Instances header = header();
+        List<SchemaSlot> slots = new ArrayList<>(header.numAttributes() + change.size());
+        Map<String, SchemaSlot> slotsByName = new HashMap<>();
+        for (int i = 0; i < header.numAttributes(); i++) {
+            SchemaSlot slot = new SchemaSlot(header.attribute(i).name(), i);
+            slots.add(slot);
+            slotsByName.put(slot.name, slot);
+        }
 
-    /**
-     * Add a column to the end of a Dataset
-     *
-     * @param column Column to add where columName stands for the name of the
-     * column. Column add at the end.
-     *
-     * @return true if the column were sucessfully added, false otherwise
-     */
-    public boolean addColumn(ColumnDefinition column) {
-        return insertColumnAt(column, this.numAttributes());
-    }
+        boolean pendingDeletions = false;
+        for (SchemaChange.Operation operation : change.getOperations()) {
+            switch (operation.type) {
+                case INSERT:
+                    if (!checkColumnDefinition(operation.columnType, operation.defaultValue)) {
+                        return false;
+                    }
+                    if (!slotsByName.containsKey(operation.columnName)) {
+                        if (pendingDeletions) {
+                            slots.removeIf(slot -> slot.deleted);
+                            pendingDeletions = false;
+                        }
+                        if (operation.position < 0 || operation.position > slots.size()) {
+                            logger.error("[SCHEMA CHANGE] Position " + operation.position + " out of range for column " + operation.columnName);
+                            return false;
+                        }
+                        SchemaSlot slot = new SchemaSlot(operation.columnName, -1);
+                        slot.columnType = operation.columnType;
+                        slot.defaultValue = operation.defaultValue;
+                        slots.add(operation.position, slot);
+                        slotsByName.put(slot.name, slot);
+                    }
+                    break;
+                case DELETE: {
+                    SchemaSlot slot = slotsByName.remove(operation.columnName);
+                    if (slot == null) {
+                        logger.warn("[SCHEMA CHANGE] Attribute >>" + operation.columnName + "<< doesn't exist. ");
+                    } else {
+                        slot.deleted = true;
+                        pendingDeletions = true;
+                    }
+                    break;
+                }
+                case RENAME: {
+                    SchemaSlot slot = slotsByName.get(operation.columnName);
+                    if (slot == null) {
+                        logger.warn("[SCHEMA CHANGE] Attribute >>" + operation.columnName + "<< doesn't exist. ");
+                    } else if (slotsByName.containsKey(operation.newColumnName)) {
+                        logger.warn("[SCHEMA CHANGE] Attribute >>" + operation.columnName + "<< cannot be renamed because >>" + operation.newColumnName + "<< already exists. ");
+                    } else {
+                        slotsByName.remove(slot.name);
+                        slot.name = operation.newColumnName;
+                        slotsByName.put(slot.name, slot);
+                    }
+                    break;
+                }
+            }
+        }
+        if (pendingDeletions) {
+            slots.removeIf(slot -> slot.deleted);
+        }
 
-    /**
-     * Add columns to the end of a Dataset
-     *
-     * @param columnNames List of columns to add where columNames stands for the
-     * name of the column. Columns add at the end.
-     * @param columnTypes List of types to each column.
-     * @param defaultValues List of default values to each column
-     *
-     * @return true if the columns were sucessfully added, false otherwise
-     */
-    public boolean addColumns(String columnNames[], Class<?>[] columnTypes, Object[] defaultValues) {
-        if (columnNames.length == columnTypes.length && columnTypes.length == defaultValues.length) {
-            for (int i = 0; i < columnNames.length; i++) {
-                if (!addColumn(columnNames[i], columnTypes[i], defaultValues[i])) {
-                    return false;
+        try {
+            ArrayList<Attribute> attributes = new ArrayList<>(slots.size());
+            int[] sourceIndex = new int[slots.size()];
+            double[] defaults = new double[slots.size()];
+            for (int i = 0; i < slots.size(); i++) {
+                SchemaSlot slot = slots.get(i);
+                sourceIndex[i] = slot.source;
+                if (slot.source >= 0) {
+                    attributes.add(attribute(slot.source).copy(slot.name));
+                } else {
+                    Attribute attribute = createAttribute(slot.name, slot.columnType, slot.defaultValue);
+                    attributes.add(attribute);
+                    defaults[i] = internalDefaultValue(attribute, slot.defaultValue);
                 }
             }
+            rebuild(attributes, sourceIndex, defaults);
             return true;
-        } else {
+        } catch (Exception ex) {
+            logger.error("[SCHEMA CHANGE] " + ex.getMessage());
             return false;
         }
     }
 
     /**
-     * Add columns to the end of a Dataset
-     *
-     * @param columns List of columns to add where columNames stands for the
-     * name of the column. Columns add at the end.
-     *
-     * @return true if the columns were sucessfully added, false otherwise
+     * Describes a column of the dataset while a schema change is being planned
      */
-    public boolean addColumns(ColumnDefinition[] columns) {
-        for (ColumnDefinition column : columns) {
-            if (!addColumn(column)) {
-                return false;
-            }
+    private static class SchemaSlot {
+
+        /**
+         * The name of the column
+         */
+        String name;
+
+        /**
+         * The index of the column in the current dataset (-1 for new columns)
+         */
+        final int source;
+
+        /**
+         * The type of the new column
+         */
+        Class<?> columnType;
+
+        /**
+         * The default value of the new column
+         */
+        Object defaultValue;
+
+        /**
+         * Indicates whether the column has been deleted
+         */
+        boolean deleted = false;
+
+        /**
+         * Build a column description
+         *
+         * @param name The name of the column
+         * @param source The index of the column in the current dataset
+         */
+        SchemaSlot(String name, int source) {
+            this.name = name;
+            this.source = source;
         }
-        return true;
     }
 
     /**
-     * Add row to the instances
+     * Checks whether a column type and a default value are valid
      *
-     * @param values List of values of the row
-     * @return true if the row could be added; false otherwise
+     * @param columnType The type of the column
+     * @param defaultValue The default value of the column
+     * @return true if the column type and the default value are valid
      */
-    public boolean addRow(Object[] values) {
-        try {
-            if (this.getAttributes().size() == values.length) {
-                Instance instance = this.createDenseInstance();
-                for (int i = 0; i < values.length; i++) {
-                    if (this.getInstances().get(0).attribute(i).isNumeric()) {
-                        instance.setValue(i, Double.parseDouble(values[i].toString()));
-                    } else if (this.getInstances().get(0).attribute(i).isNominal()) {
-                        instance.setValue(i, values[i].toString());
-                    } else {
-                        instance.setValue(i, values[i].toString());
-                    }
+    private static boolean checkColumnDefinition(Class<?> columnType, Object defaultValue) {
+        boolean isStringType = String.class.equals(columnType);
+        boolean isEnum = Enum.class.equals(columnType);
+
+        if (columnType == null || (!isStringType && !isEnum && !Number.class.isAssignableFrom(columnType))) {
+            logger.error("[INSERT COLUMN AT] Column type must be a String or a Number type");
+            return false;
+        } else if (isStringType && defaultValue != null && !(defaultValue instanceof String)) {
+            logger.error("[INSERT COLUMN AT] Default value must have the column's type");
+            return false;
+        } else if (isEnum && !(defaultValue instanceof List)) {
+            logger.error("[INSERT COLUMN AT] Default value must be the list of values for Enum columns");
+            return false;
+        } else if (!isStringType && !isEnum && !(defaultValue instanceof Number)) {
+            logger.error("[INSERT COLUMN AT] Default value must have the column's type");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Creates a Weka attribute for a column
+     *
+     * @param columnName The name of the column
+     * @param columnType The type of the column (String, Enum or a Number type)
+     * @param defaultValue The default value (a List of String with the allowed
+     * values for Enum columns)
+     * @return The attribute created
+     */
+    @SuppressWarnings("unchecked")
+    private static Attribute createAttribute(String columnName, Class<?> columnType, Object defaultValue) {
+        if (String.class.equals(columnType)) {
+            return new Attribute(columnName, true);
+        } else if (Enum.class.equals(columnType)) {
+            return new Attribute(columnName, (List<String>) defaultValue);
+        } else {
+            return new Attribute(columnName);
+        }
+    }
+
+    /**
+     * Computes the internal (Weka) representation of the default value of a
+     * column
+     *
+     * @param attribute The attribute of the column
+     * @param defaultValue The default value
+     * @return the internal representation of the default value
+     */
+    private static double internalDefaultValue(Attribute attribute, Object defaultValue) {
+        if (attribute.isString()) {
+            return (defaultValue == null) ? Utils.missingValue() : attribute.addStringValue((String) defaultValue);
+        } else if (attribute.isNominal()) {
+            return 0;
+        } else {
+            return ((Number) defaultValue).doubleValue();
+        }
+    }
+
+    /**
+     * Rebuilds the dataset in a single pass over the data. Each column of the
+     * new dataset takes its values from a column of the current dataset or
+     * from a default value. The class attribute is kept if it is still
+     * present. Attributes should not belong to any other dataset (use
+     * Attribute.copy() for the current ones).
+     *
+     * @param attributes The attributes of the new dataset
+     * @param sourceIndex For each new column, the index of the column of the
+     * current dataset that provides its values (-1 to use the default value)
+     * @param defaults For each new column, the default value (internal
+     * representation) used when sourceIndex is -1
+     */
+    private void rebuild(ArrayList<Attribute> attributes, int[] sourceIndex, double[] defaults) {
+        rebuild(attributes, sourceIndex, defaults, null);
+    }
+
+    /**
+     * Rebuilds the dataset in a single pass over the data, including columns
+     * whose values have already been computed. See rebuild(ArrayList, int[],
+     * double[]).
+     *
+     * @param attributes The attributes of the new dataset
+     * @param sourceIndex For each new column, the index of the column of the
+     * current dataset that provides its values (-1 to use the computed or the
+     * default value)
+     * @param defaults For each new column, the default value (internal
+     * representation) used when sourceIndex is -1 and there are no computed
+     * values
+     * @param computedValues For each new column, the values (internal
+     * representation) of all rows or null (the array itself can be null)
+     */
+    private void rebuild(ArrayList<Attribute> attributes, int[] sourceIndex, double[] defaults, double[][] computedValues) {
+        statistics = null;
+        rowBuilder = null;
+        int numColumns = attributes.size();
+        if (store != null) {
+            rebuildColumns(attributes, sourceIndex, defaults, computedValues);
+            return;
+        }
+        Instances newDataset = new Instances(this.dataset.relationName(), attributes, this.dataset.numInstances());
+
+        int classIndex = this.dataset.classIndex();
+        for (int i = 0; classIndex >= 0 && i < numColumns; i++) {
+            if (sourceIndex[i] == classIndex) {
+                newDataset.setClassIndex(i);
+            }
+        }
+
+        for (int row = 0; row < this.dataset.numInstances(); row++) {
+            Instance instance = this.dataset.instance(row);
+            double[] values = new double[numColumns];
+            for (int i = 0; i < numColumns; i++) {
+                if (sourceIndex[i] >= 0) {
+                    values[i] = instance.value(sourceIndex[i]);
+                } else if (computedValues != null && computedValues[i] != null) {
+                    values[i] = computedValues[i][row];
+                } else {
+                    values[i] = defaults[i];
                 }
-                return true;
+            }
+            // Sparse instances are kept sparse
+            newDataset.add((instance instanceof SparseInstance) ? new SparseInstance(instance.weight(), values) : new DenseInstance(instance.weight(), values));
+        }
+
+        this.dataset = newDataset;
+        this.shared = false;
+    }
+
+    /**
+     * Rebuilds a columnar dataset (see rebuild(ArrayList, int[], double[],
+     * double[][])). Columns taken from the current dataset are not copied
+     * (only renamed if required).
+     *
+     * @param attributes The attributes of the new dataset
+     * @param sourceIndex For each new column, the index of the column of the
+     * current dataset that provides its values (-1 to use the computed or the
+     * default value)
+     * @param defaults For each new column, the default value
+     * @param computedValues For each new column, the computed values or null
+     */
+    private void rebuildColumns(ArrayList<Attribute> attributes, int[] sourceIndex, double[] defaults, double[][] computedValues) {
+        int classIndex = store.getClassIndex();
+        int newClassIndex = -1;
+        List<ColumnarStore.Column> columns = new ArrayList<>(attributes.size());
+        for (int i = 0; i < attributes.size(); i++) {
+            Attribute attribute = attributes.get(i);
+            if (sourceIndex[i] >= 0) {
+                ColumnarStore.Column column = store.column(sourceIndex[i]);
+                columns.add(column.name().equals(attribute.name()) ? column : column.rename(attribute.name()));
+                if (sourceIndex[i] == classIndex) {
+                    newClassIndex = i;
+                }
+            } else if (computedValues != null && computedValues[i] != null) {
+                columns.add(store.createColumn(attribute, computedValues[i]));
             } else {
-                logger.error("[ADD ROW] The number of attributes doesn't match with the number of instance values.");
-                return false;
+                columns.add(store.createColumn(attribute, defaults[i]));
             }
-        } catch (Exception ex) {
-            logger.error("[ADD ROW] " + ex.getMessage());
-            return false;
         }
+        this.store = store.withColumns(columns, newClassIndex);
+    }
+
+    /**
+     * Renames a column
+     *
+     * @param index The index of the column
+     * @param newName The new name of the column
+     */
+    private void renameColumn(int index, String newName) {
+        statistics = null;
+        if (store != null) {
+            store.renameColumn(index, newName);
+        } else {
+            ensureExclusive();
+            this.dataset.renameAttribute(index, newName);
+        }
+    }
+
+    /**
+     * Add a column to the end of a Dataset
+     *
+     * @param columnName Column to add where columName stands for the name of
+     * the column. Column add at the end.
+     * @param columnType The type of the column
+     * @param defaultValue Column value
+     *
+     * @return true if the column were sucessfully added, false otherwise
+     */
+    public boolean addColumn(String columnName, Class<?> columnType, Object defaultValue) {
+        return insertColumnAt(columnName, columnType, defaultValue, this.numAttributes());
+    }
+
+    /**
+     * Add a column to the end of a Dataset
+     *
+     * @param column Column to add where columName stands for the name of the
+     * column. Column add at the end.
+     *
+     * @return true if the column were sucessfully added, false otherwise
+     */
+    public boolean addColumn(ColumnDefinition column) {
+        return insertColumnAt(column, this.numAttributes());
+    }
+
+    /**
+     * Add columns to the end of a Dataset
+     *
+     * @param columnNames List of columns to add where columNames stands for the
+     * name of the column. Columns add at the end.
+     * @param columnTypes List of types to each column.
+     * @param defaultValues List of default values to each column
+     *
+     * @return true if the columns were sucessfully added, false otherwise
+     */
+    public boolean addColumns(String columnNames[], Class<?>[] columnTypes, Object[] defaultValues) {
+        return insertColumnsAt(columnNames, columnTypes, defaultValues, this.numAttributes());
+    }
+
+    /**
+     * Add columns to the end of a Dataset
+     *
+     * @param columns List of columns to add where columNames stands for the
+     * name of the column. Columns add at the end.
+     *
+     * @return true if the columns were sucessfully added, false otherwise
+     */
+    public boolean addColumns(ColumnDefinition[] columns) {
+        return insertColumnsAt(columns, this.numAttributes());
+    }
+
+    /**
+     * Add row to the instances
+     *
+     * @param values List of values of the row
+     * @return true if the row could be added; false otherwise
+     */
+    public boolean addRow(Object[] values) {
+        return rowBuilder().addRow(values);
     }
 
     /**
@@ -893,8 +1827,9 @@ public class Dataset implements Serializable, Cloneable {
      */
     public boolean addRows(Object[][] rowsToAdd) {
         if (rowsToAdd.length > 0) {
+            DatasetBuilder builder = rowBuilder();
             for (Object[] row : rowsToAdd) {
-                if (!addRow(row)) {
+                if (!builder.addRow(row)) {
                     logger.info("[ADD ROWS] Failed. Unable to add current row.");
                     return false;
                 }
@@ -906,10 +1841,149 @@ public class Dataset implements Serializable, Cloneable {
         return false;
     }
 
+    /**
+     * Returns the builder used to add rows (creating it if required)
+     *
+     * @return the builder used to add rows
+     */
+    private DatasetBuilder rowBuilder() {
+        if (rowBuilder == null) {
+            rowBuilder = new DatasetBuilder(this);
+        }
+        return rowBuilder;
+    }
+
+    /**
+     * Returns an attribute of the dataset
+     *
+     * @param index The index of the attribute
+     * @return the attribute
+     */
+    Attribute attribute(int index) {
+        return header().attribute(index);
+    }
+
+    /**
+     * Returns an attribute of the dataset
+     *
+     * @param name The name of the attribute
+     * @return the attribute or null if it does not exist
+     */
+    Attribute attribute(String name) {
+        return header().attribute(name);
+    }
+
+    /**
+     * Appends a row given in the internal representation of its values. The
+     * array is not copied.
+     *
+     * @param values The values of the row
+     */
+    void addInternalRow(double[] values) {
+        if (store != null) {
+            store.appendRow(values, 1.0);
+        } else {
+            ensureExclusive();
+            dataset.add(new DenseInstance(1.0, values));
+        }
+        if (statistics != null) {
+            statistics.add(values);
+        }
+    }
+
+    /**
+     * Computes the internal representation of a value for a column. Values of
+     * string columns are added to the column if required.
+     *
+     * @param index The index of the column
+     * @param value The value
+     * @return the internal representation of the value
+     * @throws ParseException if the value is not a valid date for a date
+     * column
+     * @throws IllegalArgumentException if the value is not valid for the
+     * column
+     */
+    double encodeValue(int index, String value) throws ParseException {
+        if (store != null) {
+            return store.encode(index, value);
+        }
+        Attribute attribute = dataset.attribute(index);
+        switch (attribute.type()) {
+            case Attribute.NUMERIC:
+                return Double.parseDouble(value);
+            case Attribute.DATE:
+                return attribute.parseDate(value);
+            case Attribute.NOMINAL: {
+                int valueIndex = attribute.indexOfValue(value);
+                if (valueIndex < 0) {
+                    throw new IllegalArgumentException("Value >>" + value + "<< not defined for nominal attribute " + attribute.name());
+                }
+                return valueIndex;
+            }
+            case Attribute.STRING:
+                return attribute.addStringValue(value);
+            default:
+                throw new IllegalArgumentException("Unsupported type for attribute " + attribute.name());
+        }
+    }
+
     @Override
     public Dataset clone() {
-        return new Dataset(this);
+        if (store != null) {
+            // Copy-on-write: columns are shared until one of the datasets modifies them
+            Dataset clone = new Dataset(store.share());
+            clone.outputFile = this.outputFile;
+            return clone;
+        }
+        // Copy-on-write: instances are shared until one of the datasets modifies them
+        Dataset clone = new Dataset(this.dataset);
+        clone.outputFile = this.outputFile;
+        clone.shared = true;
+        this.shared = true;
+        return clone;
+    }
 
+    /**
+     * Copies the instances if they are shared with other Dataset. It should be
+     * called before modifying the instances in place (operations that rebuild
+     * the dataset do not need it).
+     */
+    private void ensureExclusive() {
+        if (shared) {
+            this.dataset = new Instances(this.dataset);
+            this.shared = false;
+        }
+    }
+
+    /**
+     * Returns the statistics of the columns (count, minimum, maximum, mean,
+     * variance, zeros and missing values). They are computed in a single
+     * parallel pass over the non-zero values the first time they are required
+     * and then updated incrementally as rows are added (other modifications
+     * cause them to be computed again). Modifications made directly on the
+     * Weka instances used to build the Dataset are not tracked.
+     *
+     * @return a copy of the statistics of the columns
+     */
+    public DatasetStatistics getStatistics() {
+        return getStatistics(false);
+    }
+
+    /**
+     * Returns the statistics of the columns (see getStatistics()) optionally
+     * including bounded-memory sketches to estimate the number of distinct
+     * values and quantiles of each column (see ColumnStatistics). Sketches
+     * need some KB per column, so they are only computed when requested.
+     *
+     * @param sketches Whether the number of distinct values and quantiles
+     * should be estimated
+     * @return a copy of the statistics of the columns
+     */
+    public DatasetStatistics getStatistics(boolean sketches) {
+        if (statistics == null || (sketches && !statistics.hasSketches())) {
+            statistics = DatasetStatistics.compute(this, sketches);
+        }
+        return new DatasetStatistics(statistics);
     }
 
     /**
@@ -921,8 +1995,9 @@ public class Dataset implements Serializable, Cloneable {
      * @return An array of datasets
      */
     public Dataset[] split(boolean stratified, int... outputDims) {
+        // Columnar datasets build a temporary Weka dataset
+        Instances instances = exportInstances();
         ArrayList<Attribute> attributes = new ArrayList<>();
-        Instances instances = this.dataset;
         Enumeration<Attribute> attrEnum = instances.enumerateAttributes();
         Dataset retVal[] = new Dataset[outputDims.length];
 
@@ -931,32 +2006,14 @@ public class Dataset implements Serializable, Cloneable {
                 attributes.add(attrEnum.nextElement());
             }
 
-            int mcd_res = MCD.mcd(outputDims);
-            int instancesPerLoop[] = new int[outputDims.length];
-            int loopSize = 0;
-            for (int j = 0; j < outputDims.length; j++) {
-                instancesPerLoop[j] = outputDims[j] / mcd_res;
-                loopSize += instancesPerLoop[j];
-            }
-
             for (int j = 0; j < outputDims.length; j++) {
                 retVal[j] = new Dataset("dataset_" + j, attributes, 0);
             }
 
-            if (stratified) {
-                int att_size = (attributes.size() > 0 ? attributes.size() - 1 : 0);
-                instances.sort(att_size);
-            }
-
-            for (int i = 0; i < instances.size(); i++) {
-                int posInLoop = i % loopSize;
-                int sum = 0;
-                for (int k = 0; k < instancesPerLoop.length; k++) {
-                    sum += instancesPerLoop[k];
-                    if (posInLoop < sum) {
-                        retVal[k].dataset.add(instances.get(i));
-                        break;
-                    }
+            int[][] parts = splitRows(stratified, outputDims);
+            for (int j = 0; j < parts.length; j++) {
+                for (int row : parts[j]) {
+                    retVal[j].dataset.add(instances.get(row));
                 }
             }
         } catch (Exception ex) {
@@ -965,36 +2022,390 @@ public class Dataset implements Serializable, Cloneable {
         return retVal;
     }
 
+    /**
+     * Split the dataset in many views (as many as indicated by parameter
+     * outputDims) distributing rows as split() does. Views share the data of
+     * this dataset (rows are not copied).
+     *
+     * @param stratified Indicate if the dataset need to be stratified or not
+     * @param outputDims Number of output datasets
+     * @return An array of views
+     */
+    public DatasetView[] splitView(boolean stratified, int... outputDims) {
+        Dataset snapshot = this.clone();
+        int[][] parts = splitRows(stratified, outputDims);
+        DatasetView[] views = new DatasetView[parts.length];
+        for (int j = 0; j < parts.length; j++) {
+            views[j] = new DatasetView(snapshot, parts[j]);
+        }
+        return views;
+    }
+
+    /**
+     * Generates the folds of a k-fold cross-validation. Each fold includes a
+     * view with the training rows and a view with the test rows; views share
+     * the data of this dataset (rows are not copied).
+     *
+     * @param numFolds The number of folds
+     * @param stratified Indicate if the folds need to be stratified or not
+     * (using the same attribute as split())
+     * @throws IllegalArgumentException if the number of folds is lower than 2
+     * or greater than the number of instances
+     * @return The folds
+     */
+    public List<DatasetView.Fold> kFold(int numFolds, boolean stratified) {
+        if (numFolds < 2 || numFolds > numRows()) {
+            throw new IllegalArgumentException("The number of folds should be between 2 and the number of instances");
+        }
+        Dataset snapshot = this.clone();
+        int[] order = rowOrder(stratified);
+        int[] foldSizes = new int[numFolds];
+        for (int i = 0; i < order.length; i++) {
+            foldSizes[i % numFolds]++;
+        }
+
+        List<DatasetView.Fold> folds = new ArrayList<>(numFolds);
+        for (int fold = 0; fold < numFolds; fold++) {
+            int[] training = new int[order.length - foldSizes[fold]];
+            int[] test = new int[foldSizes[fold]];
+            int trainingSize = 0;
+            int testSize = 0;
+            for (int i = 0; i < order.length; i++) {
+                if (i % numFolds == fold) {
+                    test[testSize++] = order[i];
+                } else {
+                    training[trainingSize++] = order[i];
+                }
+            }
+            Arrays.sort(training);
+            Arrays.sort(test);
+            folds.add(new DatasetView.Fold(new DatasetView(snapshot, training), new DatasetView(snapshot, test)));
+        }
+        return folds;
+    }
+
+    /**
+     * Distributes the rows of the dataset in groups whose sizes are
+     * proportional to outputDims. Rows are assigned in loops of
+     * sum(outputDims)/mcd(outputDims) rows.
+     *
+     * @param stratified Indicate if the rows need to be stratified or not
+     * @param outputDims The proportion of rows of each group
+     * @return The indexes of the rows of each group
+     */
+    private int[][] splitRows(boolean stratified, int... outputDims) {
+        int mcd_res = MCD.mcd(outputDims);
+        int instancesPerLoop[] = new int[outputDims.length];
+        int loopSize = 0;
+        for (int j = 0; j < outputDims.length; j++) {
+            instancesPerLoop[j] = outputDims[j] / mcd_res;
+            loopSize += instancesPerLoop[j];
+        }
+
+        int[] order = rowOrder(stratified);
+        int[] group = new int[order.length];
+        int[] groupSizes = new int[outputDims.length];
+        for (int i = 0; i < order.length; i++) {
+            int posInLoop = i % loopSize;
+            int sum = 0;
+            for (int k = 0; k < instancesPerLoop.length; k++) {
+                sum += instancesPerLoop[k];
+                if (posInLoop < sum) {
+                    group[i] = k;
+                    groupSizes[k]++;
+                    break;
+                }
+            }
+        }
+
+        int[][] parts = new int[outputDims.length][];
+        for (int j = 0; j < parts.length; j++) {
+            parts[j] = new int[groupSizes[j]];
+        }
+        int[] positions = new int[outputDims.length];
+        for (int i = 0; i < order.length; i++) {
+            parts[group[i]][positions[group[i]]++] = order[i];
+        }
+        return parts;
+    }
+
+    /**
+     * Computes the order in which rows are distributed by split(). When
+     * stratified, rows are grouped by the value of the stratification
+     * attribute (the last attribute, or the previous one when the class
+     * attribute is defined) in ascending order with missing values at the
+     * end. Groups are built with a counting pass over an int array indexed
+     * by the class code of nominal attributes (or by the rank of the value
+     * for other attributes) instead of sorting the rows, and rows with the
+     * same value keep their relative order.
+     *
+     * @param stratified Indicate if the rows need to be stratified or not
+     * @return The indexes of the rows in order
+     */
+    private int[] rowOrder(boolean stratified) {
+        int numRows = numRows();
+        int[] order = new int[numRows];
+        Instances header = header();
+        int numAttributes = header.numAttributes() - ((header.classIndex() >= 0) ? 1 : 0);
+        if (!stratified || numAttributes == 0) {
+            for (int row = 0; row < numRows; row++) {
+                order[row] = row;
+            }
+            return order;
+        }
+
+        double[] keys = getColumnValues(new int[]{numAttributes - 1})[0];
+        Attribute attribute = header.attribute(numAttributes - 1);
+        // Map every row to its bucket (missing values use the last bucket)
+        int numBuckets;
+        int[] bucketOfRow = new int[numRows];
+        if (attribute.isNominal()) {
+            // Nominal values already are the class codes
+            numBuckets = attribute.numValues();
+            for (int row = 0; row < numRows; row++) {
+                bucketOfRow[row] = Utils.isMissingValue(keys[row]) ? numBuckets : (int) keys[row];
+            }
+        } else {
+            double[] distinct = new double[numRows];
+            numBuckets = 0;
+            for (int row = 0; row < numRows; row++) {
+                if (!Utils.isMissingValue(keys[row])) {
+                    distinct[numBuckets++] = keys[row];
+                }
+            }
+            Arrays.sort(distinct, 0, numBuckets);
+            int numDistinct = 0;
+            for (int i = 0; i < numBuckets; i++) {
+                if (numDistinct == 0 || Double.compare(distinct[i], distinct[numDistinct - 1]) != 0) {
+                    distinct[numDistinct++] = distinct[i];
+                }
+            }
+            numBuckets = numDistinct;
+            for (int row = 0; row < numRows; row++) {
+                bucketOfRow[row] = Utils.isMissingValue(keys[row]) ? numBuckets : Arrays.binarySearch(distinct, 0, numBuckets, keys[row]);
+            }
+        }
+
+        // Count the rows of each bucket and turn the counts into offsets
+        int[] offsets = new int[numBuckets + 2];
+        for (int row = 0; row < numRows; row++) {
+            offsets[bucketOfRow[row] + 1]++;
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+        for (int row = 0; row < numRows; row++) {
+            order[offsets[bucketOfRow[row]]++] = row;
+        }
+        return order;
+    }
+
+    /**
+     * Get a read-only Weka view of some rows (see getWekaDatasetView()). The
+     * rows of columnar datasets are copied.
+     *
+     * @param rows The indexes of the rows
+     * @return a read-only view of the rows
+     */
+    Instances getWekaDatasetView(int[] rows) {
+        if (store != null) {
+            return new ReadOnlyInstances(store.select(rows).toInstances());
+        }
+        return new ReadOnlyInstances(dataset, rows);
+    }
+
+    /**
+     * Creates a new Dataset with some rows of this one
+     *
+     * @param rows The indexes of the rows
+     * @return The new Dataset
+     */
+    Dataset selectRows(int[] rows) {
+        Dataset selected;
+        if (store != null) {
+            selected = new Dataset(store.select(rows));
+        } else {
+            Instances instances = new Instances(dataset, rows.length);
+            for (int row : rows) {
+                instances.add(dataset.get(row));
+            }
+            selected = new Dataset(instances);
+        }
+        selected.outputFile = this.outputFile;
+        return selected;
+    }
+
+    /**
+     * Keeps only some rows of the Dataset (in a single pass that does not
+     * convert columnar datasets to Weka instances)
+     *
+     * @param rows The indexes of the rows to keep (in ascending order)
+     */
+    private void retainRows(int[] rows) {
+        statistics = null;
+        if (store != null) {
+            store = store.select(rows);
+        } else {
+            Instances instances = new Instances(dataset, rows.length);
+            for (int row : rows) {
+                instances.add(dataset.get(row));
+            }
+            dataset = instances;
+            shared = false;
+        }
+    }
+
     /**
      * Match test dataset attributes with training dataset attributes
      *
      * @param training Training dataset
      * @return Test dataset that contains only the attributes that match with
-     * training dataset
+     * training dataset (see alignTo() to also add the missing attributes and
+     * follow the training order)
      */
     public Dataset match(Dataset training) {
-
-        List<String> attTest = this.getAttributes();
-        List<String> attTraining = training.getAttributes();
-        List<String> columnsToDelete = new ArrayList<>();
         try {
-            for (String att : attTest) {
-                if (!attTraining.contains(att)) {
-                    columnsToDelete.add(att);
-                }
-            }
-            if (columnsToDelete.size() > 0) {
-                this.deleteAttributeColumns(columnsToDelete);
-            }
+            this.keepColumns(training.getAttributes());
         } catch (Exception ex) {
             logger.warn("[MATCH] " + ex.getMessage());
         }
         return this;
     }
 
+    /**
+     * Aligns the attributes of this (test) dataset with the attributes of a
+     * training dataset (see alignTo(Dataset, double)). Absent numeric
+     * attributes are filled with 0.
+     *
+     * @param training Training dataset
+     * @return this Dataset with the same attributes (in the same order) as the
+     * training dataset
+     */
+    public Dataset alignTo(Dataset training) {
+        return alignTo(training, 0d);
+    }
+
+    /**
+     * Aligns the attributes of this (test) dataset with the attributes of a
+     * training dataset in a single pass: attributes not included in the
+     * training dataset are deleted, training attributes not included in this
+     * dataset are added, and attributes are reordered to follow the training
+     * dataset. The class attribute is also taken from the training dataset.
+     * Attributes are matched by name using a hash table. Values of nominal
+     * attributes are mapped to the values of the training attribute (values
+     * not defined in training become missing values), and attributes whose
+     * type differs from the training one are replaced as absent ones.
+     *
+     * @param training Training dataset
+     * @param defaultValue The value of absent numeric attributes (absent
+     * nominal, string and date attributes contain missing values)
+     * @return this Dataset with the same attributes (in the same order) as the
+     * training dataset
+     */
+    public Dataset alignTo(Dataset training, double defaultValue) {
+        Instances header = header();
+        Map<String, Integer> indexes = new HashMap<>(header.numAttributes() * 2);
+        for (int i = 0; i < header.numAttributes(); i++) {
+            indexes.put(header.attribute(i).name(), i);
+        }
+
+        Instances trainingHeader = training.header();
+        int numAttributes = trainingHeader.numAttributes();
+        ArrayList<Attribute> attributes = new ArrayList<>(numAttributes);
+        int[] sourceIndex = new int[numAttributes];
+        double[] defaults = new double[numAttributes];
+        double[][] computedValues = new double[numAttributes][];
+        for (int i = 0; i < numAttributes; i++) {
+            Attribute trainingAttribute = training.attribute(i);
+            Integer source = indexes.get(trainingAttribute.name());
+            Attribute attribute = (source == null) ? null : header.attribute(source);
+            if (attribute != null && attribute.type() != trainingAttribute.type()) {
+                logger.warn("[ALIGN TO] Attribute >>" + attribute.name() + "<< has a different type in training dataset. Its values are discarded.");
+                attribute = null;
+            }
+
+            if (attribute == null) {
+                attributes.add((Attribute) trainingAttribute.copy());
+                sourceIndex[i] = -1;
+                defaults[i] = trainingAttribute.isNumeric() && !trainingAttribute.isDate() ? defaultValue : Utils.missingValue();
+            } else if (attribute.isNominal() && !sameValues(attribute, trainingAttribute)) {
+                attributes.add((Attribute) trainingAttribute.copy());
+                sourceIndex[i] = -1;
+                computedValues[i] = mapNominalValues(source, attribute, trainingAttribute);
+            } else {
+                attributes.add((Attribute) attribute(source).copy());
+                sourceIndex[i] = source;
+            }
+        }
+
+        rebuild(attributes, sourceIndex, defaults, computedValues);
+        setClassIndex(trainingHeader.classIndex());
+        return this;
+    }
+
+    /**
+     * Checks whether two nominal attributes have the same values (in the same
+     * order)
+     *
+     * @param attribute The first attribute
+     * @param other The second attribute
+     * @return true if both attributes have the same values
+     */
+    private static boolean sameValues(Attribute attribute, Attribute other) {
+        if (attribute.numValues() != other.numValues()) {
+            return false;
+        }
+        for (int i = 0; i < attribute.numValues(); i++) {
+            if (!attribute.value(i).equals(other.value(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Translates the values of a nominal column to the values of other
+     * nominal attribute
+     *
+     * @param columnIndex The index of the column
+     * @param attribute The attribute of the column
+     * @param target The attribute whose values will be used
+     * @return the values of the column (internal representation for the
+     * target attribute)
+     */
+    private double[] mapNominalValues(int columnIndex, Attribute attribute, Attribute target) {
+        double[] valueMap = new double[attribute.numValues()];
+        for (int i = 0; i < valueMap.length; i++) {
+            int targetIndex = target.indexOfValue(attribute.value(i));
+            valueMap[i] = (targetIndex < 0) ? Utils.missingValue() : targetIndex;
+        }
+        double[] values = getColumnValues(new int[]{columnIndex})[0];
+        double[] mapped = new double[numRows()];
+        for (int row = 0; row < mapped.length; row++) {
+            mapped[row] = Utils.isMissingValue(values[row]) ? values[row] : valueMap[(int) values[row]];
+        }
+        return mapped;
+    }
+
+    /**
+     * Sets the class attribute
+     *
+     * @param classIndex The index of the class attribute (-1 if undefined)
+     */
+    private void setClassIndex(int classIndex) {
+        if (store != null) {
+            store.setClassIndex(classIndex);
+        } else {
+            this.dataset.setClassIndex(classIndex);
+        }
+    }
+
     /**
      * This method get the number of instances which met the condition (given by
-     * expression), group by target column(resultColumn) values
+     * expression), group by target column(resultColumn) values. Counts are
+     * stored with the index of the target value as key (for instance "0" and
+     * "1"), while the map is initialized with a zero count for each nominal
+     * label. Use evaluateColumnsByLabel() to use the labels as keys.
      *
      * @param expression Expression to evaluate
      * @param expressionType Class of the result from evaluate expression
@@ -1006,83 +2417,272 @@ public class Dataset implements Serializable, Cloneable {
      * expression
      */
     public Map<String, Integer> evaluateColumns(String expression, Class expressionType, String[] parameterNames, Class[] parameterTypes, String resultColumn) {
-        Object[] parameterValues = new Object[parameterNames.length];
-        List<Instance> instances = this.getInstances();
-        List<String> attributes = this.getAttributes();
-        Attribute attr = this.dataset.attribute(resultColumn);
+        Attribute attr = attribute(resultColumn);
         Map<String, Integer> result = new HashMap<>();
         for (int valueIndex = 0; valueIndex < attr.numValues(); valueIndex++) {
             result.put(attr.value(valueIndex), 0);
         }
+        Map<Integer, Integer> counts = countMatchingRows(expression, expressionType, parameterNames, parameterTypes, attr);
+        for (Map.Entry<Integer, Integer> count : counts.entrySet()) {
+            result.put(String.valueOf(count.getKey()), count.getValue());
+        }
+        return result;
+    }
 
-        List<String> parameterNamesList = Arrays.asList(parameterNames);
-        for (int i = 0; i < instances.size(); i++) {
-            for (int x = 0; x < parameterNamesList.size(); x++) {
-                for (int z = 0; z < attributes.size(); z++) {
-                    if (parameterNamesList.get(x).equals(attributes.get(z))) {
-                        parameterValues[x] = instances.get(i).value(z);
-                    }
-                }
+    /**
+     * Gets the number of instances which met the condition (given by
+     * expression), grouped by the values of a target column. Unlike
+     * evaluateColumns(), the keys of the map are the labels of nominal target
+     * columns (every label is included, with a zero count if no row matches).
+     * For other columns, keys are the integer part of the values. Rows with a
+     * missing target value are not counted.
+     *
+     * @param expression Expression to evaluate
+     * @param expressionType Class of the result from evaluate expression
+     * @param parameterNames Array with the parameter names
+     * @param parameterTypes Array with the parameter types
+     * @param resultColumn Target column from which you get the output results
+     * @return the number of instances that match with the expression for each
+     * target value
+     */
+    public Map<String, Integer> evaluateColumnsByLabel(String expression, Class<?> expressionType, String[] parameterNames, Class<?>[] parameterTypes, String resultColumn) {
+        Attribute attr = attribute(resultColumn);
+        Map<String, Integer> result = new HashMap<>();
+        for (int valueIndex = 0; valueIndex < attr.numValues(); valueIndex++) {
+            result.put(attr.value(valueIndex), 0);
+        }
+        Map<Integer, Integer> counts = countMatchingRows(expression, expressionType, parameterNames, parameterTypes, attr);
+        for (Map.Entry<Integer, Integer> count : counts.entrySet()) {
+            String targetValue = attr.isNominal() ? attr.value(count.getKey()) : String.valueOf(count.getKey());
+            result.put(targetValue, count.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Counts the rows which met the condition (given by expression) for each
+     * value of a target column (see evaluateColumns())
+     *
+     * @param expression Expression to evaluate
+     * @param expressionType Class of the result from evaluate expression
+     * @param parameterNames Array with the parameter names
+     * @param parameterTypes Array with the parameter types
+     * @param attr The target attribute
+     * @return the number of rows for each target value (integer part of the
+     * internal representation). It is empty if the expression cannot be
+     * evaluated.
+     */
+    private Map<Integer, Integer> countMatchingRows(String expression, Class<?> expressionType, String[] parameterNames, Class<?>[] parameterTypes, Attribute attr) {
+        Map<Integer, Integer> counts = new HashMap<>();
+
+        // Bind parameter names to columns only once
+        int[] parameterIndexes = new int[parameterNames.length];
+        for (int i = 0; i < parameterNames.length; i++) {
+            Attribute currentAtt = attribute(parameterNames[i]);
+            if (currentAtt == null) {
+                logger.error("[EVALUATE COLUMNS] Attribute >>" + parameterNames[i] + "<< doesn't exist. ");
+                return counts;
             }
+            parameterIndexes[i] = currentAtt.index();
+        }
 
-            try {
-                RegularExpressionEvaluator ree = new RegularExpressionEvaluator();
+        int numInstances = numRows();
+        boolean[] failed = new boolean[numInstances];
+        double[] values;
+        try {
+            RegularExpressionEvaluator ree = new RegularExpressionEvaluator();
+            if (ColumnExpression.isSupported(expressionType, parameterTypes)) {
+                values = ree.compileColumnExpression(expression, expressionType, parameterNames, parameterTypes)
+                        .evaluate(getColumnValues(parameterIndexes), numInstances, failed);
+            } else {
                 // This is necessary because RegularExpressionEvaluator doesn't allow non alphanumeric characters. 
-                String[] formattedParameterNames = ree.formatParameterNames(parameterNames);
-                String formattedExpression = ree.formatExpression(expression, parameterNames);
-
-                Object evaluateResult = ree.evaluateExpression(formattedExpression, expressionType, formattedParameterNames, parameterTypes, parameterValues);
+                values = evaluateRows(ree.compile(expression, expressionType, parameterNames, parameterTypes), parameterIndexes, failed);
+            }
+        } catch (CompileException cex) {
+            logger.error("[EVALUATE COLUMNS] The defined parameter types is wrong. " + cex.getMessage());
+            return counts;
+        } catch (Exception ex) {
+            logger.error("[EVALUATE COLUMNS] " + ex.getMessage());
+            return counts;
+        }
 
-                Object value = instances.get(i).value(attr);
-                String targetValue;
-                if (value instanceof Double) {
-                    targetValue = String.valueOf((int) instances.get(i).value(attr));
-                } else {
-                    targetValue = String.valueOf(instances.get(i).value(attr));
+        // Count the rows that meet the condition for each target value
+        double[] targetValues = getColumnValues(new int[]{attr.index()})[0];
+        for (int row = 0; row < numInstances; row++) {
+            if (!failed[row] && values[row] > 0) { // The condition is met
+                double targetValue = targetValues[row];
+                if (!Utils.isMissingValue(targetValue)) {
+                    counts.merge((int) targetValue, 1, Integer::sum);
                 }
+            }
+        }
+        return counts;
+    }
 
-                if (evaluateResult instanceof Integer) {
-                    if ((Integer) evaluateResult > 0) { // The condition is met
-                        int incrementedValue = result.get(targetValue) + 1;
-                        result.put(targetValue, incrementedValue);
-                    }
-                } else if (evaluateResult instanceof Double) {
-                    /*Double resultToDouble = new Double(evaluateResult.toString());
+    /**
+     * Finds the rows that meet a boolean condition over the columns. The
+     * expression is compiled once (see ColumnExpression) and evaluated over
+     * ranges of rows in parallel. Columns are referenced by their names as
+     * whole tokens (either the original name or the name without non
+     * alphanumeric characters) and they are bound as doubles in the internal
+     * representation (indexes for nominal columns and milliseconds for dates).
+     * Missing values are NaN: relational comparisons (&lt;, &gt;, ==) with
+     * them are false but != and negated conditions are true, so
+     * Double.isNaN(column) should be used to handle them explicitly. String
+     * columns cannot be used. Rows whose evaluation fails are not included.
+     *
+     * @param expression The boolean expression (for instance, "length &gt;
+     * 10 &amp;&amp; score &lt; 0.5")
+     * @return The indexes of the rows that meet the condition (in ascending
+     * order)
+     * @throws IllegalArgumentException If the expression cannot be compiled
+     */
+    public int[] findRows(String expression) {
+        // Only the columns referenced by the expression are bound
+        List<Integer> parameterIndexes = new ArrayList<>();
+        String boundExpression = bindColumns(expression, parameterIndexes);
+        String[] parameterNames = new String[parameterIndexes.size()];
+        for (int i = 0; i < parameterNames.length; i++) {
+            parameterNames[i] = COLUMN_PARAMETER_PREFIX + parameterIndexes.get(i);
+        }
+        Class<?>[] parameterTypes = new Class<?>[parameterNames.length];
+        Arrays.fill(parameterTypes, double.class);
 
-                    Double resultToDouble = new Double(evaluateResult.toString());
-                    if (resultToDouble.isNaN()) {
-                        if (invalidateInstance) {
-                            this.dataset.delete(i);
-                            logger.info("[JOIN ATTRIBUTES BY MATH EXPRESSION]: Instance has been delete because the result of the operation is NaN (Not a Number)");
-                        } else {
-                            if (defaultNaNValue > 0) { // The condition is met
-                                int incrementedValue = result.get(targetValue) + 1;
-                                result.put(targetValue, incrementedValue);
-                            }
-                        }
-                    } else if ((Double) evaluateResult > 0) { // The condition is met
-                        int incrementedValue = result.get(targetValue) + 1;
-                        result.put(targetValue, incrementedValue);
-                    }*/
-                    if ((Double) evaluateResult > 0) { // The condition is met
-                        int incrementedValue = result.get(targetValue) + 1;
-                        result.put(targetValue, incrementedValue);
-                    }
-                } else if (evaluateResult instanceof Boolean) {
-                    if ((Boolean) evaluateResult) { // The condition is met
-                        int incrementedValue = result.get(targetValue) + 1;
-                        result.put(targetValue, incrementedValue);
+        int numInstances = numRows();
+        boolean[] failed = new boolean[numInstances];
+        double[] values;
+        try {
+            values = new RegularExpressionEvaluator()
+                    .compileColumnExpression(boundExpression, boolean.class, parameterNames, parameterTypes)
+                    .evaluate(getColumnValues(parameterIndexes.stream().mapToInt(Integer::intValue).toArray()), numInstances, failed);
+        } catch (Exception ex) {
+            throw new IllegalArgumentException("The expression >>" + expression + "<< cannot be compiled. " + ex.getMessage(), ex);
+        }
+
+        int numSelected = 0;
+        int[] rows = new int[numInstances];
+        for (int row = 0; row < numInstances; row++) {
+            if (!failed[row] && values[row] > 0) { // The condition is met
+                rows[numSelected++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, numSelected);
+    }
+
+    /**
+     * Replaces the names of the columns referenced by an expression with
+     * unique identifiers (COLUMN_PARAMETER_PREFIX followed by the index of the
+     * column). Names are matched as whole tokens (the longest name is chosen
+     * when several names match), so a column is not bound because its name is
+     * part of other name, and different names that become the same identifier
+     * when non alphanumeric characters are deleted do not collide.
+     *
+     * @param expression The expression
+     * @param columnIndexes A list where the indexes of the referenced columns
+     * are added (in order of appearance)
+     * @return The expression using the identifiers of the columns
+     * @throws IllegalArgumentException If the expression uses string columns
+     * or ambiguous names
+     */
+    private String bindColumns(String expression, List<Integer> columnIndexes) {
+        Instances header = header();
+        Map<String, Integer> names = new HashMap<>();
+        Set<String> ambiguous = new HashSet<>();
+        for (int i = 0; i < header.numAttributes(); i++) {
+            String name = header.attribute(i).name().replaceAll("[^a-zA-Z0-9]", "");
+            if (names.putIfAbsent(name, i) != null) {
+                ambiguous.add(name);
+            }
+        }
+        // Original names take precedence over formatted ones
+        for (int i = 0; i < header.numAttributes(); i++) {
+            names.put(header.attribute(i).name(), i);
+            ambiguous.remove(header.attribute(i).name());
+        }
+        List<String> tokens = new ArrayList<>(names.keySet());
+        tokens.removeIf(String::isEmpty);
+        tokens.sort((a, b) -> b.length() - a.length());
+
+        StringBuilder bound = new StringBuilder(expression.length());
+        int position = 0;
+        while (position < expression.length()) {
+            String token = null;
+            char previous = (position == 0) ? ' ' : expression.charAt(position - 1);
+            // Tokens start after a non identifier char (and are not members)
+            if (!Character.isJavaIdentifierPart(previous) && previous != '.') {
+                for (String candidate : tokens) {
+                    int end = position + candidate.length();
+                    if (expression.startsWith(candidate, position)
+                            && (end == expression.length() || !Character.isJavaIdentifierPart(expression.charAt(end)))) {
+                        token = candidate;
+                        break;
                     }
                 }
-            } catch (CompileException cex) {
-                logger.error("[EVALUATE COLUMNS] The defined parameter types is wrong. " + cex.getMessage());
-
-            } catch (Exception ex) {
-                logger.error("[EVALUATE COLUMNS] " + ex.getMessage());
             }
+            if (token == null) {
+                bound.append(expression.charAt(position++));
+                continue;
+            }
+            if (ambiguous.contains(token)) {
+                throw new IllegalArgumentException("The name >>" + token + "<< matches several columns");
+            }
+            int column = names.get(token);
+            if (header.attribute(column).isString() || header.attribute(column).isRelationValued()) {
+                throw new IllegalArgumentException("The column >>" + token + "<< cannot be used in expressions");
+            }
+            if (!columnIndexes.contains(column)) {
+                columnIndexes.add(column);
+            }
+            bound.append(COLUMN_PARAMETER_PREFIX).append(column);
+            position += token.length();
+        }
+        return bound.toString();
+    }
 
+    /**
+     * Keeps only the rows that meet a boolean condition over the columns (see
+     * findRows(String)). The rows are dropped in a single pass.
+     *
+     * @param expression The boolean expression
+     * @return This Dataset
+     * @throws IllegalArgumentException If the expression cannot be compiled
+     */
+    public Dataset filterRows(String expression) {
+        int[] rows = findRows(expression);
+        if (rows.length < numRows()) {
+            retainRows(rows);
         }
-        return result;
+        return this;
+    }
+
+    /**
+     * Evaluates a compiled expression for each row. Only Integer, Double and
+     * Boolean results are taken into account (booleans are converted to 1 or
+     * 0).
+     *
+     * @param compiledExpression The compiled expression
+     * @param parameterIndexes The indexes of the columns used as parameters
+     * @param failed An array to mark the rows whose evaluation fails
+     * @return The result of the expression for each row
+     */
+    private double[] evaluateRows(CompiledExpression compiledExpression, int[] parameterIndexes, boolean[] failed) {
+        double[] values = new double[numRows()];
+        double[][] columns = getColumnValues(parameterIndexes);
+        Object[] parameterValues = new Object[parameterIndexes.length];
+        for (int row = 0; row < values.length; row++) {
+            for (int i = 0; i < parameterIndexes.length; i++) {
+                parameterValues[i] = columns[i][row];
+            }
+            Object evaluateResult = compiledExpression.evaluate(parameterValues);
+            if (evaluateResult instanceof Integer || evaluateResult instanceof Double) {
+                values[row] = ((Number) evaluateResult).doubleValue();
+            } else if (evaluateResult instanceof Boolean) {
+                values[row] = ((Boolean) evaluateResult) ? 1d : 0d;
+            } else {
+                failed[row] = true;
+            }
+        }
+        return values;
     }
 
     /**
@@ -1098,5 +2698,18 @@ public class Dataset implements Serializable, Cloneable {
          * @return The result
          */
         Double combine(Double a, Double b);
+
+        /**
+         * Combine values of an atrribute for two columns without boxing them.
+         * Operators used to combine large datasets should override this
+         * method.
+         *
+         * @param a the value on the first column
+         * @param b the value on the second column
+         * @return The result
+         */
+        default double combineValues(double a, double b) {
+            return combine(a, b);
+        }
     }
 }
@@ -0,0 +1,343 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import weka.core.Attribute;
+import weka.core.Utils;
+
+/**
+ * Appends rows to a Dataset in bulk. The type of each column is resolved only
+ * once (when the builder is created) and rows are stored directly in their
+ * internal (primitive) representation, so appending n rows takes linear time.
+ *
+ * <pre>
+ * DatasetBuilder builder = new DatasetBuilder("dataset", attributes, 1000000);
+ * builder.addRow(new double[]{18, 12, 1});
+ * builder.set("length", 15d).set("id", "2").commitRow();
+ * Dataset dataset = builder.build();
+ * </pre>
+ *
+ * Numeric columns are stored as they are, nominal values are stored as the
+ * index of the value and string values are added to the attribute (see
+ * weka.core.Attribute) or to the dictionary of the column for columnar
+ * datasets. When a value cannot be converted, the row is rejected
+ * (it is not included in the dataset) and the error is logged.
+ *
+ * @author María Novo
+ */
+public class DatasetBuilder {
+
+    /**
+     * For logging purposes
+     */
+    private static final Logger logger = LogManager.getLogger(DatasetBuilder.class);
+
+    /**
+     * Column kinds resolved when the builder is created
+     */
+    private static final int NUMERIC = 0;
+    private static final int NOMINAL = 1;
+    private static final int STRING = 2;
+    private static final int DATE = 3;
+    private static final int OTHER = 4;
+
+    /**
+     * The dataset where rows are appended
+     */
+    private final Dataset dataset;
+
+    /**
+     * The attributes of the dataset
+     */
+    private final Attribute[] attributes;
+
+    /**
+     * The kind of each column
+     */
+    private final int[] kinds;
+
+    /**
+     * The values of the row being built with the typed setters
+     */
+    private double[] currentRow = null;
+
+    /**
+     * Indicates whether the row being built contains a wrong value
+     */
+    private boolean currentRowFailed = false;
+
+    /**
+     * Creates a builder for a new dataset
+     *
+     * @param name The name of the relation
+     * @param attributes The attribute list of the dataset
+     * @param capacity The expected number of rows (used to size the dataset)
+     */
+    public DatasetBuilder(String name, ArrayList<Attribute> attributes, int capacity) {
+        this(new Dataset(name, attributes, capacity));
+    }
+
+    /**
+     * Creates a builder for a new dataset
+     *
+     * @param name The name of the relation
+     * @param attributes The attribute list of the dataset
+     * @param capacity The expected number of rows (used to size the dataset)
+     * @param columnar true to create a columnar dataset (see
+     * Dataset.createColumnar())
+     */
+    public DatasetBuilder(String name, ArrayList<Attribute> attributes, int capacity, boolean columnar) {
+        this(columnar ? Dataset.createColumnar(name, attributes, capacity) : new Dataset(name, attributes, capacity));
+    }
+
+    /**
+     * Creates a builder that appends rows to an existing dataset
+     *
+     * @param dataset The dataset where rows will be appended
+     */
+    public DatasetBuilder(Dataset dataset) {
+        this.dataset = dataset;
+        this.attributes = new Attribute[dataset.numAttributes()];
+        this.kinds = new int[attributes.length];
+        for (int i = 0; i < attributes.length; i++) {
+            attributes[i] = dataset.attribute(i);
+            kinds[i] = resolveKind(attributes[i]);
+        }
+    }
+
+    /**
+     * Resolves the kind of a column
+     *
+     * @param attribute The attribute of the column
+     * @return the kind of the column
+     */
+    private static int resolveKind(Attribute attribute) {
+        if (attribute.isNumeric()) {
+            return attribute.isDate() ? DATE : NUMERIC;
+        } else if (attribute.isNominal()) {
+            return NOMINAL;
+        } else if (attribute.isString()) {
+            return STRING;
+        } else {
+            return OTHER;
+        }
+    }
+
+    /**
+     * Returns the number of columns of the dataset
+     *
+     * @return the number of columns
+     */
+    public int numColumns() {
+        return attributes.length;
+    }
+
+    /**
+     * Returns the index of a column
+     *
+     * @param columnName The name of the column
+     * @return the index of the column or -1 if it does not exist
+     */
+    public int indexOf(String columnName) {
+        Attribute attribute = dataset.attribute(columnName);
+        return (attribute == null) ? -1 : attribute.index();
+    }
+
+    /**
+     * Appends a row given in the internal representation of the values (as
+     * returned by weka.core.Instance.value(int)). The array is stored directly
+     * in the dataset and should not be reused by the caller.
+     *
+     * @param values The values of the row
+     * @return true if the row could be added; false otherwise
+     */
+    public boolean addRow(double[] values) {
+        if (values.length != attributes.length) {
+            logger.error("[DATASET BUILDER] The number of attributes doesn't match with the number of instance values.");
+            return false;
+        }
+        dataset.addInternalRow(values);
+        return true;
+    }
+
+    /**
+     * Appends a row. Numbers are stored directly in numeric columns and the
+     * remaining values are converted from their String representation. Null
+     * values are stored as missing values.
+     *
+     * @param values The values of the row
+     * @return true if the row could be added; false otherwise
+     */
+    public boolean addRow(Object[] values) {
+        if (values.length != attributes.length) {
+            logger.error("[DATASET BUILDER] The number of attributes doesn't match with the number of instance values.");
+            return false;
+        }
+        try {
+            double[] row = new double[attributes.length];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = toInternalValue(i, values[i]);
+            }
+            dataset.addInternalRow(row);
+            return true;
+        } catch (IllegalArgumentException | ParseException ex) {
+            logger.error("[DATASET BUILDER] " + ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Sets a value of the row being built. The row is appended to the dataset
+     * by commitRow(). Columns that are not set contain missing values.
+     *
+     * @param column The index of the column
+     * @param value The value (internal representation for nominal and string
+     * columns)
+     * @return this builder to allow chaining calls
+     */
+    public DatasetBuilder set(int column, double value) {
+        getCurrentRow()[column] = value;
+        return this;
+    }
+
+    /**
+     * Sets a value of the row being built. The row is appended to the dataset
+     * by commitRow(). Columns that are not set contain missing values.
+     *
+     * @param column The index of the column
+     * @param value The value of the column
+     * @return this builder to allow chaining calls
+     */
+    public DatasetBuilder set(int column, String value) {
+        try {
+            getCurrentRow()[column] = toInternalValue(column, value);
+        } catch (IllegalArgumentException | ParseException ex) {
+            logger.error("[DATASET BUILDER] " + ex.getMessage());
+            currentRowFailed = true;
+        }
+        return this;
+    }
+
+    /**
+     * Sets a value of the row being built. The row is appended to the dataset
+     * by commitRow(). Columns that are not set contain missing values.
+     *
+     * @param columnName The name of the column
+     * @param value The value (internal representation for nominal and string
+     * columns)
+     * @return this builder to allow chaining calls
+     */
+    public DatasetBuilder set(String columnName, double value) {
+        int column = indexOf(columnName);
+        if (column < 0) {
+            logger.error("[DATASET BUILDER] Attribute >>" + columnName + "<< doesn't exist.");
+            getCurrentRow();
+            currentRowFailed = true;
+            return this;
+        }
+        return set(column, value);
+    }
+
+    /**
+     * Sets a value of the row being built. The row is appended to the dataset
+     * by commitRow(). Columns that are not set contain missing values.
+     *
+     * @param columnName The name of the column
+     * @param value The value of the column
+     * @return this builder to allow chaining calls
+     */
+    public DatasetBuilder set(String columnName, String value) {
+        int column = indexOf(columnName);
+        if (column < 0) {
+            logger.error("[DATASET BUILDER] Attribute >>" + columnName + "<< doesn't exist.");
+            getCurrentRow();
+            currentRowFailed = true;
+            return this;
+        }
+        return set(column, value);
+    }
+
+    /**
+     * Appends the row built with the typed setters to the dataset
+     *
+     * @return true if the row could be added; false if any of its values was
+     * wrong (the row is discarded)
+     */
+    public boolean commitRow() {
+        double[] row = getCurrentRow();
+        boolean failed = currentRowFailed;
+        currentRow = null;
+        currentRowFailed = false;
+        if (failed) {
+            return false;
+        }
+        dataset.addInternalRow(row);
+        return true;
+    }
+
+    /**
+     * Returns the dataset including the rows appended. Columns of columnar
+     * datasets are compacted (see Dataset.compactColumns()).
+     *
+     * @return the dataset
+     */
+    public Dataset build() {
+        return dataset.compactColumns();
+    }
+
+    /**
+     * Returns the row being built (creating it if required)
+     *
+     * @return the row being built
+     */
+    private double[] getCurrentRow() {
+        if (currentRow == null) {
+            currentRow = new double[attributes.length];
+            Arrays.fill(currentRow, Utils.missingValue());
+        }
+        return currentRow;
+    }
+
+    /**
+     * Computes the internal representation of a value for a column
+     *
+     * @param column The index of the column
+     * @param value The value
+     * @return the internal representation of the value
+     * @throws ParseException if a date cannot be parsed
+     */
+    private double toInternalValue(int column, Object value) throws ParseException {
+        if (value == null) {
+            return Utils.missingValue();
+        }
+        if (value instanceof Number && (kinds[column] == NUMERIC || kinds[column] == DATE)) {
+            return ((Number) value).doubleValue();
+        }
+        // Nominal and string values are encoded by the dataset (it can be columnar)
+        return dataset.encodeValue(column, value.toString());
+    }
+}
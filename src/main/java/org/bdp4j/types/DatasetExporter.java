@@ -0,0 +1,369 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+import org.bdp4j.util.ByteSink;
+import weka.core.Attribute;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ * Base class for the exporters that write the rows of a Dataset (as text or
+ * binary data). Rows are formatted in chunks into reusable byte buffers (that can be
+ * formatted in parallel) and written in order to the output channel, so the
+ * output is never built in memory and values are formatted without creating
+ * intermediate Strings. The output can be compressed with gzip. Subclasses
+ * define the format of the header and the rows (or of whole chunks, see
+ * writeRows()).
+ *
+ * @author María Novo
+ */
+public abstract class DatasetExporter {
+
+    /**
+     * The default number of rows formatted in each chunk
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    /**
+     * The initial capacity of the buffer of each chunk
+     */
+    private static final int CHUNK_BUFFER_CAPACITY = 1 << 20;
+
+    /**
+     * The size of the buffer used to compress the output
+     */
+    private static final int GZIP_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The dataset to export
+     */
+    protected final Dataset dataset;
+
+    /**
+     * The header of the dataset
+     */
+    protected final Instances header;
+
+    /**
+     * The number of rows formatted in each chunk
+     */
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    /**
+     * Indicates whether chunks are formatted in parallel
+     */
+    private boolean parallel = true;
+
+    /**
+     * Indicates whether the output is compressed with gzip
+     */
+    private boolean compressed = false;
+
+    /**
+     * The representation of missing values
+     */
+    private static final byte[] MISSING_VALUE = {'?'};
+
+    /**
+     * The text (already quoted and encoded) of the values of nominal columns
+     * (null for other columns)
+     */
+    private final byte[][][] nominalValues;
+
+    /**
+     * Indicates whether each column is numeric (excluding dates)
+     */
+    private final boolean[] numeric;
+
+    /**
+     * The date formats of date columns (null for other columns) used by each
+     * thread
+     */
+    private final ThreadLocal<SimpleDateFormat[]> dateFormats;
+
+    /**
+     * Build an exporter
+     *
+     * @param dataset The dataset to export
+     */
+    protected DatasetExporter(Dataset dataset) {
+        this.dataset = dataset;
+        this.header = dataset.header();
+        this.nominalValues = new byte[header.numAttributes()][][];
+        this.numeric = new boolean[header.numAttributes()];
+        for (int i = 0; i < nominalValues.length; i++) {
+            numeric[i] = header.attribute(i).isNumeric() && !header.attribute(i).isDate();
+            if (header.attribute(i).isNominal()) {
+                nominalValues[i] = new byte[header.attribute(i).numValues()][];
+                for (int j = 0; j < nominalValues[i].length; j++) {
+                    nominalValues[i][j] = Utils.quote(header.attribute(i).value(j)).getBytes(StandardCharsets.UTF_8);
+                }
+            }
+        }
+        this.dateFormats = ThreadLocal.withInitial(() -> {
+            SimpleDateFormat[] formats = new SimpleDateFormat[header.numAttributes()];
+            for (int i = 0; i < formats.length; i++) {
+                if (header.attribute(i).isDate()) {
+                    formats[i] = new SimpleDateFormat(header.attribute(i).getDateFormat());
+                }
+            }
+            return formats;
+        });
+    }
+
+    /**
+     * Sets the number of rows formatted in each chunk
+     *
+     * @param chunkSize The number of rows
+     * @return this exporter
+     */
+    public DatasetExporter setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("The chunk size should be positive");
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * Indicates whether chunks should be formatted in parallel (rows are
+     * always written in order)
+     *
+     * @param parallel true to format chunks in parallel
+     * @return this exporter
+     */
+    public DatasetExporter setParallel(boolean parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
+    /**
+     * Indicates whether the output should be compressed with gzip
+     *
+     * @param compressed true to compress the output
+     * @return this exporter
+     */
+    public DatasetExporter setCompressed(boolean compressed) {
+        this.compressed = compressed;
+        return this;
+    }
+
+    /**
+     * Exports the dataset to a file
+     *
+     * @param file The file
+     * @throws IOException If an I/O error occurs
+     */
+    public void export(File file) throws IOException {
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            if (compressed) {
+                export(outputStream);
+            } else {
+                write(outputStream.getChannel());
+            }
+        }
+    }
+
+    /**
+     * Exports the dataset to a stream. The stream is not closed.
+     *
+     * @param outputStream The stream
+     * @throws IOException If an I/O error occurs
+     */
+    public void export(OutputStream outputStream) throws IOException {
+        if (compressed) {
+            GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream, GZIP_BUFFER_SIZE);
+            write(Channels.newChannel(gzipStream));
+            gzipStream.finish();
+        } else {
+            write(Channels.newChannel(outputStream));
+        }
+        outputStream.flush();
+    }
+
+    /**
+     * Exports the dataset to a channel. The channel is not closed.
+     *
+     * @param channel The channel
+     * @throws IOException If an I/O error occurs
+     */
+    public void export(WritableByteChannel channel) throws IOException {
+        if (compressed) {
+            export(Channels.newOutputStream(channel));
+        } else {
+            write(channel);
+        }
+    }
+
+    /**
+     * Writes the (uncompressed) output to a channel
+     *
+     * @param channel The channel
+     * @throws IOException If an I/O error occurs
+     */
+    private void write(WritableByteChannel channel) throws IOException {
+        ByteSink sink = new ByteSink(CHUNK_BUFFER_CAPACITY);
+        writeHeader(sink);
+        sink.writeTo(channel);
+
+        int numRows = dataset.numRows();
+        int numChunks = (numRows + chunkSize - 1) / chunkSize;
+        int batchSize = parallel ? Math.max(1, ForkJoinPool.getCommonPoolParallelism() * 2) : 1;
+        ByteSink[] sinks = new ByteSink[Math.min(batchSize, Math.max(numChunks, 1))];
+        sinks[0] = sink;
+        for (int i = 1; i < sinks.length; i++) {
+            sinks[i] = new ByteSink(CHUNK_BUFFER_CAPACITY);
+        }
+
+        for (int firstChunk = 0; firstChunk < numChunks; firstChunk += sinks.length) {
+            int numBatchChunks = Math.min(sinks.length, numChunks - firstChunk);
+            int first = firstChunk;
+            IntStream chunks = IntStream.range(0, numBatchChunks);
+            (parallel ? chunks.parallel() : chunks).forEach(i -> {
+                ByteSink chunkSink = sinks[i];
+                chunkSink.clear();
+                int from = (first + i) * chunkSize;
+                writeRows(from, Math.min(from + chunkSize, numRows), chunkSink);
+            });
+            for (int i = 0; i < numBatchChunks; i++) {
+                sinks[i].writeTo(channel);
+            }
+        }
+
+        sink.clear();
+        writeFooter(sink);
+        sink.writeTo(channel);
+    }
+
+    /**
+     * Writes the header of the output
+     *
+     * @param sink The buffer where the header is written
+     * @throws IOException If an I/O error occurs
+     */
+    protected abstract void writeHeader(ByteSink sink) throws IOException;
+
+    /**
+     * Writes a chunk of rows (calling writeRow() for each row by default).
+     * This method can be called from several threads at the same time (for
+     * different chunks and buffers).
+     *
+     * @param from The index of the first row
+     * @param to The index of the row after the last one
+     * @param sink The buffer where the rows are written
+     */
+    protected void writeRows(int from, int to, ByteSink sink) {
+        for (int row = from; row < to; row++) {
+            writeRow(row, sink);
+        }
+    }
+
+    /**
+     * Writes a row. This method can be called from several threads at the
+     * same time (for different rows and buffers).
+     *
+     * @param row The index of the row
+     * @param sink The buffer where the row is written
+     */
+    protected abstract void writeRow(int row, ByteSink sink);
+
+    /**
+     * Writes the end of the output (nothing by default)
+     *
+     * @param sink The buffer where the end is written
+     * @throws IOException If an I/O error occurs
+     */
+    protected void writeFooter(ByteSink sink) throws IOException {
+    }
+
+    /**
+     * Returns a value of the dataset
+     *
+     * @param row The index of the row
+     * @param column The index of the column
+     * @return the value (internal representation)
+     */
+    protected double value(int row, int column) {
+        return dataset.value(row, column);
+    }
+
+    /**
+     * Returns the weight of a row of the dataset
+     *
+     * @param row The index of the row
+     * @return the weight of the row
+     */
+    protected double weight(int row) {
+        return dataset.weight(row);
+    }
+
+    /**
+     * Writes a value as Weka does (see weka.core.Instance.toString(int, int)):
+     * numbers with up to maxDecimals decimals, quoted nominal, string and date
+     * values when required and "?" for missing values
+     *
+     * @param column The index of the column
+     * @param value The value (internal representation)
+     * @param maxDecimals The maximum number of decimals of numbers
+     * @param sink The buffer where the value is written
+     */
+    protected void appendValue(int column, double value, int maxDecimals, ByteSink sink) {
+        if (Utils.isMissingValue(value)) {
+            sink.append(MISSING_VALUE);
+        } else if (nominalValues[column] != null) {
+            sink.append(nominalValues[column][(int) value]);
+        } else if (numeric[column]) {
+            sink.append(value, maxDecimals);
+        } else {
+            sink.append(Utils.quote(text(column, value)));
+        }
+    }
+
+    /**
+     * Returns the text of a value of a nominal, string or date column (as
+     * weka.core.Attribute.value() or formatDate())
+     *
+     * @param column The index of the column
+     * @param value The value (internal representation)
+     * @return the text of the value
+     */
+    protected String text(int column, double value) {
+        Attribute attribute = header.attribute(column);
+        if (attribute.isDate()) {
+            return dateFormats.get()[column].format(new Date((long) value));
+        }
+        return dataset.label(column, (int) value);
+    }
+}
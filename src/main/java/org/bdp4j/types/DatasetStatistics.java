@@ -0,0 +1,225 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.io.Serializable;
+import java.util.stream.IntStream;
+import weka.core.Instances;
+
+/**
+ * The statistics of all the columns of a Dataset (see ColumnStatistics). They
+ * are computed in a single pass over the non-zero values (in parallel for
+ * row ranges whose partial statistics are merged) and updated incrementally
+ * when rows are added to the Dataset (see Dataset.getStatistics()). The
+ * number of distinct values and quantiles of each column are estimated only
+ * if sketches are requested (see ColumnStatistics).
+ *
+ * @author María Novo
+ */
+public class DatasetStatistics implements Serializable {
+
+    /**
+     * The serial version UID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The number of rows of each range computed in parallel
+     */
+    private static final int RANGE_SIZE = 4096;
+
+    /**
+     * The names of the columns
+     */
+    private final String[] names;
+
+    /**
+     * The statistics of each column
+     */
+    private final ColumnStatistics[] columns;
+
+    /**
+     * The number of rows
+     */
+    private long numRows = 0;
+
+    /**
+     * Build empty statistics (without sketches)
+     *
+     * @param header The header of the dataset
+     */
+    DatasetStatistics(Instances header) {
+        this(header, false);
+    }
+
+    /**
+     * Build empty statistics
+     *
+     * @param header The header of the dataset
+     * @param sketches Whether the number of distinct values and quantiles
+     * should be estimated
+     */
+    DatasetStatistics(Instances header, boolean sketches) {
+        this.names = new String[header.numAttributes()];
+        this.columns = new ColumnStatistics[names.length];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = header.attribute(i).name();
+            columns[i] = new ColumnStatistics(sketches);
+        }
+    }
+
+    /**
+     * Build a copy of other statistics
+     *
+     * @param other The statistics to copy
+     */
+    public DatasetStatistics(DatasetStatistics other) {
+        this.names = other.names.clone();
+        this.columns = new ColumnStatistics[other.columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new ColumnStatistics(other.columns[i]);
+        }
+        this.numRows = other.numRows;
+    }
+
+    /**
+     * Computes the statistics of a dataset
+     *
+     * @param dataset The dataset
+     * @param sketches Whether the number of distinct values and quantiles
+     * should be estimated
+     * @return the statistics
+     */
+    static DatasetStatistics compute(Dataset dataset, boolean sketches) {
+        int numRows = dataset.numRows();
+        int numRanges = (numRows + RANGE_SIZE - 1) / RANGE_SIZE;
+        return IntStream.range(0, numRanges).parallel()
+                .mapToObj(range -> compute(dataset, range * RANGE_SIZE, Math.min((range + 1) * RANGE_SIZE, numRows), sketches))
+                .reduce(DatasetStatistics::merge)
+                .orElseGet(() -> new DatasetStatistics(dataset.header(), sketches));
+    }
+
+    /**
+     * Computes the statistics of some rows of a dataset
+     *
+     * @param dataset The dataset
+     * @param from The index of the first row
+     * @param to The index of the row after the last one
+     * @param sketches Whether the number of distinct values and quantiles
+     * should be estimated
+     * @return the statistics
+     */
+    private static DatasetStatistics compute(Dataset dataset, int from, int to, boolean sketches) {
+        DatasetStatistics statistics = new DatasetStatistics(dataset.header(), sketches);
+        ColumnStatistics[] columns = statistics.columns;
+        dataset.forEachNonZero(from, to, (row, column, value) -> columns[column].add(value));
+        // Zeros are not visited
+        for (ColumnStatistics column : columns) {
+            column.addZeros(to - from - column.getCount() - column.getMissingCount());
+        }
+        statistics.numRows = to - from;
+        return statistics;
+    }
+
+    /**
+     * Adds a row
+     *
+     * @param values The values of the row (internal representation)
+     */
+    void add(double[] values) {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].add(values[i]);
+        }
+        numRows++;
+    }
+
+    /**
+     * Adds the rows summarized by other statistics (of a dataset with the
+     * same columns)
+     *
+     * @param other The statistics to merge
+     * @return this object
+     */
+    public DatasetStatistics merge(DatasetStatistics other) {
+        if (other.columns.length != columns.length) {
+            throw new IllegalArgumentException("The number of columns doesn't match");
+        }
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].merge(other.columns[i]);
+        }
+        numRows += other.numRows;
+        return this;
+    }
+
+    /**
+     * Returns the number of rows
+     *
+     * @return the number of rows
+     */
+    public long numRows() {
+        return numRows;
+    }
+
+    /**
+     * Checks whether the number of distinct values and quantiles are estimated
+     *
+     * @return true if sketches are computed
+     */
+    public boolean hasSketches() {
+        return columns.length > 0 && columns[0].hasSketches();
+    }
+
+    /**
+     * Returns the number of columns
+     *
+     * @return the number of columns
+     */
+    public int numColumns() {
+        return columns.length;
+    }
+
+    /**
+     * Returns the statistics of a column
+     *
+     * @param index The index of the column
+     * @return the statistics of the column
+     */
+    public ColumnStatistics getColumn(int index) {
+        return columns[index];
+    }
+
+    /**
+     * Returns the statistics of a column
+     *
+     * @param name The name of the column
+     * @return the statistics of the column or null if the column does not
+     * exist
+     */
+    public ColumnStatistics getColumn(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return columns[i];
+            }
+        }
+        return null;
+    }
+}
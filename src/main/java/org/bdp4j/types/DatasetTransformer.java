@@ -22,12 +22,20 @@
 package org.bdp4j.types;
 
 /**
- * Transform a dataset.
+ * Transform a dataset. Several transformers can be applied at once with a
+ * DatasetTransformerChain.
  *
  * @author María Novo
  */
 public abstract class DatasetTransformer {
 
+    /**
+     * Transform a dataset. The original dataset is not modified (the
+     * transformation is applied over a copy-on-write clone).
+     *
+     * @param dataset The dataset to transform
+     * @return The transformed dataset
+     */
     public final Dataset transform(Dataset dataset) {
         Dataset clone = dataset.clone();
         return this.transformTemplate(clone);        
@@ -0,0 +1,99 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A chain of dataset transformers. Building the chain does not transform
+ * anything: transformers are only recorded in order. When the chain is
+ * applied (see DatasetTransformer.transform(Dataset)) the input dataset is
+ * cloned only once and all the transformers work over the same output, so a
+ * chain of k transformers does not make k copies of the dataset.
+ *
+ * <pre>
+ * Dataset result = new DatasetTransformerChain()
+ *         .then(firstTransformer)
+ *         .then(secondTransformer)
+ *         .transform(dataset);
+ * </pre>
+ *
+ * Cloning is copy-on-write (see Dataset.clone()): the data is only copied if
+ * a transformer modifies instances in place. Transformers that rebuild
+ * columns (adding, deleting, joining or renaming them) never copy the input.
+ *
+ * @author María Novo
+ */
+public class DatasetTransformerChain extends DatasetTransformer {
+
+    /**
+     * The transformers of the chain (in order)
+     */
+    private final List<DatasetTransformer> transformers = new ArrayList<>();
+
+    /**
+     * Build a chain of transformers
+     *
+     * @param transformers The transformers to apply (in order)
+     */
+    public DatasetTransformerChain(DatasetTransformer... transformers) {
+        this.transformers.addAll(Arrays.asList(transformers));
+    }
+
+    /**
+     * Add a transformer at the end of the chain
+     *
+     * @param transformer The transformer to add
+     * @return this chain to allow chaining calls
+     */
+    public DatasetTransformerChain then(DatasetTransformer transformer) {
+        this.transformers.add(transformer);
+        return this;
+    }
+
+    /**
+     * Returns the transformers of the chain
+     *
+     * @return the transformers of the chain (in order)
+     */
+    public List<DatasetTransformer> getTransformers() {
+        return Collections.unmodifiableList(transformers);
+    }
+
+    /**
+     * Apply all the transformers of the chain over the same dataset
+     *
+     * @param dataset The dataset to transform (already cloned)
+     * @return The transformed dataset
+     */
+    @Override
+    protected Dataset transformTemplate(Dataset dataset) {
+        Dataset result = dataset;
+        for (DatasetTransformer transformer : transformers) {
+            result = transformer.transformTemplate(result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,171 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import weka.core.Instances;
+
+/**
+ * A subset of the rows of a Dataset defined by their indexes. Views share
+ * the storage of the viewed Dataset (rows are not copied) and are not
+ * affected by later modifications of it (the Dataset is cloned using
+ * copy-on-write, see Dataset.clone()). They are produced by
+ * Dataset.splitView() and Dataset.kFold().
+ *
+ * @author María Novo
+ */
+public class DatasetView implements Serializable {
+
+    /**
+     * The serial version UID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The viewed dataset
+     */
+    private final Dataset dataset;
+
+    /**
+     * The indexes of the rows included in the view
+     */
+    private final int[] rows;
+
+    /**
+     * Build a view
+     *
+     * @param dataset The viewed dataset (it should not be modified later)
+     * @param rows The indexes of the rows included in the view
+     */
+    DatasetView(Dataset dataset, int[] rows) {
+        this.dataset = dataset;
+        this.rows = rows;
+    }
+
+    /**
+     * Returns the number of rows in the view
+     *
+     * @return the number of rows
+     */
+    public int numInstances() {
+        return rows.length;
+    }
+
+    /**
+     * Returns the index of a row of the view in the viewed dataset
+     *
+     * @param index The position of the row in the view
+     * @return the index of the row in the viewed dataset
+     */
+    public int getRow(int index) {
+        return rows[index];
+    }
+
+    /**
+     * Returns the indexes of the rows of the view in the viewed dataset
+     *
+     * @return the indexes of the rows
+     */
+    public int[] getRows() {
+        return Arrays.copyOf(rows, rows.length);
+    }
+
+    /**
+     * Returns the viewed dataset. It should not be modified.
+     *
+     * @return the viewed dataset
+     */
+    public Dataset getDataset() {
+        return dataset;
+    }
+
+    /**
+     * Get a read-only Weka view of the rows (see
+     * Dataset.getWekaDatasetView()). Rows are only shared with non columnar
+     * datasets. The rows of columnar datasets are copied for each call.
+     *
+     * @return a read-only view of the rows
+     */
+    public Instances getWekaDatasetView() {
+        return dataset.getWekaDatasetView(rows);
+    }
+
+    /**
+     * Creates a new Dataset with the rows of the view
+     *
+     * @return a new Dataset with the rows of the view
+     */
+    public Dataset toDataset() {
+        return dataset.selectRows(rows);
+    }
+
+    /**
+     * A fold of a cross-validation: the training and test views
+     */
+    public static class Fold implements Serializable {
+
+        /**
+         * The serial version UID
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The training rows
+         */
+        private final DatasetView training;
+
+        /**
+         * The test rows
+         */
+        private final DatasetView test;
+
+        /**
+         * Build a fold
+         *
+         * @param training The training rows
+         * @param test The test rows
+         */
+        Fold(DatasetView training, DatasetView test) {
+            this.training = training;
+            this.test = test;
+        }
+
+        /**
+         * Returns the training rows
+         *
+         * @return the training rows
+         */
+        public DatasetView getTraining() {
+            return training;
+        }
+
+        /**
+         * Returns the test rows
+         *
+         * @return the test rows
+         */
+        public DatasetView getTest() {
+            return test;
+        }
+    }
+}
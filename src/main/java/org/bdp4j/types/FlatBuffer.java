@@ -0,0 +1,302 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.bdp4j.util.ByteSink;
+
+/**
+ * A minimal FlatBuffers serializer used to write the metadata of Arrow IPC
+ * files (see ArrowExporter). Objects are described as a tree of tables,
+ * strings and vectors and serialized front to back (each object is written
+ * before the objects it references, so all the offsets are positive).
+ *
+ * @author María Novo
+ */
+final class FlatBuffer {
+
+    /**
+     * Hidden constructor
+     */
+    private FlatBuffer() {
+    }
+
+    /**
+     * Serializes a tree of objects
+     *
+     * @param root The root table
+     * @return the serialized buffer (its length is a multiple of 8)
+     */
+    static byte[] serialize(Table root) {
+        ByteSink out = new ByteSink(256);
+        out.appendIntLE(0);
+        out.putIntLE(0, root.write(out));
+        out.pad(8);
+        return Arrays.copyOf(out.array(), out.size());
+    }
+
+    /**
+     * Creates a string
+     *
+     * @param value The value
+     * @return the string
+     */
+    static Node string(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return out -> {
+            out.pad(4);
+            int position = out.size();
+            out.appendIntLE(bytes.length).append(bytes).append((byte) 0);
+            return position;
+        };
+    }
+
+    /**
+     * Creates a vector of tables or strings
+     *
+     * @param elements The elements
+     * @return the vector
+     */
+    static Node vector(List<? extends Node> elements) {
+        return out -> {
+            out.pad(4);
+            int position = out.size();
+            out.appendIntLE(elements.size());
+            int first = out.size();
+            for (int i = 0; i < elements.size(); i++) {
+                out.appendIntLE(0);
+            }
+            for (int i = 0; i < elements.size(); i++) {
+                int element = first + 4 * i;
+                out.putIntLE(element, elements.get(i).write(out) - element);
+            }
+            return position;
+        };
+    }
+
+    /**
+     * Creates a vector of structs whose fields are longs (or ints padded to
+     * 8 bytes when they are stored as longs)
+     *
+     * @param numElements The number of elements
+     * @param data The little-endian contents of the structs
+     * @return the vector
+     */
+    static Node structVector(int numElements, byte[] data) {
+        return out -> {
+            // Structs are aligned to 8 bytes
+            while ((out.size() + 4) % 8 != 0) {
+                out.append((byte) 0);
+            }
+            int position = out.size();
+            out.appendIntLE(numElements).append(data);
+            return position;
+        };
+    }
+
+    /**
+     * A serializable object
+     */
+    @FunctionalInterface
+    interface Node {
+
+        /**
+         * Writes the object and the objects it references
+         *
+         * @param out The buffer
+         * @return the position of the object
+         */
+        int write(ByteSink out);
+    }
+
+    /**
+     * A table. Fields are identified by their slot (their index in the
+     * schema, union fields use two slots: the type and the value).
+     */
+    static final class Table implements Node {
+
+        /**
+         * The fields of the table
+         */
+        private final List<Field> fields = new ArrayList<>();
+
+        /**
+         * Adds a byte (or boolean) field
+         *
+         * @param slot The slot of the field
+         * @param value The value
+         * @return this table
+         */
+        Table addByte(int slot, int value) {
+            return add(new Field(slot, 1, value, null));
+        }
+
+        /**
+         * Adds a short field
+         *
+         * @param slot The slot of the field
+         * @param value The value
+         * @return this table
+         */
+        Table addShort(int slot, int value) {
+            return add(new Field(slot, 2, value, null));
+        }
+
+        /**
+         * Adds an int field
+         *
+         * @param slot The slot of the field
+         * @param value The value
+         * @return this table
+         */
+        Table addInt(int slot, int value) {
+            return add(new Field(slot, 4, value, null));
+        }
+
+        /**
+         * Adds a long field
+         *
+         * @param slot The slot of the field
+         * @param value The value
+         * @return this table
+         */
+        Table addLong(int slot, long value) {
+            return add(new Field(slot, 8, value, null));
+        }
+
+        /**
+         * Adds a reference to other object
+         *
+         * @param slot The slot of the field
+         * @param value The object
+         * @return this table
+         */
+        Table addOffset(int slot, Node value) {
+            return add(new Field(slot, 4, 0, value));
+        }
+
+        /**
+         * Adds a field keeping the fields sorted by decreasing size (to avoid
+         * padding)
+         *
+         * @param field The field
+         * @return this table
+         */
+        private Table add(Field field) {
+            int position = 0;
+            while (position < fields.size() && fields.get(position).size >= field.size) {
+                position++;
+            }
+            fields.add(position, field);
+            return this;
+        }
+
+        @Override
+        public int write(ByteSink out) {
+            int numSlots = 0;
+            for (Field field : fields) {
+                numSlots = Math.max(numSlots, field.slot + 1);
+            }
+            // The vtable is written just before the table
+            out.pad(2);
+            int vtable = out.size();
+            for (int i = 0; i < 2 + numSlots; i++) {
+                out.appendShortLE((short) 0);
+            }
+            out.pad(fields.isEmpty() ? 4 : Math.max(4, fields.get(0).size));
+            int table = out.size();
+            out.appendIntLE(table - vtable);
+            int[] positions = new int[fields.size()];
+            for (int i = 0; i < fields.size(); i++) {
+                Field field = fields.get(i);
+                out.pad(field.size);
+                positions[i] = out.size();
+                switch (field.size) {
+                    case 1:
+                        out.append((byte) field.value);
+                        break;
+                    case 2:
+                        out.appendShortLE((short) field.value);
+                        break;
+                    case 4:
+                        out.appendIntLE((int) field.value);
+                        break;
+                    default:
+                        out.appendLongLE(field.value);
+                }
+                out.putShortLE(vtable + 4 + 2 * field.slot, (short) (positions[i] - table));
+            }
+            out.putShortLE(vtable, (short) (4 + 2 * numSlots));
+            out.putShortLE(vtable + 2, (short) (out.size() - table));
+            for (int i = 0; i < fields.size(); i++) {
+                if (fields.get(i).reference != null) {
+                    out.putIntLE(positions[i], fields.get(i).reference.write(out) - positions[i]);
+                }
+            }
+            return table;
+        }
+    }
+
+    /**
+     * A field of a table
+     */
+    private static final class Field {
+
+        /**
+         * The slot of the field
+         */
+        final int slot;
+
+        /**
+         * The size of the field (in bytes)
+         */
+        final int size;
+
+        /**
+         * The value of scalar fields
+         */
+        final long value;
+
+        /**
+         * The referenced object (null for scalar fields)
+         */
+        final Node reference;
+
+        /**
+         * Build a field
+         *
+         * @param slot The slot of the field
+         * @param size The size of the field (in bytes)
+         * @param value The value of scalar fields
+         * @param reference The referenced object (null for scalar fields)
+         */
+        Field(int slot, int size, long value, Node reference) {
+            this.slot = slot;
+            this.size = size;
+            this.value = value;
+            this.reference = reference;
+        }
+    }
+}
@@ -35,6 +35,8 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.bdp4j.util.HashUtils;
 
 /* Copyright (C) 2002 Univ. of Massachusetts Amherst, Computer Science Dept.
    This file is part of "MALLET" (MAchine Learning for LanguagE Toolkit).
@@ -108,6 +110,45 @@ public class Instance implements Serializable {
      */
     private boolean isValid = true;
 
+    /**
+     * The reason why the instance was invalidated (null if unknown or if the
+     * instance is valid)
+     */
+    private String invalidationReason = null;
+
+    /**
+     * The cached content fingerprint (see getFingerprint())
+     */
+    private transient long fingerprint;
+
+    /**
+     * Indicates whether the cached fingerprint is up to date with data and
+     * target
+     */
+    private transient boolean fingerprintComputed = false;
+
+    /**
+     * A counter increased each time a property is changed through the setters
+     * of this class. It is shared with the instances that share the
+     * properties (see Instance(Instance)).
+     */
+    private transient AtomicInteger propertiesVersion = new AtomicInteger();
+
+    /**
+     * The version of the properties used to compute the cached fingerprint
+     */
+    private transient int fingerprintPropertiesVersion;
+
+    /**
+     * The cached hash of the data
+     */
+    private transient long dataHash;
+
+    /**
+     * Indicates whether the cached hash of the data is up to date
+     */
+    private transient boolean dataHashComputed = false;
+
     /**
      * Build an Instance from the original attributes keeping properties of the
      * instance void
@@ -137,6 +178,7 @@ public class Instance implements Serializable {
         this.name = i.name;
         this.source = i.source;
         this.properties = i.properties;
+        this.propertiesVersion = i.propertiesVersion();
     }
 
     /**
@@ -168,6 +210,7 @@ public class Instance implements Serializable {
     public Instance clone() {
         Instance returnValue = new Instance((Serializable) cloneObject(data), target, name, source);
         returnValue.properties = properties;
+        returnValue.propertiesVersion = propertiesVersion();
         return returnValue;
     }
 
@@ -185,8 +228,10 @@ public class Instance implements Serializable {
      *
      * @param d Data to be included in the instance
      */
-    public void setData(Serializable d) {
+    public synchronized void setData(Serializable d) {
         data = d;
+        dataHashComputed = false;
+        fingerprintComputed = false;
     }
 
     /**
@@ -203,8 +248,9 @@ public class Instance implements Serializable {
      *
      * @param t target classification of the instance
      */
-    public void setTarget(Serializable t) {
+    public synchronized void setTarget(Serializable t) {
         target = t;
+        fingerprintComputed = false;
     }
 
     /**
@@ -271,6 +317,7 @@ public class Instance implements Serializable {
      */
     public synchronized void setProperty(String key, Serializable value) {
         properties.put(key, value);
+        propertiesVersion().incrementAndGet();
     }
 
     /**
@@ -293,6 +340,63 @@ public class Instance implements Serializable {
         return (properties != null && properties.containsKey(key));
     }
 
+    /**
+     * Computes a fast (non-cryptographic) 64-bit fingerprint of the contents
+     * of the instance (data, target and properties). The fingerprint is
+     * cached and only recomputed when data, target or properties are changed
+     * through the setters of this class (properties are rehashed only when
+     * they change, so adding a property does not require rehashing the data).
+     * <p>
+     * Pipes that modify the data object or the properties in place (for
+     * instance by appending text to a StringBuffer or by changing the map
+     * returned by getPropertyList()) should call invalidateFingerprint()
+     * afterwards.
+     *
+     * @return The 64-bit fingerprint of the contents of the instance
+     */
+    public synchronized long getFingerprint() {
+        int version = propertiesVersion().get();
+        if (!fingerprintComputed || fingerprintPropertiesVersion != version) {
+            if (!dataHashComputed) {
+                dataHash = HashUtils.hash64(data);
+                dataHashComputed = true;
+            }
+            // Properties are hashed independently of their order
+            long propertiesHash = 0;
+            for (Map.Entry<String, Serializable> entry : properties.entrySet()) {
+                propertiesHash += HashUtils.mix64(HashUtils.combine(HashUtils.hash64(entry.getKey()), HashUtils.hash64(entry.getValue())));
+            }
+            long hash = HashUtils.combine(dataHash, HashUtils.hash64(target));
+            fingerprint = HashUtils.mix64(HashUtils.combine(hash, propertiesHash));
+            fingerprintPropertiesVersion = version;
+            fingerprintComputed = true;
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Returns the version counter of the properties (created when the
+     * instance is deserialized)
+     *
+     * @return the version counter of the properties
+     */
+    private synchronized AtomicInteger propertiesVersion() {
+        if (propertiesVersion == null) {
+            propertiesVersion = new AtomicInteger();
+        }
+        return propertiesVersion;
+    }
+
+    /**
+     * Discards the cached fingerprint. It should be called when the data
+     * object or the properties are modified in place (without calling
+     * setData or setProperty)
+     */
+    public synchronized void invalidateFingerprint() {
+        dataHashComputed = false;
+        fingerprintComputed = false;
+    }
+
     /**
      * Returns the string representation of a instance
      *
@@ -315,6 +419,65 @@ public class Instance implements Serializable {
         this.isValid = false;
     }
 
+    /**
+     * Marks instance as invalid indicating the reason
+     *
+     * @param reason A human readable explanation about why the instance was
+     * invalidated
+     */
+    public void invalidate(String reason) {
+        this.isValid = false;
+        this.invalidationReason = reason;
+    }
+
+    /**
+     * Returns the reason why the instance was invalidated
+     *
+     * @return the reason why the instance was invalidated or null if it is
+     * unknown
+     */
+    public String getInvalidationReason() {
+        return invalidationReason;
+    }
+
+    /**
+     * Replaces the data of the instance with a lightweight DataTombstone. It
+     * is used by the pipeline to free the data once no remaining pipe needs
+     * it (see PropertyReadingPipe). Properties, target and name are kept.
+     */
+    public synchronized void releaseData() {
+        if (!(this.data instanceof DataTombstone)) {
+            this.data = new DataTombstone(this.data);
+            this.dataHashComputed = false;
+            this.fingerprintComputed = false;
+        }
+    }
+
+    /**
+     * Determines whether the data of the instance has been released
+     *
+     * @return true if the data has been replaced by a DataTombstone
+     */
+    public boolean isDataReleased() {
+        return this.data instanceof DataTombstone;
+    }
+
+    /**
+     * Frees the data, target, source and properties of the instance keeping
+     * only its name and the invalidation reason. It is used to release the
+     * memory of invalidated instances as soon as possible. Properties shared
+     * with copies of this instance (see Instance(Instance)) are not modified.
+     */
+    public synchronized void releasePayload() {
+        this.data = null;
+        this.target = null;
+        this.source = null;
+        this.properties = new LinkedHashMap<>();
+        this.propertiesVersion = new AtomicInteger();
+        this.dataHashComputed = false;
+        this.fingerprintComputed = false;
+    }
+
     /**
      * Determine whether the instance is valid or not
      *
@@ -0,0 +1,227 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bdp4j.util.ByteSink;
+
+/**
+ * Exports a Dataset to the LibSVM (SVMlight) sparse text format: a line per
+ * row with its label followed by the non-zero features as "index:value"
+ * pairs (indexes start at 1 and are the index of the column plus one, as in
+ * Weka LibSVMSaver). Only non-zero values are visited, so the cost of the
+ * export grows with the number of non-zero values of sparse datasets. Rows
+ * are streamed to the output in chunks that can be formatted in parallel (see
+ * DatasetExporter).
+ *
+ * The label is the value of the class column (or the last column if the
+ * class is not defined), using the index of the value for nominal columns.
+ * String columns (such as the id) are not exported and missing features are
+ * omitted. The format cannot represent missing labels, so rows without label
+ * are skipped (the number of skipped rows is logged).
+ *
+ * @author María Novo
+ */
+public class LibSVMExporter extends DatasetExporter {
+
+    /**
+     * For logging purposes
+     */
+    private static final Logger logger = LogManager.getLogger(LibSVMExporter.class);
+
+    /**
+     * The default maximum number of decimals
+     */
+    public static final int DEFAULT_MAX_DECIMALS = 6;
+
+    /**
+     * The maximum number of decimals
+     */
+    private int maxDecimals = DEFAULT_MAX_DECIMALS;
+
+    /**
+     * The index of the label column
+     */
+    private int labelColumn;
+
+    /**
+     * Indicates whether each column is exported as a feature
+     */
+    private final boolean[] features;
+
+    /**
+     * The number of rows skipped because their label is missing
+     */
+    private final AtomicLong skippedRows = new AtomicLong();
+
+    /**
+     * Build an exporter
+     *
+     * @param dataset The dataset to export
+     */
+    public LibSVMExporter(Dataset dataset) {
+        super(dataset);
+        this.features = new boolean[header.numAttributes()];
+        setLabelColumn((header.classIndex() >= 0) ? header.classIndex() : header.numAttributes() - 1);
+    }
+
+    /**
+     * Sets the column used as label
+     *
+     * @param labelColumn The index of the column
+     * @return this exporter
+     */
+    public LibSVMExporter setLabelColumn(int labelColumn) {
+        if (labelColumn < 0 || labelColumn >= features.length || header.attribute(labelColumn).isString()) {
+            throw new IllegalArgumentException("The label should be a numeric, date or nominal column");
+        }
+        for (int i = 0; i < features.length; i++) {
+            features[i] = (i != labelColumn) && !header.attribute(i).isString();
+        }
+        this.labelColumn = labelColumn;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of decimals of numbers
+     *
+     * @param maxDecimals The maximum number of decimals
+     * @return this exporter
+     */
+    public LibSVMExporter setMaxDecimals(int maxDecimals) {
+        this.maxDecimals = maxDecimals;
+        return this;
+    }
+
+    @Override
+    protected void writeHeader(ByteSink sink) {
+        skippedRows.set(0);
+    }
+
+    @Override
+    protected void writeFooter(ByteSink sink) throws IOException {
+        if (skippedRows.get() > 0) {
+            logger.warn("[LIBSVM EXPORTER] " + skippedRows.get() + " rows have not been exported because their label is missing");
+        }
+    }
+
+    @Override
+    protected void writeRows(int from, int to, ByteSink sink) {
+        RowWriter writer = new RowWriter(from, sink);
+        dataset.forEachNonZero(from, to, writer);
+        writer.finish(to);
+    }
+
+    @Override
+    protected void writeRow(int row, ByteSink sink) {
+        writeRows(row, row + 1, sink);
+    }
+
+    /**
+     * Writes the rows of a chunk from their non-zero values
+     */
+    private class RowWriter implements Dataset.CellConsumer {
+
+        /**
+         * The buffer where the rows are written
+         */
+        private final ByteSink sink;
+
+        /**
+         * The index of the row being written
+         */
+        private int row;
+
+        /**
+         * Indicates whether the current row is skipped (missing label)
+         */
+        private boolean skipped;
+
+        /**
+         * Build a writer
+         *
+         * @param from The index of the first row of the chunk
+         * @param sink The buffer where the rows are written
+         */
+        RowWriter(int from, ByteSink sink) {
+            this.sink = sink;
+            this.row = from;
+            startRow();
+        }
+
+        @Override
+        public void accept(int row, int column, double value) {
+            moveTo(row);
+            if (!skipped && features[column] && !Double.isNaN(value)) {
+                sink.append(' ').append((long) column + 1).append(':').append(value, maxDecimals);
+            }
+        }
+
+        /**
+         * Writes the remaining rows of the chunk
+         *
+         * @param to The index of the row after the last one of the chunk
+         */
+        void finish(int to) {
+            moveTo(to - 1);
+            endRow();
+        }
+
+        /**
+         * Ends the current row and starts the following ones until a row
+         *
+         * @param target The index of the row
+         */
+        private void moveTo(int target) {
+            while (row < target) {
+                endRow();
+                row++;
+                startRow();
+            }
+        }
+
+        /**
+         * Starts the current row writing its label
+         */
+        private void startRow() {
+            double label = value(row, labelColumn);
+            skipped = Double.isNaN(label);
+            if (skipped) {
+                skippedRows.incrementAndGet();
+            } else {
+                sink.append(label, maxDecimals);
+            }
+        }
+
+        /**
+         * Ends the current row
+         */
+        private void endRow() {
+            if (!skipped) {
+                sink.append('\n');
+            }
+        }
+    }
+}
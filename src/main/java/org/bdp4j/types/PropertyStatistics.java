@@ -0,0 +1,131 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The statistics of the properties of a collection of instances (see
+ * ColumnStatistics) including the estimated number of distinct values and
+ * quantiles of each property. They are computed in a single bounded-memory
+ * pass (in parallel, merging partial statistics) so they can be used to
+ * explore the properties before building a Dataset. Numeric properties
+ * contribute to all statistics whereas other values only contribute to the
+ * number of non-numeric and distinct values. Instances without a property are
+ * not counted for that property.
+ *
+ * @author María Novo
+ */
+public class PropertyStatistics implements Serializable {
+
+    /**
+     * The serial version UID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The statistics of each property (in order of appearance)
+     */
+    private final Map<String, ColumnStatistics> properties = new LinkedHashMap<>();
+
+    /**
+     * The number of instances
+     */
+    private long numInstances = 0;
+
+    /**
+     * Build empty statistics
+     */
+    public PropertyStatistics() {
+    }
+
+    /**
+     * Computes the statistics of the properties of some instances
+     *
+     * @param instances The instances
+     * @return the statistics
+     */
+    public static PropertyStatistics compute(Collection<Instance> instances) {
+        return instances.parallelStream().collect(PropertyStatistics::new, PropertyStatistics::add,
+                PropertyStatistics::merge);
+    }
+
+    /**
+     * Adds the properties of an instance
+     *
+     * @param instance The instance
+     */
+    public void add(Instance instance) {
+        for (String property : instance.getPropertyList()) {
+            properties.computeIfAbsent(property, p -> new ColumnStatistics(true))
+                    .addObject(instance.getProperty(property));
+        }
+        numInstances++;
+    }
+
+    /**
+     * Adds the instances summarized by other statistics
+     *
+     * @param other The statistics to merge
+     * @return this object
+     */
+    public PropertyStatistics merge(PropertyStatistics other) {
+        for (Map.Entry<String, ColumnStatistics> entry : other.properties.entrySet()) {
+            properties.computeIfAbsent(entry.getKey(), p -> new ColumnStatistics(true)).merge(entry.getValue());
+        }
+        numInstances += other.numInstances;
+        return this;
+    }
+
+    /**
+     * Returns the number of instances
+     *
+     * @return the number of instances
+     */
+    public long numInstances() {
+        return numInstances;
+    }
+
+    /**
+     * Returns the names of the properties
+     *
+     * @return the names of the properties (in order of appearance)
+     */
+    public Set<String> getPropertyNames() {
+        return properties.keySet();
+    }
+
+    /**
+     * Returns the statistics of a property
+     *
+     * @param name The name of the property
+     * @return the statistics of the property or null if no instance has the
+     * property
+     */
+    public ColumnStatistics getProperty(String name) {
+        return properties.get(name);
+    }
+}
@@ -0,0 +1,438 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.Random;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+
+/**
+ * A read-only view of a Weka dataset. The view shares the header and the
+ * instances of the viewed dataset (data is not copied). Any attempt to modify
+ * the view or its instances throws an UnsupportedOperationException. Use
+ * Dataset.copyWekaDataset() to get a modifiable copy.
+ *
+ * The view is a snapshot of the instances of the viewed dataset when it was
+ * created. It should not be used after modifying the original dataset.
+ *
+ * @author María Novo
+ */
+public class ReadOnlyInstances extends Instances {
+
+    /**
+     * The serial version UID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Build a read-only view of a Weka dataset
+     *
+     * @param dataset The dataset to view
+     */
+    public ReadOnlyInstances(Instances dataset) {
+        super(dataset, 0);
+        this.m_Instances = new ArrayList<>(dataset);
+    }
+
+    /**
+     * Build a read-only view of some instances of a Weka dataset
+     *
+     * @param dataset The dataset to view
+     * @param rows The indexes of the instances included in the view (in
+     * order)
+     */
+    public ReadOnlyInstances(Instances dataset, int[] rows) {
+        super(dataset, 0);
+        this.m_Instances = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            this.m_Instances.add(dataset.get(row));
+        }
+    }
+
+    /**
+     * Returns an instance of the view (read-only)
+     *
+     * @param index The index of the instance
+     * @return the instance at the given position
+     */
+    @Override
+    public Instance instance(int index) {
+        Instance instance = m_Instances.get(index);
+        return (instance instanceof SparseInstance) ? new ReadOnlySparseInstance(instance, this) : new ReadOnlyInstance(instance, this);
+    }
+
+    /**
+     * Returns an instance of the view (read-only)
+     *
+     * @param index The index of the instance
+     * @return the instance at the given position
+     */
+    @Override
+    public Instance get(int index) {
+        return instance(index);
+    }
+
+    /**
+     * Returns the first instance of the view (read-only)
+     *
+     * @return the first instance
+     */
+    @Override
+    public Instance firstInstance() {
+        return instance(0);
+    }
+
+    /**
+     * Returns the last instance of the view (read-only)
+     *
+     * @return the last instance
+     */
+    @Override
+    public Instance lastInstance() {
+        return instance(m_Instances.size() - 1);
+    }
+
+    /**
+     * Returns an enumeration of the instances of the view (read-only)
+     *
+     * @return an enumeration of the instances
+     */
+    @Override
+    public Enumeration<Instance> enumerateInstances() {
+        return new Enumeration<Instance>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasMoreElements() {
+                return index < m_Instances.size();
+            }
+
+            @Override
+            public Instance nextElement() {
+                return instance(index++);
+            }
+        };
+    }
+
+    /**
+     * Builds the exception thrown when the view is modified
+     *
+     * @return the exception
+     */
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("The dataset is read-only. Use Dataset.copyWekaDataset() to get a modifiable copy.");
+    }
+
+    @Override
+    public boolean add(Instance instance) {
+        throw readOnly();
+    }
+
+    @Override
+    public void add(int index, Instance instance) {
+        throw readOnly();
+    }
+
+    @Override
+    public Instance set(int index, Instance instance) {
+        throw readOnly();
+    }
+
+    @Override
+    public Instance remove(int index) {
+        throw readOnly();
+    }
+
+    @Override
+    public void delete() {
+        throw readOnly();
+    }
+
+    @Override
+    public void delete(int index) {
+        throw readOnly();
+    }
+
+    @Override
+    public void deleteAttributeAt(int position) {
+        throw readOnly();
+    }
+
+    @Override
+    public void deleteAttributeType(int attType) {
+        throw readOnly();
+    }
+
+    @Override
+    public void deleteStringAttributes() {
+        throw readOnly();
+    }
+
+    @Override
+    public void deleteWithMissing(int attIndex) {
+        throw readOnly();
+    }
+
+    @Override
+    public void deleteWithMissing(Attribute att) {
+        throw readOnly();
+    }
+
+    @Override
+    public void deleteWithMissingClass() {
+        throw readOnly();
+    }
+
+    @Override
+    public void insertAttributeAt(Attribute att, int position) {
+        throw readOnly();
+    }
+
+    @Override
+    public void replaceAttributeAt(Attribute att, int position) {
+        throw readOnly();
+    }
+
+    @Override
+    public void renameAttribute(int att, String name) {
+        throw readOnly();
+    }
+
+    @Override
+    public void renameAttribute(Attribute att, String name) {
+        throw readOnly();
+    }
+
+    @Override
+    public void renameAttributeValue(int att, int val, String name) {
+        throw readOnly();
+    }
+
+    @Override
+    public void renameAttributeValue(Attribute att, String val, String name) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setAttributeWeight(Attribute att, double weight) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setAttributeWeight(int index, double weight) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setClass(Attribute att) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setClassIndex(int classIndex) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setRelationName(String newName) {
+        throw readOnly();
+    }
+
+    @Override
+    public void randomize(Random random) {
+        throw readOnly();
+    }
+
+    @Override
+    public void sort(int attIndex) {
+        throw readOnly();
+    }
+
+    @Override
+    public void sort(Attribute att) {
+        throw readOnly();
+    }
+
+    @Override
+    public void stableSort(int attIndex) {
+        throw readOnly();
+    }
+
+    @Override
+    public void stableSort(Attribute att) {
+        throw readOnly();
+    }
+
+    @Override
+    public void stratify(int numFolds) {
+        throw readOnly();
+    }
+
+    @Override
+    public void swap(int i, int j) {
+        throw readOnly();
+    }
+
+    /**
+     * A read-only instance. It shares the values of the viewed instance.
+     */
+    private static class ReadOnlyInstance extends DenseInstance {
+
+        /**
+         * The serial version UID
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Build a read-only instance
+         *
+         * @param instance The viewed instance
+         * @param dataset The view that contains the instance
+         */
+        ReadOnlyInstance(Instance instance, Instances dataset) {
+            super(instance);
+            this.m_Dataset = dataset;
+        }
+
+        /**
+         * Returns a modifiable (shallow) copy of the instance
+         *
+         * @return a copy of the instance
+         */
+        @Override
+        public Object copy() {
+            DenseInstance copy = new DenseInstance(this);
+            copy.setDataset(m_Dataset);
+            return copy;
+        }
+
+        @Override
+        public void setValue(int attIndex, double value) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setValueSparse(int indexOfIndex, double value) {
+            throw readOnly();
+        }
+
+        @Override
+        public void replaceMissingValues(double[] array) {
+            throw readOnly();
+        }
+
+        @Override
+        public void deleteAttributeAt(int position) {
+            throw readOnly();
+        }
+
+        @Override
+        public void insertAttributeAt(int position) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setClassMissing() {
+            throw readOnly();
+        }
+
+        @Override
+        public void setClassValue(double value) {
+            throw readOnly();
+        }
+    }
+
+    /**
+     * A read-only sparse instance. It shares the values of the viewed
+     * instance.
+     */
+    private static class ReadOnlySparseInstance extends SparseInstance {
+
+        /**
+         * The serial version UID
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Build a read-only sparse instance
+         *
+         * @param instance The viewed instance
+         * @param dataset The view that contains the instance
+         */
+        ReadOnlySparseInstance(Instance instance, Instances dataset) {
+            super(instance);
+            this.m_Dataset = dataset;
+        }
+
+        /**
+         * Returns a modifiable (shallow) copy of the instance
+         *
+         * @return a copy of the instance
+         */
+        @Override
+        public Object copy() {
+            SparseInstance copy = new SparseInstance(this);
+            copy.setDataset(m_Dataset);
+            return copy;
+        }
+
+        @Override
+        public void setValue(int attIndex, double value) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setValueSparse(int indexOfIndex, double value) {
+            throw readOnly();
+        }
+
+        @Override
+        public void replaceMissingValues(double[] array) {
+            throw readOnly();
+        }
+
+        @Override
+        public void deleteAttributeAt(int position) {
+            throw readOnly();
+        }
+
+        @Override
+        public void insertAttributeAt(int position) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setClassMissing() {
+            throw readOnly();
+        }
+
+        @Override
+        public void setClassValue(double value) {
+            throw readOnly();
+        }
+    }
+}
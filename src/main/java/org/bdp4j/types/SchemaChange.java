@@ -0,0 +1,193 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A batch of schema modifications (column insertions, deletions and renames)
+ * to be applied to a Dataset in a single pass over its data. Operations are
+ * interpreted in the order they were added, as if they were applied one after
+ * another (i.e. the position of an insertion refers to the schema resulting
+ * from the previous operations). See Dataset.applySchemaChange(SchemaChange).
+ *
+ * <pre>
+ * dataset.applySchemaChange(new SchemaChange()
+ *         .insertColumn(ColumnDefinition.doubleColumn("length", 0d), 1)
+ *         .deleteColumn("old_length")
+ *         .renameColumn("bn:00071570n", "drug"));
+ * </pre>
+ *
+ * @author María Novo
+ */
+public class SchemaChange {
+
+    /**
+     * The types of the supported operations
+     */
+    enum OperationType {
+        INSERT,
+        DELETE,
+        RENAME
+    }
+
+    /**
+     * A single schema operation
+     */
+    static class Operation {
+
+        /**
+         * The type of the operation
+         */
+        final OperationType type;
+
+        /**
+         * The name of the column affected by the operation
+         */
+        final String columnName;
+
+        /**
+         * The new name of the column (only for renames)
+         */
+        final String newColumnName;
+
+        /**
+         * The type of the column to insert (only for insertions)
+         */
+        final Class<?> columnType;
+
+        /**
+         * The default value of the column to insert (only for insertions)
+         */
+        final Object defaultValue;
+
+        /**
+         * The position where the column should be inserted (only for
+         * insertions)
+         */
+        final int position;
+
+        /**
+         * Build a schema operation
+         *
+         * @param type The type of the operation
+         * @param columnName The name of the column affected by the operation
+         * @param newColumnName The new name of the column (renames)
+         * @param columnType The type of the column to insert (insertions)
+         * @param defaultValue The default value of the column (insertions)
+         * @param position The position of the column (insertions)
+         */
+        Operation(OperationType type, String columnName, String newColumnName, Class<?> columnType, Object defaultValue, int position) {
+            this.type = type;
+            this.columnName = columnName;
+            this.newColumnName = newColumnName;
+            this.columnType = columnType;
+            this.defaultValue = defaultValue;
+            this.position = position;
+        }
+    }
+
+    /**
+     * The list of operations in order
+     */
+    private final List<Operation> operations = new ArrayList<>();
+
+    /**
+     * Build an empty schema change
+     */
+    public SchemaChange() {
+    }
+
+    /**
+     * Insert a column before a certain position. If a column with the same
+     * name already exists, the insertion is ignored.
+     *
+     * @param columnName The name of the column
+     * @param columnType The type of the column (String, Enum or a Number type)
+     * @param defaultValue The default value for the column (a List of String
+     * with the allowed values for Enum columns)
+     * @param position The index where the new column will be inserted (0 upto
+     * the number of columns)
+     * @return this schema change to allow chaining operations
+     */
+    public SchemaChange insertColumn(String columnName, Class<?> columnType, Object defaultValue, int position) {
+        operations.add(new Operation(OperationType.INSERT, columnName, null, columnType, defaultValue, position));
+        return this;
+    }
+
+    /**
+     * Insert a column before a certain position. If a column with the same
+     * name already exists, the insertion is ignored.
+     *
+     * @param column The column information
+     * @param position The index where the new column will be inserted (0 upto
+     * the number of columns)
+     * @return this schema change to allow chaining operations
+     */
+    public SchemaChange insertColumn(ColumnDefinition column, int position) {
+        Class<?> columnType = column.isStringType() ? String.class : (column.isEnumType() ? Enum.class : column.getColumnType());
+        return insertColumn(column.getColumnName(), columnType, column.getDefaultValue(), position);
+    }
+
+    /**
+     * Delete a column
+     *
+     * @param columnName The name of the column to delete
+     * @return this schema change to allow chaining operations
+     */
+    public SchemaChange deleteColumn(String columnName) {
+        operations.add(new Operation(OperationType.DELETE, columnName, null, null, null, -1));
+        return this;
+    }
+
+    /**
+     * Rename a column
+     *
+     * @param columnName The current name of the column
+     * @param newColumnName The new name for the column
+     * @return this schema change to allow chaining operations
+     */
+    public SchemaChange renameColumn(String columnName, String newColumnName) {
+        operations.add(new Operation(OperationType.RENAME, columnName, newColumnName, null, null, -1));
+        return this;
+    }
+
+    /**
+     * Returns the operations included in this schema change
+     *
+     * @return the list of operations in order
+     */
+    List<Operation> getOperations() {
+        return Collections.unmodifiableList(operations);
+    }
+
+    /**
+     * Returns the number of operations included in this schema change
+     *
+     * @return the number of operations
+     */
+    public int size() {
+        return operations.size();
+    }
+}
@@ -24,15 +24,23 @@
 
 package org.bdp4j.types;
 
+import java.io.Serializable;
 import java.util.List;
 
 /**
  * To transform columns of a dataset into double representation suitable for using
- * with classifiers.
+ * with classifiers. Transformers are serializable so they can be stored
+ * together with the datasets they built (see BinaryDatasetWriter).
  *
  * @author María Novo
  */
-public abstract class Transformer {
+public abstract class Transformer implements Serializable {
+
+    /**
+     * The serial version UID
+     */
+    private static final long serialVersionUID = 1L;
+
     /**
      * Transform the data
      *
@@ -0,0 +1,358 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import weka.core.Utils;
+
+/**
+ * A growable byte buffer used to format text without
+ * creating intermediate objects (numbers are written digit by digit). It also
+ * writes little-endian binary values. The buffer can be cleared and reused.
+ *
+ * @author María Novo
+ */
+public class ByteSink {
+
+    /**
+     * Powers of ten used to format decimals
+     */
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L};
+
+    /**
+     * The maximum absolute value of integers formatted without using
+     * Utils.doubleToString
+     */
+    private static final double MAX_FAST_INTEGER = 1e15;
+
+    /**
+     * The maximum scaled value (value x 10^decimals) of decimals formatted
+     * without using Utils.doubleToString (scaled values are exact enough to
+     * be rounded)
+     */
+    private static final double MAX_FAST_SCALED = 1e13;
+
+    /**
+     * The distance to a rounding tie under which Utils.doubleToString is used
+     * (its rounding depends on the exact binary value)
+     */
+    private static final double TIE_TOLERANCE = 1e-2;
+
+    /**
+     * The contents of the buffer
+     */
+    private byte[] buffer;
+
+    /**
+     * The number of bytes in the buffer
+     */
+    private int size = 0;
+
+    /**
+     * Scratch space used to write the digits of numbers
+     */
+    private final byte[] digits = new byte[20];
+
+    /**
+     * Build a buffer
+     *
+     * @param capacity The initial capacity (in bytes)
+     */
+    public ByteSink(int capacity) {
+        this.buffer = new byte[Math.max(capacity, 16)];
+    }
+
+    /**
+     * Returns the number of bytes in the buffer
+     *
+     * @return the number of bytes in the buffer
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the storage of the buffer (only the first size() bytes are
+     * valid)
+     *
+     * @return the storage of the buffer
+     */
+    public byte[] array() {
+        return buffer;
+    }
+
+    /**
+     * Removes the contents of the buffer (keeping its capacity)
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Ensures that some bytes can be appended without growing the buffer
+     *
+     * @param bytes The number of bytes
+     */
+    private void ensureCapacity(int bytes) {
+        if (size + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(size + bytes, buffer.length * 2));
+        }
+    }
+
+    /**
+     * Appends a byte
+     *
+     * @param value The byte
+     * @return this buffer
+     */
+    public ByteSink append(byte value) {
+        ensureCapacity(1);
+        buffer[size++] = value;
+        return this;
+    }
+
+    /**
+     * Appends a character that should be an ASCII character
+     *
+     * @param value The character
+     * @return this buffer
+     */
+    public ByteSink append(char value) {
+        return append((byte) value);
+    }
+
+    /**
+     * Appends some bytes
+     *
+     * @param values The bytes
+     * @param offset The position of the first byte
+     * @param length The number of bytes
+     * @return this buffer
+     */
+    public ByteSink append(byte[] values, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(values, offset, buffer, size, length);
+        size += length;
+        return this;
+    }
+
+    /**
+     * Appends some bytes
+     *
+     * @param values The bytes
+     * @return this buffer
+     */
+    public ByteSink append(byte[] values) {
+        return append(values, 0, values.length);
+    }
+
+    /**
+     * Appends a text encoded in UTF-8
+     *
+     * @param text The text
+     * @return this buffer
+     */
+    public ByteSink append(String text) {
+        return append(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Appends a little-endian short value
+     *
+     * @param value The value
+     * @return this buffer
+     */
+    public ByteSink appendShortLE(short value) {
+        ensureCapacity(2);
+        buffer[size++] = (byte) value;
+        buffer[size++] = (byte) (value >>> 8);
+        return this;
+    }
+
+    /**
+     * Appends a little-endian int value
+     *
+     * @param value The value
+     * @return this buffer
+     */
+    public ByteSink appendIntLE(int value) {
+        ensureCapacity(4);
+        putIntLE(size, value);
+        size += 4;
+        return this;
+    }
+
+    /**
+     * Appends a little-endian long value
+     *
+     * @param value The value
+     * @return this buffer
+     */
+    public ByteSink appendLongLE(long value) {
+        ensureCapacity(8);
+        putIntLE(size, (int) value);
+        putIntLE(size + 4, (int) (value >>> 32));
+        size += 8;
+        return this;
+    }
+
+    /**
+     * Appends a little-endian double value (IEEE 754)
+     *
+     * @param value The value
+     * @return this buffer
+     */
+    public ByteSink appendDoubleLE(double value) {
+        return appendLongLE(Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Appends zeros until the size of the buffer is a multiple of a value
+     *
+     * @param alignment The value (a power of 2)
+     * @return this buffer
+     */
+    public ByteSink pad(int alignment) {
+        int padding = -size & (alignment - 1);
+        ensureCapacity(padding);
+        Arrays.fill(buffer, size, size + padding, (byte) 0);
+        size += padding;
+        return this;
+    }
+
+    /**
+     * Overwrites a little-endian int value
+     *
+     * @param position The position of the value (it must be in the buffer)
+     * @param value The value
+     */
+    public void putIntLE(int position, int value) {
+        buffer[position] = (byte) value;
+        buffer[position + 1] = (byte) (value >>> 8);
+        buffer[position + 2] = (byte) (value >>> 16);
+        buffer[position + 3] = (byte) (value >>> 24);
+    }
+
+    /**
+     * Overwrites a little-endian short value
+     *
+     * @param position The position of the value (it must be in the buffer)
+     * @param value The value
+     */
+    public void putShortLE(int position, short value) {
+        buffer[position] = (byte) value;
+        buffer[position + 1] = (byte) (value >>> 8);
+    }
+
+    /**
+     * Appends the decimal representation of a long value
+     *
+     * @param value The value
+     * @return this buffer
+     */
+    public ByteSink append(long value) {
+        if (value == Long.MIN_VALUE) {
+            return append(Long.toString(value));
+        }
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+        int length = 0;
+        do {
+            digits[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        ensureCapacity(length);
+        while (length > 0) {
+            buffer[size++] = digits[--length];
+        }
+        return this;
+    }
+
+    /**
+     * Appends the decimal representation of a double value using the same
+     * format as weka.core.Utils.doubleToString(double, int): at most
+     * maxDecimals decimals and no trailing zeros. Integers and usual decimal
+     * values are written digit by digit; large values and values close to a
+     * rounding tie are formatted by Weka.
+     *
+     * @param value The value
+     * @param maxDecimals The maximum number of decimals (0 to 9)
+     * @return this buffer
+     */
+    public ByteSink append(double value, int maxDecimals) {
+        double abs = Math.abs(value);
+        if (abs < MAX_FAST_INTEGER && abs == Math.rint(abs)) {
+            if (value < 0 || (value == 0 && 1 / value < 0)) {
+                append('-');
+            }
+            return append((long) abs);
+        }
+        if (maxDecimals < 0 || maxDecimals >= POWERS_OF_TEN.length || Double.isNaN(value)) {
+            return append(Utils.doubleToString(value, maxDecimals));
+        }
+        long scale = POWERS_OF_TEN[maxDecimals];
+        double scaledValue = abs * scale;
+        double fraction = scaledValue - Math.floor(scaledValue);
+        if (scaledValue >= MAX_FAST_SCALED || Math.abs(fraction - 0.5) < TIE_TOLERANCE) {
+            return append(Utils.doubleToString(value, maxDecimals));
+        }
+
+        long scaled = (long) Math.floor(scaledValue + 0.5);
+        if (value < 0) {
+            append('-');
+        }
+        append(scaled / scale);
+        long decimals = scaled % scale;
+        if (decimals != 0) {
+            int numDecimals = maxDecimals;
+            while (decimals % 10 == 0) {
+                decimals /= 10;
+                numDecimals--;
+            }
+            append('.');
+            for (int i = numDecimals - 1; i > 0 && decimals < POWERS_OF_TEN[i]; i--) {
+                append('0');
+            }
+            append(decimals);
+        }
+        return this;
+    }
+
+    /**
+     * Writes the contents of the buffer to a channel
+     *
+     * @param channel The channel
+     * @throws IOException If an I/O error occurs
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, size);
+        while (byteBuffer.hasRemaining()) {
+            channel.write(byteBuffer);
+        }
+    }
+}
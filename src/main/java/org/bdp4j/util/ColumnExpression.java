@@ -0,0 +1,193 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.util;
+
+import java.io.StringReader;
+import java.util.stream.IntStream;
+import org.codehaus.janino.ClassBodyEvaluator;
+import org.codehaus.janino.Scanner;
+
+/**
+ * An expression compiled to be evaluated over whole columns. The parameters of
+ * the expression are bound to primitive column arrays (one array per
+ * parameter, in the same order as the parameter names) and the expression is
+ * evaluated for all rows in a loop generated at compile time (no boxing nor
+ * reflection per row). Large columns are evaluated in parallel chunks.
+ *
+ * Only numeric (or boolean) parameters and results are supported (see
+ * ColumnExpression.isSupported(...)). Instances are obtained from
+ * RegularExpressionEvaluator.compileColumnExpression(...).
+ *
+ * @author María Novo
+ */
+public class ColumnExpression {
+
+    /**
+     * The number of rows evaluated in each parallel chunk
+     */
+    public static final int CHUNK_SIZE = 16384;
+
+    /**
+     * The code generated for each expression implements this interface. It
+     * must be public to be implemented by the generated classes
+     */
+    public interface Evaluator {
+
+        /**
+         * Evaluate the expression for a range of rows
+         *
+         * @param columns The values of the parameters (one array per
+         * parameter)
+         * @param from The first row to evaluate
+         * @param to The last row to evaluate (exclusive)
+         * @param result The array to store the results
+         * @param failed The array to mark the rows whose evaluation fails
+         */
+        void evaluate(double[][] columns, int from, int to, double[] result, boolean[] failed);
+    }
+
+    /**
+     * The compiled evaluator
+     */
+    private final Evaluator evaluator;
+
+    /**
+     * The number of parameters of the expression
+     */
+    private final int numParameters;
+
+    /**
+     * Compile an expression to be evaluated over columns
+     *
+     * @param expression The expression (formatted)
+     * @param expressionType The type of the result of the expression
+     * @param parameterNames The name of the parameters (formatted)
+     * @param parameterTypes The type of the parameters
+     * @throws Exception add to a Compile, Parse or Scan Exception
+     */
+    ColumnExpression(String expression, Class<?> expressionType, String[] parameterNames, Class<?>[] parameterTypes) throws Exception {
+        if (!isSupported(expressionType, parameterTypes)) {
+            throw new IllegalArgumentException("Only numeric or boolean expressions can be evaluated over columns");
+        }
+
+        StringBuilder body = new StringBuilder();
+        body.append("public void evaluate(double[][] __columns, int __from, int __to, double[] __result, boolean[] __failed) {\n");
+        body.append("    for (int __row = __from; __row < __to; __row++) {\n");
+        body.append("        try {\n");
+        for (int i = 0; i < parameterNames.length; i++) {
+            Class<?> type = primitiveType(parameterTypes[i]);
+            String value = "__columns[" + i + "][__row]";
+            body.append("            ").append(type.getName()).append(' ').append(parameterNames[i]).append(" = ");
+            body.append(type.equals(boolean.class) ? "(" + value + " != 0)" : "(" + type.getName() + ") " + value).append(";\n");
+        }
+        if (primitiveType(expressionType).equals(boolean.class)) {
+            body.append("            __result[__row] = (").append(expression).append(") ? 1d : 0d;\n");
+        } else {
+            body.append("            __result[__row] = (double) (").append(expression).append(");\n");
+        }
+        body.append("        } catch (RuntimeException __ex) {\n");
+        body.append("            __failed[__row] = true;\n");
+        body.append("        }\n");
+        body.append("    }\n");
+        body.append("}\n");
+
+        this.evaluator = (Evaluator) ClassBodyEvaluator.createFastClassBodyEvaluator(
+                new Scanner(null, new StringReader(body.toString())), Evaluator.class, ColumnExpression.class.getClassLoader());
+        this.numParameters = parameterNames.length;
+    }
+
+    /**
+     * Indicates whether an expression can be evaluated over columns
+     *
+     * @param expressionType The type of the result of the expression
+     * @param parameterTypes The type of the parameters
+     * @return true if the result and all the parameters are numeric or boolean
+     */
+    public static boolean isSupported(Class<?> expressionType, Class<?>[] parameterTypes) {
+        if (primitiveType(expressionType) == null) {
+            return false;
+        }
+        for (Class<?> parameterType : parameterTypes) {
+            if (primitiveType(parameterType) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the primitive type for a numeric or boolean type
+     *
+     * @param type The type (primitive or wrapper)
+     * @return the primitive type or null if the type is not numeric nor
+     * boolean
+     */
+    private static Class<?> primitiveType(Class<?> type) {
+        if (type == null || type.equals(void.class) || type.equals(char.class)) {
+            return null;
+        } else if (type.isPrimitive()) {
+            return type;
+        } else if (type.equals(Double.class)) {
+            return double.class;
+        } else if (type.equals(Integer.class)) {
+            return int.class;
+        } else if (type.equals(Long.class)) {
+            return long.class;
+        } else if (type.equals(Float.class)) {
+            return float.class;
+        } else if (type.equals(Short.class)) {
+            return short.class;
+        } else if (type.equals(Byte.class)) {
+            return byte.class;
+        } else if (type.equals(Boolean.class)) {
+            return boolean.class;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Evaluate the expression for all rows
+     *
+     * @param columns The values of the parameters (one array per parameter,
+     * in the same order as the parameter names)
+     * @param numRows The number of rows
+     * @param failed An array (with numRows elements) to mark the rows whose
+     * evaluation fails
+     * @return The result of the expression for each row
+     */
+    public double[] evaluate(double[][] columns, int numRows, boolean[] failed) {
+        if (columns.length != numParameters) {
+            throw new IllegalArgumentException("Expected " + numParameters + " columns but " + columns.length + " were provided");
+        }
+        double[] result = new double[numRows];
+        int numChunks = (numRows + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (numChunks > 1) {
+            IntStream.range(0, numChunks).parallel().forEach(
+                    chunk -> evaluator.evaluate(columns, chunk * CHUNK_SIZE, Math.min(numRows, (chunk + 1) * CHUNK_SIZE), result, failed)
+            );
+        } else {
+            evaluator.evaluate(columns, 0, numRows, result, failed);
+        }
+        return result;
+    }
+}
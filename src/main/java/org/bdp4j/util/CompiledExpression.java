@@ -0,0 +1,95 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.util;
+
+import org.codehaus.janino.ExpressionEvaluator;
+
+/**
+ * An expression compiled by RegularExpressionEvaluator. The expression is
+ * compiled only once and can be evaluated many times (even concurrently from
+ * different threads).
+ *
+ * @author María Novo
+ */
+public class CompiledExpression {
+
+    /**
+     * The compiled expression
+     */
+    private final ExpressionEvaluator evaluator;
+
+    /**
+     * The type of the result of evaluating the expression
+     */
+    private final Class<?> expressionType;
+
+    /**
+     * The name of the parameters (formatted) of the expression
+     */
+    private final String[] parameterNames;
+
+    /**
+     * Build a compiled expression
+     *
+     * @param evaluator The compiled expression
+     * @param expressionType The type of the result of evaluating the expression
+     * @param parameterNames The name of the parameters (formatted)
+     */
+    CompiledExpression(ExpressionEvaluator evaluator, Class<?> expressionType, String[] parameterNames) {
+        this.evaluator = evaluator;
+        this.expressionType = expressionType;
+        this.parameterNames = parameterNames;
+    }
+
+    /**
+     * Evaluate the expression
+     *
+     * @param parameterValues The values of parameters (in the same order as
+     * the parameter names)
+     * @return The evaluated expression or null if the evaluation fails
+     */
+    public Object evaluate(Object[] parameterValues) {
+        try {
+            return evaluator.evaluate(parameterValues);
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the type of the result of evaluating the expression
+     *
+     * @return the type of the result of evaluating the expression
+     */
+    public Class<?> getExpressionType() {
+        return expressionType;
+    }
+
+    /**
+     * Returns the number of parameters of the expression
+     *
+     * @return the number of parameters of the expression
+     */
+    public int getNumParameters() {
+        return parameterNames.length;
+    }
+}
@@ -107,6 +107,29 @@ public final class Configurator {
      */
     public static final String DEFAULT_RESUMABLE_MODE = "no";
 
+    /**
+     * Release invalid instances mode property key. When enabled, invalidated
+     * instances are freed (only name and invalidation reason are kept) and
+     * removed from the working set between pipes.
+     */
+    public static final String RELEASE_INVALID_MODE = "releaseInvalid";
+
+    /**
+     * Release invalid instances mode property value.
+     */
+    public static final String DEFAULT_RELEASE_INVALID_MODE = "no";
+
+    /**
+     * Release data mode property key. When enabled, the data of the instances
+     * is replaced by a DataTombstone after the last pipe that requires it.
+     */
+    public static final String RELEASE_DATA_MODE = "releaseData";
+
+    /**
+     * Release data mode property value.
+     */
+    public static final String DEFAULT_RELEASE_DATA_MODE = "no";
+
     /**
      * For logging purposes
      */
@@ -169,6 +192,8 @@ public final class Configurator {
         this.setProp(TEMP_FOLDER, DEFAULT_TEMP_FOLDER);
         this.setProp(DEBUG_MODE, DEFAULT_DEBUG_MODE);
         this.setProp(RESUMABLE_MODE, DEFAULT_RESUMABLE_MODE);
+        this.setProp(RELEASE_INVALID_MODE, DEFAULT_RELEASE_INVALID_MODE);
+        this.setProp(RELEASE_DATA_MODE, DEFAULT_RELEASE_DATA_MODE);
     }
 
     /**
@@ -298,6 +323,12 @@ public final class Configurator {
         // Temp attributes properties
         props.put(RESUMABLE_MODE, pipeStructure.getAttributes().getNamedItem(RESUMABLE_MODE).getNodeValue());
         props.put(DEBUG_MODE, pipeStructure.getAttributes().getNamedItem(DEBUG_MODE).getNodeValue());
+        if (pipeStructure.getAttributes().getNamedItem(RELEASE_INVALID_MODE) != null) {
+            props.put(RELEASE_INVALID_MODE, pipeStructure.getAttributes().getNamedItem(RELEASE_INVALID_MODE).getNodeValue());
+        }
+        if (pipeStructure.getAttributes().getNamedItem(RELEASE_DATA_MODE) != null) {
+            props.put(RELEASE_DATA_MODE, pipeStructure.getAttributes().getNamedItem(RELEASE_DATA_MODE).getNodeValue());
+        }
 
         // Global pipe (serialPipe or parallelPipe)
         Node globalPipe = null;
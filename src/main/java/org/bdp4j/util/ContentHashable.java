@@ -0,0 +1,42 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.util;
+
+/**
+ * Objects that provide a 64-bit hash of their contents. It is used to
+ * fingerprint data and properties of instances whose type is not directly
+ * supported by HashUtils.hash64(Object) (such as custom feature vectors).
+ * The hash must depend only on the contents of the object (it should be
+ * computed using the functions of HashUtils), so equal contents produce the
+ * same hash in different executions of the JVM.
+ *
+ * @author María Novo
+ */
+public interface ContentHashable {
+
+    /**
+     * Returns a 64-bit hash of the contents of the object
+     *
+     * @return the hash of the contents
+     */
+    long contentHash();
+}
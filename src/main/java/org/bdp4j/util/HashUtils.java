@@ -0,0 +1,243 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.util;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fast non-cryptographic 64-bit hashing functions. These functions are used to
+ * compute content fingerprints (for instance, for Instances) and to feed
+ * sketches. They are not suitable for security purposes.
+ *
+ * @author María Novo
+ */
+public class HashUtils {
+
+    /**
+     * The seed used to start hashing sequences
+     */
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+    /**
+     * A large odd multiplier used to combine hashes
+     */
+    private static final long MULTIPLIER = 0xC6A4A7935BD1E995L;
+
+    /**
+     * Avoid creating instances of this class
+     */
+    private HashUtils() {
+    }
+
+    /**
+     * Finalize (avalanche) a 64-bit value so that all the input bits affect
+     * all the output bits (SplitMix64 finalizer)
+     *
+     * @param value The value to mix
+     * @return The mixed value
+     */
+    public static long mix64(long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Combine two 64-bit hashes taking into account the order
+     *
+     * @param current The hash computed so far
+     * @param value The hash of the next element
+     * @return The combined hash
+     */
+    public static long combine(long current, long value) {
+        return (current ^ mix64(value)) * MULTIPLIER + SEED;
+    }
+
+    /**
+     * Compute a 64-bit hash for a sequence of chars
+     *
+     * @param sequence The sequence to hash
+     * @return The 64-bit hash of the sequence
+     */
+    public static long hash64(CharSequence sequence) {
+        long h = SEED ^ sequence.length();
+        int length = sequence.length();
+        int i = 0;
+        // Consume four chars at a time to reduce the number of multiplications
+        for (; i + 3 < length; i += 4) {
+            long block = ((long) sequence.charAt(i))
+                    | ((long) sequence.charAt(i + 1) << 16)
+                    | ((long) sequence.charAt(i + 2) << 32)
+                    | ((long) sequence.charAt(i + 3) << 48);
+            h = (h ^ mix64(block)) * MULTIPLIER;
+        }
+        long tail = 0;
+        for (int shift = 0; i < length; i++, shift += 16) {
+            tail |= ((long) sequence.charAt(i)) << shift;
+        }
+        h = (h ^ mix64(tail)) * MULTIPLIER;
+        return mix64(h);
+    }
+
+    /**
+     * Compute a 64-bit hash for an array of bytes
+     *
+     * @param bytes The bytes to hash
+     * @return The 64-bit hash of the bytes
+     */
+    public static long hash64(byte[] bytes) {
+        long h = SEED ^ bytes.length;
+        int i = 0;
+        for (; i + 7 < bytes.length; i += 8) {
+            long block = 0;
+            for (int j = 7; j >= 0; j--) {
+                block = (block << 8) | (bytes[i + j] & 0xFFL);
+            }
+            h = (h ^ mix64(block)) * MULTIPLIER;
+        }
+        long tail = 0;
+        for (int shift = 0; i < bytes.length; i++, shift += 8) {
+            tail |= (bytes[i] & 0xFFL) << shift;
+        }
+        h = (h ^ mix64(tail)) * MULTIPLIER;
+        return mix64(h);
+    }
+
+    /**
+     * Compute a 64-bit hash for a double value. Positive and negative zero
+     * produce the same hash and all NaNs are considered equal.
+     *
+     * @param value The value to hash
+     * @return The 64-bit hash of the value
+     */
+    public static long hash64(double value) {
+        if (value == 0d) {
+            return mix64(SEED);
+        }
+        return mix64(Double.doubleToLongBits(value) ^ SEED);
+    }
+
+    /**
+     * Compute a 64-bit hash for an object from its contents, so the hash of an
+     * object is the same in different executions of the JVM (identity hash
+     * codes are never used). Sequences of chars, numbers, booleans, chars,
+     * enumerations (by name), arrays, collections and maps (by element) are
+     * hashed directly. Other objects should implement ContentHashable to be
+     * hashed by content; otherwise, only their class is taken into account.
+     *
+     * @param object The object to hash (could be null)
+     * @return The 64-bit hash of the object
+     */
+    public static long hash64(Object object) {
+        if (object == null) {
+            return mix64(SEED);
+        } else if (object instanceof CharSequence) {
+            return hash64((CharSequence) object);
+        } else if (object instanceof byte[]) {
+            return hash64((byte[]) object);
+        } else if (object instanceof Double || object instanceof Float) {
+            return hash64(((Number) object).doubleValue());
+        } else if (object instanceof Long || object instanceof Integer || object instanceof Short || object instanceof Byte) {
+            return mix64(((Number) object).longValue() ^ MULTIPLIER);
+        } else if (object instanceof Boolean) {
+            return mix64(((Boolean) object) ? MULTIPLIER : ~MULTIPLIER);
+        } else if (object instanceof Character) {
+            return mix64((Character) object ^ SEED ^ MULTIPLIER);
+        } else if (object instanceof Enum) {
+            Enum<?> value = (Enum<?>) object;
+            return combine(hash64(value.getDeclaringClass().getName()), hash64(value.name()));
+        } else if (object.getClass().isArray()) {
+            return hashArray(object);
+        } else if (object instanceof List) {
+            // Ordered collections
+            long h = SEED ^ ((List<?>) object).size();
+            for (Object element : (List<?>) object) {
+                h = combine(h, hash64(element));
+            }
+            return mix64(h);
+        } else if (object instanceof Collection) {
+            // The order of other collections (sets) could change
+            long h = SEED ^ ((Collection<?>) object).size();
+            for (Object element : (Collection<?>) object) {
+                h += mix64(hash64(element));
+            }
+            return mix64(h);
+        } else if (object instanceof Map) {
+            long h = SEED ^ MULTIPLIER ^ ((Map<?, ?>) object).size();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+                h += mix64(combine(hash64(entry.getKey()), hash64(entry.getValue())));
+            }
+            return mix64(h);
+        } else if (object instanceof ContentHashable) {
+            return combine(hash64(object.getClass().getName()), ((ContentHashable) object).contentHash());
+        }
+        // The contents of other objects are unknown
+        return hash64(object.getClass().getName());
+    }
+
+    /**
+     * Compute a 64-bit hash for an array from its elements
+     *
+     * @param array The array (of any type)
+     * @return The 64-bit hash of the array
+     */
+    private static long hashArray(Object array) {
+        long h = SEED ^ array.getClass().getName().hashCode();
+        if (array instanceof double[]) {
+            for (double value : (double[]) array) {
+                h = combine(h, hash64(value));
+            }
+        } else if (array instanceof float[]) {
+            for (float value : (float[]) array) {
+                h = combine(h, hash64(value));
+            }
+        } else if (array instanceof long[]) {
+            for (long value : (long[]) array) {
+                h = combine(h, value);
+            }
+        } else if (array instanceof int[]) {
+            for (int value : (int[]) array) {
+                h = combine(h, value);
+            }
+        } else if (array instanceof short[]) {
+            for (short value : (short[]) array) {
+                h = combine(h, value);
+            }
+        } else if (array instanceof char[]) {
+            for (char value : (char[]) array) {
+                h = combine(h, value);
+            }
+        } else if (array instanceof boolean[]) {
+            for (boolean value : (boolean[]) array) {
+                h = combine(h, value ? 1 : 0);
+            }
+        } else {
+            for (Object value : (Object[]) array) {
+                h = combine(h, hash64(value));
+            }
+        }
+        return mix64(h);
+    }
+}
@@ -0,0 +1,163 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.util;
+
+import java.io.Serializable;
+
+/**
+ * HyperLogLog sketch to estimate the number of distinct values of a stream
+ * using a fixed amount of memory (2^precision bytes). The relative standard
+ * error of the estimate is about 1.04 / sqrt(2^precision). Values are added
+ * as 64-bit hashes (see HashUtils) and sketches with the same precision can
+ * be merged (for instance, after computing them in parallel).
+ *
+ * @author María Novo
+ */
+public class HyperLogLog implements Serializable {
+
+    /**
+     * The serial version UID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The default precision (4096 registers, about 1.6% of error)
+     */
+    public static final int DEFAULT_PRECISION = 12;
+
+    /**
+     * The number of bits of the hash used to select a register
+     */
+    private final int precision;
+
+    /**
+     * The registers (the maximum rank observed for each one)
+     */
+    private final byte[] registers;
+
+    /**
+     * Build an empty sketch with the default precision
+     */
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Build an empty sketch
+     *
+     * @param precision The number of bits used to select a register (between
+     * 4 and 18)
+     */
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("The precision should be between 4 and 18");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Build a copy of other sketch
+     *
+     * @param other The sketch to copy
+     */
+    public HyperLogLog(HyperLogLog other) {
+        this.precision = other.precision;
+        this.registers = other.registers.clone();
+    }
+
+    /**
+     * Adds a value
+     *
+     * @param hash The 64-bit hash of the value
+     */
+    public void add(long hash) {
+        int register = (int) (hash >>> (64 - precision));
+        // The rank is the position of the first 1 bit in the remaining bits
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1);
+        if (rank > registers[register]) {
+            registers[register] = rank;
+        }
+    }
+
+    /**
+     * Adds the values summarized by other sketch
+     *
+     * @param other The sketch (with the same precision)
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Sketches with different precision cannot be merged");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * Estimates the number of distinct values
+     *
+     * @return the estimated number of distinct values
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0d;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += Math.scalb(1d, -register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha;
+        switch (m) {
+            case 16:
+                alpha = 0.673;
+                break;
+            case 32:
+                alpha = 0.697;
+                break;
+            case 64:
+                alpha = 0.709;
+                break;
+            default:
+                alpha = 0.7213 / (1 + 1.079 / m);
+        }
+        double estimate = alpha * m * m / sum;
+        // Linear counting is more accurate for small cardinalities
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Returns the precision of the sketch
+     *
+     * @return the number of bits used to select a register
+     */
+    public int getPrecision() {
+        return precision;
+    }
+}
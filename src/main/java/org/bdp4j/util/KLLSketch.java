@@ -0,0 +1,346 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * KLL sketch (Karnin, Lang and Liberty) to estimate quantiles of a stream of
+ * values using bounded memory. Values are kept in a hierarchy of compactors
+ * where each item of level h represents 2^h values. When the sketch is full,
+ * the first level over its capacity is sorted and half of its items
+ * (alternate items starting at a random position) are promoted to the next
+ * level. Sketches can be merged (for instance, after computing them in
+ * parallel). The rank error is about 1.7 / k.
+ *
+ * @author María Novo
+ */
+public class KLLSketch implements Serializable {
+
+    /**
+     * The serial version UID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The default capacity of the top level (about 1% of rank error)
+     */
+    public static final int DEFAULT_K = 200;
+
+    /**
+     * The ratio between the capacity of consecutive levels
+     */
+    private static final double CAPACITY_RATIO = 2d / 3d;
+
+    /**
+     * The capacity of the top level
+     */
+    private final int k;
+
+    /**
+     * The items of each level
+     */
+    private double[][] levels = new double[1][8];
+
+    /**
+     * The number of items of each level
+     */
+    private int[] sizes = new int[1];
+
+    /**
+     * The number of items stored
+     */
+    private int size = 0;
+
+    /**
+     * The number of values added
+     */
+    private long count = 0;
+
+    /**
+     * The minimum value
+     */
+    private double min = Double.NaN;
+
+    /**
+     * The maximum value
+     */
+    private double max = Double.NaN;
+
+    /**
+     * The state of the generator of random bits used to compact levels
+     */
+    private long randomState = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Build an empty sketch with the default capacity
+     */
+    public KLLSketch() {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * Build an empty sketch
+     *
+     * @param k The capacity of the top level (at least 8)
+     */
+    public KLLSketch(int k) {
+        if (k < 8) {
+            throw new IllegalArgumentException("The capacity should be at least 8");
+        }
+        this.k = k;
+    }
+
+    /**
+     * Build a copy of other sketch
+     *
+     * @param other The sketch to copy
+     */
+    public KLLSketch(KLLSketch other) {
+        this.k = other.k;
+        this.levels = new double[other.levels.length][];
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = other.levels[i].clone();
+        }
+        this.sizes = other.sizes.clone();
+        this.size = other.size;
+        this.count = other.count;
+        this.min = other.min;
+        this.max = other.max;
+        this.randomState = other.randomState;
+    }
+
+    /**
+     * Adds a value
+     *
+     * @param value The value (NaN values are ignored)
+     */
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    /**
+     * Adds a value several times (in O(log(weight)) time)
+     *
+     * @param value The value (NaN values are ignored)
+     * @param weight The number of times the value is added
+     */
+    public void add(double value, long weight) {
+        if (Double.isNaN(value) || weight <= 0) {
+            return;
+        }
+        // An item of level h represents 2^h values
+        for (int level = 0; weight >>> level != 0; level++) {
+            if ((weight >>> level & 1) != 0) {
+                append(level, value);
+            }
+        }
+        updateRange(value, value);
+        count += weight;
+        compress();
+    }
+
+    /**
+     * Adds the values summarized by other sketch
+     *
+     * @param other The sketch
+     */
+    public void merge(KLLSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        for (int level = 0; level < other.sizes.length; level++) {
+            for (int i = 0; i < other.sizes[level]; i++) {
+                append(level, other.levels[level][i]);
+            }
+        }
+        updateRange(other.min, other.max);
+        count += other.count;
+        compress();
+    }
+
+    /**
+     * Estimates a quantile
+     *
+     * @param fraction The fraction of values lower than or equal to the
+     * quantile (between 0 and 1)
+     * @return the estimated quantile (NaN if there are no values)
+     */
+    public double getQuantile(double fraction) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (fraction <= 0d) {
+            return min;
+        }
+        if (fraction >= 1d) {
+            return max;
+        }
+        // Items are sorted together with their weights
+        double[] values = new double[size];
+        long[] weights = new long[size];
+        int position = 0;
+        long total = 0;
+        for (int level = 0; level < sizes.length; level++) {
+            Arrays.sort(levels[level], 0, sizes[level]);
+            for (int i = 0; i < sizes[level]; i++) {
+                values[position] = levels[level][i];
+                weights[position++] = 1L << level;
+            }
+            total += (long) sizes[level] << level;
+        }
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+        double target = fraction * total;
+        long cumulative = 0;
+        for (int i : order) {
+            cumulative += weights[i];
+            if (cumulative >= target) {
+                return values[i];
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the number of values added
+     *
+     * @return the number of values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the minimum value
+     *
+     * @return the minimum value (NaN if there are no values)
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * Returns the maximum value
+     *
+     * @return the maximum value (NaN if there are no values)
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the number of items stored by the sketch
+     *
+     * @return the number of items
+     */
+    public int getNumRetained() {
+        return size;
+    }
+
+    /**
+     * Updates the minimum and maximum values
+     *
+     * @param newMin The minimum of the new values
+     * @param newMax The maximum of the new values
+     */
+    private void updateRange(double newMin, double newMax) {
+        min = (count == 0) ? newMin : Math.min(min, newMin);
+        max = (count == 0) ? newMax : Math.max(max, newMax);
+    }
+
+    /**
+     * Appends an item to a level (creating it if required)
+     *
+     * @param level The level
+     * @param value The item
+     */
+    private void append(int level, double value) {
+        while (level >= sizes.length) {
+            levels = Arrays.copyOf(levels, levels.length + 1);
+            levels[levels.length - 1] = new double[8];
+            sizes = Arrays.copyOf(sizes, sizes.length + 1);
+        }
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+        }
+        levels[level][sizes[level]++] = value;
+        size++;
+    }
+
+    /**
+     * Returns the capacity of a level (lower levels have less capacity)
+     *
+     * @param level The level
+     * @return the capacity
+     */
+    private int capacity(int level) {
+        int depth = sizes.length - level - 1;
+        return Math.max(2, (int) Math.ceil(k * Math.pow(CAPACITY_RATIO, depth)));
+    }
+
+    /**
+     * Compacts levels until the sketch is under its capacity
+     */
+    private void compress() {
+        while (true) {
+            int maxSize = 0;
+            for (int level = 0; level < sizes.length; level++) {
+                maxSize += capacity(level);
+            }
+            if (size < maxSize) {
+                return;
+            }
+            for (int level = 0; level < sizes.length; level++) {
+                if (sizes[level] >= capacity(level)) {
+                    compact(level);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Promotes half of the items of a level to the next level
+     *
+     * @param level The level
+     */
+    private void compact(int level) {
+        double[] items = levels[level];
+        int levelSize = sizes[level];
+        Arrays.sort(items, 0, levelSize);
+        // If the number of items is odd, the first one stays in the level
+        int first = levelSize % 2;
+        randomState ^= randomState << 13;
+        randomState ^= randomState >>> 7;
+        randomState ^= randomState << 17;
+        for (int i = first + (int) (randomState & 1); i < levelSize; i += 2) {
+            append(level + 1, items[i]);
+        }
+        sizes[level] = first;
+        size -= levelSize - first;
+    }
+}
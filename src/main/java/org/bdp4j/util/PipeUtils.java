@@ -33,10 +33,12 @@ import java.io.ObjectOutputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.logging.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.bdp4j.pipe.ResumableSerialPipes;
+import org.bdp4j.types.Instance;
 
 public class PipeUtils {
 
@@ -80,6 +82,63 @@ public class PipeUtils {
         return "";
     }
 
+    /**
+     * Generate a fixed-length hexadecimal representation of the content
+     * fingerprint of an instance. It is much faster than generateMD5 and it
+     * does not require to rescan the instance if its contents did not change
+     *
+     * @param carrier The instance to fingerprint
+     * @return a 16 characters hexadecimal string with the fingerprint
+     */
+    public static String generateFingerprint(Instance carrier) {
+        String hex = Long.toHexString(carrier.getFingerprint());
+        StringBuilder fingerprint = new StringBuilder(16);
+        for (int i = hex.length(); i < 16; i++) {
+            fingerprint.append('0');
+        }
+        return fingerprint.append(hex).toString();
+    }
+
+    /**
+     * Generate the key used by resumable pipes to check whether a checkpoint
+     * was created from the same carriers. The key is the concatenation of the
+     * MD5 of the name of each carrier (the key used by previous versions),
+     * followed by a new line and the concatenation of the fingerprint of each
+     * carrier (see Instance.getFingerprint())
+     *
+     * @param carriers The instances to be processed
+     * @return the key of the carriers
+     */
+    public static String generateCheckpointKey(Collection<Instance> carriers) {
+        StringBuilder md5Carriers = new StringBuilder();
+        StringBuilder fingerprintCarriers = new StringBuilder();
+        for (Instance carrier : carriers) {
+            md5Carriers.append(generateMD5(carrier.toString()));
+            fingerprintCarriers.append(generateFingerprint(carrier));
+        }
+        return md5Carriers.append('\n').append(fingerprintCarriers).toString();
+    }
+
+    /**
+     * Check whether a saved checkpoint key matches the key of the current
+     * carriers. The MD5 of the carrier names must always match. The
+     * fingerprints are only checked when the saved key includes them, so the
+     * checkpoints saved by previous versions (which only contain the MD5 of
+     * the names) are still accepted
+     *
+     * @param savedKey The key read from the checkpoint
+     * @param key The key of the current carriers (see generateCheckpointKey)
+     * @return true if the checkpoint was created from the same carriers
+     */
+    public static boolean matchesCheckpointKey(String savedKey, String key) {
+        int savedSeparator = savedKey.indexOf('\n');
+        int separator = key.indexOf('\n');
+        if (savedSeparator < 0) {
+            return savedKey.equals(key.substring(0, separator));
+        }
+        return savedKey.equals(key);
+    }
+
     /**
      * Retrieve data from file
      *
@@ -26,16 +26,35 @@
  */
 package org.bdp4j.util;
 
-import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.codehaus.janino.ExpressionEvaluator;
 
 /**
+ * Evaluates Java expressions. Compiled expressions are cached (see
+ * RegularExpressionEvaluator.compile(...)) so an expression is compiled only
+ * once, no matter how many times it is evaluated.
  *
  * @author María Novo
  */
 public class RegularExpressionEvaluator {
 
+    /**
+     * The maximum number of compiled expressions kept in the cache
+     */
+    private static final int MAX_CACHED_EXPRESSIONS = 1024;
+
+    /**
+     * The cache of compiled expressions (shared by all evaluators)
+     */
+    private static final ConcurrentHashMap<String, CompiledExpression> compiledExpressions = new ConcurrentHashMap<>();
+
+    /**
+     * The cache of expressions compiled to be evaluated over columns (shared
+     * by all evaluators)
+     */
+    private static final ConcurrentHashMap<String, ColumnExpression> columnExpressions = new ConcurrentHashMap<>();
+
     /**
      * Default constructor
      */
@@ -52,19 +71,108 @@ public class RegularExpressionEvaluator {
      * @return THe evaluated expression
      * @throws Exception add to a Compile, Parse or Runtime Exception
      */
-    public Object evaluateExpression(String expression, Class expressionType, String[] parameterNames,
-            Class[] parameterTypes, Object[] parameterValues) throws Exception  {
-        
-        ExpressionEvaluator ee = new ExpressionEvaluator(expression, expressionType, parameterNames, parameterTypes);
-
-         try {
-            return ee.evaluate(parameterValues);
-        } catch ( InvocationTargetException e) {
-            return null;
-        } catch(Exception ex){
-            return null;
+    public Object evaluateExpression(String expression, Class<?> expressionType, String[] parameterNames,
+            Class<?>[] parameterTypes, Object[] parameterValues) throws Exception  {
+
+        return getCompiledExpression(expression, expressionType, parameterNames, parameterTypes).evaluate(parameterValues);
+    }
+
+    /**
+     * Compile an expression to be evaluated many times. Parameter names (and
+     * the expression) are formatted to delete non alphanumeric characters (see
+     * formatParameterNames and formatExpression).
+     *
+     * @param expression Expression to compile
+     * @param expressionType The type of the result of evaluating the expression
+     * @param parameterNames The name of the parameters of the expression
+     * @param parameterTypes The type of the parameters of the expression
+     * @return The compiled expression
+     * @throws Exception add to a Compile, Parse or Scan Exception
+     */
+    public CompiledExpression compile(String expression, Class<?> expressionType, String[] parameterNames,
+            Class<?>[] parameterTypes) throws Exception {
+        return getCompiledExpression(formatExpression(expression, parameterNames), expressionType,
+                formatParameterNames(parameterNames), parameterTypes);
+    }
+
+    /**
+     * Returns a compiled expression from the cache (compiling it if required)
+     *
+     * @param expression Expression to compile (formatted)
+     * @param expressionType The type of the result of evaluating the expression
+     * @param parameterNames The name of the parameters (formatted)
+     * @param parameterTypes The type of the parameters
+     * @return The compiled expression
+     * @throws Exception add to a Compile, Parse or Scan Exception
+     */
+    private static CompiledExpression getCompiledExpression(String expression, Class<?> expressionType, String[] parameterNames,
+            Class<?>[] parameterTypes) throws Exception {
+        String cacheKey = cacheKey(expression, expressionType, parameterNames, parameterTypes);
+        CompiledExpression compiled = compiledExpressions.get(cacheKey);
+        if (compiled == null) {
+            compiled = new CompiledExpression(new ExpressionEvaluator(expression, expressionType, parameterNames, parameterTypes),
+                    expressionType, parameterNames.clone());
+            if (compiledExpressions.size() >= MAX_CACHED_EXPRESSIONS) {
+                compiledExpressions.clear();
+            }
+            CompiledExpression previous = compiledExpressions.putIfAbsent(cacheKey, compiled);
+            if (previous != null) {
+                compiled = previous;
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * Compile an expression to be evaluated over whole columns (see
+     * ColumnExpression). Parameter names (and the expression) are formatted to
+     * delete non alphanumeric characters.
+     *
+     * @param expression Expression to compile
+     * @param expressionType The type of the result of evaluating the expression
+     * (a numeric or boolean type)
+     * @param parameterNames The name of the parameters of the expression
+     * @param parameterTypes The type of the parameters of the expression
+     * (numeric or boolean types)
+     * @return The compiled expression
+     * @throws Exception add to a Compile, Parse or Scan Exception
+     */
+    public ColumnExpression compileColumnExpression(String expression, Class<?> expressionType, String[] parameterNames,
+            Class<?>[] parameterTypes) throws Exception {
+        String formattedExpression = formatExpression(expression, parameterNames);
+        String[] formattedParameterNames = formatParameterNames(parameterNames);
+        String cacheKey = cacheKey(formattedExpression, expressionType, formattedParameterNames, parameterTypes);
+
+        ColumnExpression compiled = columnExpressions.get(cacheKey);
+        if (compiled == null) {
+            compiled = new ColumnExpression(formattedExpression, expressionType, formattedParameterNames, parameterTypes);
+            if (columnExpressions.size() >= MAX_CACHED_EXPRESSIONS) {
+                columnExpressions.clear();
+            }
+            ColumnExpression previous = columnExpressions.putIfAbsent(cacheKey, compiled);
+            if (previous != null) {
+                compiled = previous;
+            }
         }
+        return compiled;
+    }
 
+    /**
+     * Builds the key to store a compiled expression in the cache
+     *
+     * @param expression Expression (formatted)
+     * @param expressionType The type of the result of evaluating the expression
+     * @param parameterNames The name of the parameters (formatted)
+     * @param parameterTypes The type of the parameters
+     * @return the key for the cache
+     */
+    private static String cacheKey(String expression, Class<?> expressionType, String[] parameterNames, Class<?>[] parameterTypes) {
+        StringBuilder key = new StringBuilder(expression);
+        key.append('\u0000').append(expressionType == null ? "" : expressionType.getName());
+        for (int i = 0; i < parameterNames.length; i++) {
+            key.append('\u0000').append(parameterNames[i]).append(':').append(parameterTypes[i].getName());
+        }
+        return key.toString();
     }
 
     /**
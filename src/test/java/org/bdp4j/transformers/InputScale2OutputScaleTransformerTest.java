@@ -29,6 +29,7 @@ package org.bdp4j.transformers;
 import java.util.ArrayList;
 import java.util.List;
 import org.bdp4j.transformers.attribute.InputScale2OutputScaleTransformer;
+import org.bdp4j.types.ColumnStatistics;
 import org.bdp4j.util.Pair;
 import org.junit.Before;
 import org.junit.Test;
@@ -95,4 +96,51 @@ public class InputScale2OutputScaleTransformerTest {
         assertEquals(expResult, result);
     }
 
+    /**
+     * Test of the constructor using the range of values of a column
+     */
+    @Test
+    public void testStatisticsScale() {
+        ColumnStatistics statistics = new ColumnStatistics();
+        statistics.add(-1d);
+        statistics.add(Double.NaN);
+        statistics.add(1d);
+        InputScale2OutputScaleTransformer transformer = new InputScale2OutputScaleTransformer(statistics, new Pair<>(0d, 10d));
+        assertEquals(7.5, transformer.transform(0.5), 0.0);
+    }
+
+    /**
+     * Test that columns without values are rejected
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testStatisticsScaleWithoutValues() {
+        ColumnStatistics statistics = new ColumnStatistics();
+        statistics.add(Double.NaN);
+        new InputScale2OutputScaleTransformer(statistics, new Pair<>(0d, 10d));
+    }
+
+    /**
+     * Test of the constructor using quantiles of a column
+     */
+    @Test
+    public void testQuantileScale() {
+        ColumnStatistics statistics = new ColumnStatistics(true);
+        for (int i = 0; i <= 100; i++) {
+            statistics.add(i);
+        }
+        statistics.add(1e6);
+        InputScale2OutputScaleTransformer transformer = new InputScale2OutputScaleTransformer(statistics, 0d, 0.99, new Pair<>(0d, 10d));
+        assertEquals(5d, transformer.transform(50d), 0.1);
+    }
+
+    /**
+     * Test that quantiles require statistics with sketches
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testQuantileScaleWithoutSketches() {
+        ColumnStatistics statistics = new ColumnStatistics();
+        statistics.add(1d);
+        statistics.add(2d);
+        new InputScale2OutputScaleTransformer(statistics, 0.01, 0.99, new Pair<>(0d, 10d));
+    }
 }
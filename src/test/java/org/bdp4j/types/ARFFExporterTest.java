@@ -0,0 +1,99 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Test;
+import weka.core.Attribute;
+import weka.core.Instances;
+import weka.core.converters.ArffSaver;
+
+public class ARFFExporterTest {
+
+    Dataset dataset;
+
+    @Before
+    public void setUp() {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("id", true));
+        attributes.add(new Attribute("length"));
+        attributes.add(new Attribute("count"));
+        attributes.add(new Attribute("date", "yyyy-MM-dd"));
+        attributes.add(new Attribute("target value", Arrays.asList("0", "1 1")));
+        dataset = new Dataset("test relation", attributes, 0);
+        for (int i = 0; i < 100; i++) {
+            dataset.addRow(new Object[]{(i % 5 == 0) ? "" : "id, " + i, (i % 9 == 0) ? null : i / 7d - 3,
+                (i % 3 == 0) ? 0d : i, "2019-01-" + (i % 28 + 1), String.valueOf(i % 2).replace("1", "1 1")});
+        }
+    }
+
+    private String arffSaverOutput(Instances instances) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ArffSaver saver = new ArffSaver();
+        saver.setInstances(instances);
+        saver.setDestination(output);
+        saver.writeBatch();
+        return "\n" + output.toString("UTF-8");
+    }
+
+    @Test
+    public void testSameOutputAsWeka() throws Exception {
+        String expected = arffSaverOutput(dataset.getWekaDatasetView());
+        for (Dataset current : new Dataset[]{dataset, new Dataset(dataset).toColumnar()}) {
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            new ARFFExporter(current).setChunkSize(7).export(actual);
+            assertEquals(expected, actual.toString("UTF-8"));
+        }
+    }
+
+    @Test
+    public void testSparseOutput() throws Exception {
+        Dataset sparse = new Dataset(dataset).toSparse();
+        String expected = arffSaverOutput(sparse.getWekaDatasetView());
+        for (Dataset current : new Dataset[]{sparse, new Dataset(dataset).toColumnar()}) {
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            new ARFFExporter(current).setSparse(true).setChunkSize(3).export(actual);
+            assertEquals(expected, actual.toString("UTF-8"));
+        }
+    }
+
+    @Test
+    public void testCompressed() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        new ARFFExporter(dataset).setComments("% test").setCompressed(true).export(compressed);
+        try (InputStreamReader reader = new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray())), "UTF-8")) {
+            StringBuilder text = new StringBuilder();
+            char[] buffer = new char[1024];
+            for (int read = reader.read(buffer); read >= 0; read = reader.read(buffer)) {
+                text.append(buffer, 0, read);
+            }
+            assertEquals("% test\n" + arffSaverOutput(dataset.getWekaDatasetView()), text.toString());
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import weka.core.Attribute;
+
+public class ArrowExporterTest {
+
+    Dataset dataset;
+
+    @Before
+    public void setUp() {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("id", true));
+        attributes.add(new Attribute("length"));
+        attributes.add(new Attribute("date", "yyyy-MM-dd"));
+        attributes.add(new Attribute("target", Arrays.asList("ham", "spam")));
+        dataset = new Dataset("test", attributes, 0);
+        for (int i = 0; i < 100; i++) {
+            dataset.addRow(new Object[]{"id" + i, (i % 9 == 0) ? null : i / 7d - 3, "2019-01-" + (i % 28 + 1), (i % 2 == 0) ? "ham" : "spam"});
+        }
+    }
+
+    private ByteBuffer export(Dataset current, boolean fileFormat) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new ArrowExporter(current).setFileFormat(fileFormat).setChunkSize(7).export(output);
+        return ByteBuffer.wrap(output.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Returns the position of a field of a flatbuffer table (0 if absent)
+     */
+    private static int field(ByteBuffer buffer, int table, int slot) {
+        int vtable = table - buffer.getInt(table);
+        if (4 + 2 * slot >= buffer.getShort(vtable)) {
+            return 0;
+        }
+        int offset = buffer.getShort(vtable + 4 + 2 * slot);
+        return (offset == 0) ? 0 : table + offset;
+    }
+
+    /**
+     * Follows a flatbuffer offset
+     */
+    private static int deref(ByteBuffer buffer, int position) {
+        return position + buffer.getInt(position);
+    }
+
+    /**
+     * Returns the messages of a stream (position of the metadata table, body
+     * position) until the end of stream
+     */
+    private static List<int[]> messages(ByteBuffer buffer, int position) {
+        List<int[]> messages = new ArrayList<>();
+        while (true) {
+            assertEquals(0, position % 8);
+            assertEquals(0xFFFFFFFF, buffer.getInt(position));
+            int length = buffer.getInt(position + 4);
+            if (length == 0) {
+                return messages;
+            }
+            int message = deref(buffer, position + 8);
+            messages.add(new int[]{message, position + 8 + length});
+            position += 8 + length + (int) buffer.getLong(field(buffer, message, 3));
+        }
+    }
+
+    @Test
+    public void testFileFormat() throws Exception {
+        for (Dataset current : new Dataset[]{dataset, new Dataset(dataset).toColumnar()}) {
+            ByteBuffer buffer = export(current, true);
+            byte[] magic = new byte[6];
+            buffer.get(magic);
+            assertEquals("ARROW1", new String(magic, "US-ASCII"));
+            buffer.position(buffer.limit() - 6);
+            buffer.get(magic);
+            assertEquals("ARROW1", new String(magic, "US-ASCII"));
+
+            List<int[]> messages = messages(buffer, 8);
+            assertEquals(2 + 15, messages.size());
+            int rows = 0;
+            for (int i = 0; i < messages.size(); i++) {
+                int message = messages.get(i)[0];
+                assertEquals(4, buffer.getShort(field(buffer, message, 0)));
+                assertEquals((i == 0) ? 1 : (i == 1) ? 2 : 3, buffer.get(field(buffer, message, 1)));
+                if (i > 1) {
+                    rows += buffer.getLong(field(buffer, deref(buffer, field(buffer, message, 2)), 0));
+                }
+            }
+            assertEquals(100, rows);
+
+            // The footer locates the record batches
+            int footerLength = buffer.getInt(buffer.limit() - 10);
+            int footer = deref(buffer, buffer.limit() - 10 - footerLength);
+            int blocks = deref(buffer, field(buffer, footer, 3));
+            assertEquals(15, buffer.getInt(blocks));
+            for (int i = 0; i < 15; i++) {
+                long position = buffer.getLong(blocks + 4 + 24 * i);
+                assertEquals(messages.get(i + 2)[0], deref(buffer, (int) position + 8));
+            }
+        }
+    }
+
+    @Test
+    public void testValues() throws Exception {
+        ByteBuffer buffer = export(dataset, false);
+        List<int[]> messages = messages(buffer, 0);
+        int[] firstBatch = messages.get(2);
+        int recordBatch = deref(buffer, field(buffer, firstBatch[0], 2));
+        int buffers = deref(buffer, field(buffer, recordBatch, 2)) + 4;
+        // id: validity, offsets, data; length: validity, values
+        int offsets = firstBatch[1] + (int) buffer.getLong(buffers + 16);
+        int data = firstBatch[1] + (int) buffer.getLong(buffers + 32);
+        byte[] id = new byte[buffer.getInt(offsets + 8) - buffer.getInt(offsets + 4)];
+        buffer.position(data + buffer.getInt(offsets + 4));
+        buffer.get(id);
+        assertEquals("id1", new String(id, "UTF-8"));
+        int validity = firstBatch[1] + (int) buffer.getLong(buffers + 48);
+        assertEquals(0x7E, buffer.get(validity) & 0xFF);
+        int values = firstBatch[1] + (int) buffer.getLong(buffers + 64);
+        assertEquals(1 / 7d - 3, buffer.getDouble(values + 8), 0d);
+        assertTrue(buffer.getLong(buffers + 72) == 7 * 8);
+    }
+}
@@ -0,0 +1,238 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import org.bdp4j.transformers.attribute.Enum2IntTransformer;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import weka.core.Attribute;
+import weka.core.Instances;
+
+public class BinaryDatasetTest {
+
+    /**
+     * A transformer with a field that is serializable but not allowed when
+     * reading binary datasets
+     */
+    private static class DatedTransformer extends Enum2IntTransformer {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Date created = new Date();
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    Dataset dataset;
+
+    @Before
+    public void setUp() {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("id", true));
+        attributes.add(new Attribute("length"));
+        attributes.add(new Attribute("date", "yyyy-MM-dd"));
+        attributes.add(new Attribute("target", Arrays.asList("ham", "spam")));
+        Dataset built = new Dataset("test", attributes, 0);
+        for (int i = 0; i < 10; i++) {
+            built.addRow(new Object[]{"id" + i, (i % 4 == 0) ? null : i / 3d, "2019-01-" + (i + 10), (i % 2 == 0) ? "ham" : "spam"});
+        }
+        Instances instances = built.getWekaDataset();
+        instances.setClassIndex(3);
+        instances.instance(2).setWeight(2.5);
+        dataset = new Dataset(instances);
+    }
+
+    private String arff(Dataset current) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new ARFFExporter(current).setSparse(false).setParallel(false).export(output);
+        return output.toString("UTF-8");
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        File file = folder.newFile("test.bin");
+        Map<String, Transformer> transformers = new HashMap<>();
+        Map<String, Integer> values = new HashMap<>();
+        values.put("ham", 0);
+        values.put("spam", 1);
+        transformers.put("target", new Enum2IntTransformer(values));
+        dataset.saveBinary(file, transformers);
+
+        BinaryDatasetReader reader = new BinaryDatasetReader(file);
+        Dataset loaded = reader.load();
+        assertTrue(loaded.isColumnar());
+        assertEquals(arff(dataset), arff(loaded));
+        assertEquals(3, loaded.getWekaDatasetView().classIndex());
+        assertEquals(1d, reader.getTransformersList().get("target").transform("spam"), 0d);
+
+        // Mapped columns are copied when they are modified
+        Dataset copy = new Dataset(loaded);
+        copy.addRow(new Object[]{"new id", 1d, "2019-02-01", "spam"});
+        assertEquals(11, copy.getWekaDatasetView().numInstances());
+        assertEquals(10, loaded.getWekaDatasetView().numInstances());
+        assertEquals(arff(dataset), arff(loaded));
+    }
+
+    @Test
+    public void testRowGroups() throws Exception {
+        Instances header = dataset.getWekaDatasetView();
+        for (boolean sparse : new boolean[]{false, true}) {
+            File file = folder.newFile("groups-" + sparse + ".bin");
+            try (BinaryDatasetWriter writer = new BinaryDatasetWriter(file, new Instances(header, 0), sparse, 4)) {
+                for (int row = 0; row < header.numInstances(); row++) {
+                    writer.addRow(header.instance(row).toDoubleArray(), header.instance(row).weight());
+                }
+            }
+            assertEquals(arff(dataset), arff(Dataset.loadBinary(file)));
+        }
+    }
+
+    @Test
+    public void testNonSerializableTransformer() throws Exception {
+        Map<String, Transformer> transformers = new HashMap<>();
+        transformers.put("target", new Enum2IntTransformer() {
+            private static final long serialVersionUID = 1L;
+
+            // Not serializable
+            private final Object lock = new Object();
+        });
+        File file = folder.newFile("transformers.bin");
+        try (BinaryDatasetWriter writer = new BinaryDatasetWriter(file, new Instances(dataset.getWekaDatasetView(), 0), false)) {
+            writer.setTransformers(transformers);
+            fail("Transformers that cannot be serialized should be rejected");
+        } catch (NotSerializableException ex) {
+            // The error is raised before writing any row
+        }
+    }
+
+    @Test
+    public void testTransformerClassNotAllowed() throws Exception {
+        Map<String, Transformer> transformers = new HashMap<>();
+        transformers.put("target", new DatedTransformer());
+        File file = folder.newFile("not-allowed.bin");
+        dataset.saveBinary(file, transformers);
+        try {
+            new BinaryDatasetReader(file).load();
+            fail("Transformers with classes that are not allowed should be rejected");
+        } catch (InvalidClassException ex) {
+        }
+    }
+
+    @Test
+    public void testCorruptedFooterPosition() throws Exception {
+        File file = folder.newFile("corrupted.bin");
+        dataset.saveBinary(file, null);
+        long size = file.length();
+        for (long footerPosition : new long[]{-1L, size, Long.MAX_VALUE, 8L}) {
+            try (RandomAccessFile data = new RandomAccessFile(file, "rw")) {
+                data.seek(size - 16);
+                data.writeLong(Long.reverseBytes(footerPosition));
+            }
+            try {
+                Dataset.loadBinary(file);
+                fail("Corrupted files should be rejected");
+            } catch (IOException ex) {
+            }
+        }
+    }
+
+    @Test
+    public void testManyRowGroups() throws Exception {
+        // One row per group: 100000 blocks mapped from a single region
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        for (int column = 0; column < 100; column++) {
+            attributes.add(new Attribute("c" + column));
+        }
+        File file = folder.newFile("many-groups.bin");
+        try (BinaryDatasetWriter writer = new BinaryDatasetWriter(file, new Instances("many", attributes, 0), false, 1)) {
+            double[] values = new double[attributes.size()];
+            for (int row = 0; row < 1000; row++) {
+                for (int column = 0; column < values.length; column++) {
+                    values[column] = row * 1000 + column;
+                }
+                writer.addRow(values, 1d);
+            }
+        }
+        Dataset loaded = Dataset.loadBinary(file);
+        assertEquals(1000, loaded.numRows());
+        for (int row = 0; row < 1000; row += 37) {
+            for (int column = 0; column < 100; column += 7) {
+                assertEquals(row * 1000 + column, loaded.value(row, column), 0d);
+            }
+        }
+        assertEquals(999099d, loaded.value(999, 99), 0d);
+    }
+
+    @Test
+    public void testSparse() throws Exception {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("id", true));
+        attributes.add(new Attribute("a"));
+        attributes.add(new Attribute("b"));
+        Dataset sparse = Dataset.createSparse("sparse", attributes, 0);
+        for (int i = 0; i < 9; i++) {
+            sparse.addRow(new Object[]{"id" + (i % 3), (i % 3 == 0) ? 1d : 0d, (double) (i % 2)});
+        }
+        File file = folder.newFile("sparse.bin");
+        sparse.saveBinary(file, null);
+        Dataset loaded = Dataset.loadBinary(file);
+        assertTrue(loaded.isSparse());
+        assertEquals(arff(sparse), arff(loaded));
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        File file = folder.newFile("serialized.bin");
+        dataset.saveBinary(file, null);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(Dataset.loadBinary(file));
+        }
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Object deserialized = input.readObject();
+            assertThat(deserialized, instanceOf(Dataset.class));
+            assertEquals(arff(dataset), arff((Dataset) deserialized));
+        }
+    }
+}
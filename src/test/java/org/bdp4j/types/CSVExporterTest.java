@@ -0,0 +1,75 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Test;
+import weka.core.Attribute;
+import weka.core.converters.CSVSaver;
+
+public class CSVExporterTest {
+
+    Dataset dataset;
+
+    @Before
+    public void setUp() {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("id", true));
+        attributes.add(new Attribute("length"));
+        attributes.add(new Attribute("date", "yyyy-MM-dd"));
+        attributes.add(new Attribute("target value", Arrays.asList("0", "1 1")));
+        dataset = new Dataset("test", attributes, 0);
+        for (int i = 0; i < 100; i++) {
+            dataset.addRow(new Object[]{"id, " + i, (i % 9 == 0) ? null : i / 7d - 3, "2019-01-" + (i % 28 + 1), String.valueOf(i % 2).replace("1", "1 1")});
+        }
+    }
+
+    @Test
+    public void testSameOutputAsWeka() throws Exception {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        CSVSaver saver = new CSVSaver();
+        saver.setInstances(dataset.getWekaDatasetView());
+        saver.setFieldSeparator(",");
+        saver.setDestination(expected);
+        saver.writeBatch();
+
+        for (Dataset current : new Dataset[]{dataset, new Dataset(dataset).toColumnar()}) {
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            new CSVExporter(current).setChunkSize(7).export(actual);
+            assertEquals(expected.toString("UTF-8"), actual.toString("UTF-8"));
+        }
+    }
+
+    @Test
+    public void testSequential() throws Exception {
+        ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        new CSVExporter(dataset).setChunkSize(3).export(parallel);
+        ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+        new CSVExporter(dataset).setParallel(false).export(sequential);
+        assertEquals(sequential.toString("UTF-8"), parallel.toString("UTF-8"));
+        assertEquals(101, sequential.toString("UTF-8").split("\n").length);
+    }
+}
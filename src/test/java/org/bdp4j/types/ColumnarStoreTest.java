@@ -0,0 +1,152 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import weka.core.Attribute;
+import weka.core.Instances;
+import weka.core.Utils;
+
+public class ColumnarStoreTest {
+
+    ColumnarStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("id", true));
+        attributes.add(new Attribute("length"));
+        attributes.add(new Attribute("target", Arrays.asList("0", "1")));
+        store = new ColumnarStore("test", attributes, 1);
+
+        store.appendRow(new double[]{store.encode(0, "a"), 18d, store.encode(2, "1")}, 1d);
+        store.appendRow(new double[]{store.encode(0, "b"), 20d, Utils.missingValue()}, 1d);
+        store.appendRow(new double[]{store.encode(0, "a"), 22d, store.encode(2, "0")}, 1d);
+    }
+
+    @Test
+    public void testValues() {
+        assertEquals(3, store.numRows());
+        assertEquals(1, store.columnIndex("length"));
+        assertEquals(0d, store.value(2, 0), 0d);
+        assertEquals(22d, store.value(2, 1), 0d);
+        assertTrue(Utils.isMissingValue(store.value(1, 2)));
+        assertEquals(2, ((ColumnarStore.StringColumn) store.column(0)).dictionarySize());
+    }
+
+    @Test
+    public void testToInstances() {
+        Instances instances = store.toInstances();
+        assertEquals(3, instances.numInstances());
+        assertEquals("b", instances.instance(1).stringValue(0));
+        assertEquals("a", instances.instance(2).stringValue(0));
+        assertEquals("1", instances.instance(0).stringValue(2));
+        assertTrue(instances.instance(1).isMissing(2));
+
+        ColumnarStore copy = ColumnarStore.fromInstances(instances);
+        assertEquals(instances.toString(), copy.toInstances().toString());
+    }
+
+    @Test
+    public void testShare() throws Exception {
+        ColumnarStore shared = store.share();
+        shared.appendRow(new double[]{shared.encode(0, "c"), 24d, 0d}, 2d);
+        store.appendRow(new double[]{store.encode(0, "d"), 26d, 1d}, 1d);
+
+        assertEquals(4, shared.numRows());
+        assertEquals(4, store.numRows());
+        assertEquals(24d, shared.value(3, 1), 0d);
+        assertEquals(26d, store.value(3, 1), 0d);
+        assertEquals("c", shared.toInstances().instance(3).stringValue(0));
+        assertEquals("d", store.toInstances().instance(3).stringValue(0));
+        assertEquals(2d, shared.weight(3), 0d);
+        assertEquals(1d, store.weight(3), 0d);
+    }
+
+    @Test
+    public void testSparseStore() {
+        Instances instances = store.toInstances();
+        ColumnarStore sparse = ColumnarStore.fromInstances(instances, true);
+        sparse.appendRow(new double[]{0d, 0d, 1d}, 1d);
+
+        assertTrue(sparse.isSparse());
+        assertTrue(sparse.column(1) instanceof ColumnarStore.SparseNumericColumn);
+        assertEquals(3, ((ColumnarStore.SparseNumericColumn) sparse.column(1)).numNonZero());
+        assertEquals(0d, sparse.value(3, 1), 0d);
+        assertEquals(20d, sparse.value(1, 1), 0d);
+        assertEquals("{0 a,2 1}", sparse.toInstances().instance(3).toString());
+    }
+
+    @Test
+    public void testSetValue() {
+        ColumnarStore shared = store.share();
+        shared.setValue(1, 1, 21d);
+        shared.setValue(0, 2, Utils.missingValue());
+        assertEquals(21d, shared.value(1, 1), 0d);
+        assertTrue(Utils.isMissingValue(shared.value(0, 2)));
+        assertEquals(20d, store.value(1, 1), 0d);
+        assertEquals(1d, store.value(0, 2), 0d);
+
+        ColumnarStore sparse = ColumnarStore.fromInstances(store.toInstances(), true);
+        sparse.setValue(1, 1, 0d);
+        sparse.setValue(0, 1, 5d);
+        sparse.setValue(1, 1, 7d);
+        assertEquals(3, ((ColumnarStore.SparseNumericColumn) sparse.column(1)).numNonZero());
+        assertEquals(5d, sparse.value(0, 1), 0d);
+        assertEquals(7d, sparse.value(1, 1), 0d);
+        assertEquals(22d, sparse.value(2, 1), 0d);
+    }
+
+    @Test
+    public void testPackedColumns() {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("binary"));
+        attributes.add(new Attribute("code"));
+        attributes.add(new Attribute("length"));
+        ColumnarStore packed = new ColumnarStore("test", attributes, 100);
+        for (int row = 0; row < 100; row++) {
+            packed.appendRow(new double[]{row % 2, (row % 7 == 0) ? Utils.missingValue() : row % 50 - 10, row * 0.5}, 1d);
+        }
+        String expected = packed.toInstances().toString();
+
+        assertEquals(2, packed.compact());
+        assertEquals(1, ((ColumnarStore.PackedNumericColumn) packed.column(0)).getWidth());
+        assertEquals(8, ((ColumnarStore.PackedNumericColumn) packed.column(1)).getWidth());
+        assertTrue(packed.column(2) instanceof ColumnarStore.NumericColumn);
+        assertEquals(expected, packed.toInstances().toString());
+
+        // Values out of range widen the column
+        packed.appendRow(new double[]{2d, 1000d, 0d}, 1d);
+        assertTrue(packed.column(0) instanceof ColumnarStore.NumericColumn);
+        assertTrue(packed.column(1) instanceof ColumnarStore.NumericColumn);
+        assertEquals(1d, packed.value(99, 0), 0d);
+        assertEquals(2d, packed.value(100, 0), 0d);
+        assertEquals(1000d, packed.value(100, 1), 0d);
+        assertTrue(Utils.isMissingValue(packed.value(98, 1)));
+        assertEquals(39d, packed.value(99, 1), 0d);
+    }
+}
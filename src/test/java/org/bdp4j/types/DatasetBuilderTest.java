@@ -0,0 +1,80 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import weka.core.Attribute;
+import weka.core.Instance;
+
+/**
+ * Tests for DatasetBuilder
+ *
+ * @author María Novo
+ */
+public class DatasetBuilderTest {
+
+    private ArrayList<Attribute> attributes;
+
+    @Before
+    public void setUp() {
+        attributes = new ArrayList<>();
+        attributes.add(new Attribute("id", true));
+        attributes.add(new Attribute("length"));
+        attributes.add(new Attribute("target", Arrays.asList("ham", "spam")));
+    }
+
+    @Test
+    public void testAddRows() {
+        DatasetBuilder builder = new DatasetBuilder("test", attributes, 3);
+        assertTrue(builder.addRow(new Object[]{"1", 18, "spam"}));
+        assertTrue(builder.addRow(new double[]{builder.build().attribute(0).addStringValue("2"), 15d, 0d}));
+        assertTrue(builder.set("id", "3").set("length", 11d).set(2, "ham").commitRow());
+
+        Dataset dataset = builder.build();
+        assertEquals(3, dataset.getInstances().size());
+        Instance first = dataset.getInstances().get(0);
+        assertEquals("1", first.stringValue(0));
+        assertEquals(18d, first.value(1), 0d);
+        assertEquals("spam", first.stringValue(2));
+        Instance last = dataset.getInstances().get(2);
+        assertEquals("3", last.stringValue(0));
+        assertEquals(11d, last.value(1), 0d);
+        assertEquals("ham", last.stringValue(2));
+    }
+
+    @Test
+    public void testWrongRows() {
+        DatasetBuilder builder = new DatasetBuilder("test", attributes, 0);
+        assertFalse(builder.addRow(new Object[]{"1", 18}));
+        assertFalse(builder.addRow(new Object[]{"1", 18, "unknown"}));
+        assertFalse(builder.set("id", "1").set("wrong", 1d).commitRow());
+        assertTrue(builder.set("id", "2").commitRow());
+
+        Dataset dataset = builder.build();
+        assertEquals(1, dataset.getInstances().size());
+        assertTrue(dataset.getInstances().get(0).isMissing(1));
+    }
+}
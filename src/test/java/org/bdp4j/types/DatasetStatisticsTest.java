@@ -0,0 +1,151 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import weka.core.Attribute;
+
+public class DatasetStatisticsTest {
+
+    Dataset dataset;
+
+    @Before
+    public void setUp() {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("id", true));
+        attributes.add(new Attribute("length"));
+        attributes.add(new Attribute("target", Arrays.asList("ham", "spam")));
+        dataset = new Dataset("test", attributes, 0);
+        for (int i = 0; i < 10000; i++) {
+            dataset.addRow(new Object[]{"id" + i, (i % 10 == 0) ? null : (i % 4 == 0) ? 0d : i / 100d, (i % 2 == 0) ? "ham" : "spam"});
+        }
+    }
+
+    /**
+     * Computes the statistics of a column using two passes
+     */
+    private static double[] expected(Dataset dataset, int column) {
+        double count = 0, missing = 0, zeros = 0, sum = 0, min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+        for (int row = 0; row < dataset.numRows(); row++) {
+            double value = dataset.value(row, column);
+            if (Double.isNaN(value)) {
+                missing++;
+                continue;
+            }
+            count++;
+            zeros += (value == 0d) ? 1 : 0;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        double mean = sum / count;
+        double squares = 0;
+        for (int row = 0; row < dataset.numRows(); row++) {
+            double value = dataset.value(row, column);
+            if (!Double.isNaN(value)) {
+                squares += (value - mean) * (value - mean);
+            }
+        }
+        return new double[]{count, missing, zeros, min, max, mean, squares / count};
+    }
+
+    private static void assertStatistics(double[] expected, ColumnStatistics statistics) {
+        assertEquals(expected[0], statistics.getCount(), 0d);
+        assertEquals(expected[1], statistics.getMissingCount(), 0d);
+        assertEquals(expected[2], statistics.getZeroCount(), 0d);
+        assertEquals(expected[3], statistics.getMin(), 0d);
+        assertEquals(expected[4], statistics.getMax(), 0d);
+        assertEquals(expected[5], statistics.getMean(), 1e-9);
+        assertEquals(expected[6], statistics.getVariance(), 1e-6);
+    }
+
+    @Test
+    public void testStatistics() {
+        for (Dataset current : new Dataset[]{dataset, new Dataset(dataset).toColumnar(), new Dataset(dataset).toSparse()}) {
+            DatasetStatistics statistics = current.getStatistics();
+            assertEquals(10000, statistics.numRows());
+            assertStatistics(expected(dataset, 1), statistics.getColumn("length"));
+            assertStatistics(expected(dataset, 2), statistics.getColumn(2));
+            assertEquals(0.5, statistics.getColumn("target").getZeroFraction(), 0d);
+            assertNull(statistics.getColumn("unknown"));
+        }
+    }
+
+    @Test
+    public void testIncremental() {
+        dataset.getStatistics();
+        dataset.addRow(new Object[]{"new", -5d, "spam"});
+        dataset.addRow(new Object[]{"new", null, "ham"});
+        DatasetStatistics statistics = dataset.getStatistics();
+        assertEquals(10002, statistics.numRows());
+        assertStatistics(expected(dataset, 1), statistics.getColumn("length"));
+
+        // Other modifications discard the statistics
+        dataset.dropColumns(Arrays.asList("length"));
+        assertEquals(2, dataset.getStatistics().numColumns());
+    }
+
+    @Test
+    public void testMerge() {
+        ColumnStatistics all = new ColumnStatistics();
+        ColumnStatistics first = new ColumnStatistics();
+        ColumnStatistics second = new ColumnStatistics();
+        for (int i = 0; i < 100; i++) {
+            double value = Math.sin(i) * 1e6 + 1e9;
+            all.add(value);
+            (i < 30 ? first : second).add(value);
+        }
+        first.merge(second);
+        assertEquals(all.getCount(), first.getCount());
+        assertEquals(all.getMean(), first.getMean(), 1e-6);
+        assertEquals(all.getVariance(), first.getVariance(), all.getVariance() * 1e-12);
+        assertEquals(all.getMin(), first.getMin(), 0d);
+        assertEquals(all.getMax(), first.getMax(), 0d);
+    }
+
+    @Test
+    public void testSketches() {
+        assertEquals(-1, dataset.getStatistics().getColumn("length").getDistinctCount());
+        double[] sorted = new double[dataset.numRows()];
+        for (int row = 0; row < sorted.length; row++) {
+            sorted[row] = dataset.value(row, 1);
+        }
+        Arrays.sort(sorted);
+        for (Dataset current : new Dataset[]{dataset, new Dataset(dataset).toColumnar(), new Dataset(dataset).toSparse()}) {
+            DatasetStatistics statistics = current.getStatistics(true);
+            assertTrue(statistics.hasSketches());
+            // 7000 non-zero values, zero and the missing values (not counted)
+            assertEquals(7001, statistics.getColumn("length").getDistinctCount(), 7001 * 0.05);
+            assertEquals(2, statistics.getColumn("target").getDistinctCount());
+            assertEquals(10000, statistics.getColumn("id").getDistinctCount(), 10000 * 0.05);
+            // Missing values are sorted at the end
+            double median = statistics.getColumn("length").getMedian();
+            assertEquals(sorted[4500], median, sorted[4700] - sorted[4300]);
+        }
+    }
+}
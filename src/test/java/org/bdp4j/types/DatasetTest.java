@@ -21,8 +21,13 @@
  */
 package org.bdp4j.types;
 
+import java.io.File;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import static org.bdp4j.matchers.IsEqualToInstance.containsInstancesInOrder;
@@ -32,9 +37,12 @@ import org.junit.After;
 import org.junit.Before;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import org.junit.Test;
 import weka.core.Attribute;
 import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
 
 public class DatasetTest {
 
@@ -291,6 +299,34 @@ public class DatasetTest {
         assertThat(actualInstances, containsInstancesInOrder(expected));
     }
 
+    @Test
+    public void testJoinAttributesByMathExpressionErrors() {
+        try {
+            dataset.joinAttributesByMathExpression("length", "length_after_drop / length", Double.class, new String[]{"length", "length_after_drop"}, new Class<?>[]{Double.class, Double.class}, false, false, 0d);
+            fail("Existing attributes should not be replaced");
+        } catch (IllegalStateException ex) {
+        }
+        try {
+            dataset.joinAttributesByMathExpression("ratio", "length_after_drop / size", Double.class, new String[]{"size", "length_after_drop"}, new Class<?>[]{Double.class, Double.class}, false, false, 0d);
+            fail("Unknown attributes should not be joined");
+        } catch (IllegalArgumentException ex) {
+        }
+        assertThat(dataset.getAttributes(), contains("id", "length", "length_after_drop", "bn:00071570n", "bn:00019048n", "target"));
+    }
+
+    @Test
+    public void testJoinAttributesWithoutExistingAttribute() {
+        List<String> listAttributeName = Arrays.asList("bn:00071570n", "bn:00019048n");
+
+        Dataset actual = this.dataset.joinAttributes(listAttributeName, "bn:00071570n", Dataset.COMBINE_SUM, false);
+        assertThat(actual.getAttributes(), contains("id", "length", "length_after_drop", "bn:00071570n", "bn:00019048n", "target"));
+        assertEquals(1d, actual.getInstances().get(0).value(3), 0d);
+
+        actual = this.dataset.joinAttributes(listAttributeName, "bn", Dataset.COMBINE_SUM, false);
+        assertThat(actual.getAttributes(), contains("id", "length", "length_after_drop", "bn", "target"));
+        assertEquals(2d, actual.getInstances().get(0).value(3), 0d);
+    }
+
     @Test
     public void testJoinAttributesExistingNameSeveralAttributes() {
         attributes = new ArrayList<>();
@@ -434,4 +470,400 @@ public class DatasetTest {
 
     }
 
+    @Test
+    public void testEvaluateColumnsByLabel() {
+        ArrayList<Attribute> labeled = new ArrayList<>();
+        labeled.add(new Attribute("length"));
+        labeled.add(new Attribute("target", Arrays.asList("ham", "spam")));
+        Dataset current = new Dataset("labeled", labeled, 3);
+        current.addRows(new Object[][]{{18d, "spam"}, {20d, "ham"}, {10d, "spam"}});
+
+        Map<String, Integer> expected = new HashMap<>();
+        expected.put("ham", 1);
+        expected.put("spam", 1);
+        assertEquals(expected, current.evaluateColumnsByLabel("(length > 14.0) ? 1: 0", int.class, new String[]{"length"}, new Class<?>[]{double.class}, "target"));
+
+        // evaluateColumns keeps the index of the value as key
+        expected.put("ham", 0);
+        expected.put("spam", 0);
+        expected.put("0", 1);
+        expected.put("1", 1);
+        assertEquals(expected, current.evaluateColumns("(length > 14.0) ? 1: 0", int.class, new String[]{"length"}, new Class<?>[]{double.class}, "target"));
+    }
+
+    @Test
+    public void testInsertColumnsAt() {
+        boolean result = dataset.insertColumnsAt(new ColumnDefinition[]{
+            ColumnDefinition.doubleColumn("weight", 2d),
+            ColumnDefinition.stringColumn("lang", "en")}, 1);
+
+        assertEquals(true, result);
+        assertThat(dataset.getAttributes(), contains("id", "weight", "lang", "length", "length_after_drop", "bn:00071570n", "bn:00019048n", "target"));
+        Instance instance = dataset.getInstances().get(0);
+        assertEquals("1", instance.stringValue(0));
+        assertEquals(2d, instance.value(1), 0d);
+        assertEquals("en", instance.stringValue(2));
+        assertEquals(18d, instance.value(3), 0d);
+        assertEquals("1", instance.stringValue(7));
+    }
+
+    @Test
+    public void testApplySchemaChange() {
+        boolean result = dataset.applySchemaChange(new SchemaChange()
+                .deleteColumn("length_after_drop")
+                .insertColumn("weight", Double.class, 3d, 2)
+                .renameColumn("bn:00071570n", "drug")
+                .insertColumn("length", Double.class, 0d, 0));
+
+        assertEquals(true, result);
+        assertThat(dataset.getAttributes(), contains("id", "length", "weight", "drug", "bn:00019048n", "target"));
+        Instance instance = dataset.getInstances().get(0);
+        assertEquals(18d, instance.value(1), 0d);
+        assertEquals(3d, instance.value(2), 0d);
+        assertEquals(1d, instance.value(3), 0d);
+
+        result = dataset.applySchemaChange(new SchemaChange()
+                .deleteColumn("weight")
+                .insertColumn("wrong", Double.class, "default", 0));
+
+        assertEquals(false, result);
+        assertThat(dataset.getAttributes(), contains("id", "length", "weight", "drug", "bn:00019048n", "target"));
+    }
+
+    @Test
+    public void testKeepAndDropColumns() {
+        dataset.keepColumns(Arrays.asList("id", "length", "bn:00019048n", "target", "unknown"));
+        assertThat(dataset.getAttributes(), contains("id", "length", "bn:00019048n", "target"));
+
+        dataset.dropColumns(Arrays.asList("length", "unknown"));
+        assertThat(dataset.getAttributes(), contains("id", "bn:00019048n", "target"));
+        Instance instance = dataset.getInstances().get(0);
+        assertEquals("1", instance.stringValue(0));
+        assertEquals(1d, instance.value(1), 0d);
+        assertEquals("1", instance.stringValue(2));
+    }
+
+    @Test
+    public void testJoinAttributesOr() {
+        List<String> listAttributeName = new ArrayList<>();
+        listAttributeName.add("length");
+        listAttributeName.add("bn:00071570n");
+
+        Dataset actual = this.dataset.joinAttributes(listAttributeName, "any", Dataset.COMBINE_OR, true);
+
+        assertThat(actual.getAttributes(), contains("id", "length_after_drop", "bn:00019048n", "any", "target"));
+        Instance instance = actual.getInstances().get(0);
+        assertEquals("1", instance.stringValue(3));
+        assertEquals(12d, instance.value(1), 0d);
+    }
+
+    @Test
+    public void testReplaceColumnNamesChained() {
+        Map<String, String> columnsToReplace = new LinkedHashMap<>();
+        columnsToReplace.put("bn:00071570n", "drug");
+        columnsToReplace.put("length_after_drop", "drug");
+        columnsToReplace.put("drug", "medicine");
+        columnsToReplace.put("bn:00019048n", "medicine");
+
+        Dataset actual = this.dataset.replaceColumnNames(columnsToReplace, Dataset.COMBINE_SUM);
+
+        assertThat(actual.getAttributes(), contains("id", "length", "medicine", "target"));
+        assertEquals(14d, actual.getInstances().get(0).value(2), 0d);
+    }
+
+    @Test
+    public void testGetWekaDatasetView() {
+        Instances view = dataset.getWekaDatasetView();
+        assertEquals(1, view.numInstances());
+        assertEquals("1", view.instance(0).stringValue(0));
+        assertEquals(18d, view.get(0).value(1), 0d);
+
+        try {
+            view.instance(0).setValue(1, 5d);
+            fail("The view should be read-only");
+        } catch (UnsupportedOperationException ex) {
+        }
+        try {
+            view.delete(0);
+            fail("The view should be read-only");
+        } catch (UnsupportedOperationException ex) {
+        }
+
+        Instances copy = new Instances(view);
+        copy.instance(0).setValue(1, 5d);
+        assertEquals(5d, copy.instance(0).value(1), 0d);
+        assertEquals(18d, dataset.getInstances().get(0).value(1), 0d);
+    }
+
+    @Test
+    public void testColumnarDataset() {
+        Dataset columnar = new Dataset(dataset).toColumnar();
+        columnar.addRow(new Object[]{"2", 20d, 10d, 0d, 1d, "0"});
+        dataset.addRow(new Object[]{"2", 20d, 10d, 0d, 1d, "0"});
+
+        for (Dataset current : new Dataset[]{dataset, columnar}) {
+            current.addColumn("flag", String.class, "yes");
+            current.joinAttributes(Arrays.asList("bn:00071570n", "bn:00019048n"), "bn", Dataset.COMBINE_SUM);
+            current.dropColumns(Arrays.asList("length_after_drop"));
+        }
+
+        assertEquals(true, columnar.isColumnar());
+        assertEquals(dataset.getAttributes(), columnar.getAttributes());
+        assertEquals(dataset.getWekaDatasetView().toString(), columnar.getWekaDatasetView().toString());
+        assertEquals(true, columnar.isColumnar());
+
+        // Rows are built from the columns and write their changes back
+        Instance row = columnar.getInstances().get(1);
+        assertEquals(20d, row.value(1), 0d);
+        row.setValue(1, 25d);
+        row.setValue(0, "3");
+        Instance added = columnar.createDenseInstance();
+        added.setValue(0, "4");
+        added.setValue(1, 30d);
+        assertEquals(true, columnar.isColumnar());
+
+        Instances view = columnar.getWekaDatasetView();
+        assertEquals(3, view.numInstances());
+        assertEquals("3", view.instance(1).stringValue(0));
+        assertEquals(25d, view.instance(1).value(1), 0d);
+        assertEquals("4", view.instance(2).stringValue(0));
+        assertEquals(30d, view.instance(2).value(1), 0d);
+        assertEquals(true, view.instance(2).isMissing(2));
+    }
+
+    @Test
+    public void testAddRowAfterSchemaChange() {
+        for (Dataset current : new Dataset[]{dataset, new Dataset(dataset).toColumnar()}) {
+            assertEquals(true, current.addRow(new Object[]{"2", 20d, 10d, 0d, 1d, "0"}));
+            current.addColumn("flag", String.class, "yes");
+            assertEquals(false, current.addRow(new Object[]{"3", 22d, 11d, 1d, 0d, "1"}));
+            assertEquals(true, current.addRow(new Object[]{"3", 22d, 11d, 1d, 0d, "1", "no"}));
+
+            Instances view = current.getWekaDatasetView();
+            assertEquals(3, view.numInstances());
+            assertEquals("no", view.instance(2).stringValue(6));
+            assertEquals("yes", view.instance(1).stringValue(6));
+        }
+    }
+
+    @Test
+    public void testColumnarClone() {
+        Dataset columnar = new Dataset(dataset).toColumnar();
+        Dataset copy = columnar.clone();
+        copy.addRow(new Object[]{"2", 20d, 10d, 0d, 1d, "0"});
+
+        assertEquals(1, columnar.getWekaDatasetView().numInstances());
+        assertEquals(2, copy.getWekaDatasetView().numInstances());
+        assertEquals("2", copy.getWekaDatasetView().instance(1).stringValue(0));
+    }
+
+    @Test
+    public void testSparseDataset() throws Exception {
+        ArrayList<Attribute> tokens = new ArrayList<>();
+        tokens.add(new Attribute("bn:00071570n"));
+        tokens.add(new Attribute("bn:00019048n"));
+        tokens.add(new Attribute("bn:00019049n"));
+        tokens.add(new Attribute("target", target_values));
+        Dataset sparse = Dataset.createSparse("sparse", tokens, 2);
+        Dataset dense = new Dataset("sparse", tokens, 2);
+        for (Dataset current : new Dataset[]{sparse, dense}) {
+            current.addRow(new Object[]{0d, 2d, 0d, "1"});
+            current.addRow(new Object[]{1d, 0d, 0d, "0"});
+            current.addColumn("bn:00019050n", Double.class, 0d);
+            current.joinAttributes(Arrays.asList("bn:00071570n", "bn:00019048n"), "bn", Dataset.COMBINE_SUM);
+        }
+
+        assertEquals(true, sparse.isSparse());
+        assertEquals(dense.getAttributes(), sparse.getAttributes());
+        Instances view = sparse.getWekaDatasetView();
+        assertEquals(true, view.instance(0) instanceof SparseInstance);
+        assertEquals(dense.getWekaDatasetView().instance(0).toDoubleArray().length, view.instance(0).toDoubleArray().length);
+        for (int row = 0; row < 2; row++) {
+            assertEquals(Arrays.toString(dense.getWekaDatasetView().instance(row).toDoubleArray()), Arrays.toString(view.instance(row).toDoubleArray()));
+        }
+
+        File file = File.createTempFile("sparse", ".arff");
+        file.deleteOnExit();
+        sparse.generateARFFWithComments(null, file.getAbsolutePath());
+        String arff = new String(Files.readAllBytes(file.toPath()));
+        assertThat(arff, CoreMatchers.containsString("{1 1,2 2}"));
+        assertThat(arff, CoreMatchers.containsString("{2 1}"));
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void testGenerateARFFWithCommentsIOError() throws Exception {
+        File directory = Files.createTempDirectory("arff").toFile();
+        directory.deleteOnExit();
+        dataset.generateARFFWithComments(null, directory.getAbsolutePath());
+    }
+
+    @Test
+    public void testSplitView() {
+        for (int i = 2; i <= 10; i++) {
+            dataset.addRow(new Object[]{String.valueOf(i), (double) i, 0d, 0d, 0d, String.valueOf(i % 2)});
+        }
+
+        Dataset[] split = dataset.split(true, 70, 30);
+        DatasetView[] views = dataset.splitView(true, 70, 30);
+        assertEquals(2, views.length);
+        for (int j = 0; j < views.length; j++) {
+            assertEquals(split[j].getWekaDatasetView().numInstances(), views[j].numInstances());
+            Instances view = views[j].getWekaDatasetView();
+            for (int row = 0; row < view.numInstances(); row++) {
+                assertEquals(split[j].getWekaDatasetView().instance(row).toString(), view.instance(row).toString());
+            }
+        }
+
+        // Views are not affected by later modifications
+        dataset.dropColumns(Arrays.asList("length"));
+        assertEquals(6, views[0].toDataset().numAttributes());
+        assertEquals(7, views[0].toDataset().getWekaDatasetView().numInstances());
+    }
+
+    @Test
+    public void testKFold() {
+        for (int i = 2; i <= 10; i++) {
+            dataset.addRow(new Object[]{String.valueOf(i), (double) i, 0d, 0d, 0d, String.valueOf(i % 2)});
+        }
+        dataset.toColumnar();
+
+        List<DatasetView.Fold> folds = dataset.kFold(5, true);
+        assertEquals(5, folds.size());
+        boolean[] tested = new boolean[10];
+        for (DatasetView.Fold fold : folds) {
+            assertEquals(8, fold.getTraining().numInstances());
+            Instances test = fold.getTest().getWekaDatasetView();
+            assertEquals(2, test.numInstances());
+            // One row of each class in every test fold
+            assertEquals(1d, test.instance(0).value(5) + test.instance(1).value(5), 0d);
+            for (int row : fold.getTest().getRows()) {
+                tested[row] = true;
+            }
+        }
+        for (boolean rowTested : tested) {
+            assertEquals(true, rowTested);
+        }
+    }
+
+    @Test
+    public void testKFoldNumericStratification() {
+        ArrayList<Attribute> numericAttributes = new ArrayList<>();
+        numericAttributes.add(new Attribute("length"));
+        numericAttributes.add(new Attribute("target", target_values));
+        Instances instances = new Instances("numeric", numericAttributes, 0);
+        instances.setClassIndex(1);
+        Dataset numeric = new Dataset(instances);
+        for (double length : new double[]{5d, 1d, 5d, 1d}) {
+            numeric.addRow(new Object[]{length, "0"});
+        }
+
+        for (DatasetView.Fold fold : numeric.kFold(2, true)) {
+            Instances test = fold.getTest().getWekaDatasetView();
+            assertEquals(2, test.numInstances());
+            // One row of each length in every test fold
+            assertEquals(6d, test.instance(0).value(0) + test.instance(1).value(0), 0d);
+        }
+    }
+
+    @Test
+    public void testAlignTo() {
+        ArrayList<Attribute> trainingAttributes = new ArrayList<>();
+        trainingAttributes.add(new Attribute("target", Arrays.asList("1", "0")));
+        trainingAttributes.add(new Attribute("bn:00019048n"));
+        trainingAttributes.add(new Attribute("bn:00019049n"));
+        trainingAttributes.add(new Attribute("id", true));
+        Instances trainingInstances = new Instances("training", trainingAttributes, 0);
+        trainingInstances.setClassIndex(0);
+        Dataset training = new Dataset(trainingInstances);
+
+        Dataset columnar = new Dataset(dataset).toColumnar();
+        for (Dataset current : new Dataset[]{dataset, columnar}) {
+            current.alignTo(training);
+            assertThat(current.getAttributes(), contains("bn:00019048n", "bn:00019049n", "id"));
+            Instances view = current.getWekaDatasetView();
+            assertEquals(0, view.classIndex());
+            assertEquals("1", view.instance(0).stringValue(0));
+            assertEquals(0d, view.instance(0).value(0), 0d);
+            assertEquals(1d, view.instance(0).value(1), 0d);
+            assertEquals(0d, view.instance(0).value(2), 0d);
+            assertEquals("1", view.instance(0).stringValue(3));
+        }
+    }
+
+    @Test
+    public void testFilterRows() {
+        Dataset large = new Dataset(name, attributes, 0);
+        for (int i = 0; i < 50000; i++) {
+            large.addRow(new Object[]{"id" + i, (double) i, (i % 7 == 0) ? null : (double) (i % 100), (double) (i % 2), 0d, String.valueOf(i % 2)});
+        }
+        Dataset columnar = new Dataset(large).toColumnar();
+        for (Dataset current : new Dataset[]{large, columnar}) {
+            int[] rows = current.findRows("length_after_drop < 10 && bn:00071570n == 1");
+            int expected = 0;
+            for (int i = 0; i < 50000; i++) {
+                if (i % 7 != 0 && i % 100 < 10 && i % 2 == 1) {
+                    assertEquals(i, rows[expected++]);
+                }
+            }
+            assertEquals(expected, rows.length);
+
+            // Nominal columns are compared by index
+            current.filterRows("length_after_drop < 10 && target == 1");
+            assertEquals(expected, current.numRows());
+            for (int row = 0; row < current.numRows(); row++) {
+                assertEquals("1", current.getWekaDatasetView().instance(row).stringValue(5));
+            }
+        }
+        int numRows = large.numRows();
+        try {
+            large.filterRows("unknown > 1");
+            fail("Expressions that cannot be compiled should be rejected");
+        } catch (IllegalArgumentException ex) {
+            assertEquals(numRows, large.numRows());
+        }
+    }
+
+    @Test
+    public void testFindRowsColumnNames() {
+        ArrayList<Attribute> columns = new ArrayList<>();
+        columns.add(new Attribute("id", true));
+        columns.add(new Attribute("a-b"));
+        columns.add(new Attribute("a_b"));
+        columns.add(new Attribute("ab"));
+        columns.add(new Attribute("a"));
+        columns.add(new Attribute("abs"));
+        Dataset current = new Dataset(name, columns, 0);
+        current.addRow(new Object[]{"0", 1d, 2d, 3d, 4d, -5d});
+        current.addRow(new Object[]{"1", 10d, 20d, 30d, null, 5d});
+
+        // Names are matched as whole tokens (the longest one) and "a-b", "a_b" and "ab" do not collide
+        assertThat(Arrays.stream(current.findRows("a-b == 1 && a_b == 2 && ab == 3")).boxed().toArray(), CoreMatchers.equalTo(new Object[]{0}));
+        assertThat(Arrays.stream(current.findRows("ab - a < 0")).boxed().toArray(), CoreMatchers.equalTo(new Object[]{0}));
+        assertEquals(2, current.findRows("Math.abs(abs) == 5").length);
+        // Missing values are NaN: != is true for them
+        assertEquals(2, current.findRows("a != 4 || a == 4").length);
+        assertEquals(1, current.findRows("!Double.isNaN(a)").length);
+        try {
+            current.findRows("id == 1");
+            fail("String columns cannot be used");
+        } catch (IllegalArgumentException ex) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testJoinAttributesByMathExpressionInvalidate() {
+        Dataset current = new Dataset(name, attributes, 0);
+        for (int i = 0; i < 10; i++) {
+            current.addRow(new Object[]{"id" + i, (double) (i % 3), (double) (i % 3), 1d, 1d, "0"});
+        }
+        current.joinAttributesByMathExpression("ratio", "length_after_drop / length", Double.class, new String[]{"length", "length_after_drop"}, new Class[]{Double.class, Double.class}, false, true, 0d);
+        // 0 / 0 is NaN, so rows 0, 3, 6 and 9 are deleted
+        assertEquals(6, current.numRows());
+        Instances view = current.getWekaDatasetView();
+        for (int row = 0; row < view.numInstances(); row++) {
+            assertEquals(1d, view.instance(row).value(view.attribute("ratio")), 0d);
+            assertEquals("id" + (row / 2 * 3 + row % 2 + 1), view.instance(row).stringValue(0));
+        }
+    }
 }
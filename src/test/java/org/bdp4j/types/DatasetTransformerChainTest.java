@@ -0,0 +1,89 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.*;
+import weka.core.Attribute;
+import weka.core.Instance;
+
+/**
+ * Tests for DatasetTransformerChain and copy-on-write clones
+ *
+ * @author María Novo
+ */
+public class DatasetTransformerChainTest {
+
+    private Dataset dataset;
+
+    @Before
+    public void setUp() {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("id", true));
+        attributes.add(new Attribute("length"));
+        attributes.add(new Attribute("target", Arrays.asList("0", "1")));
+        dataset = new Dataset("test", attributes, 0);
+        dataset.addRow(new Object[]{"1", 18, "1"});
+        dataset.addRow(new Object[]{"2", 15, "0"});
+    }
+
+    @Test
+    public void testChain() {
+        DatasetTransformer addColumn = new DatasetTransformer() {
+            @Override
+            protected Dataset transformTemplate(Dataset dataset) {
+                dataset.addColumn("weight", Double.class, 1d);
+                return dataset;
+            }
+        };
+        DatasetTransformer dropColumn = new DatasetTransformer() {
+            @Override
+            protected Dataset transformTemplate(Dataset dataset) {
+                return dataset.dropColumns(Arrays.asList("length"));
+            }
+        };
+
+        Dataset result = new DatasetTransformerChain(addColumn).then(dropColumn).transform(dataset);
+
+        assertThat(result.getAttributes(), contains("id", "target", "weight"));
+        assertThat(dataset.getAttributes(), contains("id", "length", "target"));
+        assertEquals(2, result.getInstances().size());
+    }
+
+    @Test
+    public void testCopyOnWriteClone() {
+        Dataset clone = dataset.clone();
+        Instance instance = clone.getInstances().get(0);
+        instance.setValue(1, 5d);
+        clone.addRow(new Object[]{"3", 11, "0"});
+
+        assertEquals(3, clone.getInstances().size());
+        assertEquals(5d, clone.getInstances().get(0).value(1), 0d);
+        assertEquals(2, dataset.getInstances().size());
+        assertEquals(18d, dataset.getInstances().get(0).value(1), 0d);
+    }
+}
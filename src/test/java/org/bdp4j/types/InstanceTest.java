@@ -0,0 +1,177 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the content fingerprint of Instance
+ *
+ * @author María Novo
+ */
+public class InstanceTest {
+
+    private Instance carrier;
+
+    @Before
+    public void setUp() {
+        carrier = new Instance("December is here", "spam", "1.tsms", "1.tsms");
+        carrier.setProperty("length", 16);
+        carrier.setProperty("language", "EN");
+    }
+
+    /**
+     * Test that equal contents produce the same fingerprint
+     */
+    @Test
+    public void testFingerprintEqualContents() {
+        Instance other = new Instance(new StringBuffer("December is here"), "spam", "2.tsms", "2.tsms");
+        other.setProperty("language", "EN");
+        other.setProperty("length", 16);
+
+        assertEquals(carrier.getFingerprint(), other.getFingerprint());
+    }
+
+    /**
+     * Test that non-text payloads are fingerprinted by content
+     */
+    @Test
+    public void testFingerprintArrayContents() {
+        Instance first = new Instance(new double[]{1d, 2d, 3d}, "spam", "4.tsms", "4.tsms");
+        Instance second = new Instance(new double[]{1d, 2d, 3d}, "spam", "4.tsms", "4.tsms");
+        first.setProperty("vector", new int[]{1, 2});
+        second.setProperty("vector", new int[]{1, 2});
+
+        assertEquals(first.getFingerprint(), second.getFingerprint());
+        second.setData(new double[]{1d, 2d, 4d});
+        assertNotEquals(first.getFingerprint(), second.getFingerprint());
+    }
+
+    /**
+     * Test that the fingerprint changes with data, target and properties
+     */
+    @Test
+    public void testFingerprintChanges() {
+        long initial = carrier.getFingerprint();
+
+        carrier.setData("January is here");
+        long afterData = carrier.getFingerprint();
+        assertNotEquals(initial, afterData);
+
+        carrier.setTarget("ham");
+        long afterTarget = carrier.getFingerprint();
+        assertNotEquals(afterData, afterTarget);
+
+        carrier.setProperty("length", 15);
+        long afterProperty = carrier.getFingerprint();
+        assertNotEquals(afterTarget, afterProperty);
+
+        carrier.setProperty("length", 16);
+        carrier.setTarget("spam");
+        carrier.setData("December is here");
+        assertEquals(initial, carrier.getFingerprint());
+    }
+
+    /**
+     * Test that changes in properties shared with a copy are detected
+     */
+    @Test
+    public void testFingerprintSharedProperties() {
+        long initial = carrier.getFingerprint();
+        Instance copy = new Instance(carrier);
+
+        copy.setProperty("wordcount", 3);
+        assertNotEquals(initial, carrier.getFingerprint());
+        assertEquals(carrier.getFingerprint(), copy.getFingerprint());
+    }
+
+    /**
+     * Test that property changes made through the setters are detected and
+     * changes made through the views are detected after invalidation
+     */
+    @Test
+    public void testFingerprintPropertyChanges() {
+        long initial = carrier.getFingerprint();
+
+        carrier.setProperty("length", 17);
+        long changed = carrier.getFingerprint();
+        assertNotEquals(initial, changed);
+        carrier.setProperty("length", 16);
+        assertEquals(initial, carrier.getFingerprint());
+
+        carrier.getPropertyList().remove("language");
+        assertEquals(initial, carrier.getFingerprint());
+        carrier.invalidateFingerprint();
+        assertNotEquals(initial, carrier.getFingerprint());
+
+        Instance expected = new Instance("December is here", "spam", "1.tsms", "1.tsms");
+        expected.setProperty("length", 16);
+        assertEquals(expected.getFingerprint(), carrier.getFingerprint());
+    }
+
+    /**
+     * Test that in place modifications are detected after invalidation
+     */
+    @Test
+    public void testInvalidateFingerprint() {
+        StringBuffer data = new StringBuffer("December");
+        Instance instance = new Instance(data, null, "3.tsms", "3.tsms");
+        long initial = instance.getFingerprint();
+
+        data.append(" is here");
+        assertEquals(initial, instance.getFingerprint());
+        instance.invalidateFingerprint();
+        assertNotEquals(initial, instance.getFingerprint());
+    }
+
+    /**
+     * Test that releasing an invalid instance keeps only name and reason
+     */
+    @Test
+    public void testReleasePayload() {
+        Instance copy = new Instance(carrier);
+        carrier.invalidate("Language not supported");
+        carrier.releasePayload();
+
+        assertFalse(carrier.isValid());
+        assertEquals("1.tsms", carrier.getName());
+        assertEquals("Language not supported", carrier.getInvalidationReason());
+        assertEquals("NULL", carrier.getData());
+        assertTrue(carrier.getPropertyList().isEmpty());
+        assertEquals(2, copy.getPropertyList().size());
+    }
+
+    /**
+     * Test that releasing data keeps properties and target
+     */
+    @Test
+    public void testReleaseData() {
+        carrier.releaseData();
+
+        assertTrue(carrier.isDataReleased());
+        assertEquals("spam", carrier.getTarget());
+        assertEquals(16, carrier.getProperty("length"));
+        assertEquals(String.class.getName(), ((DataTombstone) carrier.getData()).getReleasedType());
+    }
+}
@@ -0,0 +1,89 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Test;
+import weka.core.Attribute;
+
+public class LibSVMExporterTest {
+
+    Dataset dataset;
+
+    @Before
+    public void setUp() {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("id", true));
+        attributes.add(new Attribute("a"));
+        attributes.add(new Attribute("b"));
+        attributes.add(new Attribute("target", Arrays.asList("ham", "spam")));
+        dataset = new Dataset("test", attributes, 0);
+        dataset.addRow(new Object[]{"id0", 0d, 2.5, "spam"});
+        dataset.addRow(new Object[]{"id1", 1 / 3d, 0d, "ham"});
+        dataset.addRow(new Object[]{"id2", 0d, 0d, "spam"});
+        dataset.addRow(new Object[]{"id3", null, 7d, "ham"});
+    }
+
+    private String export(DatasetExporter exporter) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        exporter.export(output);
+        return output.toString("UTF-8");
+    }
+
+    @Test
+    public void testExport() throws Exception {
+        String expected = "1 3:2.5\n0 2:0.333333\n1\n0 3:7\n";
+        for (Dataset current : new Dataset[]{dataset, new Dataset(dataset).toColumnar(), new Dataset(dataset).toSparse()}) {
+            assertEquals(expected, export(new LibSVMExporter(current).setChunkSize(3)));
+        }
+        assertEquals("2.5 4:1\n0 2:0.333333\n0 4:1\n7\n", export(new LibSVMExporter(dataset).setLabelColumn(2)));
+    }
+
+    @Test
+    public void testMissingLabel() throws Exception {
+        dataset.addRow(new Object[]{"id4", 1d, 1d, null});
+        dataset.addRow(new Object[]{"id5", 2d, 0d, "ham"});
+        dataset.addRow(new Object[]{"id6", 3d, 0d, null});
+        String expected = "1 3:2.5\n0 2:0.333333\n1\n0 3:7\n0 2:2\n";
+        for (Dataset current : new Dataset[]{dataset, new Dataset(dataset).toSparse()}) {
+            for (int chunkSize : new int[]{1, 3, 5}) {
+                assertEquals(expected, export(new LibSVMExporter(current).setChunkSize(chunkSize)));
+            }
+        }
+    }
+
+    @Test
+    public void testSequential() throws Exception {
+        Dataset large = new Dataset(dataset);
+        for (int i = 0; i < 1000; i++) {
+            large.addRow(new Object[]{"id" + i, (i % 3 == 0) ? 0d : i / 7d, (double) (i % 2), (i % 5 == 0) ? "ham" : "spam"});
+        }
+        String parallel = export(new LibSVMExporter(large).setChunkSize(7));
+        String sequential = export(new LibSVMExporter(large).setParallel(false));
+        assertEquals(sequential, parallel);
+        assertEquals(1004, sequential.split("\n").length);
+    }
+}
@@ -0,0 +1,65 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.types;
+
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+public class PropertyStatisticsTest {
+
+    @Test
+    public void testCompute() {
+        String[] languages = {"en", "es", "pt"};
+        List<Instance> instances = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            Instance instance = new Instance("data" + i, "target", "name" + i, "source");
+            instance.setProperty("length", (double) i);
+            if (i % 2 == 0) {
+                instance.setProperty("language", languages[i % 3]);
+            }
+            if (i % 100 == 0) {
+                instance.setProperty("score", null);
+            }
+            instances.add(instance);
+        }
+        PropertyStatistics statistics = PropertyStatistics.compute(instances);
+        assertEquals(10000, statistics.numInstances());
+
+        ColumnStatistics length = statistics.getProperty("length");
+        assertEquals(10000, length.getCount());
+        assertEquals(4999.5, length.getMean(), 1e-9);
+        assertEquals(9999, length.getMax(), 0d);
+        assertEquals(10000, length.getDistinctCount(), 10000 * 0.05);
+        assertEquals(5000, length.getMedian(), 10000 * 0.02);
+
+        ColumnStatistics language = statistics.getProperty("language");
+        assertEquals(0, language.getCount());
+        assertEquals(5000, language.getNonNumericCount());
+        assertEquals(3, language.getDistinctCount());
+
+        assertEquals(100, statistics.getProperty("score").getMissingCount());
+        assertNull(statistics.getProperty("unknown"));
+    }
+}
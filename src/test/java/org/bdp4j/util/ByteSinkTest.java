@@ -0,0 +1,54 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.util;
+
+import java.nio.charset.StandardCharsets;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import weka.core.Utils;
+
+public class ByteSinkTest {
+
+    @Test
+    public void testAppendDouble() {
+        double[] values = {0, -0d, 18, 0.5, 1d / 3, -2.25, 123456.789, 1e-7, -4e-7, 2.5e-6, 0.1 + 0.2, 0.025, 99999999.9999999, 1e15, Double.NaN};
+        ByteSink sink = new ByteSink(16);
+        for (double value : values) {
+            sink.clear();
+            sink.append(value, 6);
+            assertEquals(Utils.doubleToString(value, 6), new String(sink.array(), 0, sink.size(), StandardCharsets.UTF_8));
+        }
+        for (int i = -100000; i < 100000; i += 7) {
+            double value = i / 1000d;
+            sink.clear();
+            sink.append(value, 2);
+            assertEquals(Utils.doubleToString(value, 2), new String(sink.array(), 0, sink.size(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testAppendLong() {
+        ByteSink sink = new ByteSink(1);
+        sink.append(0L).append(',').append(-1234567890123L).append(',').append(Long.MIN_VALUE);
+        assertEquals("0,-1234567890123," + Long.MIN_VALUE, new String(sink.array(), 0, sink.size(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,89 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.util;
+
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import org.junit.Test;
+
+public class HashUtilsTest {
+
+    private static class Payload implements ContentHashable {
+
+        private final double[] values;
+
+        private final String text;
+
+        Payload(double[] values, String text) {
+            this.values = values;
+            this.text = text;
+        }
+
+        @Override
+        public long contentHash() {
+            return HashUtils.combine(HashUtils.hash64(values), HashUtils.hash64(text));
+        }
+    }
+
+    private static class Opaque {
+
+        private final String name;
+
+        Opaque(String name) {
+            this.name = name;
+        }
+    }
+
+    @Test
+    public void testArraysByContent() {
+        assertEquals(HashUtils.hash64(new double[]{1d, 2.5, Double.NaN}), HashUtils.hash64(new double[]{1d, 2.5, Double.NaN}));
+        assertNotEquals(HashUtils.hash64(new double[]{1d, 2.5}), HashUtils.hash64(new double[]{2.5, 1d}));
+        assertEquals(HashUtils.hash64(new int[]{1, 2, 3}), HashUtils.hash64(new int[]{1, 2, 3}));
+        assertNotEquals(HashUtils.hash64(new int[]{1, 2, 3}), HashUtils.hash64(new long[]{1, 2, 3}));
+        assertEquals(HashUtils.hash64((Object) new Object[]{"a", new int[]{1}}), HashUtils.hash64((Object) new Object[]{"a", new int[]{1}}));
+    }
+
+    @Test
+    public void testStableHashes() {
+        // Enumerations are hashed by name (their hashCode is an identity hash)
+        assertEquals(HashUtils.combine(HashUtils.hash64(RoundingMode.class.getName()), HashUtils.hash64("UP")),
+                HashUtils.hash64(RoundingMode.UP));
+        // Objects implementing ContentHashable are hashed by content
+        assertEquals(HashUtils.hash64(new Payload(new double[]{1d, 2d}, "text")), HashUtils.hash64(new Payload(new double[]{1d, 2d}, "text")));
+        assertNotEquals(HashUtils.hash64(new Payload(new double[]{1d, 2d}, "text")), HashUtils.hash64(new Payload(new double[]{1d, 3d}, "text")));
+        // Only the class of other objects is taken into account (never identity hashes)
+        assertEquals(HashUtils.hash64(new Opaque("a")), HashUtils.hash64(new Opaque("b")));
+        assertNotEquals(HashUtils.hash64(new Opaque("a")), HashUtils.hash64(new Object()));
+    }
+
+    @Test
+    public void testCollections() {
+        assertEquals(HashUtils.hash64(new HashSet<>(Arrays.asList("a", "b", "c"))), HashUtils.hash64(new LinkedHashSet<>(Arrays.asList("c", "b", "a"))));
+        assertNotEquals(HashUtils.hash64(Arrays.asList("a", "b")), HashUtils.hash64(Arrays.asList("b", "a")));
+        assertEquals(HashUtils.hash64(Arrays.asList(new double[]{1d}, 2)), HashUtils.hash64(Arrays.asList(new double[]{1d}, 2)));
+        assertEquals(HashUtils.hash64(2.0), HashUtils.hash64((Object) 2.0));
+    }
+}
@@ -0,0 +1,72 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.util;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class HyperLogLogTest {
+
+    @Test
+    public void testEstimate() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 100000; i++) {
+            // Every value is added twice
+            sketch.add(HashUtils.hash64(i % 50000 + 0.5));
+        }
+        assertEquals(50000, sketch.estimate(), 50000 * 0.05);
+    }
+
+    @Test
+    public void testSmallCardinality() {
+        HyperLogLog sketch = new HyperLogLog();
+        assertEquals(0, sketch.estimate());
+        for (String value : new String[]{"ham", "spam", "ham", "unknown"}) {
+            sketch.add(HashUtils.hash64(value));
+        }
+        assertEquals(3, sketch.estimate());
+    }
+
+    @Test
+    public void testMerge() {
+        HyperLogLog all = new HyperLogLog(10);
+        HyperLogLog first = new HyperLogLog(10);
+        HyperLogLog second = new HyperLogLog(10);
+        for (int i = 0; i < 20000; i++) {
+            long hash = HashUtils.hash64("value" + i);
+            all.add(hash);
+            (i < 12000 ? first : second).add(hash);
+            if (i % 3 == 0) {
+                second.add(hash);
+            }
+        }
+        HyperLogLog copy = new HyperLogLog(first);
+        copy.merge(second);
+        assertEquals(all.estimate(), copy.estimate());
+        assertEquals(20000, copy.estimate(), 20000 * 0.1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentPrecision() {
+        new HyperLogLog(10).merge(new HyperLogLog(12));
+    }
+}
@@ -0,0 +1,90 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class KLLSketchTest {
+
+    private static final int SIZE = 100000;
+
+    /**
+     * Returns the values 0, ..., SIZE - 1 in a scrambled order
+     */
+    private static double value(int i) {
+        return (i * 7919L) % SIZE;
+    }
+
+    @Test
+    public void testQuantiles() {
+        KLLSketch sketch = new KLLSketch();
+        for (int i = 0; i < SIZE; i++) {
+            sketch.add(value(i));
+        }
+        assertEquals(SIZE, sketch.getCount());
+        assertEquals(0d, sketch.getQuantile(0d), 0d);
+        assertEquals(SIZE - 1, sketch.getQuantile(1d), 0d);
+        for (double fraction : new double[]{0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99}) {
+            assertEquals(fraction * SIZE, sketch.getQuantile(fraction), SIZE * 0.02);
+        }
+        // Memory is bounded
+        assertTrue(sketch.getNumRetained() < 1000);
+    }
+
+    @Test
+    public void testMerge() {
+        KLLSketch[] parts = new KLLSketch[4];
+        for (int part = 0; part < parts.length; part++) {
+            parts[part] = new KLLSketch();
+        }
+        for (int i = 0; i < SIZE; i++) {
+            parts[i % parts.length].add(value(i));
+        }
+        KLLSketch merged = new KLLSketch(parts[0]);
+        for (int part = 1; part < parts.length; part++) {
+            merged.merge(parts[part]);
+        }
+        assertEquals(SIZE, merged.getCount());
+        assertEquals(0d, merged.getMin(), 0d);
+        assertEquals(SIZE - 1, merged.getMax(), 0d);
+        for (double fraction : new double[]{0.1, 0.5, 0.9}) {
+            assertEquals(fraction * SIZE, merged.getQuantile(fraction), SIZE * 0.03);
+        }
+        assertTrue(merged.getNumRetained() < 1000);
+    }
+
+    @Test
+    public void testWeighted() {
+        KLLSketch sketch = new KLLSketch();
+        assertTrue(Double.isNaN(sketch.getQuantile(0.5)));
+        sketch.add(0d, 3 * SIZE);
+        sketch.add(Double.NaN);
+        for (int i = 0; i < SIZE; i++) {
+            sketch.add(value(i) + 1);
+        }
+        assertEquals(4 * SIZE, sketch.getCount());
+        assertEquals(0d, sketch.getQuantile(0.5), 0d);
+        assertEquals(SIZE / 2, sketch.getQuantile(0.875), SIZE * 0.15);
+    }
+}
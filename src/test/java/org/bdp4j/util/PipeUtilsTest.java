@@ -0,0 +1,55 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import org.bdp4j.types.Instance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class PipeUtilsTest {
+
+    /**
+     * Test that checkpoint keys check names and fingerprints, and that keys
+     * saved by previous versions (only names) are still accepted
+     */
+    @Test
+    public void testCheckpointKey() {
+        Collection<Instance> carriers = Arrays.asList(new Instance("December is here", null, "1.tsms", "1.tsms"),
+                new Instance("Call me", null, "2.tsms", "2.tsms"));
+        String key = PipeUtils.generateCheckpointKey(carriers);
+        String legacyKey = PipeUtils.generateMD5("1.tsms") + PipeUtils.generateMD5("2.tsms");
+
+        assertTrue(PipeUtils.matchesCheckpointKey(key, key));
+        assertTrue(PipeUtils.matchesCheckpointKey(legacyKey, key));
+
+        carriers.iterator().next().setData("January is here");
+        String changedKey = PipeUtils.generateCheckpointKey(carriers);
+        assertFalse(PipeUtils.matchesCheckpointKey(key, changedKey));
+        assertTrue(PipeUtils.matchesCheckpointKey(legacyKey, changedKey));
+
+        Collection<Instance> others = Arrays.asList(new Instance("December is here", null, "3.tsms", "3.tsms"));
+        assertFalse(PipeUtils.matchesCheckpointKey(legacyKey, PipeUtils.generateCheckpointKey(others)));
+    }
+}
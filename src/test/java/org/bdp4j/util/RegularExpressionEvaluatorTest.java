@@ -0,0 +1,77 @@
+/*-
+ * #%L
+ * BDP4J
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.bdp4j.util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for RegularExpressionEvaluator
+ *
+ * @author María Novo
+ */
+public class RegularExpressionEvaluatorTest {
+
+    @Test
+    public void testCompile() throws Exception {
+        RegularExpressionEvaluator ree = new RegularExpressionEvaluator();
+        CompiledExpression compiled = ree.compile("(bn:00071570n > 1) ? 1 : 0", int.class,
+                new String[]{"bn:00071570n"}, new Class[]{double.class});
+
+        assertEquals(1, compiled.evaluate(new Object[]{2d}));
+        assertEquals(0, compiled.evaluate(new Object[]{1d}));
+        assertSame(compiled, ree.compile("(bn:00071570n > 1) ? 1 : 0", int.class,
+                new String[]{"bn:00071570n"}, new Class[]{double.class}));
+        assertNotSame(compiled, ree.compile("(bn:00071570n > 1) ? 1 : 0", int.class,
+                new String[]{"bn:00071570n"}, new Class[]{int.class}));
+    }
+
+    @Test
+    public void testEvaluateExpression() throws Exception {
+        RegularExpressionEvaluator ree = new RegularExpressionEvaluator();
+        assertEquals(5d, ree.evaluateExpression("a + b", double.class, new String[]{"a", "b"},
+                new Class[]{double.class, double.class}, new Object[]{2d, 3d}));
+        assertNull(ree.evaluateExpression("a / b", int.class, new String[]{"a", "b"},
+                new Class[]{int.class, int.class}, new Object[]{2, 0}));
+    }
+
+    @Test
+    public void testCompileColumnExpression() throws Exception {
+        int numRows = ColumnExpression.CHUNK_SIZE * 3 + 7;
+        double[][] columns = new double[2][numRows];
+        for (int row = 0; row < numRows; row++) {
+            columns[0][row] = row;
+            columns[1][row] = row % 3;
+        }
+
+        ColumnExpression compiled = new RegularExpressionEvaluator().compileColumnExpression("bn:00071570n / b", int.class,
+                new String[]{"bn:00071570n", "b"}, new Class[]{int.class, int.class});
+        boolean[] failed = new boolean[numRows];
+        double[] result = compiled.evaluate(columns, numRows, failed);
+
+        assertTrue(failed[0]);
+        assertEquals(5d, result[11], 0d);
+        assertTrue(failed[numRows - 1]);
+        assertEquals((numRows - 2) / 2, result[numRows - 2], 0d);
+        assertFalse(ColumnExpression.isSupported(String.class, new Class[]{double.class}));
+    }
+}